@@ -70,10 +70,17 @@ wait_for_port "$BASE_URL/health" "service health endpoint"
 
 psql "$PSQL_DSN" <<SQL
 TRUNCATE TABLE diamonds_summary_100 RESTART IDENTITY;
-TRUNCATE TABLE diamonds_orders_200 RESTART IDENTITY;
+TRUNCATE TABLE diamonds_stones RESTART IDENTITY;
 SQL
 
-psql "$PSQL_DSN" -c "\\copy diamonds_orders_200 (stone_reference, root_appt_id, order_status, stone_status, stone_type, ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date) FROM '$DIAMONDS_FIXTURE' WITH (FORMAT csv, HEADER true, NULL '')"
+# Stage the fixture and load diamonds_stones in one INSERT, so its statement triggers fire once rather than once per
+# row through the diamonds_orders_200 view.
+psql "$PSQL_DSN" -v ON_ERROR_STOP=1 <<SQL
+CREATE TEMP TABLE diamonds_fixture AS SELECT stone_reference, root_appt_id, order_status, stone_status, stone_type, ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date FROM diamonds_orders_200 WITH NO DATA;
+\\copy diamonds_fixture FROM '$DIAMONDS_FIXTURE' WITH (FORMAT csv, HEADER true, NULL '')
+INSERT INTO diamonds_stones (stone_reference, root_appt_id, order_status_code, stone_status_code, stone_type, ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date)
+SELECT stone_reference, root_appt_id, diamonds_status_code('order', order_status), diamonds_status_code('stone', stone_status), stone_type, ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date FROM diamonds_fixture;
+SQL
 
 order_payload=$(cat <<'JSON'
 {
@@ -0,0 +1,39 @@
+package com.hpvvssalesautomation;
+
+import com.hpvvssalesautomation.domain.payments.PaymentsImportResult;
+import com.hpvvssalesautomation.domain.payments.PaymentsLedgerImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class PaymentsImportApplication {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentsImportApplication.class);
+
+    public static void main(String[] args) throws Exception {
+        String fileProp = System.getProperty("payments.file");
+        if (fileProp == null || fileProp.isBlank()) {
+            throw new IllegalArgumentException("payments.file system property is required");
+        }
+        Path csvPath = Paths.get(fileProp).toAbsolutePath().normalize();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+
+        try (context; Reader reader = Files.newBufferedReader(csvPath)) {
+            PaymentsImportResult result = context.getBean(PaymentsLedgerImporter.class).importCsv(reader);
+            log.info("Imported {}: read={} staged={} rejected={} inserted={} updated={} in {} ms ({} rows/s)",
+                    csvPath, result.rowsRead(), result.rowsStaged(), result.rowsRejected(), result.inserted(), result.updated(),
+                    result.elapsedMillis(), Math.round(result.rowsPerSecond()));
+            result.errors().forEach(error -> log.warn("Rejected {}", error));
+        }
+    }
+}
@@ -3,6 +3,10 @@ package com.hpvvssalesautomation.adapters;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hpvvssalesautomation.domain.diamonds.DiamondsCounts;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsOrderStatus;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStone;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStoneStatus;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsSummary;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
@@ -10,8 +14,12 @@ import org.springframework.stereotype.Component;
 import java.time.LocalDate;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
 
 @Component
 public class DiamondsAdapter {
@@ -24,25 +32,47 @@ public class DiamondsAdapter {
         this.objectMapper = objectMapper;
     }
 
-    public int applyOrderDecision(String rootApptId,
-                                  String newOrderStatus,
-                                  String orderedBy,
-                                  LocalDate orderedDate,
-                                  ZonedDateTime updatedAt) {
-
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("root_appt_id", rootApptId)
-                .addValue("new_order_status", newOrderStatus)
-                .addValue("ordered_by", orderedBy)
-                .addValue("ordered_date", orderedDate)
-                .addValue("updated_at", toOffset(updatedAt));
+    /**
+     * Blocks until the caller's transaction holds the lock of every root in {@code rootApptIds}. Mutations of a root
+     * take its lock first, so they never interleave with another batch's update, recount and summary write.
+     */
+    public void lockRoots(Collection<String> rootApptIds) {
+        if (rootApptIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(
+                "SELECT lock_diamonds_roots(CAST(:root_appt_ids AS text[]))",
+                new MapSqlParameterSource("root_appt_ids", rootApptIds.toArray(String[]::new)),
+                rs -> {
+                }
+        );
+    }
 
-        return jdbcTemplate.update(
-                "UPDATE diamonds_orders_200 SET order_status = :new_order_status, " +
-                        "ordered_by = COALESCE(:ordered_by, ordered_by), " +
-                        "ordered_date = COALESCE(:ordered_date, ordered_date), " +
+    /**
+     * Applies order decisions for many roots in one statement, moving each root's Proposing stones to its decision.
+     * Expects at most one decision per root; returns the updated row count per root in input order. Decision labels
+     * are normalized to their {@link DiamondsOrderStatus} code.
+     */
+    public Map<String, Integer> applyOrderDecisions(List<OrderDecision> decisions, ZonedDateTime updatedAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource("updated_at", toOffset(updatedAt));
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < decisions.size(); i++) {
+            OrderDecision decision = decisions.get(i);
+            values.add("(CAST(:root_" + i + " AS TEXT), CAST(:status_" + i + " AS SMALLINT), CAST(:by_" + i + " AS TEXT), CAST(:date_" + i + " AS DATE))");
+            params.addValue("root_" + i, decision.rootApptId())
+                    .addValue("status_" + i, DiamondsOrderStatus.fromLabel(decision.orderStatus()).code())
+                    .addValue("by_" + i, decision.orderedBy())
+                    .addValue("date_" + i, decision.orderedDate());
+        }
+        return updatedRowsByRoot(
+                decisions.stream().map(OrderDecision::rootApptId).toList(),
+                "UPDATE diamonds_stones d SET order_status_code = v.order_status_code, " +
+                        "ordered_by = COALESCE(v.ordered_by, d.ordered_by), " +
+                        "ordered_date = COALESCE(v.ordered_date, d.ordered_date), " +
                         "updated_at = :updated_at " +
-                        "WHERE root_appt_id = :root_appt_id AND lower(order_status) = 'proposing'",
+                        "FROM (VALUES " + values + ") AS v(root_appt_id, order_status_code, ordered_by, ordered_date) " +
+                        "WHERE d.root_appt_id = v.root_appt_id AND d.order_status_code = " + DiamondsOrderStatus.PROPOSING.code() + " " +
+                        "RETURNING d.root_appt_id",
                 params
         );
     }
@@ -59,52 +89,78 @@ public class DiamondsAdapter {
                 .addValue("updated_at", toOffset(updatedAt));
 
         return jdbcTemplate.update(
-                "UPDATE diamonds_orders_200 SET order_status = 'Delivered', stone_status = 'In Stock', " +
+                "UPDATE diamonds_stones SET order_status_code = " + DiamondsOrderStatus.DELIVERED.code() +
+                        ", stone_status_code = " + DiamondsStoneStatus.IN_STOCK.code() + ", " +
                         "memo_invoice_date = :memo_invoice_date, return_due_date = :return_due_date, updated_at = :updated_at " +
-                        "WHERE root_appt_id = :root_appt_id AND lower(order_status) = 'on the way' " +
-                        "AND (stone_status IS NULL OR lower(stone_status) <> 'in stock')",
+                        "WHERE root_appt_id = :root_appt_id AND order_status_code = " + DiamondsOrderStatus.ON_THE_WAY.code() + " " +
+                        "AND stone_status_code IS DISTINCT FROM " + DiamondsStoneStatus.IN_STOCK.code(),
                 params
         );
     }
 
-    public int applyStoneDecision(String rootApptId,
-                                  String stoneStatus,
-                                  String decidedBy,
-                                  LocalDate decidedDate,
-                                  ZonedDateTime updatedAt) {
-
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("root_appt_id", rootApptId)
-                .addValue("stone_status", stoneStatus)
-                .addValue("decided_by", decidedBy)
-                .addValue("decided_date", decidedDate)
-                .addValue("updated_at", toOffset(updatedAt));
-
-        return jdbcTemplate.update(
-                "UPDATE diamonds_orders_200 SET stone_status = :stone_status, decided_by = COALESCE(:decided_by, decided_by), " +
-                        "decided_date = COALESCE(:decided_date, decided_date), updated_at = :updated_at " +
-                        "WHERE root_appt_id = :root_appt_id",
+    /**
+     * Applies stone decisions for many roots in one statement. Expects at most one decision per root; returns the
+     * updated row count per root in input order. Decision labels are normalized to their {@link DiamondsStoneStatus}
+     * code.
+     */
+    public Map<String, Integer> applyStoneDecisions(List<StoneDecision> decisions, ZonedDateTime updatedAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource("updated_at", toOffset(updatedAt));
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < decisions.size(); i++) {
+            StoneDecision decision = decisions.get(i);
+            values.add("(CAST(:root_" + i + " AS TEXT), CAST(:status_" + i + " AS SMALLINT), CAST(:by_" + i + " AS TEXT), CAST(:date_" + i + " AS DATE))");
+            params.addValue("root_" + i, decision.rootApptId())
+                    .addValue("status_" + i, DiamondsStoneStatus.fromLabel(decision.stoneStatus()).code())
+                    .addValue("by_" + i, decision.decidedBy())
+                    .addValue("date_" + i, decision.decidedDate());
+        }
+        return updatedRowsByRoot(
+                decisions.stream().map(StoneDecision::rootApptId).toList(),
+                "UPDATE diamonds_stones d SET stone_status_code = v.stone_status_code, " +
+                        "decided_by = COALESCE(v.decided_by, d.decided_by), " +
+                        "decided_date = COALESCE(v.decided_date, d.decided_date), " +
+                        "updated_at = :updated_at " +
+                        "FROM (VALUES " + values + ") AS v(root_appt_id, stone_status_code, decided_by, decided_date) " +
+                        "WHERE d.root_appt_id = v.root_appt_id " +
+                        "RETURNING d.root_appt_id",
                 params
         );
     }
 
+    private Map<String, Integer> updatedRowsByRoot(List<String> rootApptIds, String sql, MapSqlParameterSource params) {
+        Map<String, Integer> updated = new LinkedHashMap<>();
+        rootApptIds.forEach(rootApptId -> updated.put(rootApptId, 0));
+        if (rootApptIds.isEmpty()) {
+            return updated;
+        }
+        jdbcTemplate.query(sql, params, rs -> {
+            updated.merge(rs.getString("root_appt_id"), 1, Integer::sum);
+        });
+        return updated;
+    }
+
     public DiamondsCounts readCounts(String rootApptId) {
-        MapSqlParameterSource params = new MapSqlParameterSource("root_appt_id", rootApptId);
-        return jdbcTemplate.query(
-                "SELECT COUNT(*) AS total_count, " +
-                        "COUNT(*) FILTER (WHERE lower(order_status) = 'proposing') AS proposing_count, " +
-                        "COUNT(*) FILTER (WHERE lower(order_status) = 'not approved') AS not_approved_count, " +
-                        "COUNT(*) FILTER (WHERE lower(order_status) = 'on the way') AS on_the_way_count, " +
-                        "COUNT(*) FILTER (WHERE lower(order_status) = 'delivered') AS delivered_count, " +
-                        "COUNT(*) FILTER (WHERE lower(stone_status) = 'in stock') AS in_stock_count, " +
-                        "COUNT(*) FILTER (WHERE lower(stone_status) = 'keep') AS keep_count, " +
-                        "COUNT(*) FILTER (WHERE lower(stone_status) = 'return') AS return_count, " +
-                        "COUNT(*) FILTER (WHERE lower(stone_status) = 'replace') AS replace_count " +
-                        "FROM diamonds_orders_200 WHERE root_appt_id = :root_appt_id",
-                params,
+        return readCounts(List.of(rootApptId)).get(rootApptId);
+    }
+
+    /**
+     * Reads the counters diamonds_summary_100 keeps in step with diamonds_stones. Roots without a summary row get
+     * zero counts; the map follows the iteration order of {@code rootApptIds}.
+     */
+    public Map<String, DiamondsCounts> readCounts(Collection<String> rootApptIds) {
+        Map<String, DiamondsCounts> counts = new LinkedHashMap<>();
+        rootApptIds.forEach(rootApptId -> counts.put(rootApptId, new DiamondsCounts(rootApptId, 0, 0, 0, 0, 0, 0, 0, 0, 0)));
+        if (counts.isEmpty()) {
+            return counts;
+        }
+        jdbcTemplate.query(
+                "SELECT root_appt_id, total_count, proposing_count, not_approved_count, on_the_way_count, delivered_count, " +
+                        "in_stock_count, keep_count, return_count, replace_count " +
+                        "FROM diamonds_summary_100 WHERE root_appt_id IN (:root_appt_ids)",
+                new MapSqlParameterSource("root_appt_ids", List.copyOf(counts.keySet())),
                 rs -> {
-                    rs.next();
-                    return new DiamondsCounts(
+                    String rootApptId = rs.getString("root_appt_id");
+                    counts.put(rootApptId, new DiamondsCounts(
                             rootApptId,
                             rs.getInt("total_count"),
                             rs.getInt("proposing_count"),
@@ -115,48 +171,183 @@ public class DiamondsAdapter {
                             rs.getInt("keep_count"),
                             rs.getInt("return_count"),
                             rs.getInt("replace_count")
-                    );
+                    ));
                 }
         );
+        return counts;
+    }
+
+    /**
+     * Returns up to {@code limit} roots after {@code afterRootApptId} in root order, counting roots that have stones
+     * or a summary row, so the verifier can walk every root in bounded batches.
+     */
+    public List<String> findSummaryRoots(String afterRootApptId, int limit) {
+        return jdbcTemplate.queryForList(
+                "SELECT root_appt_id FROM (" +
+                        "SELECT DISTINCT root_appt_id FROM diamonds_stones WHERE root_appt_id > :after ORDER BY root_appt_id LIMIT :limit" +
+                        ") stones UNION " +
+                        "SELECT root_appt_id FROM (" +
+                        "SELECT root_appt_id FROM diamonds_summary_100 WHERE root_appt_id > :after ORDER BY root_appt_id LIMIT :limit" +
+                        ") summaries ORDER BY root_appt_id LIMIT :limit",
+                new MapSqlParameterSource().addValue("after", afterRootApptId).addValue("limit", limit),
+                String.class
+        );
+    }
+
+    /**
+     * Recounts the given roots under their root locks and rewrites the counters that drifted; returns those roots.
+     */
+    public List<String> repairSummaryCounts(Collection<String> rootApptIds) {
+        return jdbcTemplate.queryForList(
+                "SELECT repaired_root FROM repair_diamonds_summary_counts(CAST(:root_appt_ids AS text[]))",
+                new MapSqlParameterSource("root_appt_ids", rootApptIds.toArray(String[]::new)),
+                String.class
+        );
     }
 
     public void persistSummary(DiamondsCounts counts,
                                String centerStoneOrderStatus,
                                ZonedDateTime updatedAt) {
+        persistSummaries(List.of(DiamondsSummary.of(counts, centerStoneOrderStatus, toOffset(updatedAt))));
+    }
 
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("root_appt_id", counts.rootApptId())
-                .addValue("center_stone_order_status", centerStoneOrderStatus)
-                .addValue("total_count", counts.totalCount())
-                .addValue("proposing_count", counts.proposingCount())
-                .addValue("not_approved_count", counts.notApprovedCount())
-                .addValue("on_the_way_count", counts.onTheWayCount())
-                .addValue("delivered_count", counts.deliveredCount())
-                .addValue("in_stock_count", counts.inStockCount())
-                .addValue("keep_count", counts.keepCount())
-                .addValue("return_count", counts.returnCount())
-                .addValue("replace_count", counts.replaceCount())
-                .addValue("summary_json", toJson(counts))
-                .addValue("updated_at", toOffset(updatedAt));
+    /**
+     * Stores each summary's label and JSON in diamonds_summary_100 and copies the label onto master, one statement
+     * each. The counters themselves are only written for roots without a summary row; triggers maintain them after.
+     */
+    public void persistSummaries(List<DiamondsSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringJoiner summaryRows = new StringJoiner(", ");
+        StringJoiner labelRows = new StringJoiner(", ");
+        for (int i = 0; i < summaries.size(); i++) {
+            DiamondsSummary summary = summaries.get(i);
+            String suffix = "_" + i;
+            summaryRows.add("(:root_appt_id" + suffix + ", :center_stone_order_status" + suffix + ", :total_count" + suffix +
+                    ", :proposing_count" + suffix + ", :not_approved_count" + suffix + ", :on_the_way_count" + suffix +
+                    ", :delivered_count" + suffix + ", :in_stock_count" + suffix + ", :keep_count" + suffix +
+                    ", :return_count" + suffix + ", :replace_count" + suffix + ", :summary_json" + suffix +
+                    ", CAST(:updated_at" + suffix + " AS TIMESTAMPTZ))");
+            labelRows.add("(CAST(:root_appt_id" + suffix + " AS TEXT), CAST(:center_stone_order_status" + suffix +
+                    " AS TEXT), CAST(:updated_at" + suffix + " AS TIMESTAMPTZ))");
+            params.addValue("root_appt_id" + suffix, summary.rootApptId())
+                    .addValue("center_stone_order_status" + suffix, summary.centerStoneOrderStatus())
+                    .addValue("total_count" + suffix, summary.totalCount())
+                    .addValue("proposing_count" + suffix, summary.proposingCount())
+                    .addValue("not_approved_count" + suffix, summary.notApprovedCount())
+                    .addValue("on_the_way_count" + suffix, summary.onTheWayCount())
+                    .addValue("delivered_count" + suffix, summary.deliveredCount())
+                    .addValue("in_stock_count" + suffix, summary.inStockCount())
+                    .addValue("keep_count" + suffix, summary.keepCount())
+                    .addValue("return_count" + suffix, summary.returnCount())
+                    .addValue("replace_count" + suffix, summary.replaceCount())
+                    .addValue("summary_json" + suffix, toJson(summary.counts()))
+                    .addValue("updated_at" + suffix, summary.updatedAt());
+        }
 
         jdbcTemplate.update(
                 "INSERT INTO diamonds_summary_100 (root_appt_id, center_stone_order_status, total_count, proposing_count, not_approved_count, on_the_way_count, delivered_count, in_stock_count, keep_count, return_count, replace_count, summary_json, updated_at) " +
-                        "VALUES (:root_appt_id, :center_stone_order_status, :total_count, :proposing_count, :not_approved_count, :on_the_way_count, :delivered_count, :in_stock_count, :keep_count, :return_count, :replace_count, :summary_json, :updated_at) " +
+                        "VALUES " + summaryRows + " " +
                         "ON CONFLICT (root_appt_id) DO UPDATE SET center_stone_order_status = EXCLUDED.center_stone_order_status, " +
-                        "total_count = EXCLUDED.total_count, proposing_count = EXCLUDED.proposing_count, not_approved_count = EXCLUDED.not_approved_count, " +
-                        "on_the_way_count = EXCLUDED.on_the_way_count, delivered_count = EXCLUDED.delivered_count, in_stock_count = EXCLUDED.in_stock_count, " +
-                        "keep_count = EXCLUDED.keep_count, return_count = EXCLUDED.return_count, replace_count = EXCLUDED.replace_count, summary_json = EXCLUDED.summary_json, " +
-                        "updated_at = EXCLUDED.updated_at",
+                        "summary_json = EXCLUDED.summary_json, updated_at = EXCLUDED.updated_at",
                 params
         );
 
         jdbcTemplate.update(
-                "UPDATE master SET center_stone_order_status = :center_stone_order_status, updated_at = COALESCE(:updated_at, updated_at) " +
-                        "WHERE root_appt_id = :root_appt_id",
+                "UPDATE master m SET center_stone_order_status = v.center_stone_order_status, updated_at = COALESCE(v.updated_at, m.updated_at) " +
+                        "FROM (VALUES " + labelRows + ") AS v(root_appt_id, center_stone_order_status, updated_at) " +
+                        "WHERE m.root_appt_id = v.root_appt_id",
                 params
         );
     }
 
+    /**
+     * Reads up to {@code limit} stones after {@code afterId} in id order. Text filters compare lower-cased values. The
+     * order status code is written into the SQL as a literal, which lets the planner match the partial On the Way
+     * index; the stone status code is bound.
+     */
+    public List<DiamondsStone> findStones(StoneFilter filter, Long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("limit", limit);
+        StringBuilder sql = new StringBuilder(
+                "SELECT s.id, s.root_appt_id, s.stone_reference, s.stone_type, oc.label AS order_status, sc.label AS stone_status, " +
+                        "s.ordered_by, s.ordered_date, s.memo_invoice_date, s.return_due_date, s.decided_by, s.decided_date " +
+                        "FROM diamonds_stones s " +
+                        "LEFT JOIN diamonds_status_codes oc ON oc.kind = 'order' AND oc.code = s.order_status_code " +
+                        "LEFT JOIN diamonds_status_codes sc ON sc.kind = 'stone' AND sc.code = s.stone_status_code WHERE 1=1");
+        if (filter.orderStatus() != null) {
+            sql.append(" AND s.order_status_code = ").append(filter.orderStatus().code());
+        }
+        if (filter.stoneStatus() != null) {
+            sql.append(" AND s.stone_status_code = :stone_status_code");
+            params.addValue("stone_status_code", filter.stoneStatus().code());
+        }
+        if (filter.stoneType() != null) {
+            sql.append(" AND lower(s.stone_type) = :stone_type");
+            params.addValue("stone_type", filter.stoneType());
+        }
+        if (filter.orderedBy() != null) {
+            sql.append(" AND lower(s.ordered_by) = :ordered_by");
+            params.addValue("ordered_by", filter.orderedBy());
+        }
+        if (filter.orderedFrom() != null) {
+            sql.append(" AND s.ordered_date >= :ordered_from");
+            params.addValue("ordered_from", filter.orderedFrom());
+        }
+        if (filter.orderedTo() != null) {
+            sql.append(" AND s.ordered_date <= :ordered_to");
+            params.addValue("ordered_to", filter.orderedTo());
+        }
+        if (filter.returnDueFrom() != null) {
+            sql.append(" AND s.return_due_date >= :return_due_from");
+            params.addValue("return_due_from", filter.returnDueFrom());
+        }
+        if (filter.returnDueTo() != null) {
+            sql.append(" AND s.return_due_date <= :return_due_to");
+            params.addValue("return_due_to", filter.returnDueTo());
+        }
+        if (afterId != null) {
+            sql.append(" AND s.id > :after_id");
+            params.addValue("after_id", afterId);
+        }
+        sql.append(" ORDER BY s.id LIMIT :limit");
+
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> new DiamondsStone(
+                rs.getLong("id"),
+                rs.getString("root_appt_id"),
+                rs.getString("stone_reference"),
+                rs.getString("stone_type"),
+                rs.getString("order_status"),
+                rs.getString("stone_status"),
+                rs.getString("ordered_by"),
+                rs.getObject("ordered_date", LocalDate.class),
+                rs.getObject("memo_invoice_date", LocalDate.class),
+                rs.getObject("return_due_date", LocalDate.class),
+                rs.getString("decided_by"),
+                rs.getObject("decided_date", LocalDate.class)
+        ));
+    }
+
+    /**
+     * Stone list filters; text values are expected lower-cased.
+     */
+    public record StoneFilter(DiamondsOrderStatus orderStatus,
+                              DiamondsStoneStatus stoneStatus,
+                              String stoneType,
+                              String orderedBy,
+                              LocalDate orderedFrom,
+                              LocalDate orderedTo,
+                              LocalDate returnDueFrom,
+                              LocalDate returnDueTo) {
+    }
+
+    public record OrderDecision(String rootApptId, String orderStatus, String orderedBy, LocalDate orderedDate) {
+    }
+
+    public record StoneDecision(String rootApptId, String stoneStatus, String decidedBy, LocalDate decidedDate) {
+    }
+
     private OffsetDateTime toOffset(ZonedDateTime dateTime) {
         return dateTime == null ? null : dateTime.toOffsetDateTime();
     }
@@ -5,12 +5,14 @@ import jakarta.annotation.PostConstruct;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.time.ZoneId;
 import java.util.TimeZone;
 
 @Configuration
 @EnableConfigurationProperties(AppProperties.class)
+@EnableScheduling
 public class AppConfig {
 
     private final AppProperties appProperties;
@@ -2,6 +2,7 @@ package com.hpvvssalesautomation.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -14,6 +15,11 @@ public class AppProperties {
     private Map<String, String> templateIds = Collections.emptyMap();
     private List<String> configAliases = Collections.emptyList();
     private Map<String, Boolean> featureFlags = Collections.emptyMap();
+    private IdempotencyCache idempotencyCache = new IdempotencyCache();
+    private ReportsBase reportsBase = new ReportsBase();
+    private Dashboard dashboard = new Dashboard();
+    private ResponseCache responseCache = new ResponseCache();
+    private Diamonds diamonds = new Diamonds();
 
     public String getTimezone() {
         return timezone;
@@ -54,4 +60,150 @@ public class AppProperties {
     public void setFeatureFlags(Map<String, Boolean> featureFlags) {
         this.featureFlags = featureFlags == null ? Collections.emptyMap() : featureFlags;
     }
+
+    public IdempotencyCache getIdempotencyCache() {
+        return idempotencyCache;
+    }
+
+    public void setIdempotencyCache(IdempotencyCache idempotencyCache) {
+        this.idempotencyCache = idempotencyCache == null ? new IdempotencyCache() : idempotencyCache;
+    }
+
+    public ReportsBase getReportsBase() {
+        return reportsBase;
+    }
+
+    public void setReportsBase(ReportsBase reportsBase) {
+        this.reportsBase = reportsBase == null ? new ReportsBase() : reportsBase;
+    }
+
+    public Dashboard getDashboard() {
+        return dashboard;
+    }
+
+    public void setDashboard(Dashboard dashboard) {
+        this.dashboard = dashboard == null ? new Dashboard() : dashboard;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public void setResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache == null ? new ResponseCache() : responseCache;
+    }
+
+    public Diamonds getDiamonds() {
+        return diamonds;
+    }
+
+    public void setDiamonds(Diamonds diamonds) {
+        this.diamonds = diamonds == null ? new Diamonds() : diamonds;
+    }
+
+    public static class IdempotencyCache {
+
+        private int maxEntries = 10_000;
+        private Duration ttl = Duration.ofMinutes(10);
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class ReportsBase {
+
+        private Duration maxStaleness = Duration.ZERO;
+        private Duration refreshInterval = Duration.ofSeconds(15);
+
+        public Duration getMaxStaleness() {
+            return maxStaleness;
+        }
+
+        public void setMaxStaleness(Duration maxStaleness) {
+            this.maxStaleness = maxStaleness;
+        }
+
+        public Duration getRefreshInterval() {
+            return refreshInterval;
+        }
+
+        public void setRefreshInterval(Duration refreshInterval) {
+            this.refreshInterval = refreshInterval;
+        }
+    }
+
+    public static class Dashboard {
+
+        public enum KpiExecution {
+            SEQUENTIAL,
+            PARALLEL
+        }
+
+        private KpiExecution kpiExecution = KpiExecution.PARALLEL;
+        private int kpiThreads = 8;
+        private Duration kpiTimeout = Duration.ofSeconds(5);
+
+        public KpiExecution getKpiExecution() {
+            return kpiExecution;
+        }
+
+        public void setKpiExecution(KpiExecution kpiExecution) {
+            this.kpiExecution = kpiExecution;
+        }
+
+        public int getKpiThreads() {
+            return kpiThreads;
+        }
+
+        public void setKpiThreads(int kpiThreads) {
+            this.kpiThreads = kpiThreads;
+        }
+
+        public Duration getKpiTimeout() {
+            return kpiTimeout;
+        }
+
+        public void setKpiTimeout(Duration kpiTimeout) {
+            this.kpiTimeout = kpiTimeout;
+        }
+    }
+
+    public static class ResponseCache {
+
+        private int maxEntries = 500;
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class Diamonds {
+
+        private Duration summaryVerifyInterval = Duration.ofHours(1);
+
+        public Duration getSummaryVerifyInterval() {
+            return summaryVerifyInterval;
+        }
+
+        public void setSummaryVerifyInterval(Duration summaryVerifyInterval) {
+            this.summaryVerifyInterval = summaryVerifyInterval;
+        }
+    }
 }
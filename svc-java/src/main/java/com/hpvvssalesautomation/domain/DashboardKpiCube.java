@@ -0,0 +1,45 @@
+package com.hpvvssalesautomation.domain;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+
+/**
+ * Owns the dashboard_kpi_cube rebuild. Deposits are bucketed by local payment date, so the cube is rebuilt
+ * whenever the configured timezone differs from the one it was built with.
+ */
+@Component
+public class DashboardKpiCube {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ZoneId zoneId;
+
+    public DashboardKpiCube(NamedParameterJdbcTemplate jdbcTemplate, ZoneId zoneId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.zoneId = zoneId;
+    }
+
+    @PostConstruct
+    void alignTimezone() {
+        String builtWith = jdbcTemplate.query(
+                "SELECT timezone FROM dashboard_kpi_cube_meta WHERE relation = 'dashboard_kpi_cube'",
+                new MapSqlParameterSource(),
+                rs -> rs.next() ? rs.getString("timezone") : null
+        );
+        if (!zoneId.getId().equals(builtWith)) {
+            rebuild();
+        }
+    }
+
+    public int rebuild() {
+        Integer cells = jdbcTemplate.queryForObject(
+                "SELECT rebuild_dashboard_kpi_cube(:zone)",
+                new MapSqlParameterSource("zone", zoneId.getId()),
+                Integer.class
+        );
+        return cells == null ? 0 : cells;
+    }
+}
@@ -1,12 +1,15 @@
 package com.hpvvssalesautomation.domain;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public record DashboardKpiResponse(
         BigDecimal weightedPipeline,
         BigDecimal totalDeposits,
-        long firstTimeDepositCount,
-        long overdueProductionCount,
-        long overdueThreeDCount
+        Long firstTimeDepositCount,
+        Long overdueProductionCount,
+        Long overdueThreeDCount,
+        boolean partial,
+        List<String> unavailableKpis
 ) {
 }
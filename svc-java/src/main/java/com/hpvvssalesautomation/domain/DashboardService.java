@@ -1,133 +1,137 @@
 package com.hpvvssalesautomation.domain;
 
+import com.hpvvssalesautomation.config.AppProperties;
+import com.hpvvssalesautomation.config.AppProperties.Dashboard.KpiExecution;
 import com.hpvvssalesautomation.util.TimeUtil;
+import jakarta.annotation.PreDestroy;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 @Service
 public class DashboardService {
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final TimeUtil timeUtil;
-
-    public DashboardService(NamedParameterJdbcTemplate jdbcTemplate, TimeUtil timeUtil) {
-        this.jdbcTemplate = jdbcTemplate;
+    private final KpiExecution kpiExecution;
+    private final Duration kpiTimeout;
+    private final ExecutorService kpiExecutor;
+
+    public DashboardService(NamedParameterJdbcTemplate jdbcTemplate, TimeUtil timeUtil, AppProperties appProperties) {
+        AppProperties.Dashboard settings = appProperties.getDashboard();
+        this.kpiExecution = settings.getKpiExecution();
+        this.kpiTimeout = settings.getKpiTimeout();
+        // Postgres cancels a KPI query that outlives its budget instead of letting it hold a connection.
+        JdbcTemplate timed = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        timed.setQueryTimeout((int) Math.max(1, (kpiTimeout.toMillis() + 999) / 1000));
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(timed);
         this.timeUtil = timeUtil;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.kpiExecutor = Executors.newFixedThreadPool(Math.max(1, settings.getKpiThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-kpi-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        kpiExecutor.shutdownNow();
     }
 
     public DashboardKpiResponse fetchKpis(String dateFrom, String dateTo) {
+        return fetchKpis(dateFrom, dateTo, kpiExecution);
+    }
+
+    // Without dateTo the overdue cutoff is today, so the key rolls over at midnight.
+    public String cacheKey(String dateFrom, String dateTo) {
         Optional<LocalDate> from = timeUtil.parseDate(dateFrom);
         Optional<LocalDate> to = timeUtil.parseDate(dateTo);
+        return "dashboard/kpis|from=" + from.map(LocalDate::toString).orElse("")
+                + "|to=" + to.map(LocalDate::toString).orElse("")
+                + "|cutoff=" + to.orElse(timeUtil.today());
+    }
 
-        BigDecimal weightedPipeline = calculateWeightedPipeline(from, to);
-        BigDecimal totalDeposits = calculateTotalDeposits(from, to);
-        long firstTimeDeposits = calculateFirstTimeDeposits(from, to);
-        long overdueProduction = countOverdue("production_deadline", from, to);
-        long overdueThreeD = countOverdue("three_d_deadline", from, to);
+    public DashboardKpiResponse fetchKpis(String dateFrom, String dateTo, KpiExecution execution) {
+        Optional<LocalDate> from = timeUtil.parseDate(dateFrom);
+        Optional<LocalDate> to = timeUtil.parseDate(dateTo);
 
-        return new DashboardKpiResponse(weightedPipeline, totalDeposits, firstTimeDeposits, overdueProduction, overdueThreeD);
+        KpiBatch batch = execution == KpiExecution.PARALLEL ? new ParallelKpiBatch() : new SequentialKpiBatch();
+        Supplier<BigDecimal> weightedPipeline = batch.submit("weightedPipeline", () -> calculateWeightedPipeline(from, to));
+        Supplier<BigDecimal> totalDeposits = batch.submit("totalDeposits", () -> calculateTotalDeposits(from, to));
+        Supplier<Long> firstTimeDeposits = batch.submit("firstTimeDepositCount", () -> calculateFirstTimeDeposits(from, to));
+        Supplier<Long> overdueProduction = batch.submit("overdueProductionCount", () -> countOverdue("production_deadline", from, to));
+        Supplier<Long> overdueThreeD = batch.submit("overdueThreeDCount", () -> countOverdue("three_d_deadline", from, to));
+
+        return new DashboardKpiResponse(
+                weightedPipeline.get(),
+                totalDeposits.get(),
+                firstTimeDeposits.get(),
+                overdueProduction.get(),
+                overdueThreeD.get(),
+                !batch.unavailable().isEmpty(),
+                List.copyOf(batch.unavailable())
+        );
     }
 
     private BigDecimal calculateWeightedPipeline(Optional<LocalDate> from, Optional<LocalDate> to) {
         MapSqlParameterSource params = new MapSqlParameterSource();
-        StringBuilder sql = new StringBuilder("WITH payment_agg AS (" +
-                " SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) AS anchor_key," +
-                " SUM(CASE WHEN doc_role = 'INVOICE' THEN COALESCE(subtotal, amount_gross) ELSE 0 END) AS order_total" +
-                " FROM payments_ledger GROUP BY COALESCE(NULLIF(so_number, ''), root_appt_id)" +
-                "), weights AS (SELECT stage, weight FROM dashboard_stage_weights)" +
-                " SELECT m.sales_stage, COALESCE(agg.order_total, 0) AS order_total, COALESCE(w.weight, 0) AS weight" +
-                " FROM master m" +
-                " LEFT JOIN payment_agg agg ON agg.anchor_key = COALESCE(NULLIF(m.so_number, ''), m.root_appt_id)" +
-                " LEFT JOIN weights w ON UPPER(w.stage) = UPPER(COALESCE(m.sales_stage, ''))" +
-                " WHERE 1=1");
-
-        from.ifPresent(date -> {
-            sql.append(" AND m.visit_date >= :kpi_date_from");
-            params.addValue("kpi_date_from", date);
-        });
-        to.ifPresent(date -> {
-            sql.append(" AND m.visit_date <= :kpi_date_to");
-            params.addValue("kpi_date_to", date);
-        });
-
-        List<Map<String, Object>> rows = jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("order_total", rs.getBigDecimal("order_total"));
-            map.put("weight", rs.getBigDecimal("weight"));
-            map.put("stage", rs.getString("sales_stage"));
-            return map;
-        });
-
-        BigDecimal total = BigDecimal.ZERO;
-        for (Map<String, Object> row : rows) {
-            BigDecimal orderTotal = (BigDecimal) row.get("order_total");
-            BigDecimal weight = (BigDecimal) row.get("weight");
-            if (orderTotal == null) {
-                orderTotal = BigDecimal.ZERO;
-            }
-            if (weight == null) {
-                weight = BigDecimal.ZERO;
-            }
-            total = total.add(orderTotal.multiply(weight));
-        }
-        return total.setScale(2, RoundingMode.HALF_UP);
+        String sql = "SELECT COALESCE(SUM(c.pipeline_total * w.weight), 0) FROM dashboard_kpi_cube c" +
+                " JOIN dashboard_stage_weights w ON UPPER(w.stage) = UPPER(c.sales_stage)" +
+                cubeDays(from, to, params);
+        BigDecimal total = jdbcTemplate.queryForObject(sql, params, BigDecimal.class);
+        return Optional.ofNullable(total).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
     }
 
     private BigDecimal calculateTotalDeposits(Optional<LocalDate> from, Optional<LocalDate> to) {
         MapSqlParameterSource params = new MapSqlParameterSource();
-        StringBuilder sql = new StringBuilder("SELECT COALESCE(SUM(amount_net), 0) AS deposits" +
-                " FROM payments_ledger" +
-                " WHERE doc_role = 'RECEIPT' AND amount_net > 0" +
-                " AND (doc_status IS NULL OR NOT (UPPER(doc_status) = ANY(:blocked)))");
-        params.addValue("blocked", new String[]{"VOID", "VOIDED", "CANCELLED", "CANCELED", "REVERSED"});
-
-        from.ifPresent(date -> {
-            sql.append(" AND payment_datetime >= :dep_from");
-            params.addValue("dep_from", date.atStartOfDay(timeUtil.nowZoned().getZone()).toOffsetDateTime());
-        });
-        to.ifPresent(date -> {
-            sql.append(" AND payment_datetime < :dep_to");
-            params.addValue("dep_to", date.plusDays(1).atStartOfDay(timeUtil.nowZoned().getZone()).toOffsetDateTime());
-        });
-
-        BigDecimal total = jdbcTemplate.query(sql.toString(), params,
-                rs -> rs.next() ? rs.getBigDecimal("deposits") : BigDecimal.ZERO);
-        return total == null ? BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP) : total.setScale(2, RoundingMode.HALF_UP);
+        String sql = "SELECT COALESCE(SUM(c.deposit_total), 0) FROM dashboard_kpi_cube c" + cubeDays(from, to, params);
+        BigDecimal total = jdbcTemplate.queryForObject(sql, params, BigDecimal.class);
+        return Optional.ofNullable(total).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
     }
 
     private long calculateFirstTimeDeposits(Optional<LocalDate> from, Optional<LocalDate> to) {
         MapSqlParameterSource params = new MapSqlParameterSource();
-        StringBuilder sql = new StringBuilder("WITH receipts AS (" +
-                " SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) AS anchor_key," +
-                " MIN(payment_datetime) AS first_payment" +
-                " FROM payments_ledger" +
-                " WHERE doc_role = 'RECEIPT' AND amount_net > 0" +
-                " AND (doc_status IS NULL OR NOT (UPPER(doc_status) = ANY(:blocked)))" +
-                " GROUP BY COALESCE(NULLIF(so_number, ''), root_appt_id)" +
-                ") SELECT COUNT(*) FROM receipts WHERE 1=1");
-        params.addValue("blocked", new String[]{"VOID", "VOIDED", "CANCELLED", "CANCELED", "REVERSED"});
+        String sql = "SELECT COALESCE(SUM(c.first_deposit_count), 0) FROM dashboard_kpi_cube c" + cubeDays(from, to, params);
+        Long count = jdbcTemplate.queryForObject(sql, params, Long.class);
+        return count == null ? 0 : count;
+    }
 
+    // Cube days are local dates; undated master rows sit on '-infinity' and only count when the range is unbounded.
+    private String cubeDays(Optional<LocalDate> from, Optional<LocalDate> to, MapSqlParameterSource params) {
+        StringBuilder where = new StringBuilder(" WHERE 1=1");
+        if (from.isPresent() || to.isPresent()) {
+            where.append(" AND c.day > '-infinity'");
+        }
         from.ifPresent(date -> {
-            sql.append(" AND first_payment >= :first_dep_from");
-            params.addValue("first_dep_from", date.atStartOfDay(timeUtil.nowZoned().getZone()).toOffsetDateTime());
+            where.append(" AND c.day >= :cube_from");
+            params.addValue("cube_from", date);
         });
         to.ifPresent(date -> {
-            sql.append(" AND first_payment < :first_dep_to");
-            params.addValue("first_dep_to", date.plusDays(1).atStartOfDay(timeUtil.nowZoned().getZone()).toOffsetDateTime());
+            where.append(" AND c.day <= :cube_to");
+            params.addValue("cube_to", date);
         });
-
-        Integer count = jdbcTemplate.query(sql.toString(), params,
-                rs -> rs.next() ? rs.getInt(1) : 0);
-        return count == null ? 0 : count;
+        return where.toString();
     }
 
     private long countOverdue(String deadlineColumn, Optional<LocalDate> from, Optional<LocalDate> to) {
@@ -154,4 +158,76 @@ public class DashboardService {
                 rs -> rs.next() ? rs.getInt(1) : 0);
         return count == null ? 0 : count;
     }
+
+    private static boolean isTimeout(Throwable error) {
+        return error instanceof QueryTimeoutException;
+    }
+
+    private abstract static class KpiBatch {
+
+        private final List<String> unavailable = Collections.synchronizedList(new ArrayList<>());
+
+        abstract <T> Supplier<T> submit(String kpi, Callable<T> query);
+
+        List<String> unavailable() {
+            return unavailable;
+        }
+
+        <T> T markUnavailable(String kpi) {
+            unavailable.add(kpi);
+            return null;
+        }
+    }
+
+    private static final class SequentialKpiBatch extends KpiBatch {
+
+        @Override
+        <T> Supplier<T> submit(String kpi, Callable<T> query) {
+            T value;
+            try {
+                value = query.call();
+            } catch (RuntimeException ex) {
+                if (!isTimeout(ex)) {
+                    throw ex;
+                }
+                value = markUnavailable(kpi);
+            } catch (Exception ex) {
+                throw new IllegalStateException("Failed to load KPI " + kpi, ex);
+            }
+            T result = value;
+            return () -> result;
+        }
+    }
+
+    // Every KPI shares one deadline measured from when the batch started, so the response waits at most kpiTimeout.
+    private final class ParallelKpiBatch extends KpiBatch {
+
+        private final long deadlineNanos = System.nanoTime() + kpiTimeout.toNanos();
+
+        @Override
+        <T> Supplier<T> submit(String kpi, Callable<T> query) {
+            Future<T> future = kpiExecutor.submit(query);
+            return () -> {
+                try {
+                    return future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException ex) {
+                    future.cancel(true);
+                    return markUnavailable(kpi);
+                } catch (InterruptedException ex) {
+                    future.cancel(true);
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while loading KPI " + kpi, ex);
+                } catch (ExecutionException ex) {
+                    Throwable cause = ex.getCause();
+                    if (isTimeout(cause)) {
+                        return markUnavailable(kpi);
+                    }
+                    if (cause instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    throw new IllegalStateException("Failed to load KPI " + kpi, cause);
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.hpvvssalesautomation.domain;
+
+import java.util.Locale;
+
+public enum ReportExportFormat {
+    CSV("text/csv;charset=UTF-8"),
+    NDJSON("application/x-ndjson");
+
+    private final String contentType;
+
+    ReportExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public static ReportExportFormat fromParam(String value) {
+        if (value == null || value.isBlank()) {
+            return CSV;
+        }
+        return switch (value.trim().toLowerCase(Locale.US)) {
+            case "csv" -> CSV;
+            case "ndjson", "jsonl" -> NDJSON;
+            default -> throw new IllegalArgumentException("format must be csv or ndjson");
+        };
+    }
+}
@@ -0,0 +1,219 @@
+package com.hpvvssalesautomation.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * One /reports row. Serialized column by column under the report headers; the {@link Map} view exists for
+ * callers that read rows by header name and is not used on the serialization path.
+ */
+@JsonSerialize(using = ReportRow.Serializer.class)
+public final class ReportRow extends AbstractMap<String, Object> {
+
+    static final List<String> PRODUCTION_COLUMNS = List.of(
+            "Visit Date", "Order Total", "Total Pay To Date", "RootApptID", "Customer Name", "Assigned Rep", "Assisted Rep",
+            "Brand", "SO#", "Sales Stage", "Conversion Status", "Custom Order Status",
+            "In Production Status", "Production Deadline",
+            "Center Stone Order Status", "Next Steps", "Client Status Report URL"
+    );
+
+    static final List<String> COLUMNS = PRODUCTION_COLUMNS.stream()
+            .filter(column -> !column.equals("In Production Status") && !column.equals("Production Deadline"))
+            .toList();
+
+    private static final BigDecimal ZERO_MONEY = BigDecimal.ZERO.setScale(2);
+
+    private static final int FIRST_PRODUCTION_COLUMN = PRODUCTION_COLUMNS.indexOf("In Production Status");
+
+    private static final SerializedString[] FIELD_NAMES = PRODUCTION_COLUMNS.stream()
+            .map(SerializedString::new)
+            .toArray(SerializedString[]::new);
+
+    private final String visitDate;
+    private final BigDecimal orderTotal;
+    private final BigDecimal totalPayToDate;
+    private final String rootApptId;
+    private final String customerName;
+    private final String assignedRep;
+    private final String assistedRep;
+    private final String brand;
+    private final String soNumber;
+    private final String salesStage;
+    private final String conversionStatus;
+    private final String customOrderStatus;
+    private final String inProductionStatus;
+    private final String productionDeadline;
+    private final String centerStoneOrderStatus;
+    private final String nextSteps;
+    private final boolean includeProduction;
+
+    ReportRow(String visitDate,
+              BigDecimal orderTotal,
+              BigDecimal totalPayToDate,
+              String rootApptId,
+              String customerName,
+              String assignedRep,
+              String assistedRep,
+              String brand,
+              String soNumber,
+              String salesStage,
+              String conversionStatus,
+              String customOrderStatus,
+              String inProductionStatus,
+              String productionDeadline,
+              String centerStoneOrderStatus,
+              String nextSteps,
+              boolean includeProduction) {
+        this.visitDate = visitDate;
+        this.orderTotal = money(orderTotal);
+        this.totalPayToDate = money(totalPayToDate);
+        this.rootApptId = rootApptId;
+        this.customerName = customerName;
+        this.assignedRep = assignedRep;
+        this.assistedRep = assistedRep == null || assistedRep.isBlank() ? "" : "Assisted (" + assistedRep + ")";
+        this.brand = brand;
+        this.soNumber = soNumber;
+        this.salesStage = salesStage;
+        this.conversionStatus = conversionStatus;
+        this.customOrderStatus = customOrderStatus;
+        this.inProductionStatus = inProductionStatus;
+        this.productionDeadline = productionDeadline;
+        this.centerStoneOrderStatus = centerStoneOrderStatus;
+        this.nextSteps = nextSteps;
+        this.includeProduction = includeProduction;
+    }
+
+    static List<String> columns(boolean includeProduction) {
+        return includeProduction ? PRODUCTION_COLUMNS : COLUMNS;
+    }
+
+    public int columnCount() {
+        return includeProduction ? PRODUCTION_COLUMNS.size() : COLUMNS.size();
+    }
+
+    public String column(int index) {
+        return PRODUCTION_COLUMNS.get(fieldIndex(index));
+    }
+
+    public Object value(int index) {
+        return switch (fieldIndex(index)) {
+            case 0 -> visitDate;
+            case 1 -> orderTotal;
+            case 2 -> totalPayToDate;
+            case 3 -> rootApptId;
+            case 4 -> customerName;
+            case 5 -> assignedRep;
+            case 6 -> assistedRep;
+            case 7 -> brand;
+            case 8 -> soNumber;
+            case 9 -> salesStage;
+            case 10 -> conversionStatus;
+            case 11 -> customOrderStatus;
+            case 12 -> inProductionStatus;
+            case 13 -> productionDeadline;
+            case 14 -> centerStoneOrderStatus;
+            case 15 -> nextSteps;
+            case 16 -> null;
+            default -> throw new IndexOutOfBoundsException(index);
+        };
+    }
+
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject(this);
+        int count = columnCount();
+        for (int i = 0; i < count; i++) {
+            generator.writeFieldName(FIELD_NAMES[fieldIndex(i)]);
+            Object value = value(i);
+            if (value == null) {
+                generator.writeNull();
+            } else if (value instanceof BigDecimal decimal) {
+                generator.writeNumber(decimal);
+            } else {
+                generator.writeString((String) value);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = key instanceof String column ? columns(includeProduction).indexOf(column) : -1;
+        return index < 0 ? null : value(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String column && columns(includeProduction).contains(column);
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < columnCount();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        int index = next++;
+                        return new SimpleImmutableEntry<>(column(index), value(index));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return columnCount();
+            }
+        };
+    }
+
+    private int fieldIndex(int index) {
+        if (index < 0 || index >= columnCount()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return includeProduction || index < FIRST_PRODUCTION_COLUMN ? index : index + 2;
+    }
+
+    private static BigDecimal money(BigDecimal value) {
+        if (value == null) {
+            return ZERO_MONEY;
+        }
+        return value.scale() == 2 ? value : value.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public static final class Serializer extends StdSerializer<ReportRow> {
+
+        public Serializer() {
+            super(ReportRow.class);
+        }
+
+        @Override
+        public void serialize(ReportRow row, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            row.writeTo(generator);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hpvvssalesautomation.domain;
+
+import com.hpvvssalesautomation.config.AppProperties;
+import com.hpvvssalesautomation.util.TimeUtil;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+/**
+ * Applies queued master/balance changes to reports_base. Reads call {@link #ensureFresh()}, which only refreshes
+ * when the oldest queued change is older than the configured staleness bound.
+ */
+@Component
+public class ReportsBaseRefresher {
+
+    private static final String STATE_SQL = "SELECT meta.refreshed_at, NOW() AS checked_at, " +
+            "(SELECT MIN(queued_at) FROM reports_base_pending) AS oldest_pending " +
+            "FROM reports_base_meta meta WHERE meta.relation = 'reports_base'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TimeUtil timeUtil;
+    private final ZoneId zoneId;
+    private final Duration maxStaleness;
+
+    public ReportsBaseRefresher(NamedParameterJdbcTemplate jdbcTemplate, TimeUtil timeUtil, ZoneId zoneId, AppProperties appProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeUtil = timeUtil;
+        this.zoneId = zoneId;
+        this.maxStaleness = appProperties.getReportsBase().getMaxStaleness();
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports-base.refresh-interval:PT15S}")
+    public void refreshPending() {
+        if (state().oldestPending() != null) {
+            refresh();
+        }
+    }
+
+    public int refresh() {
+        Integer applied = jdbcTemplate.queryForObject("SELECT refresh_reports_base()", new MapSqlParameterSource(), Integer.class);
+        return applied == null ? 0 : applied;
+    }
+
+    public ReportsFreshness ensureFresh() {
+        State state = state();
+        if (state.oldestPending() != null && !state.oldestPending().plus(maxStaleness).isAfter(state.checkedAt())) {
+            refresh();
+            state = state();
+        }
+        // Rounded up, so any pending change reports a non-zero staleness.
+        long stalenessSeconds = state.oldestPending() == null
+                ? 0
+                : Math.max(1, (Duration.between(state.oldestPending(), state.checkedAt()).toMillis() + 999) / 1000);
+        String refreshedAt = state.refreshedAt() == null ? null : timeUtil.formatDateTime(state.refreshedAt().atZoneSameInstant(zoneId));
+        return new ReportsFreshness(refreshedAt, stalenessSeconds);
+    }
+
+    private State state() {
+        return jdbcTemplate.queryForObject(STATE_SQL, new MapSqlParameterSource(), (rs, rowNum) -> new State(
+                rs.getObject("refreshed_at", OffsetDateTime.class),
+                rs.getObject("checked_at", OffsetDateTime.class),
+                rs.getObject("oldest_pending", OffsetDateTime.class)
+        ));
+    }
+
+    private record State(OffsetDateTime refreshedAt, OffsetDateTime checkedAt, OffsetDateTime oldestPending) {
+    }
+}
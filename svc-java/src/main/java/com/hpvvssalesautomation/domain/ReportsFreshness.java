@@ -0,0 +1,4 @@
+package com.hpvvssalesautomation.domain;
+
+public record ReportsFreshness(String refreshedAt, long stalenessSeconds) {
+}
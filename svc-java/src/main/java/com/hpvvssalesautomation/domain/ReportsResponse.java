@@ -1,7 +1,14 @@
 package com.hpvvssalesautomation.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 import java.util.Map;
 
-public record ReportsResponse(List<Map<String, Object>> rows) {
+public record ReportsResponse(
+        List<Map<String, Object>> rows,
+        ReportsFreshness freshness,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String nextCursor,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Long totalCount
+) {
 }
@@ -1,128 +1,349 @@
 package com.hpvvssalesautomation.domain;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hpvvssalesautomation.alias.AliasRegistry;
 import com.hpvvssalesautomation.util.TimeUtil;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class ReportsService {
 
-    private static final Set<String> RECEIPT_BLOCKED_STATUSES = Set.of("VOID", "VOIDED", "CANCELLED", "CANCELED", "REVERSED");
     private static final Map<String, String> FILTER_COLUMN_OVERRIDES = Map.of(
             "status", "m.sales_stage",
             "salesstage", "m.sales_stage",
             "sales_stage", "m.sales_stage"
     );
 
+    // Same pattern as TimeUtil.formatDate, applied by Postgres so rows carry ready-to-write strings.
+    private static final String DATE_FORMAT = "YYYY-MM-DD";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int FILTER_PLAN_CACHE_SIZE = 256;
+
+    // GROUPING(stage, rep, brand) in the summary query sets a bit for each column a row is not grouped by.
+    private static final int GROUPED_BY_BRAND_STAGE = 0b010;
+    private static final int GROUPED_BY_STAGE = 0b011;
+    private static final int GROUPED_BY_REP = 0b101;
+    private static final int GROUPED_BY_BRAND = 0b110;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate exportJdbcTemplate;
     private final TimeUtil timeUtil;
-    private final AliasRegistry aliasRegistry;
+    private final Map<String, String> filterColumns;
+    private final LinkedHashMap<String, FilterPlan> filterPlans;
+    private final ReportsBaseRefresher reportsBaseRefresher;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate exportTransaction;
 
-    public ReportsService(NamedParameterJdbcTemplate jdbcTemplate, TimeUtil timeUtil, AliasRegistry aliasRegistry) {
+    public ReportsService(NamedParameterJdbcTemplate jdbcTemplate,
+                          TimeUtil timeUtil,
+                          AliasRegistry aliasRegistry,
+                          ReportsBaseRefresher reportsBaseRefresher,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager) {
         this.jdbcTemplate = jdbcTemplate;
+        JdbcTemplate cursorTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        cursorTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.exportJdbcTemplate = new NamedParameterJdbcTemplate(cursorTemplate);
         this.timeUtil = timeUtil;
-        this.aliasRegistry = aliasRegistry;
+        this.filterColumns = buildFilterColumns(aliasRegistry);
+        this.filterPlans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FilterPlan> eldest) {
+                return size() > FILTER_PLAN_CACHE_SIZE;
+            }
+        };
+        this.reportsBaseRefresher = reportsBaseRefresher;
+        this.objectMapper = objectMapper;
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
     }
 
-    public ReportsResponse byStatus(String filtersQuery) {
-        FilterContext context = parseFilters(filtersQuery);
-        List<Map<String, Object>> rows = fetchRows(context, "sales_stage", true);
-        return new ReportsResponse(rows);
+    public ReportsResponse byStatus(String filtersQuery, Integer limit, String cursor, boolean includeTotal) {
+        return report(filterPlan(filtersQuery), "sales_stage", limit, cursor, includeTotal);
     }
 
-    public ReportsResponse byRep(String filtersQuery) {
-        FilterContext context = parseFilters(filtersQuery);
-        List<Map<String, Object>> rows = fetchRows(context, "assigned_rep", false);
-        return new ReportsResponse(rows);
-    }
-
-    private List<Map<String, Object>> fetchRows(FilterContext context, String orderColumn, boolean includeStatusGrouping) {
-        MapSqlParameterSource params = new MapSqlParameterSource();
-        StringBuilder sql = new StringBuilder("WITH payment_agg AS (" +
-                " SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) AS anchor_key, " +
-                " SUM(CASE WHEN doc_role = 'RECEIPT' AND amount_net > 0 " +
-                "          AND (doc_status IS NULL OR NOT (UPPER(doc_status) = ANY(:blocked_statuses))) " +
-                "     THEN amount_net ELSE 0 END) AS total_pay_to_date, " +
-                " SUM(CASE WHEN doc_role = 'INVOICE' THEN COALESCE(subtotal, amount_gross) ELSE 0 END) AS order_total " +
-                " FROM payments_ledger GROUP BY COALESCE(NULLIF(so_number, ''), root_appt_id)" +
-                ") SELECT m.visit_date, m.root_appt_id, m.customer_name, m.assigned_rep, m.assisted_rep, m.brand, " +
-                " m.so_number, m.sales_stage, m.conversion_status, m.custom_order_status, m.center_stone_order_status, " +
-                " m.next_steps, m.in_production_status, m.production_deadline, agg.order_total, agg.total_pay_to_date " +
-                " FROM master m " +
-                " LEFT JOIN payment_agg agg ON agg.anchor_key = COALESCE(NULLIF(m.so_number, ''), m.root_appt_id) " +
-                " WHERE 1=1");
-        params.addValue("blocked_statuses", RECEIPT_BLOCKED_STATUSES.toArray(new String[0]));
+    public ReportsResponse byRep(String filtersQuery, Integer limit, String cursor, boolean includeTotal) {
+        return report(filterPlan(filtersQuery), "assigned_rep", limit, cursor, includeTotal);
+    }
 
-        context.sqlFilters().forEach((column, value) -> {
-            String paramName = column.replace('.', '_');
-            sql.append(" AND LOWER(" + column + ") = :" + paramName);
-            params.addValue(paramName, value.toLowerCase(Locale.US));
+    public String byStatusCacheKey(String filtersQuery, Integer limit, String cursor, boolean includeTotal) {
+        return cacheKey("by-status", filtersQuery, limit, cursor, includeTotal);
+    }
+
+    public String byRepCacheKey(String filtersQuery, Integer limit, String cursor, boolean includeTotal) {
+        return cacheKey("by-rep", filtersQuery, limit, cursor, includeTotal);
+    }
+
+    public ReportsSummaryResponse summary(String filtersQuery) {
+        FilterPlan plan = filterPlan(filtersQuery);
+        ReportsFreshness freshness = reportsBaseRefresher.ensureFresh();
+        String sql = plan.templates().computeIfAbsent("summary", ignored -> summarySql(plan.where()));
+
+        List<ReportsSummaryGroup> byStage = new ArrayList<>();
+        List<ReportsSummaryGroup> byRep = new ArrayList<>();
+        List<ReportsSummaryGroup> byBrandStage = new ArrayList<>();
+        List<ReportsSummaryGroup> byBrand = new ArrayList<>();
+        ReportsSummaryGroup[] total = new ReportsSummaryGroup[1];
+        jdbcTemplate.query(sql, plan.bind(), rs -> {
+            ReportsSummaryGroup group = new ReportsSummaryGroup(
+                    rs.getString("brand"),
+                    rs.getString("sales_stage"),
+                    rs.getString("assigned_rep"),
+                    rs.getLong("row_count"),
+                    rs.getBigDecimal("order_total"),
+                    rs.getBigDecimal("paid_to_date")
+            );
+            switch (rs.getInt("grouping_set")) {
+                case GROUPED_BY_STAGE -> byStage.add(group);
+                case GROUPED_BY_REP -> byRep.add(group);
+                case GROUPED_BY_BRAND_STAGE -> byBrandStage.add(group);
+                case GROUPED_BY_BRAND -> byBrand.add(group);
+                default -> total[0] = group;
+            }
         });
+        return new ReportsSummaryResponse(byStage, byRep, byBrandStage, byBrand, total[0], freshness);
+    }
 
-        if (context.dateFrom().isPresent()) {
-            sql.append(" AND m.visit_date >= :date_from");
-            params.addValue("date_from", context.dateFrom().get());
+    public String summaryCacheKey(String filtersQuery) {
+        return "reports/summary" + filterPlan(filtersQuery).cacheKey();
+    }
+
+    public void exportByStatus(String filtersQuery, ReportExportFormat format, OutputStream out) throws IOException {
+        export(filterPlan(filtersQuery), "sales_stage", format, out);
+    }
+
+    public void exportByRep(String filtersQuery, ReportExportFormat format, OutputStream out) throws IOException {
+        export(filterPlan(filtersQuery), "assigned_rep", format, out);
+    }
+
+    private String cacheKey(String report, String filtersQuery, Integer limit, String cursor, boolean includeTotal) {
+        StringBuilder key = new StringBuilder("reports/").append(report).append(filterPlan(filtersQuery).cacheKey())
+                .append("|limit=").append(limit == null ? "" : limit)
+                .append("|cursor=").append(cursor == null ? "" : URLEncoder.encode(cursor.trim(), StandardCharsets.UTF_8))
+                .append("|total=").append(includeTotal);
+        return key.toString();
+    }
+
+    private ReportsResponse report(FilterPlan plan, String orderColumn, Integer limit, String cursor, boolean includeTotal) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
         }
-        if (context.dateTo().isPresent()) {
-            sql.append(" AND m.visit_date <= :date_to");
-            params.addValue("date_to", context.dateTo().get());
+        ReportCursor after = ReportCursor.decode(cursor == null || cursor.isBlank() ? null : cursor.trim());
+        Integer pageSize = limit != null ? limit : after != null ? DEFAULT_PAGE_SIZE : null;
+
+        ReportsFreshness freshness = reportsBaseRefresher.ensureFresh();
+        ReportQuery query = buildQuery(plan, orderColumn, after, pageSize == null ? null : pageSize + 1);
+        ReportCursor[] lastOnPage = new ReportCursor[1];
+        List<Map<String, Object>> rows = jdbcTemplate.query(query.sql(), query.params(), (rs, rowNum) -> {
+            if (pageSize != null && rowNum == pageSize - 1) {
+                Date visitDate = rs.getDate("visit_date");
+                lastOnPage[0] = new ReportCursor(rs.getString("sort_key"), visitDate == null ? null : visitDate.toLocalDate(), rs.getString("root_appt_id"));
+            }
+            return readRow(rs, plan.context().includeProduction());
+        });
+
+        String nextCursor = null;
+        if (pageSize != null && rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = lastOnPage[0].encode();
         }
+        Long totalCount = null;
+        if (includeTotal) {
+            ReportQuery count = buildCountQuery(plan);
+            totalCount = jdbcTemplate.queryForObject(count.sql(), count.params(), Long.class);
+        }
+        return new ReportsResponse(rows, freshness, nextCursor, totalCount);
+    }
 
-        sql.append(" ORDER BY COALESCE(" + orderColumn + ", ''), m.visit_date DESC NULLS LAST, m.root_appt_id");
-        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> mapRow(rs, context.includeProduction()));
+    // The query runs in a read-only transaction so the driver pages through a cursor instead of buffering the result.
+    private void export(FilterPlan plan, String orderColumn, ReportExportFormat format, OutputStream out) throws IOException {
+        reportsBaseRefresher.ensureFresh();
+        FilterContext context = plan.context();
+        ReportQuery query = buildQuery(plan, orderColumn, null, null);
+        ReportRowWriter writer = format == ReportExportFormat.NDJSON
+                ? new NdjsonRowWriter(objectMapper.getFactory().createGenerator(out))
+                : new CsvRowWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), ReportRow.columns(context.includeProduction()));
+        try {
+            exportTransaction.executeWithoutResult(status -> exportJdbcTemplate.query(query.sql(), query.params(), rs -> {
+                try {
+                    writer.write(readRow(rs, context.includeProduction()));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        writer.flush();
     }
 
-    private Map<String, Object> mapRow(ResultSet rs, boolean includeProduction) throws SQLException {
-        Map<String, Object> row = new LinkedHashMap<>();
-        LocalDate visitDate = rs.getDate("visit_date") != null ? rs.getDate("visit_date").toLocalDate() : null;
-        row.put("Visit Date", visitDate != null ? timeUtil.formatDate(visitDate) : null);
+    // Each plan keeps the SQL text per query shape, so repeated filters reuse identical statements (and with them the
+    // driver's server-side prepared statements) and only bind fresh cursor and limit values.
+    private ReportQuery buildQuery(FilterPlan plan, String orderColumn, ReportCursor after, Integer limit) {
+        MapSqlParameterSource params = plan.bind();
+        String shape = orderColumn;
+        if (after != null) {
+            shape += after.visitDate() != null ? "|after" : "|after-undated";
+            if (after.visitDate() != null) {
+                params.addValue("after_date", after.visitDate());
+            }
+            params.addValue("after_key", after.sortKey()).addValue("after_root", after.rootApptId());
+        }
+        if (limit != null) {
+            shape += "|limit";
+            params.addValue("limit", limit);
+        }
+        String sql = plan.templates().computeIfAbsent(shape, ignored -> selectSql(plan.where(), orderColumn, after, limit != null));
+        return new ReportQuery(sql, params);
+    }
 
-        BigDecimal orderTotal = Optional.ofNullable(rs.getBigDecimal("order_total"))
-                .orElse(BigDecimal.ZERO)
-                .setScale(2, RoundingMode.HALF_UP);
-        BigDecimal payToDate = Optional.ofNullable(rs.getBigDecimal("total_pay_to_date"))
-                .orElse(BigDecimal.ZERO)
-                .setScale(2, RoundingMode.HALF_UP);
-        row.put("Order Total", orderTotal);
-        row.put("Total Pay To Date", payToDate);
+    private static String selectSql(String where, String orderColumn, ReportCursor after, boolean limited) {
+        String sortKey = "COALESCE(m." + orderColumn + ", '')";
+        StringBuilder sql = new StringBuilder("SELECT m.visit_date, to_char(m.visit_date, '" + DATE_FORMAT + "') AS visit_date_text, " +
+                " to_char(m.production_deadline, '" + DATE_FORMAT + "') AS production_deadline_text, m.root_appt_id, m.customer_name, m.assigned_rep, m.assisted_rep, m.brand, " +
+                " m.so_number, m.sales_stage, m.conversion_status, m.custom_order_status, m.center_stone_order_status, " +
+                " m.next_steps, m.in_production_status, m.production_deadline, m.order_total, m.paid_to_date AS total_pay_to_date, " +
+                sortKey + " AS sort_key " +
+                " FROM reports_base m " +
+                " WHERE 1=1").append(where);
 
-        row.put("RootApptID", rs.getString("root_appt_id"));
-        row.put("Customer Name", rs.getString("customer_name"));
-        row.put("Assigned Rep", rs.getString("assigned_rep"));
+        // Mixed sort directions rule out a row comparison, so the keyset predicate is spelled out per key.
+        // The leading >= lets the planner start an index range scan at the cursor.
+        if (after != null) {
+            sql.append(" AND ").append(sortKey).append(" >= :after_key AND (").append(sortKey).append(" > :after_key OR ");
+            if (after.visitDate() != null) {
+                sql.append("m.visit_date < :after_date OR m.visit_date IS NULL OR (m.visit_date = :after_date AND m.root_appt_id > :after_root)");
+            } else {
+                sql.append("(m.visit_date IS NULL AND m.root_appt_id > :after_root)");
+            }
+            sql.append(")");
+        }
 
-        String assisted = rs.getString("assisted_rep");
-        row.put("Assisted Rep", assisted == null || assisted.isBlank() ? "" : "Assisted (" + assisted + ")");
+        sql.append(" ORDER BY ").append(sortKey).append(", m.visit_date DESC NULLS LAST, m.root_appt_id");
+        if (limited) {
+            sql.append(" LIMIT :limit");
+        }
+        return sql.toString();
+    }
 
-        row.put("Brand", rs.getString("brand"));
-        row.put("SO#", rs.getString("so_number"));
-        row.put("Sales Stage", rs.getString("sales_stage"));
-        row.put("Conversion Status", rs.getString("conversion_status"));
-        row.put("Custom Order Status", rs.getString("custom_order_status"));
+    // Grouped values are coalesced to '' so the NULLs GROUPING SETS emits only ever mean "not grouped by this column".
+    // The empty grouping set always yields the grand total row, even when no rows match.
+    private static String summarySql(String where) {
+        String stage = "COALESCE(m.sales_stage, '')";
+        String rep = "COALESCE(m.assigned_rep, '')";
+        String brand = "COALESCE(m.brand, '')";
+        return "SELECT GROUPING(" + stage + ", " + rep + ", " + brand + ") AS grouping_set, " +
+                brand + " AS brand, " + stage + " AS sales_stage, " + rep + " AS assigned_rep, " +
+                " COUNT(*) AS row_count, COALESCE(SUM(m.order_total), 0.00) AS order_total, " +
+                " COALESCE(SUM(m.paid_to_date), 0.00) AS paid_to_date " +
+                " FROM reports_base m WHERE 1=1" + where +
+                " GROUP BY GROUPING SETS ((" + stage + "), (" + rep + "), ROLLUP (" + brand + ", " + stage + "))" +
+                " ORDER BY grouping_set, brand, sales_stage, assigned_rep";
+    }
 
-        if (includeProduction) {
-            row.put("In Production Status", rs.getString("in_production_status"));
-            LocalDate prodDeadline = rs.getDate("production_deadline") != null ? rs.getDate("production_deadline").toLocalDate() : null;
-            row.put("Production Deadline", prodDeadline != null ? timeUtil.formatDate(prodDeadline) : null);
+    private ReportQuery buildCountQuery(FilterPlan plan) {
+        String sql = plan.templates().computeIfAbsent("count", ignored -> "SELECT COUNT(*) FROM reports_base m WHERE 1=1" + plan.where());
+        return new ReportQuery(sql, plan.bind());
+    }
+
+    private FilterPlan filterPlan(String filtersQuery) {
+        String key = filtersQuery == null ? "" : filtersQuery;
+        synchronized (filterPlans) {
+            FilterPlan plan = filterPlans.get(key);
+            if (plan != null) {
+                return plan;
+            }
         }
+        FilterPlan plan = compileFilters(key);
+        synchronized (filterPlans) {
+            filterPlans.putIfAbsent(key, plan);
+        }
+        return plan;
+    }
 
-        row.put("Center Stone Order Status", rs.getString("center_stone_order_status"));
-        row.put("Next Steps", rs.getString("next_steps"));
-        row.put("Client Status Report URL", null);
-        return row;
+    // The cache key lists filters the way they reach SQL: resolved column, lower-cased value, in column order.
+    private FilterPlan compileFilters(String filtersQuery) {
+        FilterContext context = parseFilters(filtersQuery);
+        StringBuilder where = new StringBuilder();
+        Map<String, Object> values = new LinkedHashMap<>();
+        context.sqlFilters().forEach((column, value) -> {
+            String paramName = column.replace('.', '_');
+            where.append(" AND LOWER(").append(column).append(") = :").append(paramName);
+            values.put(paramName, value.toLowerCase(Locale.US));
+        });
+        if (context.dateFrom().isPresent()) {
+            where.append(" AND m.visit_date >= :date_from");
+            values.put("date_from", context.dateFrom().get());
+        }
+        if (context.dateTo().isPresent()) {
+            where.append(" AND m.visit_date <= :date_to");
+            values.put("date_to", context.dateTo().get());
+        }
+
+        StringBuilder cacheKey = new StringBuilder();
+        new TreeMap<>(context.sqlFilters()).forEach((column, value) -> cacheKey.append('|').append(column).append('=')
+                .append(URLEncoder.encode(value.toLowerCase(Locale.US), StandardCharsets.UTF_8)));
+        cacheKey.append("|from=").append(context.dateFrom().map(LocalDate::toString).orElse(""))
+                .append("|to=").append(context.dateTo().map(LocalDate::toString).orElse(""))
+                .append("|production=").append(context.includeProduction());
+
+        return new FilterPlan(context, where.toString(), Collections.unmodifiableMap(values), cacheKey.toString(), new ConcurrentHashMap<>());
+    }
+
+    private ReportRow readRow(ResultSet rs, boolean includeProduction) throws SQLException {
+        return new ReportRow(
+                rs.getString("visit_date_text"),
+                rs.getBigDecimal("order_total"),
+                rs.getBigDecimal("total_pay_to_date"),
+                rs.getString("root_appt_id"),
+                rs.getString("customer_name"),
+                rs.getString("assigned_rep"),
+                rs.getString("assisted_rep"),
+                rs.getString("brand"),
+                rs.getString("so_number"),
+                rs.getString("sales_stage"),
+                rs.getString("conversion_status"),
+                rs.getString("custom_order_status"),
+                includeProduction ? rs.getString("in_production_status") : null,
+                includeProduction ? rs.getString("production_deadline_text") : null,
+                rs.getString("center_stone_order_status"),
+                rs.getString("next_steps"),
+                includeProduction
+        );
     }
 
     private FilterContext parseFilters(String filtersQuery) {
@@ -181,44 +402,142 @@ public class ReportsService {
     }
 
     private String resolveColumn(String key) {
-        String normalized = key.trim().toLowerCase(Locale.US);
-        String override = FILTER_COLUMN_OVERRIDES.get(normalized);
-        if (override != null) {
-            return override;
-        }
-        Map<String, List<String>> aliases = aliasRegistry.masterAppointmentAliases();
-        for (Map.Entry<String, List<String>> entry : aliases.entrySet()) {
-            for (String alias : entry.getValue()) {
+        String column = filterColumns.get(key.trim().toLowerCase(Locale.US));
+        return column == null || column.isEmpty() ? null : column;
+    }
+
+    // Lower-cased alias -> reports_base column. The first field claiming an alias wins, even when that field is not
+    // filterable (mapped to "").
+    private static Map<String, String> buildFilterColumns(AliasRegistry aliasRegistry) {
+        Map<String, String> columns = new HashMap<>(FILTER_COLUMN_OVERRIDES);
+        aliasRegistry.masterAppointmentAliases().forEach((field, aliases) -> {
+            String column = switch (field) {
+                case "Visit Date" -> "m.visit_date";
+                case "RootApptID" -> "m.root_appt_id";
+                case "Customer" -> "m.customer_name";
+                case "Assigned Rep" -> "m.assigned_rep";
+                case "Assisted Rep" -> "m.assisted_rep";
+                case "Brand" -> "m.brand";
+                case "SO#" -> "m.so_number";
+                case "Sales Stage" -> "m.sales_stage";
+                case "Conversion Status" -> "m.conversion_status";
+                case "Custom Order Status" -> "m.custom_order_status";
+                case "Center Stone Order Status" -> "m.center_stone_order_status";
+                default -> "";
+            };
+            for (String alias : aliases) {
                 if (alias == null) {
                     continue;
                 }
-                String aliasNormalized = alias.toLowerCase(Locale.US);
-                if (normalized.equals(aliasNormalized)) {
-                    if (normalized.equals("status") && entry.getKey().equals("Conversion Status")) {
-                        continue;
-                    }
-                    return switch (entry.getKey()) {
-                        case "Visit Date" -> "m.visit_date";
-                        case "RootApptID" -> "m.root_appt_id";
-                        case "Customer" -> "m.customer_name";
-                        case "Assigned Rep" -> "m.assigned_rep";
-                        case "Assisted Rep" -> "m.assisted_rep";
-                        case "Brand" -> "m.brand";
-                        case "SO#" -> "m.so_number";
-                        case "Sales Stage" -> "m.sales_stage";
-                        case "Conversion Status" -> "m.conversion_status";
-                        case "Custom Order Status" -> "m.custom_order_status";
-                        case "Center Stone Order Status" -> "m.center_stone_order_status";
-                        default -> null;
-                    };
+                String normalized = alias.toLowerCase(Locale.US);
+                if (normalized.equals("status") && field.equals("Conversion Status")) {
+                    continue;
                 }
+                columns.putIfAbsent(normalized, column);
             }
+        });
+        columns.putIfAbsent("rep", "m.assigned_rep");
+        columns.putIfAbsent("assignedrep", "m.assigned_rep");
+        return Map.copyOf(columns);
+    }
+
+    private interface ReportRowWriter {
+
+        void write(ReportRow row) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements ReportRowWriter {
+
+        private final CSVPrinter printer;
+
+        private CsvRowWriter(Writer out, List<String> columns) throws IOException {
+            this.printer = new CSVPrinter(out, CSVFormat.DEFAULT.builder().setHeader(columns.toArray(String[]::new)).build());
         }
 
-        return switch (normalized) {
-            case "rep", "assignedrep" -> "m.assigned_rep";
-            default -> null;
-        };
+        @Override
+        public void write(ReportRow row) throws IOException {
+            int count = row.columnCount();
+            for (int i = 0; i < count; i++) {
+                Object value = row.value(i);
+                printer.print(value instanceof BigDecimal decimal ? decimal.toPlainString() : value);
+            }
+            printer.println();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            printer.flush();
+        }
+    }
+
+    private static final class NdjsonRowWriter implements ReportRowWriter {
+
+        private final JsonGenerator generator;
+
+        private NdjsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ReportRow row) throws IOException {
+            row.writeTo(generator);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private record ReportQuery(String sql, MapSqlParameterSource params) {
+    }
+
+    private record ReportCursor(String sortKey, LocalDate visitDate, String rootApptId) {
+
+        String encode() {
+            String raw = encodePart(sortKey) + "|" + (visitDate == null ? "" : visitDate.toString()) + "|" + encodePart(rootApptId);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ReportCursor decode(String cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", -1);
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("cursor is invalid");
+                }
+                LocalDate visitDate = parts[1].isEmpty() ? null : LocalDate.parse(parts[1]);
+                return new ReportCursor(decodePart(parts[0]), visitDate, decodePart(parts[2]));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("cursor is invalid", ex);
+            }
+        }
+
+        private static String encodePart(String value) {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static String decodePart(String value) {
+            return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+        }
+    }
+
+    private record FilterPlan(FilterContext context,
+                              String where,
+                              Map<String, Object> values,
+                              String cacheKey,
+                              Map<String, String> templates) {
+
+        MapSqlParameterSource bind() {
+            return new MapSqlParameterSource(values);
+        }
     }
 
     private record FilterContext(Map<String, String> sqlFilters,
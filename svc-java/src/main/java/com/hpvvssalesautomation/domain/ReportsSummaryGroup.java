@@ -0,0 +1,19 @@
+package com.hpvvssalesautomation.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+/**
+ * One aggregate of report rows. Only the columns the group is keyed by are present; a missing column value is "".
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReportsSummaryGroup(
+        String brand,
+        String salesStage,
+        String assignedRep,
+        long count,
+        BigDecimal orderTotal,
+        BigDecimal paidToDate
+) {
+}
@@ -0,0 +1,13 @@
+package com.hpvvssalesautomation.domain;
+
+import java.util.List;
+
+public record ReportsSummaryResponse(
+        List<ReportsSummaryGroup> byStage,
+        List<ReportsSummaryGroup> byRep,
+        List<ReportsSummaryGroup> byBrandStage,
+        List<ReportsSummaryGroup> byBrand,
+        ReportsSummaryGroup total,
+        ReportsFreshness freshness
+) {
+}
@@ -0,0 +1,98 @@
+package com.hpvvssalesautomation.domain;
+
+import com.hpvvssalesautomation.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of dashboard and report responses keyed by normalized request parameters. Entries are stamped with the
+ * global data version (bumped by statement triggers on master, payments_ledger, diamonds_stones and
+ * dashboard_stage_weights) and are only served while that version is current.
+ */
+@Component
+public class ResponseCache {
+
+    private static final String VERSION_SQL = "SELECT COALESCE(SUM(version), 0) FROM data_version_slots";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int maxEntries;
+    private final LinkedHashMap<String, CachedResponse> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ResponseCache(NamedParameterJdbcTemplate jdbcTemplate, AppProperties appProperties, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = Math.max(0, appProperties.getResponseCache().getMaxEntries());
+        this.hits = Counter.builder("responses.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("responses.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("responses.cache.evictions").register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                boolean evict = size() > maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        Gauge.builder("responses.cache.size", this, ResponseCache::size).register(meterRegistry);
+    }
+
+    public long currentVersion() {
+        Long version = jdbcTemplate.queryForObject(VERSION_SQL, new MapSqlParameterSource(), Long.class);
+        return version == null ? 0 : version;
+    }
+
+    public static String etag(String key, long version) {
+        return "\"" + Long.toHexString(version) + "-" + Integer.toHexString(key.hashCode()) + "\"";
+    }
+
+    /**
+     * Returns the response cached for {@code key} at {@code version}, or loads it and caches it when {@code cacheable}
+     * accepts it. Responses loaded after the version was read can only be newer than that version, never older.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, long version, Supplier<T> loader, Predicate<T> cacheable) {
+        synchronized (entries) {
+            CachedResponse cached = entries.get(key);
+            if (cached != null && cached.version() == version) {
+                hits.increment();
+                return (T) cached.body();
+            }
+            if (cached != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        T body = loader.get();
+        if (maxEntries > 0 && body != null && cacheable.test(body)) {
+            synchronized (entries) {
+                CachedResponse current = entries.get(key);
+                if (current == null || current.version() <= version) {
+                    entries.put(key, new CachedResponse(version, body));
+                }
+            }
+        }
+        return body;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record CachedResponse(long version, Object body) {
+    }
+}
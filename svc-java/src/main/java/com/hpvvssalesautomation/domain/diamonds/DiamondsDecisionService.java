@@ -4,6 +4,7 @@ import com.hpvvssalesautomation.adapters.DiamondsAdapter;
 import com.hpvvssalesautomation.config.FeatureFlags;
 import com.hpvvssalesautomation.util.TimeUtil;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -28,14 +29,16 @@ public class DiamondsDecisionService {
         this.timeUtil = timeUtil;
     }
 
+    // Items for the same root are folded in request order, matching what applying them one by one would leave behind.
+    @Transactional
     public DiamondsActionResponse decide(DiamondsStoneDecisionsRequest request) {
         featureFlags.requireDiamondsEnabled();
 
-        Map<String, AggregatedResult> aggregatedResults = new LinkedHashMap<>();
         boolean applyDefaults = Boolean.TRUE.equals(request.getApplyDefaultsToAll());
         String defaultDecidedBy = trim(request.getDefaultDecidedBy());
         LocalDate defaultDecidedDate = parseDate(request.getDefaultDecidedDate(), "defaultDecidedDate");
 
+        Map<String, DiamondsAdapter.StoneDecision> decisions = new LinkedHashMap<>();
         for (DiamondsStoneDecisionItem item : request.getItems()) {
             String rootApptId = requireRoot(item.getRootApptId());
             String stoneStatus = normalizeDecision(item.getDecision());
@@ -49,49 +52,19 @@ public class DiamondsDecisionService {
                 decidedDate = timeUtil.today();
             }
 
-            ZonedDateTime now = timeUtil.nowZoned();
-            int updatedRows = diamondsAdapter.applyStoneDecision(rootApptId, stoneStatus, decidedBy, decidedDate, now);
-
-            DiamondsCounts counts = diamondsAdapter.readCounts(rootApptId);
-            String label = DiamondsSummaryResolver.resolve(counts);
-            diamondsAdapter.persistSummary(counts, label, now);
-
-            DiamondsSummary summary = new DiamondsSummary(
-                    rootApptId,
-                    counts.totalCount(),
-                    counts.proposingCount(),
-                    counts.notApprovedCount(),
-                    counts.onTheWayCount(),
-                    counts.deliveredCount(),
-                    counts.inStockCount(),
-                    counts.keepCount(),
-                    counts.returnCount(),
-                    counts.replaceCount(),
-                    label,
-                    now.toOffsetDateTime()
-            );
-
-            aggregatedResults.merge(
+            DiamondsAdapter.StoneDecision decision = new DiamondsAdapter.StoneDecision(rootApptId, stoneStatus, decidedBy, decidedDate);
+            decisions.merge(rootApptId, decision, (earlier, later) -> new DiamondsAdapter.StoneDecision(
                     rootApptId,
-                    new AggregatedResult(updatedRows, summary),
-                    (existing, current) -> new AggregatedResult(existing.affectedRows() + current.affectedRows(), current.summary())
-            );
+                    later.stoneStatus(),
+                    later.decidedBy() != null ? later.decidedBy() : earlier.decidedBy(),
+                    later.decidedDate()
+            ));
         }
 
-        List<DiamondsActionResult> responses = aggregatedResults.values().stream()
-                .map(result -> new DiamondsActionResult(
-                        result.summary().rootApptId(),
-                        result.affectedRows(),
-                        result.summary().centerStoneOrderStatus(),
-                        result.summary().countsMap(),
-                        result.summary().updatedAt()
-                ))
-                .toList();
-
-        return new DiamondsActionResponse(responses);
-    }
-
-    private record AggregatedResult(int affectedRows, DiamondsSummary summary) {
+        diamondsAdapter.lockRoots(decisions.keySet());
+        ZonedDateTime now = timeUtil.nowZoned();
+        Map<String, Integer> affectedRows = diamondsAdapter.applyStoneDecisions(List.copyOf(decisions.values()), now);
+        return DiamondsSummaries.refresh(diamondsAdapter, affectedRows, now.toOffsetDateTime());
     }
 
     private String requireRoot(String value) {
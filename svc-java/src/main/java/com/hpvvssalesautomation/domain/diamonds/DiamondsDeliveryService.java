@@ -4,6 +4,7 @@ import com.hpvvssalesautomation.adapters.DiamondsAdapter;
 import com.hpvvssalesautomation.config.FeatureFlags;
 import com.hpvvssalesautomation.util.TimeUtil;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -26,6 +27,7 @@ public class DiamondsDeliveryService {
         this.timeUtil = timeUtil;
     }
 
+    @Transactional
     public DiamondsActionResponse confirm(DiamondsConfirmDeliveryRequest request) {
         featureFlags.requireDiamondsEnabled();
 
@@ -33,6 +35,12 @@ public class DiamondsDeliveryService {
         boolean applyDefaults = Boolean.TRUE.equals(request.getApplyDefaultToAll());
         LocalDate defaultMemoDate = parseDate(request.getDefaultMemoDate(), "defaultMemoDate");
 
+        // All roots are locked up front; locking them one by one inside the loop could deadlock with another request.
+        diamondsAdapter.lockRoots(request.getItems().stream()
+                .filter(item -> Boolean.TRUE.equals(item.getSelected()))
+                .map(item -> requireRoot(item.getRootApptId()))
+                .toList());
+
         for (DiamondsConfirmDeliveryItem item : request.getItems()) {
             if (!Boolean.TRUE.equals(item.getSelected())) {
                 continue;
@@ -4,6 +4,7 @@ import com.hpvvssalesautomation.adapters.DiamondsAdapter;
 import com.hpvvssalesautomation.config.FeatureFlags;
 import com.hpvvssalesautomation.util.TimeUtil;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
@@ -28,14 +29,16 @@ public class DiamondsOrderService {
         this.timeUtil = timeUtil;
     }
 
+    // Later items for a root already approved in this request would find no Proposing stones left, so the first wins.
+    @Transactional
     public DiamondsActionResponse approve(DiamondsOrderApprovalsRequest request) {
         featureFlags.requireDiamondsEnabled();
 
-        Map<String, AggregatedResult> aggregatedResults = new LinkedHashMap<>();
         boolean applyDefaults = Boolean.TRUE.equals(request.getApplyDefaultsToAll());
         String defaultOrderedBy = trim(request.getDefaultOrderedBy());
         LocalDate defaultOrderedDate = parseDate(request.getDefaultOrderedDate(), "defaultOrderedDate");
 
+        Map<String, DiamondsAdapter.OrderDecision> decisions = new LinkedHashMap<>();
         for (DiamondsOrderApprovalItem item : request.getItems()) {
             String rootApptId = requireRoot(item.getRootApptId());
             String decision = normalizeDecision(item.getDecision());
@@ -46,49 +49,13 @@ public class DiamondsOrderService {
             String orderedBy = applyDefaults ? defaultOrderedBy : (itemOrderedBy != null ? itemOrderedBy : defaultOrderedBy);
             LocalDate orderedDate = applyDefaults ? defaultOrderedDate : (itemOrderedDate != null ? itemOrderedDate : defaultOrderedDate);
 
-            ZonedDateTime now = timeUtil.nowZoned();
-            int updatedRows = diamondsAdapter.applyOrderDecision(rootApptId, decision, orderedBy, orderedDate, now);
-
-            DiamondsCounts counts = diamondsAdapter.readCounts(rootApptId);
-            String label = DiamondsSummaryResolver.resolve(counts);
-            diamondsAdapter.persistSummary(counts, label, now);
-
-            DiamondsSummary summary = new DiamondsSummary(
-                    rootApptId,
-                    counts.totalCount(),
-                    counts.proposingCount(),
-                    counts.notApprovedCount(),
-                    counts.onTheWayCount(),
-                    counts.deliveredCount(),
-                    counts.inStockCount(),
-                    counts.keepCount(),
-                    counts.returnCount(),
-                    counts.replaceCount(),
-                    label,
-                    now.toOffsetDateTime()
-            );
-
-            aggregatedResults.merge(
-                    rootApptId,
-                    new AggregatedResult(updatedRows, summary),
-                    (existing, current) -> new AggregatedResult(existing.affectedRows() + current.affectedRows(), current.summary())
-            );
+            decisions.putIfAbsent(rootApptId, new DiamondsAdapter.OrderDecision(rootApptId, decision, orderedBy, orderedDate));
         }
 
-        List<DiamondsActionResult> responses = aggregatedResults.values().stream()
-                .map(result -> new DiamondsActionResult(
-                        result.summary().rootApptId(),
-                        result.affectedRows(),
-                        result.summary().centerStoneOrderStatus(),
-                        result.summary().countsMap(),
-                        result.summary().updatedAt()
-                ))
-                .toList();
-
-        return new DiamondsActionResponse(responses);
-    }
-
-    private record AggregatedResult(int affectedRows, DiamondsSummary summary) {
+        diamondsAdapter.lockRoots(decisions.keySet());
+        ZonedDateTime now = timeUtil.nowZoned();
+        Map<String, Integer> affectedRows = diamondsAdapter.applyOrderDecisions(List.copyOf(decisions.values()), now);
+        return DiamondsSummaries.refresh(diamondsAdapter, affectedRows, now.toOffsetDateTime());
     }
 
     private String requireRoot(String value) {
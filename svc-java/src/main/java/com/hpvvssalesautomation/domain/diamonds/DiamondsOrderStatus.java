@@ -0,0 +1,46 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import java.util.Locale;
+
+/**
+ * Order statuses with their codes in diamonds_status_codes (kind {@code order}), as stored in
+ * diamonds_stones.order_status_code.
+ */
+public enum DiamondsOrderStatus {
+    PROPOSING(1, "Proposing"),
+    NOT_APPROVED(2, "Not Approved"),
+    ON_THE_WAY(3, "On the Way"),
+    DELIVERED(4, "Delivered");
+
+    private final int code;
+    private final String label;
+
+    DiamondsOrderStatus(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Matches case-insensitively and accepts {@code _} or {@code -} for spaces, e.g. {@code on_the_way}.
+     */
+    public static DiamondsOrderStatus fromLabel(String raw) {
+        if (raw == null) {
+            throw new IllegalArgumentException("orderStatus is required");
+        }
+        String normalized = raw.trim().toLowerCase(Locale.US).replace('_', ' ').replace('-', ' ');
+        for (DiamondsOrderStatus status : values()) {
+            if (status.label.toLowerCase(Locale.US).equals(normalized)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported orderStatus: " + raw);
+    }
+}
@@ -0,0 +1,19 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import java.time.LocalDate;
+
+public record DiamondsStone(
+        long id,
+        String rootApptId,
+        String stoneReference,
+        String stoneType,
+        String orderStatus,
+        String stoneStatus,
+        String orderedBy,
+        LocalDate orderedDate,
+        LocalDate memoInvoiceDate,
+        LocalDate returnDueDate,
+        String decidedBy,
+        LocalDate decidedDate
+) {
+}
@@ -0,0 +1,48 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import java.util.Locale;
+
+/**
+ * Stone statuses with their codes in diamonds_status_codes (kind {@code stone}), as stored in
+ * diamonds_stones.stone_status_code.
+ */
+public enum DiamondsStoneStatus {
+    REQUESTED(1, "Requested"),
+    ON_MEMO(2, "On Memo"),
+    IN_STOCK(3, "In Stock"),
+    KEEP(4, "Keep"),
+    RETURN(5, "Return"),
+    REPLACE(6, "Replace");
+
+    private final int code;
+    private final String label;
+
+    DiamondsStoneStatus(int code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    public int code() {
+        return code;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Matches case-insensitively and accepts {@code _} or {@code -} for spaces, e.g. {@code in_stock}.
+     */
+    public static DiamondsStoneStatus fromLabel(String raw) {
+        if (raw == null) {
+            throw new IllegalArgumentException("stoneStatus is required");
+        }
+        String normalized = raw.trim().toLowerCase(Locale.US).replace('_', ' ').replace('-', ' ');
+        for (DiamondsStoneStatus status : values()) {
+            if (status.label.toLowerCase(Locale.US).equals(normalized)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported stoneStatus: " + raw);
+    }
+}
@@ -0,0 +1,15 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+public record DiamondsStonesQuery(
+        String orderStatus,
+        String stoneStatus,
+        String stoneType,
+        String orderedBy,
+        String orderedFrom,
+        String orderedTo,
+        String returnDueFrom,
+        String returnDueTo,
+        Integer limit,
+        String cursor
+) {
+}
@@ -0,0 +1,9 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import java.util.List;
+
+public record DiamondsStonesResponse(
+        List<DiamondsStone> stones,
+        String nextCursor
+) {
+}
@@ -0,0 +1,103 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import com.hpvvssalesautomation.adapters.DiamondsAdapter;
+import com.hpvvssalesautomation.config.FeatureFlags;
+import com.hpvvssalesautomation.util.TimeUtil;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class DiamondsStonesService {
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final FeatureFlags featureFlags;
+    private final DiamondsAdapter diamondsAdapter;
+    private final TimeUtil timeUtil;
+
+    public DiamondsStonesService(FeatureFlags featureFlags,
+                                 DiamondsAdapter diamondsAdapter,
+                                 TimeUtil timeUtil) {
+        this.featureFlags = featureFlags;
+        this.diamondsAdapter = diamondsAdapter;
+        this.timeUtil = timeUtil;
+    }
+
+    // Pages in id order; the cursor is the last id of the previous page.
+    public DiamondsStonesResponse list(DiamondsStonesQuery query) {
+        featureFlags.requireDiamondsEnabled();
+
+        int limit = query.limit() == null ? DEFAULT_PAGE_SIZE : query.limit();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        DiamondsAdapter.StoneFilter filter = new DiamondsAdapter.StoneFilter(
+                normalizeOrderStatus(query.orderStatus()),
+                normalizeStoneStatus(query.stoneStatus()),
+                lower(query.stoneType()),
+                lower(query.orderedBy()),
+                parseDate(query.orderedFrom(), "orderedFrom"),
+                parseDate(query.orderedTo(), "orderedTo"),
+                parseDate(query.returnDueFrom(), "returnDueFrom"),
+                parseDate(query.returnDueTo(), "returnDueTo")
+        );
+
+        List<DiamondsStone> stones = diamondsAdapter.findStones(filter, decodeCursor(trim(query.cursor())), limit + 1);
+        String nextCursor = null;
+        if (stones.size() > limit) {
+            stones = stones.subList(0, limit);
+            nextCursor = encodeCursor(stones.get(limit - 1).id());
+        }
+        return new DiamondsStonesResponse(stones, nextCursor);
+    }
+
+    private DiamondsOrderStatus normalizeOrderStatus(String orderStatus) {
+        return trim(orderStatus) == null ? null : DiamondsOrderStatus.fromLabel(orderStatus);
+    }
+
+    private DiamondsStoneStatus normalizeStoneStatus(String stoneStatus) {
+        return trim(stoneStatus) == null ? null : DiamondsStoneStatus.fromLabel(stoneStatus);
+    }
+
+    private static String encodeCursor(long id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("cursor is invalid", ex);
+        }
+    }
+
+    private String lower(String value) {
+        String trimmed = trim(value);
+        return trimmed == null ? null : trimmed.toLowerCase(Locale.US);
+    }
+
+    private String trim(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private LocalDate parseDate(String value, String fieldName) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return timeUtil.parseDate(value)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid " + fieldName + ": " + value));
+    }
+}
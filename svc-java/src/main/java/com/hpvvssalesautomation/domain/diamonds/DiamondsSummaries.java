@@ -0,0 +1,44 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import com.hpvvssalesautomation.adapters.DiamondsAdapter;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+final class DiamondsSummaries {
+
+    private DiamondsSummaries() {
+    }
+
+    /**
+     * Recomputes the summary of every root in {@code affectedRows} once, persists them together and reports one
+     * result per root in the same order.
+     */
+    static DiamondsActionResponse refresh(DiamondsAdapter diamondsAdapter, Map<String, Integer> affectedRows, OffsetDateTime updatedAt) {
+        List<DiamondsSummary> summaries = resolve(diamondsAdapter, affectedRows.keySet(), updatedAt);
+
+        List<DiamondsActionResult> results = summaries.stream()
+                .map(summary -> new DiamondsActionResult(
+                        summary.rootApptId(),
+                        affectedRows.get(summary.rootApptId()),
+                        summary.centerStoneOrderStatus(),
+                        summary.countsMap(),
+                        summary.updatedAt()
+                ))
+                .toList();
+        return new DiamondsActionResponse(results);
+    }
+
+    /**
+     * Resolves each root's label from its current counters and persists the summaries together.
+     */
+    static List<DiamondsSummary> resolve(DiamondsAdapter diamondsAdapter, Collection<String> rootApptIds, OffsetDateTime updatedAt) {
+        List<DiamondsSummary> summaries = diamondsAdapter.readCounts(rootApptIds).values().stream()
+                .map(counts -> DiamondsSummary.of(counts, DiamondsSummaryResolver.resolve(counts), updatedAt))
+                .toList();
+        diamondsAdapter.persistSummaries(summaries);
+        return summaries;
+    }
+}
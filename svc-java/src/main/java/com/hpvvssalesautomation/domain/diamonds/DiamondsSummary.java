@@ -25,6 +25,23 @@ public record DiamondsSummary(
         }
     }
 
+    public static DiamondsSummary of(DiamondsCounts counts, String centerStoneOrderStatus, OffsetDateTime updatedAt) {
+        return new DiamondsSummary(
+                counts.rootApptId(),
+                counts.totalCount(),
+                counts.proposingCount(),
+                counts.notApprovedCount(),
+                counts.onTheWayCount(),
+                counts.deliveredCount(),
+                counts.inStockCount(),
+                counts.keepCount(),
+                counts.returnCount(),
+                counts.replaceCount(),
+                centerStoneOrderStatus,
+                updatedAt
+        );
+    }
+
     public DiamondsCounts counts() {
         return new DiamondsCounts(
                 rootApptId,
@@ -0,0 +1,82 @@
+package com.hpvvssalesautomation.domain.diamonds;
+
+import com.hpvvssalesautomation.adapters.DiamondsAdapter;
+import com.hpvvssalesautomation.config.FeatureFlags;
+import com.hpvvssalesautomation.util.TimeUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodically recounts diamonds_stones against the delta-maintained counters in diamonds_summary_100. Roots are
+ * checked in batches, each in its own transaction under the batch's root locks; drifted roots get their counters
+ * rewritten and their center stone label resolved again before the locks are released.
+ */
+@Component
+public class DiamondsSummaryVerifier {
+
+    private static final Logger log = LoggerFactory.getLogger(DiamondsSummaryVerifier.class);
+    private static final int ROOT_BATCH_SIZE = 500;
+
+    private final DiamondsAdapter diamondsAdapter;
+    private final FeatureFlags featureFlags;
+    private final TimeUtil timeUtil;
+    private final TransactionTemplate batchTransaction;
+    private final Counter drift;
+
+    public DiamondsSummaryVerifier(DiamondsAdapter diamondsAdapter,
+                                   FeatureFlags featureFlags,
+                                   TimeUtil timeUtil,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.diamondsAdapter = diamondsAdapter;
+        this.featureFlags = featureFlags;
+        this.timeUtil = timeUtil;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.drift = Counter.builder("diamonds.summary.drift").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.diamonds.summary-verify-interval:PT1H}",
+            initialDelayString = "${app.diamonds.summary-verify-interval:PT1H}")
+    public int verify() {
+        if (!featureFlags.isDiamondsEnabled()) {
+            return 0;
+        }
+        List<String> repaired = new ArrayList<>();
+        String after = "";
+        List<String> roots;
+        do {
+            roots = diamondsAdapter.findSummaryRoots(after, ROOT_BATCH_SIZE);
+            if (roots.isEmpty()) {
+                break;
+            }
+            List<String> batch = roots;
+            repaired.addAll(batchTransaction.execute(status -> repairBatch(batch)));
+            after = roots.get(roots.size() - 1);
+        } while (roots.size() == ROOT_BATCH_SIZE);
+
+        if (repaired.isEmpty()) {
+            return 0;
+        }
+        drift.increment(repaired.size());
+        log.warn("Repaired drifted diamonds summary counters for {} roots: {}", repaired.size(), repaired);
+        return repaired.size();
+    }
+
+    // The repair takes the batch's root locks, so the relabel runs under them like any other mutation.
+    private List<String> repairBatch(List<String> rootApptIds) {
+        List<String> repaired = diamondsAdapter.repairSummaryCounts(rootApptIds);
+        if (!repaired.isEmpty()) {
+            DiamondsSummaries.resolve(diamondsAdapter, repaired, timeUtil.nowZoned().toOffsetDateTime());
+        }
+        return repaired;
+    }
+}
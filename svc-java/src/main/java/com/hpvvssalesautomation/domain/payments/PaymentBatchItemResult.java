@@ -0,0 +1,12 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record PaymentBatchItemResult(
+        int index,
+        PaymentRecordStatus status,
+        String error,
+        PaymentRecordResult result
+) {
+}
@@ -0,0 +1,91 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import com.hpvvssalesautomation.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class PaymentIdempotencyCache {
+
+    public static final String INVALIDATE_ALL = "*";
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, CachedDocNumber> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public PaymentIdempotencyCache(AppProperties appProperties, MeterRegistry meterRegistry) {
+        AppProperties.IdempotencyCache settings = appProperties.getIdempotencyCache();
+        this.maxEntries = Math.max(0, settings.getMaxEntries());
+        this.ttlNanos = settings.getTtl().toNanos();
+        this.hits = Counter.builder("payments.idempotency.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("payments.idempotency.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("payments.idempotency.cache.evictions").register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedDocNumber> eldest) {
+                boolean evict = size() > maxEntries;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+        Gauge.builder("payments.idempotency.cache.size", this, PaymentIdempotencyCache::size).register(meterRegistry);
+    }
+
+    public static String key(String anchorType, String requestHash) {
+        return anchorType + "|" + requestHash;
+    }
+
+    public String get(String anchorType, String requestHash) {
+        String key = key(anchorType, requestHash);
+        synchronized (entries) {
+            CachedDocNumber cached = entries.get(key);
+            if (cached != null && cached.expiresAtNanos() - System.nanoTime() > 0) {
+                hits.increment();
+                return cached.docNumber();
+            }
+            if (cached != null) {
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(String anchorType, String requestHash, String docNumber) {
+        if (maxEntries == 0 || requestHash == null || docNumber == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key(anchorType, requestHash), new CachedDocNumber(docNumber, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            if (INVALIDATE_ALL.equals(key)) {
+                entries.clear();
+            } else {
+                entries.remove(key);
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record CachedDocNumber(String docNumber, long expiresAtNanos) {
+    }
+}
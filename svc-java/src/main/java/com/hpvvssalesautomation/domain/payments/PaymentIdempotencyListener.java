@@ -0,0 +1,96 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Applies payments_idempotency notifications raised by the ledger triggers to the local cache,
+ * so deletes and request_hash rewrites on any instance evict the affected keys everywhere. Listens on its own
+ * unpooled connection, so it neither holds a pool slot nor hands a subscribed session back to the pool.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.feature-flags", name = "payments", havingValue = "true")
+public class PaymentIdempotencyListener {
+
+    static final String CHANNEL = "payments_idempotency";
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentIdempotencyListener.class);
+    private static final int POLL_TIMEOUT_MILLIS = 1_000;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final PaymentIdempotencyCache cache;
+    private volatile boolean running;
+    private Thread worker;
+
+    public PaymentIdempotencyListener(DataSourceProperties dataSourceProperties, PaymentIdempotencyCache cache) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.cache = cache;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::listen, "payments-idempotency-listener");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(POLL_TIMEOUT_MILLIS * 2L);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(),
+                    dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                // Anything written while we were not listening may have been missed.
+                cache.invalidate(PaymentIdempotencyCache.INVALIDATE_ALL);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        cache.invalidate(notification.getParameter());
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Payments idempotency listener disconnected; retrying in {} ms", RECONNECT_DELAY_MILLIS, ex);
+                cache.invalidate(PaymentIdempotencyCache.INVALIDATE_ALL);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
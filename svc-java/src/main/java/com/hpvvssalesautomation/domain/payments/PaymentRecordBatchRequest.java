@@ -0,0 +1,24 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PaymentRecordBatchRequest {
+
+    public static final int MAX_ITEMS = 5000;
+
+    @NotEmpty
+    @Size(max = MAX_ITEMS)
+    private List<PaymentRecordRequest> items = new ArrayList<>();
+
+    public List<PaymentRecordRequest> getItems() {
+        return items;
+    }
+
+    public void setItems(List<PaymentRecordRequest> items) {
+        this.items = items == null ? new ArrayList<>() : new ArrayList<>(items);
+    }
+}
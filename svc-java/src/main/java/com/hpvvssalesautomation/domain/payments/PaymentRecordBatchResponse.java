@@ -0,0 +1,11 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import java.util.List;
+
+public record PaymentRecordBatchResponse(
+        int created,
+        int updated,
+        int rejected,
+        List<PaymentBatchItemResult> results
+) {
+}
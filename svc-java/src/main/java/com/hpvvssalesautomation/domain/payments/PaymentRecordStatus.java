@@ -2,5 +2,6 @@ package com.hpvvssalesautomation.domain.payments;
 
 public enum PaymentRecordStatus {
     CREATED,
-    UPDATED
+    UPDATED,
+    REJECTED
 }
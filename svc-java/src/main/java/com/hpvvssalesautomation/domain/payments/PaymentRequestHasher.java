@@ -0,0 +1,129 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import com.hpvvssalesautomation.util.TimeUtil;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Streams the canonical form of a {@link ValidatedPaymentRecord} into SHA-256 through a per-thread buffer.
+ * The byte sequence is identical to the original string-concatenation hash, so stored request hashes stay valid.
+ */
+@Component
+public class PaymentRequestHasher {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private final TimeUtil timeUtil;
+    private final ThreadLocal<Encoder> encoders = ThreadLocal.withInitial(Encoder::new);
+
+    public PaymentRequestHasher(TimeUtil timeUtil) {
+        this.timeUtil = timeUtil;
+    }
+
+    public String hash(ValidatedPaymentRecord record, String linesJson) {
+        Encoder encoder = encoders.get();
+        encoder.reset();
+        encoder.write(record.anchorType());
+        encoder.write(record.rootApptId());
+        encoder.write(record.soNumber());
+        encoder.write(record.docType());
+        encoder.write(record.docStatus());
+        encoder.write(record.docRole());
+        encoder.write(record.method());
+        encoder.write(record.reference());
+        encoder.write(record.notes());
+        encoder.write(record.amountGross());
+        encoder.write(record.feePercent());
+        encoder.write(record.feeAmount());
+        encoder.write(record.subtotal());
+        encoder.write(record.amountNet());
+        if (record.paymentDateTime() != null) {
+            encoder.scratch.setLength(0);
+            timeUtil.formatDateTimeTo(record.paymentDateTime(), encoder.scratch);
+            encoder.write(encoder.scratch);
+        }
+        if (record.lines() != null) {
+            encoder.write(linesJson);
+        }
+        return encoder.finish();
+    }
+
+    private static final class Encoder {
+
+        private final MessageDigest digest;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] hash = new byte[32];
+        private final StringBuilder scratch = new StringBuilder(40);
+        private int position;
+
+        private Encoder() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 algorithm not available", e);
+            }
+        }
+
+        private void reset() {
+            digest.reset();
+            position = 0;
+        }
+
+        private void write(BigDecimal value) {
+            if (value != null) {
+                write(value.toString());
+            }
+        }
+
+        private void write(CharSequence value) {
+            if (value == null) {
+                return;
+            }
+            int length = value.length();
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (position + 4 > BUFFER_SIZE) {
+                    flush();
+                }
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | (c >> 6));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    buffer[position++] = (byte) '?';
+                } else {
+                    buffer[position++] = (byte) (0xE0 | (c >> 12));
+                    buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+
+        private void flush() {
+            digest.update(buffer, 0, position);
+            position = 0;
+        }
+
+        private String finish() {
+            flush();
+            try {
+                digest.digest(hash, 0, hash.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException("Failed to finish request hash", e);
+            }
+            return HexFormat.of().formatHex(hash);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+public record PaymentsAnchorSummary(
+        @JsonInclude(JsonInclude.Include.NON_NULL) String rootApptId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String soNumber,
+        BigDecimal invoicesLinesSubtotal,
+        BigDecimal creditsTotal,
+        BigDecimal totalPayments,
+        BigDecimal netLinesMinusPayments,
+        Map<String, BigDecimal> byMethod
+) {
+}
@@ -0,0 +1,15 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import java.util.List;
+
+public record PaymentsImportResult(
+        long rowsRead,
+        long rowsStaged,
+        long rowsRejected,
+        long inserted,
+        long updated,
+        long elapsedMillis,
+        double rowsPerSecond,
+        List<String> errors
+) {
+}
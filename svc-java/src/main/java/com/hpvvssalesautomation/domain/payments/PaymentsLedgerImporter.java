@@ -0,0 +1,351 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import com.hpvvssalesautomation.util.HeaderMap;
+import com.hpvvssalesautomation.util.TimeUtil;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+public class PaymentsLedgerImporter {
+
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+    private static final String STAGING_TABLE = "payments_ledger_import";
+    private static final Set<String> API_DOC_STATUSES = Set.of("DRAFT", "ISSUED");
+
+    private static final String MERGE_SQL = "WITH by_hash AS (" +
+            " SELECT DISTINCT ON (anchor_type, request_hash) * FROM " + STAGING_TABLE +
+            " ORDER BY anchor_type, request_hash, line_no DESC" +
+            "), resolved AS (" +
+            " SELECT COALESCE(l.doc_number, b.doc_number) AS resolved_doc_number, b.* FROM by_hash b" +
+            " LEFT JOIN payments_ledger_keys l ON l.anchor_type = b.anchor_type AND l.request_hash = b.request_hash" +
+            "), latest AS (" +
+            " SELECT DISTINCT ON (resolved_doc_number) * FROM resolved ORDER BY resolved_doc_number, line_no DESC" +
+            "), merged AS (" +
+            " INSERT INTO payments_ledger (" + String.join(", ", PaymentsService.LEDGER_COLUMNS) + ", created_at, updated_at)" +
+            " SELECT resolved_doc_number, " +
+            PaymentsService.LEDGER_COLUMNS.stream().skip(1).collect(Collectors.joining(", ")) + ", NOW(), NOW() FROM latest" +
+            PaymentsService.UPSERT_CONFLICT_SQL +
+            " RETURNING (xmax = 0) AS inserted" +
+            ") SELECT COUNT(*) FILTER (WHERE inserted) AS inserted, COUNT(*) FILTER (WHERE NOT inserted) AS updated FROM merged";
+
+    // Doc numbers re-dated into another month must change partition before the upsert can find them.
+    private static final String MOVE_SQL = "UPDATE payments_ledger l SET payment_datetime = s.payment_datetime, updated_at = NOW()" +
+            " FROM (SELECT DISTINCT ON (doc_number) doc_number, payment_datetime FROM " + STAGING_TABLE +
+            " ORDER BY doc_number, line_no DESC) s" +
+            " WHERE l.doc_number = s.doc_number AND l.payment_datetime <> s.payment_datetime";
+
+    private final DataSource dataSource;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PaymentsValidator validator;
+    private final PaymentsMapper mapper;
+    private final PaymentRequestHasher hasher;
+    private final PaymentsService paymentsService;
+    private final TimeUtil timeUtil;
+
+    public PaymentsLedgerImporter(DataSource dataSource,
+                                  NamedParameterJdbcTemplate jdbcTemplate,
+                                  PaymentsValidator validator,
+                                  PaymentsMapper mapper,
+                                  PaymentRequestHasher hasher,
+                                  PaymentsService paymentsService,
+                                  TimeUtil timeUtil) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
+        this.mapper = mapper;
+        this.hasher = hasher;
+        this.paymentsService = paymentsService;
+        this.timeUtil = timeUtil;
+    }
+
+    @Transactional
+    public PaymentsImportResult importCsv(Reader source) throws IOException {
+        long started = System.nanoTime();
+        jdbcTemplate.getJdbcTemplate().execute(
+                "CREATE TEMP TABLE " + STAGING_TABLE + " ON COMMIT DROP AS SELECT 0::BIGINT AS line_no, " +
+                        String.join(", ", PaymentsService.LEDGER_COLUMNS) + " FROM payments_ledger WITH NO DATA"
+        );
+
+        long rowsRead = 0;
+        long rowsStaged = 0;
+        List<String> errors = new ArrayList<>();
+        OffsetDateTime importedAt = timeUtil.nowZoned().toOffsetDateTime();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (CSVParser parser = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreSurroundingSpaces(true)
+                .build()
+                .parse(source)) {
+            HeaderMap headerMap = mapper.ledgerHeaderMap(parser.getHeaderNames());
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                    "COPY " + STAGING_TABLE + " (line_no, " + String.join(", ", PaymentsService.LEDGER_COLUMNS) + ") FROM STDIN WITH (FORMAT csv)"
+            );
+            CopyInWriter writer = new CopyInWriter(copyIn);
+            try {
+                for (CSVRecord record : parser) {
+                    rowsRead++;
+                    try {
+                        writeStagingRow(writer, rowsRead, toLedgerValues(record, headerMap, importedAt));
+                        rowsStaged++;
+                    } catch (IllegalArgumentException | IllegalStateException ex) {
+                        if (errors.size() < MAX_REPORTED_ERRORS) {
+                            errors.add("row " + rowsRead + ": " + ex.getMessage());
+                        }
+                    }
+                }
+                writer.close();
+            } catch (IOException | RuntimeException ex) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new IllegalStateException("Failed to stage payments import", ex);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        jdbcTemplate.getJdbcTemplate().update(MOVE_SQL);
+        long[] merged = jdbcTemplate.getJdbcTemplate().queryForObject(
+                MERGE_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong("inserted"), rs.getLong("updated")}
+        );
+        long elapsedNanos = System.nanoTime() - started;
+        return new PaymentsImportResult(
+                rowsRead,
+                rowsStaged,
+                rowsRead - rowsStaged,
+                merged[0],
+                merged[1],
+                elapsedNanos / 1_000_000,
+                elapsedNanos == 0 ? 0d : rowsRead / (elapsedNanos / 1_000_000_000d),
+                errors
+        );
+    }
+
+    private Map<String, Object> toLedgerValues(CSVRecord record, HeaderMap headerMap, OffsetDateTime importedAt) {
+        String docStatus = upper(value(record, headerMap, "DocStatus"));
+        String soNumber = value(record, headerMap, "SO#");
+
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setDocNumber(value(record, headerMap, "DocNumber"));
+        request.setDocRole(value(record, headerMap, "DocRole"));
+        request.setAnchorType(defaultIfNull(value(record, headerMap, "AnchorType"), soNumber != null ? "SO" : "APPT"));
+        request.setRootApptId(value(record, headerMap, "RootApptID"));
+        request.setSoNumber(soNumber);
+        request.setDocType(value(record, headerMap, "DocType"));
+        request.setDocStatus(docStatus != null && API_DOC_STATUSES.contains(docStatus) ? docStatus : null);
+        request.setPaymentDateTime(value(record, headerMap, "PaymentDateTime"));
+        request.setMethod(value(record, headerMap, "Method"));
+        request.setReference(value(record, headerMap, "Reference"));
+        request.setNotes(value(record, headerMap, "Notes"));
+        request.setAmountGross(decimal(record, headerMap, "AmountGross"));
+        request.setFeePercent(decimal(record, headerMap, "FeePercent"));
+        request.setFeeAmount(decimal(record, headerMap, "FeeAmount"));
+        request.setLines(mapper.linesFromJson(value(record, headerMap, "LinesJSON")).stream()
+                .map(line -> {
+                    PaymentRecordRequest.PaymentRecordRequestLine requestLine = new PaymentRecordRequest.PaymentRecordRequestLine();
+                    requestLine.setDesc(line.description());
+                    requestLine.setQty(line.quantity());
+                    requestLine.setAmt(line.amount());
+                    return requestLine;
+                })
+                .toList());
+
+        ValidatedPaymentRecord validated = validator.validate(request);
+        if (docStatus != null && !API_DOC_STATUSES.contains(docStatus)) {
+            // The sheet carries terminal statuses (VOID, CANCELLED, ...) that the record API does not accept.
+            validated = withDocStatus(validated, docStatus);
+        }
+        String linesJson = mapper.linesToJson(validated.lines());
+        String requestHash = hasher.hash(validated, linesJson);
+        String docNumber = validated.docNumber() != null ? validated.docNumber() : paymentsService.generateDocNumber(validated, requestHash);
+
+        OffsetDateTime submittedAt = timeUtil.parseDateTime(value(record, headerMap, "Submitted Date/Time"))
+                .map(ZonedDateTime::toOffsetDateTime)
+                .orElse(importedAt);
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("doc_number", docNumber);
+        values.put("doc_role", validated.docRole());
+        values.put("anchor_type", validated.anchorType());
+        values.put("root_appt_id", validated.rootApptId());
+        values.put("so_number", validated.soNumber());
+        values.put("basket_id", value(record, headerMap, "BasketID"));
+        values.put("doc_type", validated.docType());
+        values.put("doc_status", validated.docStatus());
+        values.put("payment_datetime", validated.paymentDateTime().toOffsetDateTime());
+        values.put("method", validated.method());
+        values.put("reference", validated.reference());
+        values.put("notes", validated.notes());
+        values.put("amount_gross", validated.amountGross());
+        values.put("fee_percent", validated.feePercent());
+        values.put("fee_amount", validated.feeAmount());
+        values.put("subtotal", validated.subtotal());
+        values.put("amount_net", validated.amountNet());
+        values.put("allocated_to_so", decimal(record, headerMap, "AllocatedToSO"));
+        values.put("lines_json", linesJson);
+        values.put("submitted_by", defaultIfNull(value(record, headerMap, "Submitted By"), "payments-import"));
+        values.put("submitted_at", submittedAt);
+        values.put("request_hash", requestHash);
+        return values;
+    }
+
+    private void writeStagingRow(Writer writer, long lineNumber, Map<String, Object> values) throws IOException {
+        writer.write(Long.toString(lineNumber));
+        for (String column : PaymentsService.LEDGER_COLUMNS) {
+            writer.write(',');
+            Object value = values.get(column);
+            if (value == null) {
+                continue;
+            }
+            String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+        writer.write('\n');
+    }
+
+    private ValidatedPaymentRecord withDocStatus(ValidatedPaymentRecord record, String docStatus) {
+        return new ValidatedPaymentRecord(
+                record.docNumber(),
+                record.docRole(),
+                record.anchorType(),
+                record.rootApptId(),
+                record.soNumber(),
+                record.docType(),
+                docStatus,
+                record.paymentDateTime(),
+                record.method(),
+                record.reference(),
+                record.notes(),
+                record.amountGross(),
+                record.feePercent(),
+                record.feeAmount(),
+                record.subtotal(),
+                record.amountNet(),
+                record.lines()
+        );
+    }
+
+    private String value(CSVRecord record, HeaderMap headerMap, String canonical) {
+        if (!headerMap.has(canonical)) {
+            return null;
+        }
+        String actual = headerMap.getActual(canonical);
+        if (!record.isMapped(actual) || !record.isSet(actual)) {
+            return null;
+        }
+        String raw = record.get(actual);
+        if (raw == null) {
+            return null;
+        }
+        String trimmed = raw.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private BigDecimal decimal(CSVRecord record, HeaderMap headerMap, String canonical) {
+        String raw = value(record, headerMap, canonical);
+        if (raw == null) {
+            return null;
+        }
+        String cleaned = raw.replace("$", "").replace(",", "").replace("%", "").trim();
+        try {
+            return new BigDecimal(cleaned);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(canonical + " is not a number: " + raw);
+        }
+    }
+
+    private String upper(String value) {
+        return value == null ? null : value.toUpperCase(Locale.US);
+    }
+
+    private String defaultIfNull(String value, String fallback) {
+        return value == null ? fallback : value;
+    }
+
+    private static final class CopyInWriter extends Writer {
+
+        private final CopyIn copyIn;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final CharBuffer chars = CharBuffer.allocate(COPY_BUFFER_CHARS);
+        private final ByteBuffer bytes = ByteBuffer.allocate(COPY_BUFFER_CHARS * 4);
+
+        private CopyInWriter(CopyIn copyIn) {
+            this.copyIn = copyIn;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int written = 0;
+            while (written < length) {
+                if (!chars.hasRemaining()) {
+                    flush();
+                }
+                int chunk = Math.min(chars.remaining(), length - written);
+                chars.put(buffer, offset + written, chunk);
+                written += chunk;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            chars.flip();
+            CoderResult result = encoder.encode(chars, bytes, false);
+            if (result.isError()) {
+                throw new IOException("Failed to encode import row: " + result);
+            }
+            chars.compact();
+            try {
+                copyIn.writeToCopy(bytes.array(), 0, bytes.position());
+            } catch (SQLException ex) {
+                throw new IOException("Failed to stream import rows to COPY", ex);
+            }
+            bytes.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            try {
+                copyIn.endCopy();
+            } catch (SQLException ex) {
+                throw new IOException("Failed to finish COPY", ex);
+            }
+        }
+    }
+}
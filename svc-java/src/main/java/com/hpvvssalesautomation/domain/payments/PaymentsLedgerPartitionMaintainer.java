@@ -0,0 +1,46 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps monthly payments_ledger partitions created ahead of time, and moves anything that fell into the
+ * default partition into its month.
+ */
+@Component
+public class PaymentsLedgerPartitionMaintainer {
+
+    static final int MONTHS_AHEAD = 3;
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentsLedgerPartitionMaintainer.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public PaymentsLedgerPartitionMaintainer(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 15 3 * * *", zone = "UTC")
+    public void maintainPartitions() {
+        maintain();
+    }
+
+    public int maintain() {
+        Integer created = jdbcTemplate.queryForObject(
+                "SELECT maintain_payments_ledger_partitions(:months_ahead)",
+                new MapSqlParameterSource("months_ahead", MONTHS_AHEAD),
+                Integer.class
+        );
+        if (created != null && created > 0) {
+            log.info("Created {} payments_ledger partition(s)", created);
+        }
+        return created == null ? 0 : created;
+    }
+}
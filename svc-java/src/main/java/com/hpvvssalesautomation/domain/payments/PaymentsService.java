@@ -2,28 +2,43 @@ package com.hpvvssalesautomation.domain.payments;
 
 import com.hpvvssalesautomation.util.TimeUtil;
 import org.postgresql.util.PGobject;
-import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Comparator;
-import java.util.HexFormat;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,72 +47,457 @@ public class PaymentsService {
     private static final Set<String> RECEIPT_ROLES = Set.of("RECEIPT");
     private static final Set<String> BLOCKED_STATUSES = Set.of("VOID", "VOIDED", "CANCELLED", "CANCELED", "REVERSED");
 
+    private static final int BATCH_CHUNK_SIZE = 500;
+    private static final int MAX_SUMMARY_PAGE_SIZE = 1000;
+    private static final int BULK_SUMMARY_FETCH_SIZE = 500;
+
+    private static final String SUMMARY_TOTALS_SQL = "SELECT method, GROUPING(method) = 1 AS is_total, " +
+            "SUM(COALESCE(subtotal, amount_gross)) FILTER (WHERE doc_role = 'INVOICE') AS invoices_subtotal, " +
+            "SUM(amount_gross) FILTER (WHERE doc_role = 'CREDIT' " +
+            "AND (doc_status IS NULL OR UPPER(doc_status) NOT IN (:blocked_statuses))) AS credits, " +
+            "SUM(amount_net) FILTER (WHERE doc_role IN (:receipt_roles) AND amount_net > 0 " +
+            "AND (doc_status IS NULL OR UPPER(doc_status) NOT IN (:blocked_statuses))) AS payments " +
+            "FROM payments_ledger";
+
+    private static final String BULK_SUMMARY_SQL = "WITH roots AS (" +
+            " SELECT anchor, ord FROM unnest(CAST(:root_appt_ids AS text[])) WITH ORDINALITY AS r(anchor, ord)" +
+            "), sos AS (" +
+            " SELECT anchor, :so_offset + ord AS ord FROM unnest(CAST(:so_numbers AS text[])) WITH ORDINALITY AS s(anchor, ord)" +
+            "), matched AS (" +
+            " SELECT r.ord, l.method, l.doc_role, l.doc_status, l.subtotal, l.amount_gross, l.amount_net FROM roots r JOIN payments_ledger l ON l.root_appt_id = r.anchor" +
+            " UNION ALL" +
+            " SELECT s.ord, l.method, l.doc_role, l.doc_status, l.subtotal, l.amount_gross, l.amount_net FROM sos s JOIN payments_ledger l ON l.so_number = s.anchor" +
+            ") SELECT a.ord, m.method, GROUPING(m.method) = 1 AS is_total, " +
+            "SUM(COALESCE(m.subtotal, m.amount_gross)) FILTER (WHERE m.doc_role = 'INVOICE') AS invoices_subtotal, " +
+            "SUM(m.amount_gross) FILTER (WHERE m.doc_role = 'CREDIT' " +
+            "AND (m.doc_status IS NULL OR UPPER(m.doc_status) NOT IN (:blocked_statuses))) AS credits, " +
+            "SUM(m.amount_net) FILTER (WHERE m.doc_role IN (:receipt_roles) AND m.amount_net > 0 " +
+            "AND (m.doc_status IS NULL OR UPPER(m.doc_status) NOT IN (:blocked_statuses))) AS payments " +
+            "FROM (SELECT ord FROM roots UNION ALL SELECT ord FROM sos) a LEFT JOIN matched m ON m.ord = a.ord " +
+            "GROUP BY GROUPING SETS ((a.ord, m.method), (a.ord)) " +
+            "ORDER BY a.ord, GROUPING(m.method)";
+
+    private static final String SUMMARY_ENTRY_COLUMNS = "doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, doc_status, payment_datetime, method, reference, notes, amount_gross, fee_percent, fee_amount, subtotal, amount_net, request_hash, submitted_at";
+
+    static final List<String> LEDGER_COLUMNS = List.of(
+            "doc_number", "doc_role", "anchor_type", "root_appt_id", "so_number", "basket_id", "doc_type", "doc_status",
+            "payment_datetime", "method", "reference", "notes", "amount_gross", "fee_percent", "fee_amount", "subtotal",
+            "amount_net", "allocated_to_so", "lines_json", "submitted_by", "submitted_at", "request_hash"
+    );
+
+    static final String UPSERT_CONFLICT_SQL = " ON CONFLICT (doc_number, payment_datetime) DO UPDATE SET doc_role = EXCLUDED.doc_role, anchor_type = EXCLUDED.anchor_type, root_appt_id = EXCLUDED.root_appt_id, so_number = EXCLUDED.so_number, basket_id = EXCLUDED.basket_id, doc_type = EXCLUDED.doc_type, doc_status = EXCLUDED.doc_status, method = EXCLUDED.method, reference = EXCLUDED.reference, notes = EXCLUDED.notes, amount_gross = EXCLUDED.amount_gross, fee_percent = EXCLUDED.fee_percent, fee_amount = EXCLUDED.fee_amount, subtotal = EXCLUDED.subtotal, amount_net = EXCLUDED.amount_net, allocated_to_so = EXCLUDED.allocated_to_so, lines_json = EXCLUDED.lines_json, submitted_by = COALESCE(payments_ledger.submitted_by, EXCLUDED.submitted_by), submitted_at = COALESCE(payments_ledger.submitted_at, EXCLUDED.submitted_at), request_hash = EXCLUDED.request_hash, updated_at = NOW()";
+
+    private static final String UPSERT_RETURNING_SQL = " RETURNING doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, doc_status, payment_datetime, method, reference, notes, amount_gross, fee_percent, fee_amount, subtotal, amount_net, lines_json, request_hash, submitted_at, (xmax = 0) AS inserted";
+
+    private static final String UPSERT_SQL = "INSERT INTO payments_ledger (" + String.join(", ", LEDGER_COLUMNS) + ", created_at, updated_at) " +
+            "VALUES (" + LEDGER_COLUMNS.stream().map(column -> ":" + column).collect(Collectors.joining(", ")) + ", NOW(), NOW())" +
+            UPSERT_CONFLICT_SQL +
+            UPSERT_RETURNING_SQL;
+
+    private static final String RECORD_SQL = "WITH replay AS (" +
+            " SELECT doc_number FROM payments_ledger_keys" +
+            " WHERE anchor_type = :anchor_type AND request_hash = :request_hash LIMIT 1" +
+            ") INSERT INTO payments_ledger (" + String.join(", ", LEDGER_COLUMNS) + ", created_at, updated_at) " +
+            "VALUES (COALESCE((SELECT doc_number FROM replay), :doc_number), " +
+            LEDGER_COLUMNS.stream().skip(1).map(column -> ":" + column).collect(Collectors.joining(", ")) + ", NOW(), NOW())" +
+            UPSERT_CONFLICT_SQL +
+            UPSERT_RETURNING_SQL;
+
+    // The ledger is partitioned by payment month, so a doc number re-dated into another month has to be
+    // moved before ON CONFLICT (doc_number, payment_datetime) can see it.
+    private static final String MOVE_SQL = "UPDATE payments_ledger l SET payment_datetime = m.payment_datetime, updated_at = NOW()" +
+            " FROM unnest(CAST(:doc_numbers AS text[]), CAST(:payment_datetimes AS timestamptz[])) AS m(doc_number, payment_datetime)" +
+            " WHERE l.doc_number = m.doc_number AND l.payment_datetime <> m.payment_datetime";
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate bulkJdbcTemplate;
+    private final TransactionTemplate bulkTransaction;
+    private final TransactionTemplate summaryTransaction;
     private final PaymentsValidator validator;
     private final PaymentsMapper mapper;
+    private final PaymentRequestHasher hasher;
+    private final PaymentIdempotencyCache idempotencyCache;
     private final TimeUtil timeUtil;
     private final ZoneId zoneId;
 
     public PaymentsService(NamedParameterJdbcTemplate jdbcTemplate,
                            PaymentsValidator validator,
                            PaymentsMapper mapper,
+                           PaymentRequestHasher hasher,
+                           PaymentIdempotencyCache idempotencyCache,
                            TimeUtil timeUtil,
-                           ZoneId zoneId) {
+                           ZoneId zoneId,
+                           PlatformTransactionManager transactionManager) {
         this.jdbcTemplate = jdbcTemplate;
+        JdbcTemplate cursorTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        cursorTemplate.setFetchSize(BULK_SUMMARY_FETCH_SIZE);
+        this.bulkJdbcTemplate = new NamedParameterJdbcTemplate(cursorTemplate);
+        this.bulkTransaction = new TransactionTemplate(transactionManager);
+        this.bulkTransaction.setReadOnly(true);
+        // The totals and the entry page are two statements; one snapshot keeps them consistent with each other.
+        this.summaryTransaction = new TransactionTemplate(transactionManager);
+        this.summaryTransaction.setReadOnly(true);
+        this.summaryTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
         this.validator = validator;
         this.mapper = mapper;
+        this.hasher = hasher;
+        this.idempotencyCache = idempotencyCache;
         this.timeUtil = timeUtil;
         this.zoneId = zoneId;
     }
 
+    @Transactional
     public PaymentRecordResult record(PaymentRecordRequest request) {
         ValidatedPaymentRecord validated = validator.validate(request);
-        String requestHash = computeRequestHash(validated);
-        String docNumber = findDocNumberByHash(validated.anchorType(), requestHash)
-                .orElseGet(() -> Objects.requireNonNullElseGet(
-                        validated.docNumber(),
-                        () -> generateDocNumber(validated, requestHash)
-                ));
-        boolean existing = exists(docNumber);
+        String linesJson = mapper.linesToJson(validated.lines());
+        String requestHash = hasher.hash(validated, linesJson);
+        String cachedDocNumber = idempotencyCache.get(validated.anchorType(), requestHash);
+        String candidateDocNumber = cachedDocNumber != null
+                ? cachedDocNumber
+                : Objects.requireNonNullElseGet(validated.docNumber(), () -> generateDocNumber(validated, requestHash));
+
+        MapSqlParameterSource params = new MapSqlParameterSource(
+                ledgerValues(validated, linesJson, requestHash, candidateDocNumber, timeUtil.nowZoned().toOffsetDateTime())
+        );
+
+        // A duplicate key would abort the surrounding transaction, so a re-dated doc number moves before the write
+        // instead of on retry; the move and the upsert then commit or roll back together.
+        if (validated.docNumber() != null) {
+            moveToPaymentMonths(Map.of(candidateDocNumber, validated.paymentDateTime().toOffsetDateTime()));
+        }
+
+        // xmax = 0 only on freshly inserted tuples, so the RETURNING row also reports CREATED vs UPDATED.
+        String sql = cachedDocNumber != null ? UPSERT_SQL : RECORD_SQL;
+        RecordedRow recorded = jdbcTemplate.query(sql, params, rs -> rs.next() ? mapRecorded(rs) : null);
+        if (recorded == null) {
+            throw new IllegalStateException("Failed to record payment " + candidateDocNumber);
+        }
+        cacheAfterCommit(List.of(recorded.entry()));
+        return toResult(recorded.entry(), recorded.inserted() ? PaymentRecordStatus.CREATED : PaymentRecordStatus.UPDATED);
+    }
+
+    @Transactional
+    public PaymentRecordBatchResponse recordBatch(PaymentRecordBatchRequest request) {
+        List<PaymentRecordRequest> items = request == null ? List.of() : request.getItems();
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("items must contain at least one payment");
+        }
+        if (items.size() > PaymentRecordBatchRequest.MAX_ITEMS) {
+            throw new IllegalArgumentException("items must contain at most " + PaymentRecordBatchRequest.MAX_ITEMS + " payments");
+        }
+
+        PaymentBatchItemResult[] results = new PaymentBatchItemResult[items.size()];
+        List<PendingRecord> pending = new ArrayList<>(items.size());
+        for (int index = 0; index < items.size(); index++) {
+            try {
+                ValidatedPaymentRecord validated = validator.validate(items.get(index));
+                String linesJson = mapper.linesToJson(validated.lines());
+                pending.add(new PendingRecord(index, validated, linesJson, hasher.hash(validated, linesJson), null));
+            } catch (IllegalArgumentException ex) {
+                results[index] = new PaymentBatchItemResult(index, PaymentRecordStatus.REJECTED, ex.getMessage(), null);
+            }
+        }
+
+        Map<String, String> docNumbersByHash = findDocNumbersByHash(pending);
+        Map<String, PendingRecord> latestByDocNumber = new LinkedHashMap<>();
+        List<PendingRecord> resolved = new ArrayList<>(pending.size());
+        for (PendingRecord record : pending) {
+            String docNumber = docNumbersByHash.computeIfAbsent(
+                    hashKey(record.validated().anchorType(), record.requestHash()),
+                    key -> Objects.requireNonNullElseGet(
+                            record.validated().docNumber(),
+                            () -> generateDocNumber(record.validated(), record.requestHash())
+                    )
+            );
+            PendingRecord withDocNumber = new PendingRecord(record.index(), record.validated(), record.linesJson(), record.requestHash(), docNumber);
+            resolved.add(withDocNumber);
+            latestByDocNumber.put(docNumber, withDocNumber);
+        }
+
+        Map<String, OffsetDateTime> explicitDocNumbers = new LinkedHashMap<>();
+        for (PendingRecord record : latestByDocNumber.values()) {
+            if (record.validated().docNumber() != null) {
+                explicitDocNumbers.put(record.docNumber(), record.validated().paymentDateTime().toOffsetDateTime());
+            }
+        }
+        moveToPaymentMonths(explicitDocNumbers);
+
+        Map<String, RecordedRow> recordedByDocNumber = new HashMap<>();
+        OffsetDateTime submittedAt = timeUtil.nowZoned().toOffsetDateTime();
+        List<PendingRecord> writes = new ArrayList<>(latestByDocNumber.values());
+        for (int start = 0; start < writes.size(); start += BATCH_CHUNK_SIZE) {
+            List<PendingRecord> chunk = writes.subList(start, Math.min(start + BATCH_CHUNK_SIZE, writes.size()));
+            upsertChunk(chunk, submittedAt).forEach(row -> recordedByDocNumber.put(row.entry().docNumber(), row));
+        }
+
+        Set<String> reported = new HashSet<>();
+        int created = 0;
+        int updated = 0;
+        for (PendingRecord record : resolved) {
+            RecordedRow recorded = recordedByDocNumber.get(record.docNumber());
+            if (recorded == null) {
+                throw new IllegalStateException("Failed to record payment " + record.docNumber());
+            }
+            boolean inserted = recorded.inserted() && reported.add(record.docNumber());
+            PaymentRecordStatus status = inserted ? PaymentRecordStatus.CREATED : PaymentRecordStatus.UPDATED;
+            if (inserted) {
+                created++;
+            } else {
+                updated++;
+            }
+            results[record.index()] = new PaymentBatchItemResult(record.index(), status, null, toResult(recorded.entry(), status));
+        }
+        cacheAfterCommit(recordedByDocNumber.values().stream().map(RecordedRow::entry).toList());
+
+        return new PaymentRecordBatchResponse(created, updated, items.size() - created - updated, Arrays.asList(results));
+    }
+
+    public PaymentsSummaryResponse summarize(String rootApptId, String soNumber) {
+        return summarize(rootApptId, soNumber, null, null, true);
+    }
+
+    public PaymentsSummaryResponse summarize(String rootApptId, String soNumber, Integer limit, String cursor, boolean includeLines) {
+        String trimmedRoot = trimToNull(rootApptId);
+        String trimmedSo = trimToNull(soNumber);
+        if (trimmedRoot == null && trimmedSo == null) {
+            throw new IllegalArgumentException("rootApptId or soNumber is required");
+        }
+        if (limit != null && (limit < 0 || limit > MAX_SUMMARY_PAGE_SIZE)) {
+            throw new IllegalArgumentException("limit must be between 0 and " + MAX_SUMMARY_PAGE_SIZE);
+        }
+        SummaryCursor after = SummaryCursor.decode(trimToNull(cursor));
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("root_appt_id", trimmedRoot)
+                .addValue("so_number", trimmedSo)
+                .addValue("receipt_roles", RECEIPT_ROLES)
+                .addValue("blocked_statuses", BLOCKED_STATUSES);
+
+        StringBuilder where = new StringBuilder(" WHERE 1=1");
+        if (trimmedRoot != null) {
+            where.append(" AND root_appt_id = :root_appt_id");
+        }
+        if (trimmedSo != null) {
+            where.append(" AND so_number = :so_number");
+        }
+
+        return summaryTransaction.execute(status -> readSummary(where.toString(), params, after, limit, includeLines));
+    }
+
+    private PaymentsSummaryResponse readSummary(String where, MapSqlParameterSource params, SummaryCursor after, Integer limit, boolean includeLines) {
+        SummaryTotals totals = new SummaryTotals();
+        jdbcTemplate.query(SUMMARY_TOTALS_SQL + where + " GROUP BY GROUPING SETS ((method), ())", params, totals::accept);
+
+        List<PaymentSummaryEntry> entries = List.of();
+        String nextCursor = null;
+        if (limit == null || limit > 0) {
+            StringBuilder sql = new StringBuilder("SELECT id, ")
+                    .append(includeLines ? "lines_json" : "NULL AS lines_json")
+                    .append(", ").append(SUMMARY_ENTRY_COLUMNS)
+                    .append(" FROM payments_ledger").append(where);
+            if (after != null) {
+                sql.append(" AND (payment_datetime, id) > (:after_at, :after_id)");
+                params.addValue("after_at", after.at()).addValue("after_id", after.id());
+            }
+            sql.append(" ORDER BY payment_datetime, id");
+            if (limit != null) {
+                sql.append(" LIMIT :limit");
+                params.addValue("limit", limit + 1);
+            }
+
+            List<SummaryCursor> keys = new ArrayList<>();
+            List<PaymentSummaryEntry> page = jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
+                keys.add(new SummaryCursor(rs.getObject("payment_datetime", OffsetDateTime.class), rs.getLong("id")));
+                return mapEntry(rs, includeLines);
+            });
+            if (limit != null && page.size() > limit) {
+                page = page.subList(0, limit);
+                nextCursor = keys.get(limit - 1).encode();
+            }
+            entries = page;
+        }
+
+        return new PaymentsSummaryResponse(
+                totals.invoicesLinesSubtotal(),
+                totals.creditsTotal(),
+                totals.totalPayments(),
+                totals.netLinesMinusPayments(),
+                new LinkedHashMap<>(totals.byMethod),
+                entries,
+                nextCursor
+        );
+    }
+
+    public PaymentsSummaryBulkRequest normalizeBulkRequest(PaymentsSummaryBulkRequest request) {
+        List<String> rootApptIds = request == null ? List.of() : distinctTrimmed(request.getRootApptIds());
+        List<String> soNumbers = request == null ? List.of() : distinctTrimmed(request.getSoNumbers());
+        int anchors = rootApptIds.size() + soNumbers.size();
+        if (anchors == 0) {
+            throw new IllegalArgumentException("rootApptIds or soNumbers must contain at least one anchor");
+        }
+        if (anchors > PaymentsSummaryBulkRequest.MAX_ANCHORS) {
+            throw new IllegalArgumentException("rootApptIds and soNumbers must contain at most " + PaymentsSummaryBulkRequest.MAX_ANCHORS + " anchors");
+        }
+        PaymentsSummaryBulkRequest normalized = new PaymentsSummaryBulkRequest();
+        normalized.setRootApptIds(rootApptIds);
+        normalized.setSoNumbers(soNumbers);
+        return normalized;
+    }
 
+    // Totals for every anchor in one pass; each anchor is handed to the sink as soon as its rows are read,
+    // in request order (rootApptIds first, then soNumbers).
+    public void summarizeBulk(PaymentsSummaryBulkRequest request, Consumer<PaymentsAnchorSummary> sink) {
+        PaymentsSummaryBulkRequest normalized = normalizeBulkRequest(request);
+        List<String> rootApptIds = normalized.getRootApptIds();
+        List<String> soNumbers = normalized.getSoNumbers();
         MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("doc_number", docNumber)
-                .addValue("doc_role", validated.docRole())
-                .addValue("anchor_type", validated.anchorType())
-                .addValue("root_appt_id", validated.rootApptId())
-                .addValue("so_number", validated.soNumber())
-                .addValue("basket_id", null)
-                .addValue("doc_type", validated.docType())
-                .addValue("doc_status", validated.docStatus())
-                .addValue("payment_datetime", Optional.ofNullable(validated.paymentDateTime()).map(ZonedDateTime::toOffsetDateTime).orElse(null))
-                .addValue("method", validated.method())
-                .addValue("reference", validated.reference())
-                .addValue("notes", validated.notes())
-                .addValue("amount_gross", validated.amountGross())
-                .addValue("fee_percent", validated.feePercent())
-                .addValue("fee_amount", validated.feeAmount())
-                .addValue("subtotal", validated.subtotal())
-                .addValue("amount_net", validated.amountNet())
-                .addValue("allocated_to_so", null)
-                .addValue("lines_json", toJsonb(mapper.linesToJson(validated.lines())))
-                .addValue("order_total_so", null)
-                .addValue("paid_to_date_so", null)
-                .addValue("balance_so", null)
-                .addValue("submitted_by", "payments-service")
-                .addValue("submitted_at", timeUtil.nowZoned().toOffsetDateTime())
-                .addValue("request_hash", requestHash);
-
-        jdbcTemplate.update("INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, basket_id, doc_type, doc_status, payment_datetime, method, reference, notes, amount_gross, fee_percent, fee_amount, subtotal, amount_net, allocated_to_so, lines_json, order_total_so, paid_to_date_so, balance_so, submitted_by, submitted_at, request_hash, created_at, updated_at) " +
-                        "VALUES (:doc_number, :doc_role, :anchor_type, :root_appt_id, :so_number, :basket_id, :doc_type, :doc_status, :payment_datetime, :method, :reference, :notes, :amount_gross, :fee_percent, :fee_amount, :subtotal, :amount_net, :allocated_to_so, :lines_json, :order_total_so, :paid_to_date_so, :balance_so, :submitted_by, :submitted_at, :request_hash, NOW(), NOW()) " +
-                        "ON CONFLICT (doc_number) DO UPDATE SET doc_role = EXCLUDED.doc_role, anchor_type = EXCLUDED.anchor_type, root_appt_id = EXCLUDED.root_appt_id, so_number = EXCLUDED.so_number, basket_id = EXCLUDED.basket_id, doc_type = EXCLUDED.doc_type, doc_status = EXCLUDED.doc_status, payment_datetime = EXCLUDED.payment_datetime, method = EXCLUDED.method, reference = EXCLUDED.reference, notes = EXCLUDED.notes, amount_gross = EXCLUDED.amount_gross, fee_percent = EXCLUDED.fee_percent, fee_amount = EXCLUDED.fee_amount, subtotal = EXCLUDED.subtotal, amount_net = EXCLUDED.amount_net, allocated_to_so = EXCLUDED.allocated_to_so, lines_json = EXCLUDED.lines_json, order_total_so = EXCLUDED.order_total_so, paid_to_date_so = EXCLUDED.paid_to_date_so, balance_so = EXCLUDED.balance_so, submitted_by = COALESCE(payments_ledger.submitted_by, EXCLUDED.submitted_by), submitted_at = COALESCE(payments_ledger.submitted_at, EXCLUDED.submitted_at), request_hash = EXCLUDED.request_hash, updated_at = NOW()",
-                params
+                .addValue("root_appt_ids", rootApptIds.toArray(String[]::new))
+                .addValue("so_numbers", soNumbers.toArray(String[]::new))
+                .addValue("so_offset", rootApptIds.size())
+                .addValue("receipt_roles", RECEIPT_ROLES)
+                .addValue("blocked_statuses", BLOCKED_STATUSES);
+
+        int[] current = {0};
+        SummaryTotals[] totals = {new SummaryTotals()};
+        // The driver only streams with a fetch size inside a transaction, so up to 1000 anchors' groups arrive in
+        // chunks instead of being buffered whole before the first summary is written.
+        bulkTransaction.executeWithoutResult(status -> bulkJdbcTemplate.query(BULK_SUMMARY_SQL, params, rs -> {
+            int ord = rs.getInt("ord");
+            if (ord != current[0]) {
+                if (current[0] != 0) {
+                    sink.accept(toAnchorSummary(current[0], rootApptIds, soNumbers, totals[0]));
+                }
+                current[0] = ord;
+                totals[0] = new SummaryTotals();
+            }
+            totals[0].accept(rs);
+        }));
+        if (current[0] != 0) {
+            sink.accept(toAnchorSummary(current[0], rootApptIds, soNumbers, totals[0]));
+        }
+    }
+
+    private PaymentsAnchorSummary toAnchorSummary(int ord, List<String> rootApptIds, List<String> soNumbers, SummaryTotals totals) {
+        boolean root = ord <= rootApptIds.size();
+        return new PaymentsAnchorSummary(
+                root ? rootApptIds.get(ord - 1) : null,
+                root ? null : soNumbers.get(ord - rootApptIds.size() - 1),
+                totals.invoicesLinesSubtotal(),
+                totals.creditsTotal(),
+                totals.totalPayments(),
+                totals.netLinesMinusPayments(),
+                new LinkedHashMap<>(totals.byMethod)
+        );
+    }
+
+    private List<String> distinctTrimmed(List<String> values) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String value : values) {
+            String trimmed = trimToNull(value);
+            if (trimmed != null) {
+                distinct.add(trimmed);
+            }
+        }
+        return new ArrayList<>(distinct);
+    }
+
+    private List<RecordedRow> upsertChunk(List<PendingRecord> chunk, OffsetDateTime submittedAt) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder("INSERT INTO payments_ledger (")
+                .append(String.join(", ", LEDGER_COLUMNS))
+                .append(", created_at, updated_at) VALUES ");
+        for (int row = 0; row < chunk.size(); row++) {
+            PendingRecord record = chunk.get(row);
+            Map<String, Object> values = ledgerValues(record.validated(), record.linesJson(), record.requestHash(), record.docNumber(), submittedAt);
+            sql.append(row == 0 ? "(" : ", (");
+            for (String column : LEDGER_COLUMNS) {
+                String paramName = column + "_" + row;
+                sql.append(':').append(paramName).append(", ");
+                params.addValue(paramName, values.get(column));
+            }
+            sql.append("NOW(), NOW())");
+        }
+        sql.append(UPSERT_CONFLICT_SQL).append(UPSERT_RETURNING_SQL);
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> mapRecorded(rs));
+    }
+
+    private int moveToPaymentMonths(Map<String, OffsetDateTime> paymentDateTimesByDocNumber) {
+        if (paymentDateTimesByDocNumber.isEmpty()) {
+            return 0;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("doc_numbers", paymentDateTimesByDocNumber.keySet().toArray(String[]::new))
+                .addValue("payment_datetimes", paymentDateTimesByDocNumber.values().stream().map(OffsetDateTime::toString).toArray(String[]::new));
+        return jdbcTemplate.update(MOVE_SQL, params);
+    }
+
+    private Map<String, String> findDocNumbersByHash(List<PendingRecord> pending) {
+        Map<String, String> docNumbers = new HashMap<>();
+        List<PendingRecord> records = new ArrayList<>(pending.size());
+        for (PendingRecord record : pending) {
+            String cached = idempotencyCache.get(record.validated().anchorType(), record.requestHash());
+            if (cached != null) {
+                docNumbers.put(hashKey(record.validated().anchorType(), record.requestHash()), cached);
+            } else {
+                records.add(record);
+            }
+        }
+        if (records.isEmpty()) {
+            return docNumbers;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("anchor_types", records.stream().map(record -> record.validated().anchorType()).toArray(String[]::new))
+                .addValue("request_hashes", records.stream().map(PendingRecord::requestHash).toArray(String[]::new));
+        jdbcTemplate.query(
+                "SELECT l.anchor_type, l.request_hash, l.doc_number FROM payments_ledger_keys l " +
+                        "JOIN unnest(CAST(:anchor_types AS text[]), CAST(:request_hashes AS text[])) AS k(anchor_type, request_hash) " +
+                        "ON l.anchor_type = k.anchor_type AND l.request_hash = k.request_hash",
+                params,
+                rs -> {
+                    docNumbers.putIfAbsent(hashKey(rs.getString("anchor_type"), rs.getString("request_hash")), rs.getString("doc_number"));
+                }
         );
+        return docNumbers;
+    }
 
-        PaymentSummaryEntry entry = fetchByDocNumber(docNumber)
-                .orElseThrow(() -> new IllegalStateException("Failed to load payment record " + docNumber));
+    private Map<String, Object> ledgerValues(ValidatedPaymentRecord validated,
+                                             String linesJson,
+                                             String requestHash,
+                                             String docNumber,
+                                             OffsetDateTime submittedAt) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("doc_number", docNumber);
+        values.put("doc_role", validated.docRole());
+        values.put("anchor_type", validated.anchorType());
+        values.put("root_appt_id", validated.rootApptId());
+        values.put("so_number", validated.soNumber());
+        values.put("basket_id", null);
+        values.put("doc_type", validated.docType());
+        values.put("doc_status", validated.docStatus());
+        values.put("payment_datetime", Optional.ofNullable(validated.paymentDateTime()).map(ZonedDateTime::toOffsetDateTime).orElse(null));
+        values.put("method", validated.method());
+        values.put("reference", validated.reference());
+        values.put("notes", validated.notes());
+        values.put("amount_gross", validated.amountGross());
+        values.put("fee_percent", validated.feePercent());
+        values.put("fee_amount", validated.feeAmount());
+        values.put("subtotal", validated.subtotal());
+        values.put("amount_net", validated.amountNet());
+        values.put("allocated_to_so", null);
+        values.put("lines_json", toJsonb(linesJson));
+        values.put("submitted_by", "payments-service");
+        values.put("submitted_at", submittedAt);
+        values.put("request_hash", requestHash);
+        return values;
+    }
 
+    private RecordedRow mapRecorded(ResultSet rs) throws SQLException {
+        return new RecordedRow(mapEntry(rs, true), rs.getBoolean("inserted"));
+    }
+
+    private PaymentRecordResult toResult(PaymentSummaryEntry entry, PaymentRecordStatus status) {
         return new PaymentRecordResult(
-                existing ? PaymentRecordStatus.UPDATED : PaymentRecordStatus.CREATED,
+                status,
                 entry.docNumber(),
                 entry.docRole(),
                 entry.anchorType(),
@@ -119,210 +519,125 @@ public class PaymentsService {
         );
     }
 
-    public PaymentsSummaryResponse summarize(String rootApptId, String soNumber) {
-        String trimmedRoot = trimToNull(rootApptId);
-        String trimmedSo = trimToNull(soNumber);
-        if (trimmedRoot == null && trimmedSo == null) {
-            throw new IllegalArgumentException("rootApptId or soNumber is required");
+    private String hashKey(String anchorType, String requestHash) {
+        return PaymentIdempotencyCache.key(anchorType, requestHash);
+    }
+
+    private void cacheAfterCommit(List<PaymentSummaryEntry> entries) {
+        Runnable populate = () -> entries.forEach(entry -> idempotencyCache.put(entry.anchorType(), entry.requestHash(), entry.docNumber()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            populate.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                populate.run();
+            }
+        });
+    }
 
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("root_appt_id", trimmedRoot)
-                .addValue("so_number", trimmedSo);
+    private PaymentSummaryEntry mapEntry(ResultSet rs, boolean includeLines) throws SQLException {
+        List<PaymentLine> lines = includeLines ? mapper.linesFromJson(rs.getString("lines_json")) : null;
+        OffsetDateTime paymentDateTime = rs.getObject("payment_datetime", OffsetDateTime.class);
+        OffsetDateTime submittedAt = rs.getObject("submitted_at", OffsetDateTime.class);
+        return new PaymentSummaryEntry(
+                rs.getString("doc_number"),
+                rs.getString("doc_role"),
+                rs.getString("anchor_type"),
+                rs.getString("root_appt_id"),
+                rs.getString("so_number"),
+                rs.getString("doc_type"),
+                rs.getString("doc_status"),
+                paymentDateTime == null ? null : timeUtil.formatDateTime(paymentDateTime.atZoneSameInstant(zoneId)),
+                rs.getString("method"),
+                rs.getString("reference"),
+                rs.getString("notes"),
+                rs.getBigDecimal("amount_gross"),
+                rs.getBigDecimal("fee_percent"),
+                rs.getBigDecimal("fee_amount"),
+                rs.getBigDecimal("subtotal"),
+                rs.getBigDecimal("amount_net"),
+                lines,
+                rs.getString("request_hash"),
+                submittedAt == null ? null : timeUtil.formatDateTime(submittedAt.atZoneSameInstant(zoneId))
+        );
+    }
 
-        StringBuilder sql = new StringBuilder("SELECT * FROM payments_ledger WHERE 1=1");
-        if (trimmedRoot != null) {
-            sql.append(" AND root_appt_id = :root_appt_id");
+    private static final class SummaryTotals {
+
+        // Keys stay exactly as stored ("card" and "Card" are separate buckets); only the ordering ignores case.
+        private static final Comparator<String> METHOD_ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+        private BigDecimal invoicesSubtotal = BigDecimal.ZERO;
+        private BigDecimal credits = BigDecimal.ZERO;
+        private BigDecimal payments = BigDecimal.ZERO;
+        private final Map<String, BigDecimal> byMethod = new TreeMap<>(METHOD_ORDER);
+
+        private void accept(ResultSet rs) throws SQLException {
+            BigDecimal rowPayments = rs.getBigDecimal("payments");
+            if (rs.getBoolean("is_total")) {
+                invoicesSubtotal = Optional.ofNullable(rs.getBigDecimal("invoices_subtotal")).orElse(BigDecimal.ZERO);
+                credits = Optional.ofNullable(rs.getBigDecimal("credits")).orElse(BigDecimal.ZERO);
+                payments = Optional.ofNullable(rowPayments).orElse(BigDecimal.ZERO);
+            } else if (rowPayments != null && rs.getString("method") != null) {
+                byMethod.merge(rs.getString("method"), rowPayments.setScale(2, RoundingMode.HALF_UP), BigDecimal::add);
+            }
         }
-        if (trimmedSo != null) {
-            sql.append(" AND so_number = :so_number");
-        }
-        sql.append(" ORDER BY COALESCE(payment_datetime, submitted_at)");
-
-        List<PaymentSummaryEntry> entries = jdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> {
-            List<PaymentLine> lines = mapper.linesFromJson(rs.getString("lines_json"));
-            OffsetDateTime paymentDateTime = rs.getObject("payment_datetime", OffsetDateTime.class);
-            OffsetDateTime submittedAt = rs.getObject("submitted_at", OffsetDateTime.class);
-            return new PaymentSummaryEntry(
-                    rs.getString("doc_number"),
-                    rs.getString("doc_role"),
-                    rs.getString("anchor_type"),
-                    rs.getString("root_appt_id"),
-                    rs.getString("so_number"),
-                    rs.getString("doc_type"),
-                    rs.getString("doc_status"),
-                    paymentDateTime == null ? null : timeUtil.formatDateTime(paymentDateTime.atZoneSameInstant(zoneId)),
-                    rs.getString("method"),
-                    rs.getString("reference"),
-                    rs.getString("notes"),
-                    rs.getBigDecimal("amount_gross"),
-                    rs.getBigDecimal("fee_percent"),
-                    rs.getBigDecimal("fee_amount"),
-                    rs.getBigDecimal("subtotal"),
-                    rs.getBigDecimal("amount_net"),
-                    lines,
-                    rs.getString("request_hash"),
-                    submittedAt == null ? null : timeUtil.formatDateTime(submittedAt.atZoneSameInstant(zoneId))
-            );
-        });
 
-        BigDecimal invoicesLinesSubtotal = sum(entries.stream()
-                .filter(entry -> "INVOICE".equalsIgnoreCase(entry.docRole()))
-                .map(PaymentSummaryEntry::subtotal)
-                .toList());
-
-        BigDecimal totalPayments = sum(entries.stream()
-                .filter(entry -> RECEIPT_ROLES.contains(entry.docRole()))
-                .filter(entry -> entry.amountNet() != null && entry.amountNet().compareTo(BigDecimal.ZERO) > 0)
-                .filter(entry -> entry.docStatus() == null || !BLOCKED_STATUSES.contains(entry.docStatus().toUpperCase(Locale.US)))
-                .map(PaymentSummaryEntry::amountNet)
-                .toList());
-
-        Map<String, BigDecimal> byMethod = entries.stream()
-                .filter(entry -> RECEIPT_ROLES.contains(entry.docRole()))
-                .filter(entry -> entry.amountNet() != null && entry.amountNet().compareTo(BigDecimal.ZERO) > 0)
-                .filter(entry -> entry.docStatus() == null || !BLOCKED_STATUSES.contains(entry.docStatus().toUpperCase(Locale.US)))
-                .filter(entry -> entry.method() != null)
-                .collect(Collectors.toMap(
-                        entry -> entry.method(),
-                        PaymentSummaryEntry::amountNet,
-                        BigDecimal::add,
-                        LinkedHashMap::new
-                ));
-
-        byMethod = byMethod.entrySet().stream()
-                .sorted(Map.Entry.comparingByKey(Comparator.nullsLast(String::compareToIgnoreCase)))
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> entry.getValue().setScale(2, RoundingMode.HALF_UP),
-                        (a, b) -> b,
-                        LinkedHashMap::new
-                ));
-
-        BigDecimal netLinesMinusPayments = invoicesLinesSubtotal.subtract(totalPayments);
-        if (netLinesMinusPayments.compareTo(BigDecimal.ZERO) < 0) {
-            netLinesMinusPayments = BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
-        } else {
-            netLinesMinusPayments = netLinesMinusPayments.setScale(2, RoundingMode.HALF_UP);
+        private BigDecimal invoicesLinesSubtotal() {
+            return invoicesSubtotal.setScale(2, RoundingMode.HALF_UP);
         }
 
-        return new PaymentsSummaryResponse(
-                invoicesLinesSubtotal,
-                totalPayments,
-                netLinesMinusPayments,
-                byMethod,
-                entries
-        );
-    }
+        private BigDecimal creditsTotal() {
+            return credits.setScale(2, RoundingMode.HALF_UP);
+        }
 
-    private Optional<PaymentSummaryEntry> fetchByDocNumber(String docNumber) {
-        MapSqlParameterSource params = new MapSqlParameterSource("doc_number", docNumber);
-        List<PaymentSummaryEntry> rows = jdbcTemplate.query(
-                "SELECT * FROM payments_ledger WHERE doc_number = :doc_number",
-                params,
-                (rs, rowNum) -> {
-                    List<PaymentLine> lines = mapper.linesFromJson(rs.getString("lines_json"));
-                    OffsetDateTime paymentDateTime = rs.getObject("payment_datetime", OffsetDateTime.class);
-                    OffsetDateTime submittedAt = rs.getObject("submitted_at", OffsetDateTime.class);
-                    return new PaymentSummaryEntry(
-                            rs.getString("doc_number"),
-                            rs.getString("doc_role"),
-                            rs.getString("anchor_type"),
-                            rs.getString("root_appt_id"),
-                            rs.getString("so_number"),
-                            rs.getString("doc_type"),
-                            rs.getString("doc_status"),
-                            paymentDateTime == null ? null : timeUtil.formatDateTime(paymentDateTime.atZoneSameInstant(zoneId)),
-                            rs.getString("method"),
-                            rs.getString("reference"),
-                            rs.getString("notes"),
-                            rs.getBigDecimal("amount_gross"),
-                            rs.getBigDecimal("fee_percent"),
-                            rs.getBigDecimal("fee_amount"),
-                            rs.getBigDecimal("subtotal"),
-                            rs.getBigDecimal("amount_net"),
-                            lines,
-                            rs.getString("request_hash"),
-                            submittedAt == null ? null : timeUtil.formatDateTime(submittedAt.atZoneSameInstant(zoneId))
-                    );
-                }
-        );
-        return rows.stream().findFirst();
-    }
+        private BigDecimal totalPayments() {
+            return payments.setScale(2, RoundingMode.HALF_UP);
+        }
 
-    private Optional<String> findDocNumberByHash(String anchorType, String requestHash) {
-        if (requestHash == null || anchorType == null) {
-            return Optional.empty();
+        private BigDecimal netLinesMinusPayments() {
+            return invoicesLinesSubtotal().subtract(creditsTotal()).subtract(totalPayments()).max(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP);
         }
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("anchor_type", anchorType)
-                .addValue("request_hash", requestHash);
-        List<String> docNumbers = jdbcTemplate.query(
-                "SELECT doc_number FROM payments_ledger WHERE anchor_type = :anchor_type AND request_hash = :request_hash LIMIT 1",
-                params,
-                (rs, rowNum) -> rs.getString("doc_number")
-        );
-        return docNumbers.stream().findFirst();
     }
 
-    private boolean exists(String docNumber) {
-        try {
-            Integer count = jdbcTemplate.queryForObject(
-                    "SELECT COUNT(1) FROM payments_ledger WHERE doc_number = :doc_number",
-                    new MapSqlParameterSource("doc_number", docNumber),
-                    Integer.class
-            );
-            return count != null && count > 0;
-        } catch (DataAccessException ex) {
-            return false;
-        }
+    private record RecordedRow(PaymentSummaryEntry entry, boolean inserted) {
     }
 
-    private BigDecimal sum(List<BigDecimal> values) {
-        return values.stream()
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .setScale(2, RoundingMode.HALF_UP);
+    private record PendingRecord(int index, ValidatedPaymentRecord validated, String linesJson, String requestHash, String docNumber) {
     }
 
-    private String computeRequestHash(ValidatedPaymentRecord record) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            digest.update(Objects.toString(record.anchorType(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.rootApptId(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.soNumber(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.docType(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.docStatus(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.docRole(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.method(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.reference(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.notes(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.amountGross(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.feePercent(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.feeAmount(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.subtotal(), "").getBytes(StandardCharsets.UTF_8));
-            digest.update(Objects.toString(record.amountNet(), "").getBytes(StandardCharsets.UTF_8));
-            if (record.paymentDateTime() != null) {
-                digest.update(timeUtil.formatDateTime(record.paymentDateTime()).getBytes(StandardCharsets.UTF_8));
+    private record SummaryCursor(OffsetDateTime at, long id) {
+
+        String encode() {
+            String raw = at.toInstant() + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static SummaryCursor decode(String cursor) {
+            if (cursor == null) {
+                return null;
             }
-            if (record.lines() != null) {
-                digest.update(mapper.linesToJson(record.lines()).getBytes(StandardCharsets.UTF_8));
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                OffsetDateTime at = OffsetDateTime.ofInstant(Instant.parse(raw.substring(0, separator)), ZoneOffset.UTC);
+                return new SummaryCursor(at, Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException ex) {
+                throw new IllegalArgumentException("cursor is invalid", ex);
             }
-            return HexFormat.of().formatHex(digest.digest());
-        } catch (NoSuchAlgorithmException e) {
-            throw new IllegalStateException("SHA-256 algorithm not available", e);
         }
     }
 
-    private String generateDocNumber(ValidatedPaymentRecord record, String requestHash) {
+    String generateDocNumber(ValidatedPaymentRecord record, String requestHash) {
         String base = String.join("-",
                 Optional.ofNullable(record.anchorType()).orElse("NA"),
                 normalizeToken(record.docRole()),
                 normalizeToken(record.docType()),
                 record.paymentDateTime() == null ? "TS0" : String.valueOf(record.paymentDateTime().toInstant().toEpochMilli())
         );
-        String hash = Optional.ofNullable(requestHash).orElseGet(() -> computeRequestHash(record));
-        return (base + "-" + hash.substring(0, 8)).toUpperCase(Locale.US);
+        return (base + "-" + requestHash.substring(0, 8)).toUpperCase(Locale.US);
     }
 
     private String normalizeToken(String value) {
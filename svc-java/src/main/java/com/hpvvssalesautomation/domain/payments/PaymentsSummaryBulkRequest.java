@@ -0,0 +1,28 @@
+package com.hpvvssalesautomation.domain.payments;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class PaymentsSummaryBulkRequest {
+
+    public static final int MAX_ANCHORS = 5000;
+
+    private List<String> rootApptIds = new ArrayList<>();
+    private List<String> soNumbers = new ArrayList<>();
+
+    public List<String> getRootApptIds() {
+        return rootApptIds;
+    }
+
+    public void setRootApptIds(List<String> rootApptIds) {
+        this.rootApptIds = rootApptIds == null ? new ArrayList<>() : new ArrayList<>(rootApptIds);
+    }
+
+    public List<String> getSoNumbers() {
+        return soNumbers;
+    }
+
+    public void setSoNumbers(List<String> soNumbers) {
+        this.soNumbers = soNumbers == null ? new ArrayList<>() : new ArrayList<>(soNumbers);
+    }
+}
@@ -1,14 +1,18 @@
 package com.hpvvssalesautomation.domain.payments;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 
 public record PaymentsSummaryResponse(
         BigDecimal invoicesLinesSubtotal,
+        BigDecimal creditsTotal,
         BigDecimal totalPayments,
         BigDecimal netLinesMinusPayments,
         Map<String, BigDecimal> byMethod,
-        List<PaymentSummaryEntry> entries
+        List<PaymentSummaryEntry> entries,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String nextCursor
 ) {
 }
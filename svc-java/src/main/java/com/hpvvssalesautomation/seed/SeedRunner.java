@@ -2,6 +2,8 @@ package com.hpvvssalesautomation.seed;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hpvvssalesautomation.alias.AliasRegistry;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsOrderStatus;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStoneStatus;
 import com.hpvvssalesautomation.util.HeaderMap;
 import com.hpvvssalesautomation.util.TimeUtil;
 import org.apache.commons.csv.CSVFormat;
@@ -23,10 +25,13 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.StringJoiner;
 
 @Component
 public class SeedRunner {
 
+    private static final int DIAMONDS_SEED_CHUNK_SIZE = 1000;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final AliasRegistry aliasRegistry;
     private final TimeUtil timeUtil;
@@ -52,7 +57,7 @@ public class SeedRunner {
 
     private void truncateTables() {
         jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_summary_100 RESTART IDENTITY CASCADE");
-        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_orders_200 RESTART IDENTITY CASCADE");
+        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_stones RESTART IDENTITY CASCADE");
         jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE per_client_entries RESTART IDENTITY CASCADE");
         jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE per_client_reports RESTART IDENTITY CASCADE");
         jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE client_status_log RESTART IDENTITY CASCADE");
@@ -71,29 +76,57 @@ public class SeedRunner {
             Collections.shuffle(shuffledHeaders);
             HeaderMap headerMap = new HeaderMap(shuffledHeaders, aliasRegistry.diamondsOrderAliases());
 
+            // Multi-row inserts into diamonds_stones, so its statement triggers run once per chunk instead of once per
+            // row as they would through the diamonds_orders_200 view.
+            MapSqlParameterSource params = new MapSqlParameterSource();
+            StringJoiner rows = new StringJoiner(", ");
+            int i = 0;
             for (CSVRecord record : parser) {
-                MapSqlParameterSource params = new MapSqlParameterSource();
-                params.addValue("root_appt_id", value(record, headerMap.getActual("RootApptID")));
-                params.addValue("stone_reference", value(record, headerMap.getActual("Stone Reference")));
-                params.addValue("stone_type", trim(value(record, headerMap.getActual("Stone Type"))));
-                params.addValue("stone_status", trim(value(record, headerMap.getActual("Stone Status"))));
-                params.addValue("order_status", trim(value(record, headerMap.getActual("Order Status"))));
-                params.addValue("ordered_by", trim(value(record, headerMap.getActual("Ordered By"))));
-                params.addValue("ordered_date", parseDate(record, headerMap.getActual("Ordered Date")));
-                params.addValue("memo_invoice_date", parseDate(record, headerMap.getActual("Memo/Invoice Date")));
-                params.addValue("return_due_date", parseDate(record, headerMap.getActual("Return Due Date")));
-                params.addValue("decided_by", trim(value(record, headerMap.getActual("Decided By"))));
-                params.addValue("decided_date", parseDate(record, headerMap.getActual("Decided Date")));
-
-                jdbcTemplate.update(
-                        "INSERT INTO diamonds_orders_200 (root_appt_id, stone_reference, stone_type, stone_status, order_status, ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date) " +
-                                "VALUES (:root_appt_id, :stone_reference, :stone_type, :stone_status, :order_status, :ordered_by, :ordered_date, :memo_invoice_date, :return_due_date, :decided_by, :decided_date)",
-                        params
-                );
+                if (i == DIAMONDS_SEED_CHUNK_SIZE) {
+                    insertStones(rows, params);
+                    params = new MapSqlParameterSource();
+                    rows = new StringJoiner(", ");
+                    i = 0;
+                }
+                String suffix = "_" + i++;
+                params.addValue("root_appt_id" + suffix, value(record, headerMap.getActual("RootApptID")));
+                params.addValue("stone_reference" + suffix, value(record, headerMap.getActual("Stone Reference")));
+                params.addValue("stone_type" + suffix, trim(value(record, headerMap.getActual("Stone Type"))));
+                params.addValue("stone_status_code" + suffix, stoneStatusCode(trim(value(record, headerMap.getActual("Stone Status")))));
+                params.addValue("order_status_code" + suffix, orderStatusCode(trim(value(record, headerMap.getActual("Order Status")))));
+                params.addValue("ordered_by" + suffix, trim(value(record, headerMap.getActual("Ordered By"))));
+                params.addValue("ordered_date" + suffix, parseDate(record, headerMap.getActual("Ordered Date")));
+                params.addValue("memo_invoice_date" + suffix, parseDate(record, headerMap.getActual("Memo/Invoice Date")));
+                params.addValue("return_due_date" + suffix, parseDate(record, headerMap.getActual("Return Due Date")));
+                params.addValue("decided_by" + suffix, trim(value(record, headerMap.getActual("Decided By"))));
+                params.addValue("decided_date" + suffix, parseDate(record, headerMap.getActual("Decided Date")));
+                rows.add("(:root_appt_id" + suffix + ", :stone_reference" + suffix + ", :stone_type" + suffix +
+                        ", CAST(:stone_status_code" + suffix + " AS SMALLINT), CAST(:order_status_code" + suffix + " AS SMALLINT)" +
+                        ", :ordered_by" + suffix + ", CAST(:ordered_date" + suffix + " AS DATE), CAST(:memo_invoice_date" + suffix + " AS DATE)" +
+                        ", CAST(:return_due_date" + suffix + " AS DATE), :decided_by" + suffix + ", CAST(:decided_date" + suffix + " AS DATE))");
+            }
+            if (i > 0) {
+                insertStones(rows, params);
             }
         }
     }
 
+    private void insertStones(StringJoiner rows, MapSqlParameterSource params) {
+        jdbcTemplate.update(
+                "INSERT INTO diamonds_stones (root_appt_id, stone_reference, stone_type, stone_status_code, order_status_code, ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date) " +
+                        "VALUES " + rows,
+                params
+        );
+    }
+
+    private Integer orderStatusCode(String label) {
+        return label == null ? null : DiamondsOrderStatus.fromLabel(label).code();
+    }
+
+    private Integer stoneStatusCode(String label) {
+        return label == null ? null : DiamondsStoneStatus.fromLabel(label).code();
+    }
+
     private void seedMaster(Path csvPath) throws IOException {
         try (Reader reader = Files.newBufferedReader(csvPath);
              CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().withIgnoreSurroundingSpaces().parse(reader)) {
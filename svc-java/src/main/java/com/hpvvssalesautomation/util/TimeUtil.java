@@ -76,6 +76,12 @@ public class TimeUtil {
         return dateTime == null ? null : dateTimeFormatter.format(dateTime);
     }
 
+    public void formatDateTimeTo(ZonedDateTime dateTime, Appendable target) {
+        if (dateTime != null) {
+            dateTimeFormatter.formatTo(dateTime, target);
+        }
+    }
+
     public LocalDate today() {
         return LocalDate.now(zoneId);
     }
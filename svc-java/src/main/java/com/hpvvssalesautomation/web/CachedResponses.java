@@ -0,0 +1,54 @@
+package com.hpvvssalesautomation.web;
+
+import com.hpvvssalesautomation.domain.ResponseCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Serves cacheable GET responses through {@link ResponseCache}. The ETag is derived from the cache key and the data
+ * version alone, so a matching If-None-Match is answered with 304 after a single version read.
+ */
+@Component
+public class CachedResponses {
+
+    private final ResponseCache responseCache;
+
+    public CachedResponses(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public <T> ResponseEntity<T> respond(String key, String ifNoneMatch, Supplier<T> loader, Predicate<T> cacheable) {
+        long version = responseCache.currentVersion();
+        String etag = ResponseCache.etag(key, version);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+
+        T body = responseCache.get(key, version, loader, cacheable);
+        if (!cacheable.test(body)) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(body);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body);
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -4,7 +4,10 @@ import com.hpvvssalesautomation.config.FeatureFlags;
 import com.hpvvssalesautomation.domain.DashboardKpiResponse;
 import com.hpvvssalesautomation.domain.DashboardService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,16 +19,24 @@ public class DashboardController {
 
     private final DashboardService dashboardService;
     private final FeatureFlags featureFlags;
+    private final CachedResponses cachedResponses;
 
-    public DashboardController(DashboardService dashboardService, FeatureFlags featureFlags) {
+    public DashboardController(DashboardService dashboardService, FeatureFlags featureFlags, CachedResponses cachedResponses) {
         this.dashboardService = dashboardService;
         this.featureFlags = featureFlags;
+        this.cachedResponses = cachedResponses;
     }
 
     @GetMapping("/kpis")
-    public DashboardKpiResponse getKpis(@RequestParam(value = "dateFrom", required = false) String dateFrom,
-                                         @RequestParam(value = "dateTo", required = false) String dateTo) {
+    public ResponseEntity<DashboardKpiResponse> getKpis(@RequestParam(value = "dateFrom", required = false) String dateFrom,
+                                                        @RequestParam(value = "dateTo", required = false) String dateTo,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         featureFlags.requireReportsEnabled();
-        return dashboardService.fetchKpis(dateFrom, dateTo);
+        return cachedResponses.respond(
+                dashboardService.cacheKey(dateFrom, dateTo),
+                ifNoneMatch,
+                () -> dashboardService.fetchKpis(dateFrom, dateTo),
+                kpis -> !kpis.partial()
+        );
     }
 }
@@ -0,0 +1,43 @@
+package com.hpvvssalesautomation.web;
+
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStonesQuery;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStonesResponse;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStonesService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/diamonds")
+public class DiamondsStonesController {
+
+    private final DiamondsStonesService diamondsStonesService;
+
+    public DiamondsStonesController(DiamondsStonesService diamondsStonesService) {
+        this.diamondsStonesService = diamondsStonesService;
+    }
+
+    @GetMapping("/stones")
+    public ResponseEntity<DiamondsStonesResponse> stones(@RequestParam(value = "orderStatus", required = false) String orderStatus,
+                                                         @RequestParam(value = "stoneStatus", required = false) String stoneStatus,
+                                                         @RequestParam(value = "stoneType", required = false) String stoneType,
+                                                         @RequestParam(value = "orderedBy", required = false) String orderedBy,
+                                                         @RequestParam(value = "orderedFrom", required = false) String orderedFrom,
+                                                         @RequestParam(value = "orderedTo", required = false) String orderedTo,
+                                                         @RequestParam(value = "returnDueFrom", required = false) String returnDueFrom,
+                                                         @RequestParam(value = "returnDueTo", required = false) String returnDueTo,
+                                                         @RequestParam(value = "limit", required = false) Integer limit,
+                                                         @RequestParam(value = "cursor", required = false) String cursor) {
+        DiamondsStonesQuery query = new DiamondsStonesQuery(orderStatus, stoneStatus, stoneType, orderedBy,
+                orderedFrom, orderedTo, returnDueFrom, returnDueTo, limit, cursor);
+        try {
+            return ResponseEntity.ok(diamondsStonesService.list(query));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.hpvvssalesautomation.web;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordBatchRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordBatchResponse;
 import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
 import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
 import com.hpvvssalesautomation.domain.payments.PaymentsService;
+import com.hpvvssalesautomation.domain.payments.PaymentsSummaryBulkRequest;
 import com.hpvvssalesautomation.domain.payments.PaymentsSummaryResponse;
 import jakarta.validation.Valid;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,6 +20,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 @RestController
 @RequestMapping("/payments")
@@ -22,9 +31,11 @@ import org.springframework.web.server.ResponseStatusException;
 public class PaymentsController {
 
     private final PaymentsService paymentsService;
+    private final ObjectMapper objectMapper;
 
-    public PaymentsController(PaymentsService paymentsService) {
+    public PaymentsController(PaymentsService paymentsService, ObjectMapper objectMapper) {
         this.paymentsService = paymentsService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/record")
@@ -36,13 +47,45 @@ public class PaymentsController {
         }
     }
 
+    @PostMapping("/record-batch")
+    public ResponseEntity<PaymentRecordBatchResponse> recordBatch(@Valid @RequestBody PaymentRecordBatchRequest request) {
+        try {
+            return ResponseEntity.ok(paymentsService.recordBatch(request));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
     @GetMapping("/summary")
     public ResponseEntity<PaymentsSummaryResponse> summary(@RequestParam(value = "rootApptId", required = false) String rootApptId,
-                                                            @RequestParam(value = "soNumber", required = false) String soNumber) {
+                                                            @RequestParam(value = "soNumber", required = false) String soNumber,
+                                                            @RequestParam(value = "limit", required = false) Integer limit,
+                                                            @RequestParam(value = "cursor", required = false) String cursor,
+                                                            @RequestParam(value = "includeLines", required = false) Boolean includeLines) {
+        try {
+            boolean loadLines = includeLines != null ? includeLines : limit == null;
+            return ResponseEntity.ok(paymentsService.summarize(rootApptId, soNumber, limit, cursor, loadLines));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    @PostMapping("/summary/bulk")
+    public ResponseEntity<StreamingResponseBody> summaryBulk(@RequestBody PaymentsSummaryBulkRequest request) {
+        PaymentsSummaryBulkRequest anchors;
         try {
-            return ResponseEntity.ok(paymentsService.summarize(rootApptId, soNumber));
+            anchors = paymentsService.normalizeBulkRequest(request);
         } catch (IllegalArgumentException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
         }
+        StreamingResponseBody body = out -> paymentsService.summarizeBulk(anchors, summary -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(summary));
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 }
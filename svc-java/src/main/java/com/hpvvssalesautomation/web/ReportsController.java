@@ -1,13 +1,23 @@
 package com.hpvvssalesautomation.web;
 
 import com.hpvvssalesautomation.config.FeatureFlags;
+import com.hpvvssalesautomation.domain.ReportExportFormat;
+import com.hpvvssalesautomation.domain.ReportsFreshness;
 import com.hpvvssalesautomation.domain.ReportsResponse;
 import com.hpvvssalesautomation.domain.ReportsService;
+import com.hpvvssalesautomation.domain.ReportsSummaryResponse;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/reports")
@@ -16,21 +26,104 @@ public class ReportsController {
 
     private final ReportsService reportsService;
     private final FeatureFlags featureFlags;
+    private final CachedResponses cachedResponses;
 
-    public ReportsController(ReportsService reportsService, FeatureFlags featureFlags) {
+    public ReportsController(ReportsService reportsService, FeatureFlags featureFlags, CachedResponses cachedResponses) {
         this.reportsService = reportsService;
         this.featureFlags = featureFlags;
+        this.cachedResponses = cachedResponses;
     }
 
     @GetMapping("/by-status")
-    public ReportsResponse byStatus(@RequestParam(value = "filters", required = false) String filters) {
+    public ResponseEntity<ReportsResponse> byStatus(@RequestParam(value = "filters", required = false) String filters,
+                                                    @RequestParam(value = "limit", required = false) Integer limit,
+                                                    @RequestParam(value = "cursor", required = false) String cursor,
+                                                    @RequestParam(value = "includeTotal", required = false) Boolean includeTotal,
+                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         featureFlags.requireReportsEnabled();
-        return reportsService.byStatus(filters);
+        boolean total = Boolean.TRUE.equals(includeTotal);
+        try {
+            return cachedResponses.respond(
+                    reportsService.byStatusCacheKey(filters, limit, cursor, total),
+                    ifNoneMatch,
+                    () -> reportsService.byStatus(filters, limit, cursor, total),
+                    response -> isFresh(response.freshness())
+            );
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
     }
 
     @GetMapping("/by-rep")
-    public ReportsResponse byRep(@RequestParam(value = "filters", required = false) String filters) {
+    public ResponseEntity<ReportsResponse> byRep(@RequestParam(value = "filters", required = false) String filters,
+                                                 @RequestParam(value = "limit", required = false) Integer limit,
+                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                 @RequestParam(value = "includeTotal", required = false) Boolean includeTotal,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         featureFlags.requireReportsEnabled();
-        return reportsService.byRep(filters);
+        boolean total = Boolean.TRUE.equals(includeTotal);
+        try {
+            return cachedResponses.respond(
+                    reportsService.byRepCacheKey(filters, limit, cursor, total),
+                    ifNoneMatch,
+                    () -> reportsService.byRep(filters, limit, cursor, total),
+                    response -> isFresh(response.freshness())
+            );
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    @GetMapping("/summary")
+    public ResponseEntity<ReportsSummaryResponse> summary(@RequestParam(value = "filters", required = false) String filters,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        featureFlags.requireReportsEnabled();
+        try {
+            return cachedResponses.respond(
+                    reportsService.summaryCacheKey(filters),
+                    ifNoneMatch,
+                    () -> reportsService.summary(filters),
+                    response -> isFresh(response.freshness())
+            );
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
+    }
+
+    @GetMapping("/by-status/export")
+    public ResponseEntity<StreamingResponseBody> exportByStatus(@RequestParam(value = "filters", required = false) String filters,
+                                                                @RequestParam(value = "format", required = false) String format) {
+        featureFlags.requireReportsEnabled();
+        ReportExportFormat exportFormat = parseFormat(format);
+        return export("by-status", exportFormat, out -> reportsService.exportByStatus(filters, exportFormat, out));
+    }
+
+    @GetMapping("/by-rep/export")
+    public ResponseEntity<StreamingResponseBody> exportByRep(@RequestParam(value = "filters", required = false) String filters,
+                                                             @RequestParam(value = "format", required = false) String format) {
+        featureFlags.requireReportsEnabled();
+        ReportExportFormat exportFormat = parseFormat(format);
+        return export("by-rep", exportFormat, out -> reportsService.exportByRep(filters, exportFormat, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String name, ReportExportFormat format, StreamingResponseBody body) {
+        String filename = "report-" + name + (format == ReportExportFormat.NDJSON ? ".ndjson" : ".csv");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    // A report served within the staleness bound is not cached: refreshing reports_base does not bump the data version.
+    private static boolean isFresh(ReportsFreshness freshness) {
+        return freshness.stalenessSeconds() == 0;
+    }
+
+    private ReportExportFormat parseFormat(String format) {
+        try {
+            return ReportExportFormat.fromParam(format);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
+        }
     }
 }
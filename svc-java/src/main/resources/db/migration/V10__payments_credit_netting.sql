@@ -0,0 +1,102 @@
+-- Credit memos (doc_role CREDIT) net against the invoice total in the same aggregation pass that
+-- builds payments_anchor_balance, so reports and the dashboard see the net order total and balance.
+
+ALTER TABLE payments_anchor_balance ADD COLUMN IF NOT EXISTS credit_total NUMERIC(14, 2) NOT NULL DEFAULT 0;
+ALTER TABLE payments_anchor_balance ADD COLUMN IF NOT EXISTS credit_count INTEGER NOT NULL DEFAULT 0;
+
+CREATE OR REPLACE FUNCTION refresh_payments_anchor_balance(anchor_keys TEXT[]) RETURNS VOID AS $$
+BEGIN
+    IF anchor_keys IS NULL OR cardinality(anchor_keys) = 0 THEN
+        RETURN;
+    END IF;
+
+    DELETE FROM payments_anchor_balance b
+    WHERE b.anchor_key = ANY(anchor_keys)
+      AND NOT EXISTS (
+          SELECT 1 FROM payments_ledger l
+          WHERE COALESCE(NULLIF(l.so_number, ''), l.root_appt_id) = b.anchor_key
+      );
+
+    INSERT INTO payments_anchor_balance (anchor_key, order_total, credit_total, paid_to_date, balance, first_payment_at, invoice_count,
+                                         credit_count, receipt_count, card_count, wire_count, zelle_count, cash_count, check_count,
+                                         other_count, updated_at)
+    SELECT agg.anchor_key,
+           agg.invoice_total - agg.credit_total,
+           agg.credit_total,
+           agg.paid_to_date,
+           GREATEST(agg.invoice_total - agg.credit_total - agg.paid_to_date, 0),
+           agg.first_payment_at,
+           agg.invoice_count,
+           agg.credit_count,
+           agg.receipt_count,
+           agg.card_count,
+           agg.wire_count,
+           agg.zelle_count,
+           agg.cash_count,
+           agg.check_count,
+           agg.other_count,
+           NOW()
+    FROM (
+        SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) AS anchor_key,
+               COALESCE(SUM(COALESCE(subtotal, amount_gross)) FILTER (WHERE doc_role = 'INVOICE'), 0) AS invoice_total,
+               COALESCE(SUM(amount_gross) FILTER (WHERE credit_ok), 0) AS credit_total,
+               COALESCE(SUM(amount_net) FILTER (WHERE receipt_ok), 0) AS paid_to_date,
+               MIN(payment_datetime) FILTER (WHERE receipt_ok) AS first_payment_at,
+               COUNT(*) FILTER (WHERE doc_role = 'INVOICE') AS invoice_count,
+               COUNT(*) FILTER (WHERE credit_ok) AS credit_count,
+               COUNT(*) FILTER (WHERE receipt_ok) AS receipt_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Card') AS card_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Wire') AS wire_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Zelle') AS zelle_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Cash') AS cash_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Check') AS check_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND (method IS NULL OR method NOT IN ('Card', 'Wire', 'Zelle', 'Cash', 'Check'))) AS other_count
+        FROM (
+            SELECT l.*,
+                   (l.doc_role = 'RECEIPT' AND l.amount_net > 0 AND NOT blocked) AS receipt_ok,
+                   (l.doc_role = 'CREDIT' AND NOT blocked) AS credit_ok
+            FROM payments_ledger l
+            CROSS JOIN LATERAL (
+                SELECT l.doc_status IS NOT NULL
+                       AND UPPER(l.doc_status) = ANY(ARRAY['VOID', 'VOIDED', 'CANCELLED', 'CANCELED', 'REVERSED']) AS blocked
+            ) status
+            WHERE COALESCE(NULLIF(l.so_number, ''), l.root_appt_id) = ANY(anchor_keys)
+        ) ledger_rows
+        GROUP BY COALESCE(NULLIF(so_number, ''), root_appt_id)
+    ) agg
+    ON CONFLICT (anchor_key) DO UPDATE SET order_total = EXCLUDED.order_total,
+        credit_total = EXCLUDED.credit_total,
+        credit_count = EXCLUDED.credit_count,
+        paid_to_date = EXCLUDED.paid_to_date,
+        balance = EXCLUDED.balance,
+        first_payment_at = EXCLUDED.first_payment_at,
+        invoice_count = EXCLUDED.invoice_count,
+        receipt_count = EXCLUDED.receipt_count,
+        card_count = EXCLUDED.card_count,
+        wire_count = EXCLUDED.wire_count,
+        zelle_count = EXCLUDED.zelle_count,
+        cash_count = EXCLUDED.cash_count,
+        check_count = EXCLUDED.check_count,
+        other_count = EXCLUDED.other_count,
+        updated_at = EXCLUDED.updated_at;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Dashboard deposits are the only role-conditional aggregate driven by the role predicate itself; the
+-- invoice/credit/receipt sums are FILTER clauses over one per-anchor scan on the anchor and keyset indexes.
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_receipts_paid_at
+    ON payments_ledger (payment_datetime) INCLUDE (amount_net, doc_status)
+    WHERE doc_role = 'RECEIPT' AND amount_net > 0;
+
+DROP INDEX IF EXISTS idx_payments_ledger_payment_datetime;
+
+SELECT refresh_payments_anchor_balance(ARRAY(
+    SELECT DISTINCT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM payments_ledger
+    WHERE doc_role = 'CREDIT' AND COALESCE(NULLIF(so_number, ''), root_appt_id) IS NOT NULL
+));
+
+SELECT snapshot_payments_anchor_balance(ARRAY(
+    SELECT l.id FROM payments_ledger l
+    JOIN payments_anchor_balance b ON b.anchor_key = COALESCE(NULLIF(l.so_number, ''), l.root_appt_id)
+    WHERE b.credit_count > 0
+));
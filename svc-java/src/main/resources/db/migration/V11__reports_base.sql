@@ -0,0 +1,194 @@
+-- Report rows (master joined to the anchor balance projection) maintained per root_appt_id. Writes to
+-- master or payments_anchor_balance only queue the affected roots in reports_base_pending;
+-- refresh_reports_base() applies the queue and stamps reports_base_meta.
+
+CREATE INDEX IF NOT EXISTS idx_master_anchor_key
+    ON master ((COALESCE(NULLIF(so_number, ''), root_appt_id)));
+
+CREATE TABLE IF NOT EXISTS reports_base (
+    root_appt_id TEXT PRIMARY KEY,
+    visit_date DATE,
+    customer_name TEXT,
+    assigned_rep TEXT,
+    assisted_rep TEXT,
+    brand TEXT,
+    so_number TEXT,
+    sales_stage TEXT,
+    conversion_status TEXT,
+    custom_order_status TEXT,
+    center_stone_order_status TEXT,
+    next_steps TEXT,
+    in_production_status TEXT,
+    production_deadline DATE,
+    order_total NUMERIC(14, 2),
+    paid_to_date NUMERIC(14, 2)
+);
+
+CREATE INDEX IF NOT EXISTS idx_reports_base_visit_date ON reports_base (visit_date);
+
+CREATE TABLE IF NOT EXISTS reports_base_pending (
+    root_appt_id TEXT PRIMARY KEY,
+    queued_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE TABLE IF NOT EXISTS reports_base_meta (
+    relation TEXT PRIMARY KEY,
+    refreshed_at TIMESTAMPTZ NOT NULL,
+    rows_refreshed INTEGER NOT NULL DEFAULT 0
+);
+
+CREATE OR REPLACE FUNCTION refresh_reports_base() RETURNS INTEGER AS $$
+DECLARE
+    applied INTEGER;
+BEGIN
+    WITH dirty AS (
+        DELETE FROM reports_base_pending RETURNING root_appt_id
+    ), removed AS (
+        DELETE FROM reports_base r
+        USING dirty d
+        WHERE r.root_appt_id = d.root_appt_id
+          AND NOT EXISTS (SELECT 1 FROM master m WHERE m.root_appt_id = d.root_appt_id)
+    ), upserted AS (
+        INSERT INTO reports_base (root_appt_id, visit_date, customer_name, assigned_rep, assisted_rep, brand, so_number,
+                                  sales_stage, conversion_status, custom_order_status, center_stone_order_status, next_steps,
+                                  in_production_status, production_deadline, order_total, paid_to_date)
+        SELECT m.root_appt_id, m.visit_date, m.customer_name, m.assigned_rep, m.assisted_rep, m.brand, m.so_number,
+               m.sales_stage, m.conversion_status, m.custom_order_status, m.center_stone_order_status, m.next_steps,
+               m.in_production_status, m.production_deadline, bal.order_total, bal.paid_to_date
+        FROM dirty d
+        JOIN master m ON m.root_appt_id = d.root_appt_id
+        LEFT JOIN payments_anchor_balance bal ON bal.anchor_key = COALESCE(NULLIF(m.so_number, ''), m.root_appt_id)
+        ON CONFLICT (root_appt_id) DO UPDATE SET visit_date = EXCLUDED.visit_date,
+            customer_name = EXCLUDED.customer_name,
+            assigned_rep = EXCLUDED.assigned_rep,
+            assisted_rep = EXCLUDED.assisted_rep,
+            brand = EXCLUDED.brand,
+            so_number = EXCLUDED.so_number,
+            sales_stage = EXCLUDED.sales_stage,
+            conversion_status = EXCLUDED.conversion_status,
+            custom_order_status = EXCLUDED.custom_order_status,
+            center_stone_order_status = EXCLUDED.center_stone_order_status,
+            next_steps = EXCLUDED.next_steps,
+            in_production_status = EXCLUDED.in_production_status,
+            production_deadline = EXCLUDED.production_deadline,
+            order_total = EXCLUDED.order_total,
+            paid_to_date = EXCLUDED.paid_to_date
+    )
+    SELECT COUNT(*) INTO applied FROM dirty;
+
+    INSERT INTO reports_base_meta (relation, refreshed_at, rows_refreshed)
+    VALUES ('reports_base', NOW(), applied)
+    ON CONFLICT (relation) DO UPDATE SET refreshed_at = EXCLUDED.refreshed_at, rows_refreshed = EXCLUDED.rows_refreshed;
+    RETURN applied;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION queue_reports_base(root_appt_ids TEXT[]) RETURNS VOID AS $$
+BEGIN
+    IF root_appt_ids IS NULL OR cardinality(root_appt_ids) = 0 THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO reports_base_pending (root_appt_id)
+    SELECT DISTINCT id FROM unnest(root_appt_ids) AS id WHERE id IS NOT NULL
+    ON CONFLICT (root_appt_id) DO NOTHING;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_reports_base_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM queue_reports_base(ARRAY(SELECT root_appt_id FROM new_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_reports_base_on_update() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM queue_reports_base(ARRAY(SELECT root_appt_id FROM new_rows UNION SELECT root_appt_id FROM old_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_reports_base_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM queue_reports_base(ARRAY(SELECT root_appt_id FROM old_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_reports_base_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    TRUNCATE TABLE reports_base, reports_base_pending;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION anchor_balance_reports_base_on_change() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM queue_reports_base(ARRAY(
+        SELECT m.root_appt_id
+        FROM master m
+        WHERE COALESCE(NULLIF(m.so_number, ''), m.root_appt_id) IN (SELECT anchor_key FROM changed_rows)
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION anchor_balance_reports_base_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM queue_reports_base(ARRAY(SELECT root_appt_id FROM master));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_master_reports_base_insert ON master;
+CREATE TRIGGER trg_master_reports_base_insert
+    AFTER INSERT ON master
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION master_reports_base_on_insert();
+
+DROP TRIGGER IF EXISTS trg_master_reports_base_update ON master;
+CREATE TRIGGER trg_master_reports_base_update
+    AFTER UPDATE ON master
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION master_reports_base_on_update();
+
+DROP TRIGGER IF EXISTS trg_master_reports_base_delete ON master;
+CREATE TRIGGER trg_master_reports_base_delete
+    AFTER DELETE ON master
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION master_reports_base_on_delete();
+
+DROP TRIGGER IF EXISTS trg_master_reports_base_truncate ON master;
+CREATE TRIGGER trg_master_reports_base_truncate
+    AFTER TRUNCATE ON master
+    FOR EACH STATEMENT EXECUTE FUNCTION master_reports_base_on_truncate();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_reports_base_insert ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_reports_base_insert
+    AFTER INSERT ON payments_anchor_balance
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_reports_base_on_change();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_reports_base_update ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_reports_base_update
+    AFTER UPDATE ON payments_anchor_balance
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_reports_base_on_change();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_reports_base_delete ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_reports_base_delete
+    AFTER DELETE ON payments_anchor_balance
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_reports_base_on_change();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_reports_base_truncate ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_reports_base_truncate
+    AFTER TRUNCATE ON payments_anchor_balance
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_reports_base_on_truncate();
+
+INSERT INTO reports_base_pending (root_appt_id)
+SELECT root_appt_id FROM master
+ON CONFLICT (root_appt_id) DO NOTHING;
+
+SELECT refresh_reports_base();
@@ -0,0 +1,6 @@
+-- Match the /reports sort orders so keyset pages are read straight off an index.
+CREATE INDEX IF NOT EXISTS idx_reports_base_status_keyset
+    ON reports_base ((COALESCE(sales_stage, '')), visit_date DESC NULLS LAST, root_appt_id);
+
+CREATE INDEX IF NOT EXISTS idx_reports_base_rep_keyset
+    ON reports_base ((COALESCE(assigned_rep, '')), visit_date DESC NULLS LAST, root_appt_id);
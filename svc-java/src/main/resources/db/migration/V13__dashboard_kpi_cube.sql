@@ -0,0 +1,256 @@
+-- Daily dashboard KPI cells keyed by (day, brand, assigned_rep, sales_stage). Pipeline amounts land on the
+-- master visit_date ('-infinity' when unset); deposits and first deposits land on the local payment date and
+-- take their brand/rep/stage from the anchor's master row. Each anchor's last contribution is kept in
+-- dashboard_kpi_cube_sources, so master and ledger writes (the latter through payments_anchor_balance)
+-- apply only the difference to the cube. Stage weights are applied when the cube is read.
+
+CREATE TABLE IF NOT EXISTS dashboard_kpi_cube (
+    day DATE NOT NULL,
+    brand TEXT NOT NULL,
+    assigned_rep TEXT NOT NULL,
+    sales_stage TEXT NOT NULL,
+    pipeline_total NUMERIC(16, 2) NOT NULL DEFAULT 0,
+    deposit_total NUMERIC(16, 2) NOT NULL DEFAULT 0,
+    first_deposit_count INTEGER NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, brand, assigned_rep, sales_stage)
+);
+
+CREATE TABLE IF NOT EXISTS dashboard_kpi_cube_sources (
+    anchor_key TEXT NOT NULL,
+    day DATE NOT NULL,
+    brand TEXT NOT NULL,
+    assigned_rep TEXT NOT NULL,
+    sales_stage TEXT NOT NULL,
+    pipeline_total NUMERIC(16, 2) NOT NULL,
+    deposit_total NUMERIC(16, 2) NOT NULL,
+    first_deposit_count INTEGER NOT NULL,
+    PRIMARY KEY (anchor_key, day, brand, assigned_rep, sales_stage)
+);
+
+CREATE TABLE IF NOT EXISTS dashboard_kpi_cube_meta (
+    relation TEXT PRIMARY KEY,
+    timezone TEXT NOT NULL,
+    rebuilt_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE OR REPLACE FUNCTION dashboard_kpi_cube_contributions(anchor_keys TEXT[], zone TEXT)
+RETURNS TABLE (anchor_key TEXT, day DATE, brand TEXT, assigned_rep TEXT, sales_stage TEXT,
+               pipeline_total NUMERIC, deposit_total NUMERIC, first_deposit_count INTEGER) AS $$
+    SELECT c.anchor_key, c.day, c.brand, c.assigned_rep, c.sales_stage,
+           SUM(c.pipeline_total), SUM(c.deposit_total), SUM(c.first_deposit_count)::INTEGER
+    FROM (
+        SELECT COALESCE(NULLIF(m.so_number, ''), m.root_appt_id) AS anchor_key,
+               COALESCE(m.visit_date, '-infinity'::DATE) AS day,
+               COALESCE(m.brand, '') AS brand,
+               COALESCE(m.assigned_rep, '') AS assigned_rep,
+               COALESCE(m.sales_stage, '') AS sales_stage,
+               COALESCE(bal.order_total, 0) AS pipeline_total,
+               0 AS deposit_total,
+               0 AS first_deposit_count
+        FROM master m
+        LEFT JOIN payments_anchor_balance bal ON bal.anchor_key = COALESCE(NULLIF(m.so_number, ''), m.root_appt_id)
+        WHERE COALESCE(NULLIF(m.so_number, ''), m.root_appt_id) = ANY(anchor_keys)
+
+        UNION ALL
+
+        SELECT receipts.anchor_key,
+               (receipts.payment_datetime AT TIME ZONE zone)::DATE,
+               COALESCE(owner.brand, ''),
+               COALESCE(owner.assigned_rep, ''),
+               COALESCE(owner.sales_stage, ''),
+               0,
+               receipts.amount_net,
+               0
+        FROM (
+            SELECT COALESCE(NULLIF(l.so_number, ''), l.root_appt_id) AS anchor_key, l.payment_datetime, l.amount_net
+            FROM payments_ledger l
+            WHERE COALESCE(NULLIF(l.so_number, ''), l.root_appt_id) = ANY(anchor_keys)
+              AND l.doc_role = 'RECEIPT' AND l.amount_net > 0
+              AND (l.doc_status IS NULL OR NOT (UPPER(l.doc_status) = ANY(ARRAY['VOID', 'VOIDED', 'CANCELLED', 'CANCELED', 'REVERSED'])))
+        ) receipts
+        LEFT JOIN LATERAL (
+            SELECT m.brand, m.assigned_rep, m.sales_stage FROM master m
+            WHERE COALESCE(NULLIF(m.so_number, ''), m.root_appt_id) = receipts.anchor_key
+            ORDER BY m.root_appt_id
+            LIMIT 1
+        ) owner ON TRUE
+
+        UNION ALL
+
+        SELECT bal.anchor_key,
+               (bal.first_payment_at AT TIME ZONE zone)::DATE,
+               COALESCE(owner.brand, ''),
+               COALESCE(owner.assigned_rep, ''),
+               COALESCE(owner.sales_stage, ''),
+               0,
+               0,
+               1
+        FROM payments_anchor_balance bal
+        LEFT JOIN LATERAL (
+            SELECT m.brand, m.assigned_rep, m.sales_stage FROM master m
+            WHERE COALESCE(NULLIF(m.so_number, ''), m.root_appt_id) = bal.anchor_key
+            ORDER BY m.root_appt_id
+            LIMIT 1
+        ) owner ON TRUE
+        WHERE bal.anchor_key = ANY(anchor_keys) AND bal.receipt_count > 0 AND bal.first_payment_at IS NOT NULL
+    ) c
+    GROUP BY c.anchor_key, c.day, c.brand, c.assigned_rep, c.sales_stage;
+$$ LANGUAGE sql STABLE;
+
+CREATE OR REPLACE FUNCTION refresh_dashboard_kpi_cube(anchor_keys TEXT[]) RETURNS VOID AS $$
+DECLARE
+    keys TEXT[];
+    zone TEXT;
+    bucket INTEGER;
+BEGIN
+    SELECT array_agg(DISTINCT k ORDER BY k) INTO keys FROM unnest(anchor_keys) AS k WHERE k IS NOT NULL;
+    IF keys IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- Writers of the same anchors take turns, so each diffs against the contribution the previous one committed.
+    FOR bucket IN SELECT DISTINCT hashtext(k) & 255 FROM unnest(keys) AS k ORDER BY 1 LOOP
+        PERFORM pg_advisory_xact_lock(hashtext('dashboard_kpi_cube'), bucket);
+    END LOOP;
+
+    SELECT timezone INTO zone FROM dashboard_kpi_cube_meta WHERE relation = 'dashboard_kpi_cube';
+
+    INSERT INTO dashboard_kpi_cube AS cube (day, brand, assigned_rep, sales_stage, pipeline_total, deposit_total, first_deposit_count)
+    SELECT d.day, d.brand, d.assigned_rep, d.sales_stage, SUM(d.pipeline_total), SUM(d.deposit_total), SUM(d.first_deposit_count)
+    FROM (
+        SELECT f.day, f.brand, f.assigned_rep, f.sales_stage, f.pipeline_total, f.deposit_total, f.first_deposit_count
+        FROM dashboard_kpi_cube_contributions(keys, zone) f
+        UNION ALL
+        SELECT s.day, s.brand, s.assigned_rep, s.sales_stage, -s.pipeline_total, -s.deposit_total, -s.first_deposit_count
+        FROM dashboard_kpi_cube_sources s
+        WHERE s.anchor_key = ANY(keys)
+    ) d
+    GROUP BY d.day, d.brand, d.assigned_rep, d.sales_stage
+    HAVING SUM(d.pipeline_total) <> 0 OR SUM(d.deposit_total) <> 0 OR SUM(d.first_deposit_count) <> 0
+    ORDER BY d.day, d.brand, d.assigned_rep, d.sales_stage
+    ON CONFLICT (day, brand, assigned_rep, sales_stage) DO UPDATE SET
+        pipeline_total = cube.pipeline_total + EXCLUDED.pipeline_total,
+        deposit_total = cube.deposit_total + EXCLUDED.deposit_total,
+        first_deposit_count = cube.first_deposit_count + EXCLUDED.first_deposit_count;
+
+    DELETE FROM dashboard_kpi_cube_sources WHERE anchor_key = ANY(keys);
+
+    INSERT INTO dashboard_kpi_cube_sources (anchor_key, day, brand, assigned_rep, sales_stage, pipeline_total, deposit_total, first_deposit_count)
+    SELECT f.anchor_key, f.day, f.brand, f.assigned_rep, f.sales_stage, f.pipeline_total, f.deposit_total, f.first_deposit_count
+    FROM dashboard_kpi_cube_contributions(keys, zone) f;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION rebuild_dashboard_kpi_cube(zone TEXT) RETURNS INTEGER AS $$
+DECLARE
+    cells INTEGER;
+BEGIN
+    INSERT INTO dashboard_kpi_cube_meta (relation, timezone, rebuilt_at)
+    VALUES ('dashboard_kpi_cube', COALESCE(zone, 'America/Los_Angeles'), NOW())
+    ON CONFLICT (relation) DO UPDATE SET timezone = COALESCE(zone, dashboard_kpi_cube_meta.timezone), rebuilt_at = EXCLUDED.rebuilt_at;
+
+    TRUNCATE TABLE dashboard_kpi_cube, dashboard_kpi_cube_sources;
+
+    PERFORM refresh_dashboard_kpi_cube(ARRAY(
+        SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM master
+        UNION
+        SELECT anchor_key FROM payments_anchor_balance
+    ));
+
+    SELECT COUNT(*) INTO cells FROM dashboard_kpi_cube;
+    RETURN cells;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_kpi_cube_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_dashboard_kpi_cube(ARRAY(SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM new_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_kpi_cube_on_update() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_dashboard_kpi_cube(ARRAY(
+        SELECT COALESCE(NULLIF(o.so_number, ''), o.root_appt_id)
+        FROM old_rows o JOIN new_rows n ON n.id = o.id
+        WHERE (o.root_appt_id, o.so_number, o.visit_date, o.brand, o.assigned_rep, o.sales_stage)
+            IS DISTINCT FROM (n.root_appt_id, n.so_number, n.visit_date, n.brand, n.assigned_rep, n.sales_stage)
+        UNION
+        SELECT COALESCE(NULLIF(n.so_number, ''), n.root_appt_id)
+        FROM old_rows o JOIN new_rows n ON n.id = o.id
+        WHERE (o.root_appt_id, o.so_number, o.visit_date, o.brand, o.assigned_rep, o.sales_stage)
+            IS DISTINCT FROM (n.root_appt_id, n.so_number, n.visit_date, n.brand, n.assigned_rep, n.sales_stage)
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION master_kpi_cube_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_dashboard_kpi_cube(ARRAY(SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM old_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION anchor_balance_kpi_cube_on_change() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_dashboard_kpi_cube(ARRAY(SELECT anchor_key FROM changed_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION kpi_cube_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM rebuild_dashboard_kpi_cube(NULL);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_master_kpi_cube_insert ON master;
+CREATE TRIGGER trg_master_kpi_cube_insert
+    AFTER INSERT ON master
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION master_kpi_cube_on_insert();
+
+DROP TRIGGER IF EXISTS trg_master_kpi_cube_update ON master;
+CREATE TRIGGER trg_master_kpi_cube_update
+    AFTER UPDATE ON master
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION master_kpi_cube_on_update();
+
+DROP TRIGGER IF EXISTS trg_master_kpi_cube_delete ON master;
+CREATE TRIGGER trg_master_kpi_cube_delete
+    AFTER DELETE ON master
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION master_kpi_cube_on_delete();
+
+DROP TRIGGER IF EXISTS trg_master_kpi_cube_truncate ON master;
+CREATE TRIGGER trg_master_kpi_cube_truncate
+    AFTER TRUNCATE ON master
+    FOR EACH STATEMENT EXECUTE FUNCTION kpi_cube_on_truncate();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_kpi_cube_insert ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_kpi_cube_insert
+    AFTER INSERT ON payments_anchor_balance
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_kpi_cube_on_change();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_kpi_cube_update ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_kpi_cube_update
+    AFTER UPDATE ON payments_anchor_balance
+    REFERENCING NEW TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_kpi_cube_on_change();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_kpi_cube_delete ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_kpi_cube_delete
+    AFTER DELETE ON payments_anchor_balance
+    REFERENCING OLD TABLE AS changed_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION anchor_balance_kpi_cube_on_change();
+
+DROP TRIGGER IF EXISTS trg_anchor_balance_kpi_cube_truncate ON payments_anchor_balance;
+CREATE TRIGGER trg_anchor_balance_kpi_cube_truncate
+    AFTER TRUNCATE ON payments_anchor_balance
+    FOR EACH STATEMENT EXECUTE FUNCTION kpi_cube_on_truncate();
+
+SELECT rebuild_dashboard_kpi_cube('America/Los_Angeles');
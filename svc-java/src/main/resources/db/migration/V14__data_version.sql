@@ -0,0 +1,47 @@
+-- Global data version for the KPI/report response cache: the sum of data_version_slots.version, bumped once
+-- per write statement on the tables those responses read. Writers take any unlocked slot, so concurrent
+-- write transactions do not queue behind a single counter row.
+
+CREATE TABLE IF NOT EXISTS data_version_slots (
+    slot SMALLINT PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+INSERT INTO data_version_slots (slot)
+SELECT generate_series(0, 15)
+ON CONFLICT (slot) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION bump_data_version() RETURNS TRIGGER AS $$
+DECLARE
+    picked SMALLINT;
+BEGIN
+    SELECT slot INTO picked
+    FROM data_version_slots
+    ORDER BY (slot + 16 - pg_backend_pid() % 16) % 16
+    LIMIT 1
+    FOR UPDATE SKIP LOCKED;
+
+    UPDATE data_version_slots SET version = version + 1 WHERE slot = COALESCE(picked, pg_backend_pid() % 16);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_master_data_version ON master;
+CREATE TRIGGER trg_master_data_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON master
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_data_version();
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_data_version ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_data_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON payments_ledger
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_data_version();
+
+DROP TRIGGER IF EXISTS trg_diamonds_orders_data_version ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_orders_data_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON diamonds_orders_200
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_data_version();
+
+DROP TRIGGER IF EXISTS trg_dashboard_stage_weights_data_version ON dashboard_stage_weights;
+CREATE TRIGGER trg_dashboard_stage_weights_data_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON dashboard_stage_weights
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_data_version();
@@ -0,0 +1,22 @@
+-- Filters compare LOWER(column) = :value, which plain btrees on the raw column cannot serve. Index the expressions
+-- the queries actually use and drop the raw-column indexes they replace.
+
+DROP INDEX IF EXISTS idx_master_brand;
+DROP INDEX IF EXISTS idx_master_assigned_rep;
+
+CREATE INDEX IF NOT EXISTS idx_master_brand_lower ON master (LOWER(brand));
+CREATE INDEX IF NOT EXISTS idx_master_assigned_rep_lower ON master (LOWER(assigned_rep));
+CREATE INDEX IF NOT EXISTS idx_master_assisted_rep_lower ON master (LOWER(assisted_rep));
+
+CREATE INDEX IF NOT EXISTS idx_reports_base_brand_lower ON reports_base (LOWER(brand));
+CREATE INDEX IF NOT EXISTS idx_reports_base_assigned_rep_lower ON reports_base (LOWER(assigned_rep));
+CREATE INDEX IF NOT EXISTS idx_reports_base_sales_stage_lower ON reports_base (LOWER(sales_stage));
+
+DROP INDEX IF EXISTS idx_diamonds_orders_root_order_status;
+DROP INDEX IF EXISTS idx_diamonds_orders_root_stone_status;
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_orders_root_order_status_lower
+    ON diamonds_orders_200 (root_appt_id, LOWER(order_status));
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_orders_root_stone_status_lower
+    ON diamonds_orders_200 (root_appt_id, LOWER(stone_status));
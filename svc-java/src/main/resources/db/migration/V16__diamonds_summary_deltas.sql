@@ -0,0 +1,180 @@
+-- diamonds_summary_100 counters follow diamonds_orders_200 by deltas: every write statement adds its new rows and
+-- subtracts its old rows from the buckets they fall in, so an approval moving stones from Proposing to On the way
+-- only touches those two counters. The service still resolves center_stone_order_status from the updated counters.
+-- repair_diamonds_summary_counts() recounts from diamonds_orders_200 and fixes any root whose counters drifted.
+
+CREATE OR REPLACE FUNCTION apply_diamonds_summary_deltas(root_appt_ids TEXT[], order_statuses TEXT[], stone_statuses TEXT[], signs INTEGER[])
+RETURNS VOID AS $$
+    INSERT INTO diamonds_summary_100 AS s (root_appt_id, total_count, proposing_count, not_approved_count, on_the_way_count,
+                                           delivered_count, in_stock_count, keep_count, return_count, replace_count)
+    SELECT d.root_appt_id, d.total_count, d.proposing_count, d.not_approved_count, d.on_the_way_count,
+           d.delivered_count, d.in_stock_count, d.keep_count, d.return_count, d.replace_count
+    FROM (
+        SELECT c.root_appt_id,
+               SUM(c.sign) AS total_count,
+               SUM(CASE WHEN lower(c.order_status) = 'proposing' THEN c.sign ELSE 0 END) AS proposing_count,
+               SUM(CASE WHEN lower(c.order_status) = 'not approved' THEN c.sign ELSE 0 END) AS not_approved_count,
+               SUM(CASE WHEN lower(c.order_status) = 'on the way' THEN c.sign ELSE 0 END) AS on_the_way_count,
+               SUM(CASE WHEN lower(c.order_status) = 'delivered' THEN c.sign ELSE 0 END) AS delivered_count,
+               SUM(CASE WHEN lower(c.stone_status) = 'in stock' THEN c.sign ELSE 0 END) AS in_stock_count,
+               SUM(CASE WHEN lower(c.stone_status) = 'keep' THEN c.sign ELSE 0 END) AS keep_count,
+               SUM(CASE WHEN lower(c.stone_status) = 'return' THEN c.sign ELSE 0 END) AS return_count,
+               SUM(CASE WHEN lower(c.stone_status) = 'replace' THEN c.sign ELSE 0 END) AS replace_count
+        FROM unnest(root_appt_ids, order_statuses, stone_statuses, signs) AS c(root_appt_id, order_status, stone_status, sign)
+        GROUP BY c.root_appt_id
+    ) d
+    WHERE (d.total_count, d.proposing_count, d.not_approved_count, d.on_the_way_count, d.delivered_count,
+           d.in_stock_count, d.keep_count, d.return_count, d.replace_count) <> (0, 0, 0, 0, 0, 0, 0, 0, 0)
+    ORDER BY d.root_appt_id
+    ON CONFLICT (root_appt_id) DO UPDATE SET
+        total_count = COALESCE(s.total_count, 0) + EXCLUDED.total_count,
+        proposing_count = COALESCE(s.proposing_count, 0) + EXCLUDED.proposing_count,
+        not_approved_count = COALESCE(s.not_approved_count, 0) + EXCLUDED.not_approved_count,
+        on_the_way_count = COALESCE(s.on_the_way_count, 0) + EXCLUDED.on_the_way_count,
+        delivered_count = COALESCE(s.delivered_count, 0) + EXCLUDED.delivered_count,
+        in_stock_count = COALESCE(s.in_stock_count, 0) + EXCLUDED.in_stock_count,
+        keep_count = COALESCE(s.keep_count, 0) + EXCLUDED.keep_count,
+        return_count = COALESCE(s.return_count, 0) + EXCLUDED.return_count,
+        replace_count = COALESCE(s.replace_count, 0) + EXCLUDED.replace_count;
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION repair_diamonds_summary_counts() RETURNS TABLE (repaired_root TEXT) AS $$
+BEGIN
+    -- Writers wait for the recount, so no delta lands between counting and fixing.
+    LOCK TABLE diamonds_orders_200 IN SHARE MODE;
+
+    RETURN QUERY
+    INSERT INTO diamonds_summary_100 AS s (root_appt_id, total_count, proposing_count, not_approved_count, on_the_way_count,
+                                           delivered_count, in_stock_count, keep_count, return_count, replace_count)
+    SELECT COALESCE(a.root_appt_id, cur.root_appt_id),
+           COALESCE(a.total_count, 0), COALESCE(a.proposing_count, 0), COALESCE(a.not_approved_count, 0),
+           COALESCE(a.on_the_way_count, 0), COALESCE(a.delivered_count, 0), COALESCE(a.in_stock_count, 0),
+           COALESCE(a.keep_count, 0), COALESCE(a.return_count, 0), COALESCE(a.replace_count, 0)
+    FROM (
+        SELECT o.root_appt_id,
+               COUNT(*)::INTEGER AS total_count,
+               (COUNT(*) FILTER (WHERE lower(o.order_status) = 'proposing'))::INTEGER AS proposing_count,
+               (COUNT(*) FILTER (WHERE lower(o.order_status) = 'not approved'))::INTEGER AS not_approved_count,
+               (COUNT(*) FILTER (WHERE lower(o.order_status) = 'on the way'))::INTEGER AS on_the_way_count,
+               (COUNT(*) FILTER (WHERE lower(o.order_status) = 'delivered'))::INTEGER AS delivered_count,
+               (COUNT(*) FILTER (WHERE lower(o.stone_status) = 'in stock'))::INTEGER AS in_stock_count,
+               (COUNT(*) FILTER (WHERE lower(o.stone_status) = 'keep'))::INTEGER AS keep_count,
+               (COUNT(*) FILTER (WHERE lower(o.stone_status) = 'return'))::INTEGER AS return_count,
+               (COUNT(*) FILTER (WHERE lower(o.stone_status) = 'replace'))::INTEGER AS replace_count
+        FROM diamonds_orders_200 o
+        GROUP BY o.root_appt_id
+    ) a
+    FULL JOIN diamonds_summary_100 cur ON cur.root_appt_id = a.root_appt_id
+    WHERE (cur.total_count, cur.proposing_count, cur.not_approved_count, cur.on_the_way_count, cur.delivered_count,
+           cur.in_stock_count, cur.keep_count, cur.return_count, cur.replace_count)
+        IS DISTINCT FROM
+          (COALESCE(a.total_count, 0), COALESCE(a.proposing_count, 0), COALESCE(a.not_approved_count, 0),
+           COALESCE(a.on_the_way_count, 0), COALESCE(a.delivered_count, 0), COALESCE(a.in_stock_count, 0),
+           COALESCE(a.keep_count, 0), COALESCE(a.return_count, 0), COALESCE(a.replace_count, 0))
+    ORDER BY 1
+    ON CONFLICT (root_appt_id) DO UPDATE SET
+        total_count = EXCLUDED.total_count,
+        proposing_count = EXCLUDED.proposing_count,
+        not_approved_count = EXCLUDED.not_approved_count,
+        on_the_way_count = EXCLUDED.on_the_way_count,
+        delivered_count = EXCLUDED.delivered_count,
+        in_stock_count = EXCLUDED.in_stock_count,
+        keep_count = EXCLUDED.keep_count,
+        return_count = EXCLUDED.return_count,
+        replace_count = EXCLUDED.replace_count
+    RETURNING s.root_appt_id;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_insert() RETURNS TRIGGER AS $$
+DECLARE
+    roots TEXT[];
+    order_statuses TEXT[];
+    stone_statuses TEXT[];
+    signs INTEGER[];
+BEGIN
+    SELECT array_agg(n.root_appt_id), array_agg(n.order_status), array_agg(n.stone_status), array_agg(1)
+    INTO roots, order_statuses, stone_statuses, signs
+    FROM new_rows n;
+    PERFORM apply_diamonds_summary_deltas(roots, order_statuses, stone_statuses, signs);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_update() RETURNS TRIGGER AS $$
+DECLARE
+    roots TEXT[];
+    order_statuses TEXT[];
+    stone_statuses TEXT[];
+    signs INTEGER[];
+BEGIN
+    SELECT array_agg(c.root_appt_id), array_agg(c.order_status), array_agg(c.stone_status), array_agg(c.sign)
+    INTO roots, order_statuses, stone_statuses, signs
+    FROM (
+        SELECT o.root_appt_id, o.order_status, o.stone_status, -1 AS sign
+        FROM old_rows o JOIN new_rows n ON n.id = o.id
+        WHERE (o.root_appt_id, lower(o.order_status), lower(o.stone_status))
+            IS DISTINCT FROM (n.root_appt_id, lower(n.order_status), lower(n.stone_status))
+        UNION ALL
+        SELECT n.root_appt_id, n.order_status, n.stone_status, 1
+        FROM old_rows o JOIN new_rows n ON n.id = o.id
+        WHERE (o.root_appt_id, lower(o.order_status), lower(o.stone_status))
+            IS DISTINCT FROM (n.root_appt_id, lower(n.order_status), lower(n.stone_status))
+    ) c;
+    IF roots IS NOT NULL THEN
+        PERFORM apply_diamonds_summary_deltas(roots, order_statuses, stone_statuses, signs);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_delete() RETURNS TRIGGER AS $$
+DECLARE
+    roots TEXT[];
+    order_statuses TEXT[];
+    stone_statuses TEXT[];
+    signs INTEGER[];
+BEGIN
+    SELECT array_agg(o.root_appt_id), array_agg(o.order_status), array_agg(o.stone_status), array_agg(-1)
+    INTO roots, order_statuses, stone_statuses, signs
+    FROM old_rows o;
+    PERFORM apply_diamonds_summary_deltas(roots, order_statuses, stone_statuses, signs);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE diamonds_summary_100 SET total_count = 0, proposing_count = 0, not_approved_count = 0, on_the_way_count = 0,
+        delivered_count = 0, in_stock_count = 0, keep_count = 0, return_count = 0, replace_count = 0
+    WHERE total_count IS DISTINCT FROM 0 OR proposing_count IS DISTINCT FROM 0 OR not_approved_count IS DISTINCT FROM 0
+       OR on_the_way_count IS DISTINCT FROM 0 OR delivered_count IS DISTINCT FROM 0 OR in_stock_count IS DISTINCT FROM 0
+       OR keep_count IS DISTINCT FROM 0 OR return_count IS DISTINCT FROM 0 OR replace_count IS DISTINCT FROM 0;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_diamonds_summary_insert ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_summary_insert
+    AFTER INSERT ON diamonds_orders_200
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_insert();
+
+DROP TRIGGER IF EXISTS trg_diamonds_summary_update ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_summary_update
+    AFTER UPDATE ON diamonds_orders_200
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_update();
+
+DROP TRIGGER IF EXISTS trg_diamonds_summary_delete ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_summary_delete
+    AFTER DELETE ON diamonds_orders_200
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_delete();
+
+DROP TRIGGER IF EXISTS trg_diamonds_summary_truncate ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_summary_truncate
+    AFTER TRUNCATE ON diamonds_orders_200
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_truncate();
+
+SELECT COUNT(*) FROM repair_diamonds_summary_counts();
@@ -0,0 +1,13 @@
+-- Diamonds mutations hold a transaction-scoped advisory lock per root while they update stones and resolve the
+-- summary, so batches sharing a root take turns and batches on different roots do not wait for each other. Locks
+-- are taken in hash order, so two batches sharing several roots cannot deadlock.
+
+CREATE OR REPLACE FUNCTION lock_diamonds_roots(root_appt_ids TEXT[]) RETURNS VOID AS $$
+DECLARE
+    stripe INTEGER;
+BEGIN
+    FOR stripe IN SELECT DISTINCT hashtext(r) FROM unnest(root_appt_ids) AS r WHERE r IS NOT NULL ORDER BY 1 LOOP
+        PERFORM pg_advisory_xact_lock(hashtext('diamonds_orders_200'), stripe);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
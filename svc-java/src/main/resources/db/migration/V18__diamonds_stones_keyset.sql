@@ -0,0 +1,14 @@
+-- GET /diamonds/stones pages by id. A buyer's On the Way queue is the hot path, so it gets a partial index led by
+-- the buyer; other order statuses walk (status, id). Date ranges use partial indexes that skip undated stones.
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_orders_on_the_way_by_buyer
+    ON diamonds_orders_200 (LOWER(ordered_by), id) WHERE LOWER(order_status) = 'on the way';
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_orders_order_status_keyset
+    ON diamonds_orders_200 (LOWER(order_status), id);
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_orders_ordered_date
+    ON diamonds_orders_200 (ordered_date, id) WHERE ordered_date IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_orders_return_due_date
+    ON diamonds_orders_200 (return_due_date, id) WHERE return_due_date IS NOT NULL;
@@ -0,0 +1,336 @@
+-- Diamonds statuses are stored as SMALLINT codes from diamonds_status_codes instead of free text, so filters, indexes
+-- and the counter buckets compare integers rather than LOWER(text). The coded rows live in diamonds_stones; the old
+-- diamonds_orders_200 name becomes a view with the original columns and canonical labels. Its INSTEAD OF triggers
+-- translate writes, so existing readers, seeds and \copy loads keep working. The code set is fixed to the Java enums:
+-- labels match case-insensitively with '_' or '-' for spaces, as DiamondsOrderStatus.fromLabel does, and any other
+-- label is rejected. The backfill stops with the list of unknown labels rather than guessing codes for them.
+
+CREATE TABLE IF NOT EXISTS diamonds_status_codes (
+    kind TEXT NOT NULL CHECK (kind IN ('order', 'stone')),
+    code SMALLINT NOT NULL,
+    label TEXT NOT NULL,
+    PRIMARY KEY (kind, code)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_diamonds_status_codes_label
+    ON diamonds_status_codes (kind, LOWER(label));
+
+-- Codes 1-4 (order) and 3-6 (stone) are the counter buckets; the SQL below and the Java enums rely on them.
+INSERT INTO diamonds_status_codes (kind, code, label) VALUES
+    ('order', 1, 'Proposing'),
+    ('order', 2, 'Not Approved'),
+    ('order', 3, 'On the Way'),
+    ('order', 4, 'Delivered'),
+    ('stone', 1, 'Requested'),
+    ('stone', 2, 'On Memo'),
+    ('stone', 3, 'In Stock'),
+    ('stone', 4, 'Keep'),
+    ('stone', 5, 'Return'),
+    ('stone', 6, 'Replace')
+ON CONFLICT DO NOTHING;
+
+CREATE OR REPLACE FUNCTION diamonds_status_label_key(status_label TEXT) RETURNS TEXT AS $$
+    SELECT NULLIF(LOWER(regexp_replace(btrim(translate(status_label, '_-', '  ')), '\s+', ' ', 'g')), '');
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION diamonds_status_code(status_kind TEXT, status_label TEXT) RETURNS SMALLINT AS $$
+DECLARE
+    status_code SMALLINT;
+BEGIN
+    IF diamonds_status_label_key(status_label) IS NULL THEN
+        RETURN NULL;
+    END IF;
+    SELECT c.code INTO status_code
+    FROM diamonds_status_codes c
+    WHERE c.kind = status_kind AND diamonds_status_label_key(c.label) = diamonds_status_label_key(status_label);
+    IF status_code IS NULL THEN
+        RAISE EXCEPTION 'Unsupported diamonds % status: %', status_kind, status_label
+            USING ERRCODE = 'invalid_parameter_value';
+    END IF;
+    RETURN status_code;
+END;
+$$ LANGUAGE plpgsql STABLE;
+
+DO $$
+DECLARE
+    unknown TEXT;
+BEGIN
+    SELECT string_agg(DISTINCT format('%s "%s"', u.kind, u.label), ', ') INTO unknown
+    FROM (
+        SELECT 'order' AS kind, order_status AS label FROM diamonds_orders_200
+        UNION
+        SELECT 'stone', stone_status FROM diamonds_orders_200
+    ) u
+    WHERE diamonds_status_label_key(u.label) IS NOT NULL
+      AND NOT EXISTS (
+          SELECT 1 FROM diamonds_status_codes c
+          WHERE c.kind = u.kind AND diamonds_status_label_key(c.label) = diamonds_status_label_key(u.label)
+      );
+    IF unknown IS NOT NULL THEN
+        RAISE EXCEPTION 'diamonds_orders_200 holds statuses outside DiamondsOrderStatus/DiamondsStoneStatus: %', unknown
+            USING HINT = 'Correct or clear these labels, then rerun the migration.';
+    END IF;
+END;
+$$;
+
+ALTER TABLE diamonds_orders_200 RENAME TO diamonds_stones;
+
+ALTER TABLE diamonds_stones
+    ADD COLUMN IF NOT EXISTS order_status_code SMALLINT,
+    ADD COLUMN IF NOT EXISTS stone_status_code SMALLINT;
+
+UPDATE diamonds_stones
+SET order_status_code = diamonds_status_code('order', order_status),
+    stone_status_code = diamonds_status_code('stone', stone_status)
+WHERE order_status IS NOT NULL OR stone_status IS NOT NULL;
+
+DROP TRIGGER IF EXISTS trg_diamonds_summary_insert ON diamonds_stones;
+DROP TRIGGER IF EXISTS trg_diamonds_summary_update ON diamonds_stones;
+DROP TRIGGER IF EXISTS trg_diamonds_summary_delete ON diamonds_stones;
+DROP TRIGGER IF EXISTS trg_diamonds_summary_truncate ON diamonds_stones;
+DROP FUNCTION IF EXISTS apply_diamonds_summary_deltas(TEXT[], TEXT[], TEXT[], INTEGER[]);
+
+-- Drops the LOWER(order_status)/LOWER(stone_status) indexes from V15 and V18 with the columns.
+ALTER TABLE diamonds_stones
+    DROP COLUMN IF EXISTS order_status,
+    DROP COLUMN IF EXISTS stone_status;
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_stones_root_order_status
+    ON diamonds_stones (root_appt_id, order_status_code);
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_stones_root_stone_status
+    ON diamonds_stones (root_appt_id, stone_status_code);
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_stones_on_the_way_by_buyer
+    ON diamonds_stones (LOWER(ordered_by), id) WHERE order_status_code = 3;
+
+CREATE INDEX IF NOT EXISTS idx_diamonds_stones_order_status_keyset
+    ON diamonds_stones (order_status_code, id);
+
+CREATE OR REPLACE FUNCTION apply_diamonds_summary_deltas(root_appt_ids TEXT[], order_codes SMALLINT[], stone_codes SMALLINT[], signs INTEGER[])
+RETURNS VOID AS $$
+    INSERT INTO diamonds_summary_100 AS s (root_appt_id, total_count, proposing_count, not_approved_count, on_the_way_count,
+                                           delivered_count, in_stock_count, keep_count, return_count, replace_count)
+    SELECT d.root_appt_id, d.total_count, d.proposing_count, d.not_approved_count, d.on_the_way_count,
+           d.delivered_count, d.in_stock_count, d.keep_count, d.return_count, d.replace_count
+    FROM (
+        SELECT c.root_appt_id,
+               SUM(c.sign) AS total_count,
+               SUM(CASE WHEN c.order_code = 1 THEN c.sign ELSE 0 END) AS proposing_count,
+               SUM(CASE WHEN c.order_code = 2 THEN c.sign ELSE 0 END) AS not_approved_count,
+               SUM(CASE WHEN c.order_code = 3 THEN c.sign ELSE 0 END) AS on_the_way_count,
+               SUM(CASE WHEN c.order_code = 4 THEN c.sign ELSE 0 END) AS delivered_count,
+               SUM(CASE WHEN c.stone_code = 3 THEN c.sign ELSE 0 END) AS in_stock_count,
+               SUM(CASE WHEN c.stone_code = 4 THEN c.sign ELSE 0 END) AS keep_count,
+               SUM(CASE WHEN c.stone_code = 5 THEN c.sign ELSE 0 END) AS return_count,
+               SUM(CASE WHEN c.stone_code = 6 THEN c.sign ELSE 0 END) AS replace_count
+        FROM unnest(root_appt_ids, order_codes, stone_codes, signs) AS c(root_appt_id, order_code, stone_code, sign)
+        GROUP BY c.root_appt_id
+    ) d
+    WHERE (d.total_count, d.proposing_count, d.not_approved_count, d.on_the_way_count, d.delivered_count,
+           d.in_stock_count, d.keep_count, d.return_count, d.replace_count) <> (0, 0, 0, 0, 0, 0, 0, 0, 0)
+    ORDER BY d.root_appt_id
+    ON CONFLICT (root_appt_id) DO UPDATE SET
+        total_count = COALESCE(s.total_count, 0) + EXCLUDED.total_count,
+        proposing_count = COALESCE(s.proposing_count, 0) + EXCLUDED.proposing_count,
+        not_approved_count = COALESCE(s.not_approved_count, 0) + EXCLUDED.not_approved_count,
+        on_the_way_count = COALESCE(s.on_the_way_count, 0) + EXCLUDED.on_the_way_count,
+        delivered_count = COALESCE(s.delivered_count, 0) + EXCLUDED.delivered_count,
+        in_stock_count = COALESCE(s.in_stock_count, 0) + EXCLUDED.in_stock_count,
+        keep_count = COALESCE(s.keep_count, 0) + EXCLUDED.keep_count,
+        return_count = COALESCE(s.return_count, 0) + EXCLUDED.return_count,
+        replace_count = COALESCE(s.replace_count, 0) + EXCLUDED.replace_count;
+$$ LANGUAGE sql;
+
+CREATE OR REPLACE FUNCTION repair_diamonds_summary_counts() RETURNS TABLE (repaired_root TEXT) AS $$
+BEGIN
+    -- Writers wait for the recount, so no delta lands between counting and fixing.
+    LOCK TABLE diamonds_stones IN SHARE MODE;
+
+    RETURN QUERY
+    INSERT INTO diamonds_summary_100 AS s (root_appt_id, total_count, proposing_count, not_approved_count, on_the_way_count,
+                                           delivered_count, in_stock_count, keep_count, return_count, replace_count)
+    SELECT COALESCE(a.root_appt_id, cur.root_appt_id),
+           COALESCE(a.total_count, 0), COALESCE(a.proposing_count, 0), COALESCE(a.not_approved_count, 0),
+           COALESCE(a.on_the_way_count, 0), COALESCE(a.delivered_count, 0), COALESCE(a.in_stock_count, 0),
+           COALESCE(a.keep_count, 0), COALESCE(a.return_count, 0), COALESCE(a.replace_count, 0)
+    FROM (
+        SELECT o.root_appt_id,
+               COUNT(*)::INTEGER AS total_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 1))::INTEGER AS proposing_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 2))::INTEGER AS not_approved_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 3))::INTEGER AS on_the_way_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 4))::INTEGER AS delivered_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 3))::INTEGER AS in_stock_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 4))::INTEGER AS keep_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 5))::INTEGER AS return_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 6))::INTEGER AS replace_count
+        FROM diamonds_stones o
+        GROUP BY o.root_appt_id
+    ) a
+    FULL JOIN diamonds_summary_100 cur ON cur.root_appt_id = a.root_appt_id
+    WHERE (cur.total_count, cur.proposing_count, cur.not_approved_count, cur.on_the_way_count, cur.delivered_count,
+           cur.in_stock_count, cur.keep_count, cur.return_count, cur.replace_count)
+        IS DISTINCT FROM
+          (COALESCE(a.total_count, 0), COALESCE(a.proposing_count, 0), COALESCE(a.not_approved_count, 0),
+           COALESCE(a.on_the_way_count, 0), COALESCE(a.delivered_count, 0), COALESCE(a.in_stock_count, 0),
+           COALESCE(a.keep_count, 0), COALESCE(a.return_count, 0), COALESCE(a.replace_count, 0))
+    ORDER BY 1
+    ON CONFLICT (root_appt_id) DO UPDATE SET
+        total_count = EXCLUDED.total_count,
+        proposing_count = EXCLUDED.proposing_count,
+        not_approved_count = EXCLUDED.not_approved_count,
+        on_the_way_count = EXCLUDED.on_the_way_count,
+        delivered_count = EXCLUDED.delivered_count,
+        in_stock_count = EXCLUDED.in_stock_count,
+        keep_count = EXCLUDED.keep_count,
+        return_count = EXCLUDED.return_count,
+        replace_count = EXCLUDED.replace_count
+    RETURNING s.root_appt_id;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_insert() RETURNS TRIGGER AS $$
+DECLARE
+    roots TEXT[];
+    order_codes SMALLINT[];
+    stone_codes SMALLINT[];
+    signs INTEGER[];
+BEGIN
+    SELECT array_agg(n.root_appt_id), array_agg(n.order_status_code), array_agg(n.stone_status_code), array_agg(1)
+    INTO roots, order_codes, stone_codes, signs
+    FROM new_rows n;
+    PERFORM apply_diamonds_summary_deltas(roots, order_codes, stone_codes, signs);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_update() RETURNS TRIGGER AS $$
+DECLARE
+    roots TEXT[];
+    order_codes SMALLINT[];
+    stone_codes SMALLINT[];
+    signs INTEGER[];
+BEGIN
+    SELECT array_agg(c.root_appt_id), array_agg(c.order_status_code), array_agg(c.stone_status_code), array_agg(c.sign)
+    INTO roots, order_codes, stone_codes, signs
+    FROM (
+        SELECT o.root_appt_id, o.order_status_code, o.stone_status_code, -1 AS sign
+        FROM old_rows o JOIN new_rows n ON n.id = o.id
+        WHERE (o.root_appt_id, o.order_status_code, o.stone_status_code)
+            IS DISTINCT FROM (n.root_appt_id, n.order_status_code, n.stone_status_code)
+        UNION ALL
+        SELECT n.root_appt_id, n.order_status_code, n.stone_status_code, 1
+        FROM old_rows o JOIN new_rows n ON n.id = o.id
+        WHERE (o.root_appt_id, o.order_status_code, o.stone_status_code)
+            IS DISTINCT FROM (n.root_appt_id, n.order_status_code, n.stone_status_code)
+    ) c;
+    IF roots IS NOT NULL THEN
+        PERFORM apply_diamonds_summary_deltas(roots, order_codes, stone_codes, signs);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_summary_on_delete() RETURNS TRIGGER AS $$
+DECLARE
+    roots TEXT[];
+    order_codes SMALLINT[];
+    stone_codes SMALLINT[];
+    signs INTEGER[];
+BEGIN
+    SELECT array_agg(o.root_appt_id), array_agg(o.order_status_code), array_agg(o.stone_status_code), array_agg(-1)
+    INTO roots, order_codes, stone_codes, signs
+    FROM old_rows o;
+    PERFORM apply_diamonds_summary_deltas(roots, order_codes, stone_codes, signs);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_diamonds_summary_insert
+    AFTER INSERT ON diamonds_stones
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_insert();
+
+CREATE TRIGGER trg_diamonds_summary_update
+    AFTER UPDATE ON diamonds_stones
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_update();
+
+CREATE TRIGGER trg_diamonds_summary_delete
+    AFTER DELETE ON diamonds_stones
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_delete();
+
+CREATE TRIGGER trg_diamonds_summary_truncate
+    AFTER TRUNCATE ON diamonds_stones
+    FOR EACH STATEMENT EXECUTE FUNCTION diamonds_summary_on_truncate();
+
+CREATE OR REPLACE VIEW diamonds_orders_200 AS
+SELECT s.id, s.root_appt_id, s.stone_reference, s.stone_type, sc.label AS stone_status, oc.label AS order_status,
+       s.ordered_by, s.ordered_date, s.memo_invoice_date, s.return_due_date, s.decided_by, s.decided_date,
+       s.created_at, s.updated_at
+FROM diamonds_stones s
+LEFT JOIN diamonds_status_codes oc ON oc.kind = 'order' AND oc.code = s.order_status_code
+LEFT JOIN diamonds_status_codes sc ON sc.kind = 'stone' AND sc.code = s.stone_status_code;
+
+CREATE OR REPLACE FUNCTION diamonds_orders_200_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO diamonds_stones (id, root_appt_id, stone_reference, stone_type, stone_status_code, order_status_code,
+                                 ordered_by, ordered_date, memo_invoice_date, return_due_date, decided_by, decided_date,
+                                 created_at, updated_at)
+    VALUES (COALESCE(NEW.id, nextval(pg_get_serial_sequence('diamonds_stones', 'id')::regclass)), NEW.root_appt_id,
+            NEW.stone_reference, NEW.stone_type, diamonds_status_code('stone', NEW.stone_status),
+            diamonds_status_code('order', NEW.order_status), NEW.ordered_by, NEW.ordered_date, NEW.memo_invoice_date,
+            NEW.return_due_date, NEW.decided_by, NEW.decided_date, COALESCE(NEW.created_at, NOW()),
+            COALESCE(NEW.updated_at, NOW()))
+    RETURNING id, created_at, updated_at INTO NEW.id, NEW.created_at, NEW.updated_at;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_orders_200_on_update() RETURNS TRIGGER AS $$
+BEGIN
+    UPDATE diamonds_stones
+    SET id = NEW.id,
+        root_appt_id = NEW.root_appt_id,
+        stone_reference = NEW.stone_reference,
+        stone_type = NEW.stone_type,
+        stone_status_code = diamonds_status_code('stone', NEW.stone_status),
+        order_status_code = diamonds_status_code('order', NEW.order_status),
+        ordered_by = NEW.ordered_by,
+        ordered_date = NEW.ordered_date,
+        memo_invoice_date = NEW.memo_invoice_date,
+        return_due_date = NEW.return_due_date,
+        decided_by = NEW.decided_by,
+        decided_date = NEW.decided_date,
+        created_at = NEW.created_at,
+        updated_at = NEW.updated_at
+    WHERE id = OLD.id;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION diamonds_orders_200_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM diamonds_stones WHERE id = OLD.id;
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_diamonds_orders_200_insert ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_orders_200_insert
+    INSTEAD OF INSERT ON diamonds_orders_200
+    FOR EACH ROW EXECUTE FUNCTION diamonds_orders_200_on_insert();
+
+DROP TRIGGER IF EXISTS trg_diamonds_orders_200_update ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_orders_200_update
+    INSTEAD OF UPDATE ON diamonds_orders_200
+    FOR EACH ROW EXECUTE FUNCTION diamonds_orders_200_on_update();
+
+DROP TRIGGER IF EXISTS trg_diamonds_orders_200_delete ON diamonds_orders_200;
+CREATE TRIGGER trg_diamonds_orders_200_delete
+    INSTEAD OF DELETE ON diamonds_orders_200
+    FOR EACH ROW EXECUTE FUNCTION diamonds_orders_200_on_delete();
+
+SELECT COUNT(*) FROM repair_diamonds_summary_counts();
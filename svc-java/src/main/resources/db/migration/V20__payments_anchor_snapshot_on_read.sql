@@ -0,0 +1,37 @@
+-- The ledger no longer stamps order_total_so, paid_to_date_so and balance_so after each write. Stamping them meant a
+-- second UPDATE of every row just written, which doubled heap and WAL traffic and re-fired the ledger's UPDATE
+-- triggers. Readers join payments_anchor_balance on the anchor key instead; rows written from here on leave the
+-- columns NULL, as the service did before the projection existed.
+
+CREATE OR REPLACE FUNCTION payments_ledger_balance_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_payments_anchor_balance(ARRAY(
+        SELECT DISTINCT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM new_rows
+        WHERE COALESCE(NULLIF(so_number, ''), root_appt_id) IS NOT NULL
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_balance_on_update() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_payments_anchor_balance(ARRAY(
+        SELECT COALESCE(NULLIF(o.so_number, ''), o.root_appt_id)
+        FROM old_rows o
+        JOIN new_rows n ON n.id = o.id
+        WHERE (o.doc_role, o.doc_status, o.so_number, o.root_appt_id, o.amount_net, o.amount_gross, o.subtotal, o.payment_datetime, o.method)
+            IS DISTINCT FROM
+              (n.doc_role, n.doc_status, n.so_number, n.root_appt_id, n.amount_net, n.amount_gross, n.subtotal, n.payment_datetime, n.method)
+        UNION
+        SELECT COALESCE(NULLIF(n.so_number, ''), n.root_appt_id)
+        FROM old_rows o
+        JOIN new_rows n ON n.id = o.id
+        WHERE (o.doc_role, o.doc_status, o.so_number, o.root_appt_id, o.amount_net, o.amount_gross, o.subtotal, o.payment_datetime, o.method)
+            IS DISTINCT FROM
+              (n.doc_role, n.doc_status, n.so_number, n.root_appt_id, n.amount_net, n.amount_gross, n.subtotal, n.payment_datetime, n.method)
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP FUNCTION IF EXISTS snapshot_payments_anchor_balance(BIGINT[]);
@@ -0,0 +1,68 @@
+-- refresh_dashboard_kpi_cube evaluated dashboard_kpi_cube_contributions twice per call: once for the cube delta and
+-- once to store the new per-anchor contribution. It now runs as one statement whose CTEs read the contributions and
+-- the previous sources once, upsert the sources that changed, delete the ones that disappeared and apply the
+-- difference to the cube. All CTEs see the same snapshot, so "previous" is the state before this refresh, and the
+-- upsert and the delete touch disjoint source rows.
+
+CREATE OR REPLACE FUNCTION refresh_dashboard_kpi_cube(anchor_keys TEXT[]) RETURNS VOID AS $$
+DECLARE
+    keys TEXT[];
+    zone TEXT;
+    bucket INTEGER;
+BEGIN
+    SELECT array_agg(DISTINCT k ORDER BY k) INTO keys FROM unnest(anchor_keys) AS k WHERE k IS NOT NULL;
+    IF keys IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- Writers of the same anchors take turns, so each diffs against the contribution the previous one committed.
+    FOR bucket IN SELECT DISTINCT hashtext(k) & 255 FROM unnest(keys) AS k ORDER BY 1 LOOP
+        PERFORM pg_advisory_xact_lock(hashtext('dashboard_kpi_cube'), bucket);
+    END LOOP;
+
+    SELECT timezone INTO zone FROM dashboard_kpi_cube_meta WHERE relation = 'dashboard_kpi_cube';
+
+    WITH fresh AS MATERIALIZED (
+        SELECT f.anchor_key, f.day, f.brand, f.assigned_rep, f.sales_stage, f.pipeline_total, f.deposit_total, f.first_deposit_count
+        FROM dashboard_kpi_cube_contributions(keys, zone) f
+    ), previous AS MATERIALIZED (
+        SELECT s.anchor_key, s.day, s.brand, s.assigned_rep, s.sales_stage, s.pipeline_total, s.deposit_total, s.first_deposit_count
+        FROM dashboard_kpi_cube_sources s
+        WHERE s.anchor_key = ANY(keys)
+    ), stored AS (
+        INSERT INTO dashboard_kpi_cube_sources AS src (anchor_key, day, brand, assigned_rep, sales_stage, pipeline_total, deposit_total, first_deposit_count)
+        SELECT f.anchor_key, f.day, f.brand, f.assigned_rep, f.sales_stage, f.pipeline_total, f.deposit_total, f.first_deposit_count
+        FROM fresh f
+        ON CONFLICT (anchor_key, day, brand, assigned_rep, sales_stage) DO UPDATE SET
+            pipeline_total = EXCLUDED.pipeline_total,
+            deposit_total = EXCLUDED.deposit_total,
+            first_deposit_count = EXCLUDED.first_deposit_count
+        WHERE (src.pipeline_total, src.deposit_total, src.first_deposit_count)
+            IS DISTINCT FROM (EXCLUDED.pipeline_total, EXCLUDED.deposit_total, EXCLUDED.first_deposit_count)
+    ), dropped AS (
+        DELETE FROM dashboard_kpi_cube_sources s
+        WHERE s.anchor_key = ANY(keys)
+          AND NOT EXISTS (
+              SELECT 1 FROM fresh f
+              WHERE (f.anchor_key, f.day, f.brand, f.assigned_rep, f.sales_stage)
+                  = (s.anchor_key, s.day, s.brand, s.assigned_rep, s.sales_stage)
+          )
+    )
+    INSERT INTO dashboard_kpi_cube AS cube (day, brand, assigned_rep, sales_stage, pipeline_total, deposit_total, first_deposit_count)
+    SELECT d.day, d.brand, d.assigned_rep, d.sales_stage, SUM(d.pipeline_total), SUM(d.deposit_total), SUM(d.first_deposit_count)
+    FROM (
+        SELECT f.day, f.brand, f.assigned_rep, f.sales_stage, f.pipeline_total, f.deposit_total, f.first_deposit_count
+        FROM fresh f
+        UNION ALL
+        SELECT p.day, p.brand, p.assigned_rep, p.sales_stage, -p.pipeline_total, -p.deposit_total, -p.first_deposit_count
+        FROM previous p
+    ) d
+    GROUP BY d.day, d.brand, d.assigned_rep, d.sales_stage
+    HAVING SUM(d.pipeline_total) <> 0 OR SUM(d.deposit_total) <> 0 OR SUM(d.first_deposit_count) <> 0
+    ORDER BY d.day, d.brand, d.assigned_rep, d.sales_stage
+    ON CONFLICT (day, brand, assigned_rep, sales_stage) DO UPDATE SET
+        pipeline_total = cube.pipeline_total + EXCLUDED.pipeline_total,
+        deposit_total = cube.deposit_total + EXCLUDED.deposit_total,
+        first_deposit_count = cube.first_deposit_count + EXCLUDED.first_deposit_count;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,57 @@
+-- The summary repair no longer takes a SHARE lock on diamonds_stones and recounts every root at once, which stalled
+-- all diamonds writers for the length of a full-table scan. It now recounts the roots it is given under their
+-- advisory locks (lock_diamonds_roots), so only writers of those roots wait. DiamondsSummaryVerifier walks the roots
+-- in batches, one transaction per batch.
+
+DROP FUNCTION IF EXISTS repair_diamonds_summary_counts();
+
+CREATE OR REPLACE FUNCTION repair_diamonds_summary_counts(root_appt_ids TEXT[]) RETURNS TABLE (repaired_root TEXT) AS $$
+BEGIN
+    -- Writers of these roots wait for the recount, so no delta lands between counting and fixing.
+    PERFORM lock_diamonds_roots(root_appt_ids);
+
+    RETURN QUERY
+    INSERT INTO diamonds_summary_100 AS s (root_appt_id, total_count, proposing_count, not_approved_count, on_the_way_count,
+                                           delivered_count, in_stock_count, keep_count, return_count, replace_count)
+    SELECT COALESCE(a.root_appt_id, cur.root_appt_id),
+           COALESCE(a.total_count, 0), COALESCE(a.proposing_count, 0), COALESCE(a.not_approved_count, 0),
+           COALESCE(a.on_the_way_count, 0), COALESCE(a.delivered_count, 0), COALESCE(a.in_stock_count, 0),
+           COALESCE(a.keep_count, 0), COALESCE(a.return_count, 0), COALESCE(a.replace_count, 0)
+    FROM (
+        SELECT o.root_appt_id,
+               COUNT(*)::INTEGER AS total_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 1))::INTEGER AS proposing_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 2))::INTEGER AS not_approved_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 3))::INTEGER AS on_the_way_count,
+               (COUNT(*) FILTER (WHERE o.order_status_code = 4))::INTEGER AS delivered_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 3))::INTEGER AS in_stock_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 4))::INTEGER AS keep_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 5))::INTEGER AS return_count,
+               (COUNT(*) FILTER (WHERE o.stone_status_code = 6))::INTEGER AS replace_count
+        FROM diamonds_stones o
+        WHERE o.root_appt_id = ANY(root_appt_ids)
+        GROUP BY o.root_appt_id
+    ) a
+    FULL JOIN (
+        SELECT * FROM diamonds_summary_100 WHERE root_appt_id = ANY(root_appt_ids)
+    ) cur ON cur.root_appt_id = a.root_appt_id
+    WHERE (cur.total_count, cur.proposing_count, cur.not_approved_count, cur.on_the_way_count, cur.delivered_count,
+           cur.in_stock_count, cur.keep_count, cur.return_count, cur.replace_count)
+        IS DISTINCT FROM
+          (COALESCE(a.total_count, 0), COALESCE(a.proposing_count, 0), COALESCE(a.not_approved_count, 0),
+           COALESCE(a.on_the_way_count, 0), COALESCE(a.delivered_count, 0), COALESCE(a.in_stock_count, 0),
+           COALESCE(a.keep_count, 0), COALESCE(a.return_count, 0), COALESCE(a.replace_count, 0))
+    ORDER BY 1
+    ON CONFLICT (root_appt_id) DO UPDATE SET
+        total_count = EXCLUDED.total_count,
+        proposing_count = EXCLUDED.proposing_count,
+        not_approved_count = EXCLUDED.not_approved_count,
+        on_the_way_count = EXCLUDED.on_the_way_count,
+        delivered_count = EXCLUDED.delivered_count,
+        in_stock_count = EXCLUDED.in_stock_count,
+        keep_count = EXCLUDED.keep_count,
+        return_count = EXCLUDED.return_count,
+        replace_count = EXCLUDED.replace_count
+    RETURNING s.root_appt_id;
+END;
+$$ LANGUAGE plpgsql;
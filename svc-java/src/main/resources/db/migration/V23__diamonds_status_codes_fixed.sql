@@ -0,0 +1,78 @@
+-- Pins the status code set to DiamondsOrderStatus (order codes 1-4) and DiamondsStoneStatus (stone codes 1-6).
+-- Databases migrated before V19 rejected unknown labels may hold extra codes that an earlier diamonds_status_code()
+-- invented. No stored status is cleared here. An extra code whose label is a spelling of a canonical one ("on_the_way",
+-- "IN-STOCK", ...) is moved onto the canonical code. An extra code no stone uses is removed. Any other extra code
+-- stops the migration with its labels listed, so they can be corrected by hand first. The CHECK constraints go on only
+-- once every stone carries a canonical code.
+
+CREATE OR REPLACE FUNCTION diamonds_status_label_key(status_label TEXT) RETURNS TEXT AS $$
+    SELECT NULLIF(LOWER(regexp_replace(btrim(translate(status_label, '_-', '  ')), '\s+', ' ', 'g')), '');
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION diamonds_status_code(status_kind TEXT, status_label TEXT) RETURNS SMALLINT AS $$
+DECLARE
+    status_code SMALLINT;
+BEGIN
+    IF diamonds_status_label_key(status_label) IS NULL THEN
+        RETURN NULL;
+    END IF;
+    SELECT c.code INTO status_code
+    FROM diamonds_status_codes c
+    WHERE c.kind = status_kind AND diamonds_status_label_key(c.label) = diamonds_status_label_key(status_label);
+    IF status_code IS NULL THEN
+        RAISE EXCEPTION 'Unsupported diamonds % status: %', status_kind, status_label
+            USING ERRCODE = 'invalid_parameter_value';
+    END IF;
+    RETURN status_code;
+END;
+$$ LANGUAGE plpgsql STABLE;
+
+CREATE TEMP TABLE diamonds_status_code_remap ON COMMIT DROP AS
+SELECT extra.kind, extra.code AS extra_code, canonical.code AS canonical_code
+FROM diamonds_status_codes extra
+JOIN diamonds_status_codes canonical
+    ON canonical.kind = extra.kind
+   AND diamonds_status_label_key(canonical.label) = diamonds_status_label_key(extra.label)
+   AND ((canonical.kind = 'order' AND canonical.code BETWEEN 1 AND 4) OR (canonical.kind = 'stone' AND canonical.code BETWEEN 1 AND 6))
+WHERE (extra.kind = 'order' AND extra.code > 4) OR (extra.kind = 'stone' AND extra.code > 6);
+
+UPDATE diamonds_stones s SET order_status_code = m.canonical_code
+FROM diamonds_status_code_remap m
+WHERE m.kind = 'order' AND s.order_status_code = m.extra_code;
+
+UPDATE diamonds_stones s SET stone_status_code = m.canonical_code
+FROM diamonds_status_code_remap m
+WHERE m.kind = 'stone' AND s.stone_status_code = m.extra_code;
+
+DELETE FROM diamonds_status_codes c
+WHERE ((c.kind = 'order' AND c.code > 4) OR (c.kind = 'stone' AND c.code > 6))
+  AND NOT EXISTS (
+      SELECT 1 FROM diamonds_stones s
+      WHERE (c.kind = 'order' AND s.order_status_code = c.code) OR (c.kind = 'stone' AND s.stone_status_code = c.code)
+  );
+
+DO $$
+DECLARE
+    unknown TEXT;
+BEGIN
+    SELECT string_agg(format('%s "%s" (code %s)', c.kind, c.label, c.code), ', ' ORDER BY c.kind, c.code) INTO unknown
+    FROM diamonds_status_codes c
+    WHERE (c.kind = 'order' AND c.code > 4) OR (c.kind = 'stone' AND c.code > 6);
+    IF unknown IS NOT NULL THEN
+        RAISE EXCEPTION 'diamonds_stones holds statuses outside DiamondsOrderStatus/DiamondsStoneStatus: %', unknown
+            USING HINT = 'Move those stones onto a canonical code, then rerun the migration.';
+    END IF;
+END;
+$$;
+
+ALTER TABLE diamonds_status_codes DROP CONSTRAINT IF EXISTS diamonds_status_codes_fixed;
+ALTER TABLE diamonds_status_codes ADD CONSTRAINT diamonds_status_codes_fixed
+    CHECK ((kind = 'order' AND code BETWEEN 1 AND 4) OR (kind = 'stone' AND code BETWEEN 1 AND 6));
+
+ALTER TABLE diamonds_stones DROP CONSTRAINT IF EXISTS diamonds_stones_order_status_code_known;
+ALTER TABLE diamonds_stones ADD CONSTRAINT diamonds_stones_order_status_code_known
+    CHECK (order_status_code BETWEEN 1 AND 4);
+
+ALTER TABLE diamonds_stones DROP CONSTRAINT IF EXISTS diamonds_stones_stone_status_code_known;
+ALTER TABLE diamonds_stones ADD CONSTRAINT diamonds_stones_stone_status_code_known
+    CHECK (stone_status_code BETWEEN 1 AND 6);
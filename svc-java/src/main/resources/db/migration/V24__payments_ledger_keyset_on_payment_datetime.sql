@@ -0,0 +1,9 @@
+-- payment_datetime is NOT NULL since V9 (it is the partition key), so COALESCE(payment_datetime, submitted_at) always
+-- equals payment_datetime. The summary keyset sorts and seeks on the plain column, and the indexes follow it.
+DROP INDEX IF EXISTS idx_payments_ledger_so_keyset;
+DROP INDEX IF EXISTS idx_payments_ledger_root_keyset;
+
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_so_keyset
+    ON payments_ledger (so_number, payment_datetime, id);
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_root_keyset
+    ON payments_ledger (root_appt_id, payment_datetime, id);
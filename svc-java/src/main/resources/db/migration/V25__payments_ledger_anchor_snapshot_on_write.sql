@@ -0,0 +1,82 @@
+-- order_total_so, paid_to_date_so and balance_so are filled again, this time while the row is written instead of by a
+-- second UPDATE after it. A BEFORE ROW trigger starts from the anchor's payments_anchor_balance row, which the AFTER
+-- STATEMENT triggers have not refreshed yet, takes out what the document's previous version contributed and adds what
+-- the incoming row contributes. A document therefore carries the balance as of itself; other rows written by the same
+-- statement show up in the snapshots of later writes. Rows written while V20 left the columns NULL are backfilled from
+-- the current balance, as V6 did.
+
+CREATE OR REPLACE FUNCTION payments_ledger_anchor_amounts(doc_role TEXT, doc_status TEXT, subtotal NUMERIC, amount_gross NUMERIC,
+                                                          amount_net NUMERIC, OUT order_amount NUMERIC, OUT paid_amount NUMERIC) AS $$
+    SELECT CASE WHEN doc_role = 'INVOICE' THEN COALESCE(subtotal, amount_gross, 0) ELSE 0 END,
+           CASE WHEN doc_role = 'RECEIPT' AND amount_net > 0
+                     AND (doc_status IS NULL OR NOT (UPPER(doc_status) = ANY(ARRAY['VOID', 'VOIDED', 'CANCELLED', 'CANCELED', 'REVERSED'])))
+                THEN amount_net ELSE 0 END;
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION payments_ledger_anchor_snapshot() RETURNS TRIGGER AS $$
+DECLARE
+    anchor TEXT := COALESCE(NULLIF(NEW.so_number, ''), NEW.root_appt_id);
+    prior payments_ledger%ROWTYPE;
+    prior_at TIMESTAMPTZ;
+    stored_order_total NUMERIC;
+    stored_paid_to_date NUMERIC;
+    prior_amounts RECORD;
+    new_amounts RECORD;
+BEGIN
+    IF TG_OP = 'UPDATE' THEN
+        IF (OLD.doc_role, OLD.doc_status, OLD.so_number, OLD.root_appt_id, OLD.amount_net, OLD.amount_gross, OLD.subtotal, OLD.payment_datetime)
+            IS NOT DISTINCT FROM
+           (NEW.doc_role, NEW.doc_status, NEW.so_number, NEW.root_appt_id, NEW.amount_net, NEW.amount_gross, NEW.subtotal, NEW.payment_datetime) THEN
+            RETURN NEW;
+        END IF;
+        prior := OLD;
+    ELSE
+        -- A row moved to another month's partition arrives here as an insert; its old version is still in the ledger.
+        SELECT k.payment_datetime INTO prior_at FROM payments_ledger_keys k WHERE k.doc_number = NEW.doc_number;
+        IF prior_at IS NOT NULL THEN
+            SELECT l.* INTO prior FROM payments_ledger l
+            WHERE l.doc_number = NEW.doc_number AND l.payment_datetime = prior_at;
+        END IF;
+    END IF;
+
+    IF anchor IS NULL THEN
+        NEW.order_total_so := NULL;
+        NEW.paid_to_date_so := NULL;
+        NEW.balance_so := NULL;
+        RETURN NEW;
+    END IF;
+
+    SELECT b.order_total, b.paid_to_date INTO stored_order_total, stored_paid_to_date
+    FROM payments_anchor_balance b
+    WHERE b.anchor_key = anchor;
+    stored_order_total := COALESCE(stored_order_total, 0);
+    stored_paid_to_date := COALESCE(stored_paid_to_date, 0);
+
+    IF prior.id IS NOT NULL AND COALESCE(NULLIF(prior.so_number, ''), prior.root_appt_id) = anchor THEN
+        SELECT * INTO prior_amounts
+        FROM payments_ledger_anchor_amounts(prior.doc_role, prior.doc_status, prior.subtotal, prior.amount_gross, prior.amount_net);
+        stored_order_total := stored_order_total - prior_amounts.order_amount;
+        stored_paid_to_date := stored_paid_to_date - prior_amounts.paid_amount;
+    END IF;
+
+    SELECT * INTO new_amounts
+    FROM payments_ledger_anchor_amounts(NEW.doc_role, NEW.doc_status, NEW.subtotal, NEW.amount_gross, NEW.amount_net);
+    NEW.order_total_so := stored_order_total + new_amounts.order_amount;
+    NEW.paid_to_date_so := stored_paid_to_date + new_amounts.paid_amount;
+    NEW.balance_so := GREATEST(NEW.order_total_so - NEW.paid_to_date_so, 0);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_anchor_snapshot ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_anchor_snapshot
+    BEFORE INSERT OR UPDATE ON payments_ledger
+    FOR EACH ROW EXECUTE FUNCTION payments_ledger_anchor_snapshot();
+
+UPDATE payments_ledger l
+SET order_total_so = b.order_total,
+    paid_to_date_so = b.paid_to_date,
+    balance_so = b.balance
+FROM payments_anchor_balance b
+WHERE l.order_total_so IS NULL
+  AND b.anchor_key = COALESCE(NULLIF(l.so_number, ''), l.root_appt_id);
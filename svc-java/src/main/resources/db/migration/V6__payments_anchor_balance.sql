@@ -0,0 +1,190 @@
+CREATE TABLE IF NOT EXISTS payments_anchor_balance (
+    anchor_key TEXT PRIMARY KEY,
+    order_total NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    paid_to_date NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    balance NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    first_payment_at TIMESTAMPTZ,
+    invoice_count INTEGER NOT NULL DEFAULT 0,
+    receipt_count INTEGER NOT NULL DEFAULT 0,
+    card_count INTEGER NOT NULL DEFAULT 0,
+    wire_count INTEGER NOT NULL DEFAULT 0,
+    zelle_count INTEGER NOT NULL DEFAULT 0,
+    cash_count INTEGER NOT NULL DEFAULT 0,
+    check_count INTEGER NOT NULL DEFAULT 0,
+    other_count INTEGER NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_payments_anchor_balance_first_payment
+    ON payments_anchor_balance (first_payment_at) WHERE receipt_count > 0;
+
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_anchor_key
+    ON payments_ledger ((COALESCE(NULLIF(so_number, ''), root_appt_id)));
+
+CREATE OR REPLACE FUNCTION refresh_payments_anchor_balance(anchor_keys TEXT[]) RETURNS VOID AS $$
+BEGIN
+    IF anchor_keys IS NULL OR cardinality(anchor_keys) = 0 THEN
+        RETURN;
+    END IF;
+
+    DELETE FROM payments_anchor_balance b
+    WHERE b.anchor_key = ANY(anchor_keys)
+      AND NOT EXISTS (
+          SELECT 1 FROM payments_ledger l
+          WHERE COALESCE(NULLIF(l.so_number, ''), l.root_appt_id) = b.anchor_key
+      );
+
+    INSERT INTO payments_anchor_balance (anchor_key, order_total, paid_to_date, balance, first_payment_at, invoice_count, receipt_count,
+                                         card_count, wire_count, zelle_count, cash_count, check_count, other_count, updated_at)
+    SELECT agg.anchor_key,
+           agg.order_total,
+           agg.paid_to_date,
+           GREATEST(agg.order_total - agg.paid_to_date, 0),
+           agg.first_payment_at,
+           agg.invoice_count,
+           agg.receipt_count,
+           agg.card_count,
+           agg.wire_count,
+           agg.zelle_count,
+           agg.cash_count,
+           agg.check_count,
+           agg.other_count,
+           NOW()
+    FROM (
+        SELECT COALESCE(NULLIF(so_number, ''), root_appt_id) AS anchor_key,
+               COALESCE(SUM(COALESCE(subtotal, amount_gross)) FILTER (WHERE doc_role = 'INVOICE'), 0) AS order_total,
+               COALESCE(SUM(amount_net) FILTER (WHERE receipt_ok), 0) AS paid_to_date,
+               MIN(payment_datetime) FILTER (WHERE receipt_ok) AS first_payment_at,
+               COUNT(*) FILTER (WHERE doc_role = 'INVOICE') AS invoice_count,
+               COUNT(*) FILTER (WHERE receipt_ok) AS receipt_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Card') AS card_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Wire') AS wire_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Zelle') AS zelle_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Cash') AS cash_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND method = 'Check') AS check_count,
+               COUNT(*) FILTER (WHERE receipt_ok AND (method IS NULL OR method NOT IN ('Card', 'Wire', 'Zelle', 'Cash', 'Check'))) AS other_count
+        FROM (
+            SELECT l.*,
+                   (l.doc_role = 'RECEIPT' AND l.amount_net > 0
+                       AND (l.doc_status IS NULL OR NOT (UPPER(l.doc_status) = ANY(ARRAY['VOID', 'VOIDED', 'CANCELLED', 'CANCELED', 'REVERSED'])))) AS receipt_ok
+            FROM payments_ledger l
+            WHERE COALESCE(NULLIF(l.so_number, ''), l.root_appt_id) = ANY(anchor_keys)
+        ) ledger_rows
+        GROUP BY COALESCE(NULLIF(so_number, ''), root_appt_id)
+    ) agg
+    ON CONFLICT (anchor_key) DO UPDATE SET order_total = EXCLUDED.order_total,
+        paid_to_date = EXCLUDED.paid_to_date,
+        balance = EXCLUDED.balance,
+        first_payment_at = EXCLUDED.first_payment_at,
+        invoice_count = EXCLUDED.invoice_count,
+        receipt_count = EXCLUDED.receipt_count,
+        card_count = EXCLUDED.card_count,
+        wire_count = EXCLUDED.wire_count,
+        zelle_count = EXCLUDED.zelle_count,
+        cash_count = EXCLUDED.cash_count,
+        check_count = EXCLUDED.check_count,
+        other_count = EXCLUDED.other_count,
+        updated_at = EXCLUDED.updated_at;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION snapshot_payments_anchor_balance(doc_ids BIGINT[]) RETURNS VOID AS $$
+BEGIN
+    IF doc_ids IS NULL OR cardinality(doc_ids) = 0 THEN
+        RETURN;
+    END IF;
+
+    UPDATE payments_ledger l
+    SET order_total_so = b.order_total,
+        paid_to_date_so = b.paid_to_date,
+        balance_so = b.balance
+    FROM payments_anchor_balance b
+    WHERE l.id = ANY(doc_ids)
+      AND b.anchor_key = COALESCE(NULLIF(l.so_number, ''), l.root_appt_id);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_balance_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_payments_anchor_balance(ARRAY(
+        SELECT DISTINCT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM new_rows
+        WHERE COALESCE(NULLIF(so_number, ''), root_appt_id) IS NOT NULL
+    ));
+    PERFORM snapshot_payments_anchor_balance(ARRAY(SELECT id FROM new_rows));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_balance_on_update() RETURNS TRIGGER AS $$
+DECLARE
+    changed_ids BIGINT[];
+BEGIN
+    SELECT array_agg(n.id) INTO changed_ids
+    FROM new_rows n
+    JOIN old_rows o ON o.id = n.id
+    WHERE (o.doc_role, o.doc_status, o.so_number, o.root_appt_id, o.amount_net, o.amount_gross, o.subtotal, o.payment_datetime, o.method)
+        IS DISTINCT FROM
+          (n.doc_role, n.doc_status, n.so_number, n.root_appt_id, n.amount_net, n.amount_gross, n.subtotal, n.payment_datetime, n.method);
+
+    IF changed_ids IS NULL THEN
+        RETURN NULL;
+    END IF;
+
+    PERFORM refresh_payments_anchor_balance(ARRAY(
+        SELECT COALESCE(NULLIF(o.so_number, ''), o.root_appt_id) FROM old_rows o WHERE o.id = ANY(changed_ids)
+        UNION
+        SELECT COALESCE(NULLIF(n.so_number, ''), n.root_appt_id) FROM new_rows n WHERE n.id = ANY(changed_ids)
+    ));
+    PERFORM snapshot_payments_anchor_balance(changed_ids);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_balance_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM refresh_payments_anchor_balance(ARRAY(
+        SELECT DISTINCT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM old_rows
+        WHERE COALESCE(NULLIF(so_number, ''), root_appt_id) IS NOT NULL
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_balance_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    TRUNCATE TABLE payments_anchor_balance;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_insert ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_balance_insert
+    AFTER INSERT ON payments_ledger
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_insert();
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_update ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_balance_update
+    AFTER UPDATE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_update();
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_delete ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_balance_delete
+    AFTER DELETE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_delete();
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_truncate ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_balance_truncate
+    AFTER TRUNCATE ON payments_ledger
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_truncate();
+
+SELECT refresh_payments_anchor_balance(ARRAY(
+    SELECT DISTINCT COALESCE(NULLIF(so_number, ''), root_appt_id) FROM payments_ledger
+    WHERE COALESCE(NULLIF(so_number, ''), root_appt_id) IS NOT NULL
+));
+
+SELECT snapshot_payments_anchor_balance(ARRAY(
+    SELECT id FROM payments_ledger WHERE order_total_so IS NULL
+));
@@ -0,0 +1,8 @@
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_so_keyset
+    ON payments_ledger (so_number, (COALESCE(payment_datetime, submitted_at)), id);
+
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_root_keyset
+    ON payments_ledger (root_appt_id, (COALESCE(payment_datetime, submitted_at)), id);
+
+DROP INDEX IF EXISTS idx_payments_ledger_so_number;
+DROP INDEX IF EXISTS idx_payments_ledger_root_appt;
@@ -0,0 +1,66 @@
+CREATE OR REPLACE FUNCTION notify_payments_idempotency(keys TEXT[]) RETURNS VOID AS $$
+DECLARE
+    cache_key TEXT;
+BEGIN
+    IF keys IS NULL OR cardinality(keys) = 0 THEN
+        RETURN;
+    END IF;
+
+    IF cardinality(keys) > 256 THEN
+        PERFORM pg_notify('payments_idempotency', '*');
+        RETURN;
+    END IF;
+
+    FOREACH cache_key IN ARRAY keys LOOP
+        PERFORM pg_notify('payments_idempotency', cache_key);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_idempotency_on_update() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM notify_payments_idempotency(ARRAY(
+        SELECT DISTINCT o.anchor_type || '|' || o.request_hash
+        FROM old_rows o
+        JOIN new_rows n ON n.id = o.id
+        WHERE o.request_hash IS NOT NULL
+          AND (o.anchor_type, o.request_hash, o.doc_number) IS DISTINCT FROM (n.anchor_type, n.request_hash, n.doc_number)
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_idempotency_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM notify_payments_idempotency(ARRAY(
+        SELECT DISTINCT o.anchor_type || '|' || o.request_hash
+        FROM old_rows o
+        WHERE o.request_hash IS NOT NULL
+    ));
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_idempotency_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    PERFORM pg_notify('payments_idempotency', '*');
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_idempotency_update ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_idempotency_update
+    AFTER UPDATE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_idempotency_on_update();
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_idempotency_delete ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_idempotency_delete
+    AFTER DELETE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_idempotency_on_delete();
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_idempotency_truncate ON payments_ledger;
+CREATE TRIGGER trg_payments_ledger_idempotency_truncate
+    AFTER TRUNCATE ON payments_ledger
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_idempotency_on_truncate();
@@ -0,0 +1,235 @@
+-- Monthly range partitions on payment_datetime. Unique indexes on a partitioned table must contain the
+-- partition key, so doc_number and (anchor_type, request_hash) uniqueness moves to payments_ledger_keys,
+-- which is kept in step with the ledger by the statement triggers below.
+
+ALTER TABLE payments_ledger RENAME TO payments_ledger_unpartitioned;
+ALTER SEQUENCE payments_ledger_id_seq OWNED BY NONE;
+
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_insert ON payments_ledger_unpartitioned;
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_update ON payments_ledger_unpartitioned;
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_delete ON payments_ledger_unpartitioned;
+DROP TRIGGER IF EXISTS trg_payments_ledger_balance_truncate ON payments_ledger_unpartitioned;
+DROP TRIGGER IF EXISTS trg_payments_ledger_idempotency_update ON payments_ledger_unpartitioned;
+DROP TRIGGER IF EXISTS trg_payments_ledger_idempotency_delete ON payments_ledger_unpartitioned;
+DROP TRIGGER IF EXISTS trg_payments_ledger_idempotency_truncate ON payments_ledger_unpartitioned;
+
+UPDATE payments_ledger_unpartitioned SET payment_datetime = submitted_at WHERE payment_datetime IS NULL;
+
+CREATE TABLE payments_ledger (
+    id BIGINT NOT NULL DEFAULT nextval('payments_ledger_id_seq'),
+    doc_number TEXT NOT NULL,
+    doc_role TEXT NOT NULL,
+    anchor_type TEXT NOT NULL,
+    root_appt_id TEXT,
+    so_number TEXT,
+    basket_id TEXT,
+    doc_type TEXT NOT NULL,
+    doc_status TEXT NOT NULL DEFAULT 'ISSUED',
+    payment_datetime TIMESTAMPTZ NOT NULL,
+    method TEXT,
+    reference TEXT,
+    notes TEXT,
+    amount_gross NUMERIC(14, 2) NOT NULL,
+    fee_percent NUMERIC(8, 5),
+    fee_amount NUMERIC(14, 2),
+    subtotal NUMERIC(14, 2),
+    amount_net NUMERIC(14, 2) NOT NULL,
+    allocated_to_so NUMERIC(14, 2),
+    lines_json JSONB,
+    order_total_so NUMERIC(14, 2),
+    paid_to_date_so NUMERIC(14, 2),
+    balance_so NUMERIC(14, 2),
+    submitted_by TEXT,
+    submitted_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    request_hash TEXT,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (id, payment_datetime)
+) PARTITION BY RANGE (payment_datetime);
+
+ALTER SEQUENCE payments_ledger_id_seq OWNED BY payments_ledger.id;
+
+CREATE TABLE payments_ledger_default PARTITION OF payments_ledger DEFAULT;
+
+-- Creates the partition for the UTC month containing month_start, moving any rows that already
+-- landed in the default partition. Returns false when the partition exists.
+CREATE OR REPLACE FUNCTION ensure_payments_ledger_partition(month_start DATE) RETURNS BOOLEAN AS $$
+DECLARE
+    lower_bound TIMESTAMPTZ := date_trunc('month', month_start::TIMESTAMP) AT TIME ZONE 'UTC';
+    upper_bound TIMESTAMPTZ := (date_trunc('month', month_start::TIMESTAMP) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    partition_name TEXT := 'payments_ledger_p' || to_char(month_start, 'YYYYMM');
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE payments_ledger INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format(
+        'WITH moved AS (DELETE FROM payments_ledger_default WHERE payment_datetime >= $1 AND payment_datetime < $2 RETURNING *) '
+            || 'INSERT INTO %I SELECT * FROM moved',
+        partition_name
+    ) USING lower_bound, upper_bound;
+    EXECUTE format(
+        'ALTER TABLE payments_ledger ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+        partition_name, lower_bound, upper_bound
+    );
+    RETURN TRUE;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Ensures partitions for every month parked in the default partition and for the current month through
+-- months_ahead months from now. Returns the number of partitions created.
+CREATE OR REPLACE FUNCTION maintain_payments_ledger_partitions(months_ahead INTEGER) RETURNS INTEGER AS $$
+DECLARE
+    current_month TIMESTAMP := date_trunc('month', NOW() AT TIME ZONE 'UTC');
+    month_start TIMESTAMP;
+    created INTEGER := 0;
+BEGIN
+    FOR month_start IN
+        SELECT DISTINCT date_trunc('month', payment_datetime AT TIME ZONE 'UTC') FROM payments_ledger_default
+        UNION
+        SELECT generate_series(current_month, current_month + make_interval(months => GREATEST(months_ahead, 0)), INTERVAL '1 month')
+        ORDER BY 1
+    LOOP
+        IF ensure_payments_ledger_partition(month_start::DATE) THEN
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT ensure_payments_ledger_partition(month_start::DATE)
+FROM (
+    SELECT DISTINCT date_trunc('month', payment_datetime AT TIME ZONE 'UTC') AS month_start FROM payments_ledger_unpartitioned
+    UNION
+    SELECT generate_series(date_trunc('month', NOW() AT TIME ZONE 'UTC'), date_trunc('month', NOW() AT TIME ZONE 'UTC') + INTERVAL '3 months', INTERVAL '1 month')
+) months
+ORDER BY month_start;
+
+INSERT INTO payments_ledger (id, doc_number, doc_role, anchor_type, root_appt_id, so_number, basket_id, doc_type, doc_status,
+                             payment_datetime, method, reference, notes, amount_gross, fee_percent, fee_amount, subtotal,
+                             amount_net, allocated_to_so, lines_json, order_total_so, paid_to_date_so, balance_so,
+                             submitted_by, submitted_at, request_hash, created_at, updated_at)
+SELECT id, doc_number, doc_role, anchor_type, root_appt_id, so_number, basket_id, doc_type, doc_status,
+       payment_datetime, method, reference, notes, amount_gross, fee_percent, fee_amount, subtotal,
+       amount_net, allocated_to_so, lines_json, order_total_so, paid_to_date_so, balance_so,
+       submitted_by, submitted_at, request_hash, created_at, updated_at
+FROM payments_ledger_unpartitioned;
+
+DROP TABLE payments_ledger_unpartitioned;
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_payments_ledger_doc_number ON payments_ledger (doc_number, payment_datetime);
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_payment_datetime ON payments_ledger (payment_datetime);
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_so_keyset
+    ON payments_ledger (so_number, (COALESCE(payment_datetime, submitted_at)), id);
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_root_keyset
+    ON payments_ledger (root_appt_id, (COALESCE(payment_datetime, submitted_at)), id);
+CREATE INDEX IF NOT EXISTS idx_payments_ledger_anchor_key
+    ON payments_ledger ((COALESCE(NULLIF(so_number, ''), root_appt_id)));
+
+CREATE TABLE IF NOT EXISTS payments_ledger_keys (
+    doc_number TEXT PRIMARY KEY,
+    anchor_type TEXT NOT NULL,
+    request_hash TEXT,
+    payment_datetime TIMESTAMPTZ NOT NULL
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_payments_ledger_keys_anchor_hash
+    ON payments_ledger_keys (anchor_type, request_hash) WHERE request_hash IS NOT NULL;
+
+INSERT INTO payments_ledger_keys (doc_number, anchor_type, request_hash, payment_datetime)
+SELECT doc_number, anchor_type, request_hash, payment_datetime FROM payments_ledger;
+
+CREATE OR REPLACE FUNCTION payments_ledger_keys_on_insert() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO payments_ledger_keys (doc_number, anchor_type, request_hash, payment_datetime)
+    SELECT doc_number, anchor_type, request_hash, payment_datetime FROM new_rows;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_keys_on_update() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM payments_ledger_keys k
+    USING old_rows o
+    JOIN new_rows n ON n.id = o.id
+    WHERE k.doc_number = o.doc_number
+      AND (o.doc_number, o.anchor_type, o.request_hash, o.payment_datetime)
+          IS DISTINCT FROM (n.doc_number, n.anchor_type, n.request_hash, n.payment_datetime);
+
+    INSERT INTO payments_ledger_keys (doc_number, anchor_type, request_hash, payment_datetime)
+    SELECT n.doc_number, n.anchor_type, n.request_hash, n.payment_datetime
+    FROM new_rows n
+    JOIN old_rows o ON o.id = n.id
+    WHERE (o.doc_number, o.anchor_type, o.request_hash, o.payment_datetime)
+          IS DISTINCT FROM (n.doc_number, n.anchor_type, n.request_hash, n.payment_datetime);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_keys_on_delete() RETURNS TRIGGER AS $$
+BEGIN
+    DELETE FROM payments_ledger_keys k USING old_rows o WHERE k.doc_number = o.doc_number;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION payments_ledger_keys_on_truncate() RETURNS TRIGGER AS $$
+BEGIN
+    TRUNCATE TABLE payments_ledger_keys;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_payments_ledger_keys_insert
+    AFTER INSERT ON payments_ledger
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_keys_on_insert();
+
+CREATE TRIGGER trg_payments_ledger_keys_update
+    AFTER UPDATE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_keys_on_update();
+
+CREATE TRIGGER trg_payments_ledger_keys_delete
+    AFTER DELETE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_keys_on_delete();
+
+CREATE TRIGGER trg_payments_ledger_keys_truncate
+    AFTER TRUNCATE ON payments_ledger
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_keys_on_truncate();
+
+CREATE TRIGGER trg_payments_ledger_balance_insert
+    AFTER INSERT ON payments_ledger
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_insert();
+
+CREATE TRIGGER trg_payments_ledger_balance_update
+    AFTER UPDATE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_update();
+
+CREATE TRIGGER trg_payments_ledger_balance_delete
+    AFTER DELETE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_delete();
+
+CREATE TRIGGER trg_payments_ledger_balance_truncate
+    AFTER TRUNCATE ON payments_ledger
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_balance_on_truncate();
+
+CREATE TRIGGER trg_payments_ledger_idempotency_update
+    AFTER UPDATE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_idempotency_on_update();
+
+CREATE TRIGGER trg_payments_ledger_idempotency_delete
+    AFTER DELETE ON payments_ledger
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_idempotency_on_delete();
+
+CREATE TRIGGER trg_payments_ledger_idempotency_truncate
+    AFTER TRUNCATE ON payments_ledger
+    FOR EACH STATEMENT EXECUTE FUNCTION payments_ledger_idempotency_on_truncate();
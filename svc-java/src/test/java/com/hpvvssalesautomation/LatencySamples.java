@@ -0,0 +1,67 @@
+package com.hpvvssalesautomation;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+public class LatencySamples {
+
+    private final String label;
+    private final long[] nanos;
+    private int size;
+
+    public LatencySamples(String label, int capacity) {
+        this.label = label;
+        this.nanos = new long[capacity];
+    }
+
+    public void record(long elapsedNanos) {
+        nanos[size++] = elapsedNanos;
+    }
+
+    public <T> T time(ThrowingSupplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(label + " sample failed", e);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public double p50Millis() {
+        return percentileMillis(0.50);
+    }
+
+    public double p99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    public double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0d;
+        }
+        long[] sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))] / 1_000_000d;
+    }
+
+    public double totalMillis() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += nanos[i];
+        }
+        return total / 1_000_000d;
+    }
+
+    public String summary() {
+        return String.format(Locale.US, "%s: n=%d p50=%.3fms p99=%.3fms total=%.1fms",
+                label, size, p50Millis(), p99Millis(), totalMillis());
+    }
+
+    @FunctionalInterface
+    public interface ThrowingSupplier<T> {
+        T get() throws Exception;
+    }
+}
@@ -0,0 +1,187 @@
+package com.hpvvssalesautomation;
+
+import com.hpvvssalesautomation.adapters.DiamondsAdapter;
+import com.hpvvssalesautomation.adapters.SheetsAdapter;
+import com.hpvvssalesautomation.domain.AppointmentSummaryRequest;
+import com.hpvvssalesautomation.domain.DashboardService;
+import com.hpvvssalesautomation.domain.ReportsBaseRefresher;
+import com.hpvvssalesautomation.domain.ReportsService;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsOrderStatus;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the hot read and update paths against a synthetic dataset, records the statements they issue with their bind
+ * values and asserts on the EXPLAIN output of each, so a query edit that stops matching an index fails here.
+ */
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+@Import(StatementRecorder.RecordingConfiguration.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTests extends AbstractIntegrationTest {
+
+    private static final int MASTER_ROWS = 60_000;
+    private static final int DIAMOND_ROOTS = 20_000;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @Autowired
+    private ReportsService reportsService;
+
+    @Autowired
+    private ReportsBaseRefresher reportsBaseRefresher;
+
+    @Autowired
+    private SheetsAdapter sheetsAdapter;
+
+    @Autowired
+    private DiamondsAdapter diamondsAdapter;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @BeforeAll
+    void seed() {
+        deleteSeededRows();
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, so_number, customer_name, brand, assigned_rep, assisted_rep, " +
+                        "sales_stage, conversion_status, production_deadline, three_d_deadline) " +
+                        "SELECT DATE '2023-01-01' + (i % 730), 'HP-PLAN-' || i, 'SO-PLAN-' || i, 'Plan Customer ' || i, " +
+                        "'Brand-' || (i % 50), 'Rep ' || (i % 80), 'Helper ' || (i % 90), " +
+                        "CASE WHEN i % 100 = 0 THEN 'Deposit' ELSE (ARRAY['Lead', 'Consult', 'Production', 'Order Completed'])[1 + i % 4] END, " +
+                        "'Won', DATE '2023-02-01' + (i % 700), DATE '2023-01-15' + (i % 700) " +
+                        "FROM generate_series(1, :rows) AS i",
+                new MapSqlParameterSource("rows", MASTER_ROWS)
+        );
+        jdbcTemplate.update(
+                "INSERT INTO diamonds_stones (root_appt_id, stone_reference, stone_type, stone_status_code, order_status_code, ordered_by) " +
+                        "SELECT 'HP-PLAN-' || r, 'STONE-' || r || '-' || s, 'Lab', " +
+                        "(ARRAY[3, 4, 5, NULL, 6]::SMALLINT[])[1 + s], " +
+                        "(ARRAY[1, 3, 4, 2, 4]::SMALLINT[])[1 + s], " +
+                        "'Buyer ' || (r % 40) " +
+                        "FROM generate_series(1, :roots) AS r, generate_series(0, 4) AS s",
+                new MapSqlParameterSource("roots", DIAMOND_ROOTS)
+        );
+        reportsBaseRefresher.refresh();
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        deleteSeededRows();
+    }
+
+    @Test
+    void reportFiltersUseExpressionIndexes() {
+        List<String> byBrand = plans("FROM reports_base m", () -> reportsService.byStatus("brand:brand-7", null, null, true));
+        assertIndexScans(byBrand, "reports_base");
+        assertIndexCondition(byBrand, "brand");
+
+        List<String> byRep = plans("FROM reports_base m", () -> reportsService.byRep("rep:rep 13", null, null, true));
+        assertIndexScans(byRep, "reports_base");
+        assertIndexCondition(byRep, "assigned_rep");
+
+        List<String> byStage = plans("FROM reports_base m", () -> reportsService.byStatus("status:deposit", null, null, true));
+        assertIndexScans(byStage, "reports_base");
+        assertIndexCondition(byStage, "sales_stage");
+    }
+
+    @Test
+    void appointmentSummaryFiltersUseExpressionIndexes() {
+        AppointmentSummaryRequest byBrand = new AppointmentSummaryRequest();
+        byBrand.setBrand("BRAND-7");
+        List<String> brandPlans = plans("FROM master", () -> sheetsAdapter.fetchMasterRows(byBrand, Optional.empty(), Optional.empty()));
+        assertIndexScans(brandPlans, "master");
+        assertIndexCondition(brandPlans, "brand");
+
+        AppointmentSummaryRequest byRep = new AppointmentSummaryRequest();
+        byRep.setRep("Rep 13");
+        List<String> repPlans = plans("FROM master", () -> sheetsAdapter.fetchMasterRows(byRep, Optional.empty(), Optional.empty()));
+        assertIndexScans(repPlans, "master");
+        assertIndexCondition(repPlans, "assigned_rep");
+        assertIndexCondition(repPlans, "assisted_rep");
+    }
+
+    @Test
+    void diamondsStatusUpdatesUseCodeIndexes() {
+        ZonedDateTime now = ZonedDateTime.now();
+        List<String> approvals = plans("diamonds_stones",
+                () -> diamondsAdapter.applyOrderDecisions(List.of(
+                        new DiamondsAdapter.OrderDecision("HP-PLAN-11", "On the way", "Plan Tester", LocalDate.parse("2024-07-01"))), now));
+        assertIndexScans(approvals, "diamonds_stones");
+        assertCodeCondition(approvals, "order_status_code");
+
+        List<String> deliveries = plans("diamonds_stones",
+                () -> diamondsAdapter.confirmDelivery("HP-PLAN-12", LocalDate.parse("2024-07-02"), LocalDate.parse("2024-07-30"), now));
+        assertIndexScans(deliveries, "diamonds_stones");
+        assertCodeCondition(deliveries, "order_status_code");
+
+        assertIndexScans(plans("diamonds_summary_100", () -> diamondsAdapter.readCounts("HP-PLAN-13")), "diamonds_summary_100");
+    }
+
+    @Test
+    void diamondsStoneQueueUsesPartialIndex() {
+        DiamondsAdapter.StoneFilter queue = new DiamondsAdapter.StoneFilter(DiamondsOrderStatus.ON_THE_WAY, null, null, "buyer 7", null, null, null, null);
+        List<String> queuePlans = plans("FROM diamonds_stones", () -> diamondsAdapter.findStones(queue, null, 51));
+        assertIndexScans(queuePlans, "diamonds_stones");
+        assertThat(queuePlans).anyMatch(plan -> plan.contains("idx_diamonds_stones_on_the_way_by_buyer"));
+        assertIndexCondition(queuePlans, "ordered_by");
+    }
+
+    @Test
+    void dashboardKpisReadRangesThroughIndexes() {
+        assertIndexScans(plans("dashboard_kpi_cube", () -> dashboardService.fetchKpis("2023-06-01", "2023-06-30")), "dashboard_kpi_cube");
+        assertIndexScans(plans("FROM master", () -> dashboardService.fetchKpis("2023-06-01", "2023-06-30")), "master");
+    }
+
+    private void deleteSeededRows() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM diamonds_stones WHERE root_appt_id LIKE 'HP-PLAN-%'");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM diamonds_summary_100 WHERE root_appt_id LIKE 'HP-PLAN-%'");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master WHERE root_appt_id LIKE 'HP-PLAN-%'");
+    }
+
+    private List<String> plans(String sqlFragment, Runnable action) {
+        List<String> plans = recorder.record(action).stream()
+                .filter(statement -> statement.sql().contains(sqlFragment))
+                .map(statement -> statement.explain(jdbcTemplate.getJdbcTemplate()))
+                .toList();
+        assertThat(plans).as("statements containing %s", sqlFragment).isNotEmpty();
+        return plans;
+    }
+
+    private static void assertIndexScans(List<String> plans, String table) {
+        assertThat(plans).allSatisfy(plan -> assertThat(plan)
+                .as(plan)
+                .doesNotContain("Seq Scan on " + table + " ")
+                .containsPattern("(Index (Only )?Scan using \\S+|Bitmap Heap Scan) on " + table + " "));
+    }
+
+    private static void assertIndexCondition(List<String> plans, String column) {
+        assertThat(plans).anySatisfy(plan -> assertThat(plan)
+                .as(plan)
+                .containsPattern("Index Cond: .*lower\\((\\w+\\.)?" + column + "\\)"));
+    }
+
+    private static void assertCodeCondition(List<String> plans, String column) {
+        assertThat(plans).anySatisfy(plan -> assertThat(plan)
+                .as(plan)
+                .containsPattern("Index Cond: .*\\((\\w+\\.)?" + column + " = \\d+\\)"));
+    }
+}
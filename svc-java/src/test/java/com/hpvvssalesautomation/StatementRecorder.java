@@ -0,0 +1,139 @@
+package com.hpvvssalesautomation;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Wraps the application DataSource so prepared statements, with the setter calls that bind them, can be
+ * captured while {@link #record(Runnable)} runs and replayed under EXPLAIN. Tests pull it in with
+ * {@code @Import(StatementRecorder.RecordingConfiguration.class)}.
+ */
+public class StatementRecorder implements BeanPostProcessor {
+
+    private final List<CapturedStatement> statements = new CopyOnWriteArrayList<>();
+    private volatile boolean recording;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource) {
+            return new RecordingDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    public List<CapturedStatement> record(Runnable action) {
+        statements.clear();
+        recording = true;
+        try {
+            action.run();
+        } finally {
+            recording = false;
+        }
+        return List.copyOf(statements);
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (recording && method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement) {
+                        return wrap(statement, (String) args[0]);
+                    }
+                    return result;
+                });
+    }
+
+    private PreparedStatement wrap(PreparedStatement statement, String sql) {
+        List<Bind> binds = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        binds.add(new Bind(method, args.clone()));
+                    } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                        statements.add(new CapturedStatement(sql, List.copyOf(binds)));
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public record CapturedStatement(String sql, List<Bind> binds) {
+
+        /**
+         * Runs EXPLAIN on the captured SQL with its original bind values and returns the plan text.
+         */
+        public String explain(JdbcTemplate jdbcTemplate) {
+            return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+                try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+                    for (Bind bind : binds) {
+                        try {
+                            bind.method().invoke(explain, bind.args());
+                        } catch (ReflectiveOperationException e) {
+                            throw new SQLException("Could not replay " + bind.method().getName(), e);
+                        }
+                    }
+                    StringBuilder plan = new StringBuilder();
+                    try (ResultSet rs = explain.executeQuery()) {
+                        while (rs.next()) {
+                            plan.append(rs.getString(1)).append('\n');
+                        }
+                    }
+                    return plan.toString();
+                }
+            });
+        }
+    }
+
+    public record Bind(Method method, Object[] args) {
+    }
+
+    @TestConfiguration
+    public static class RecordingConfiguration {
+
+        @Bean
+        static StatementRecorder statementRecorder() {
+            return new StatementRecorder();
+        }
+    }
+
+    private final class RecordingDataSource extends DelegatingDataSource {
+
+        private RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return wrap(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return wrap(super.getConnection(username, password));
+        }
+    }
+}
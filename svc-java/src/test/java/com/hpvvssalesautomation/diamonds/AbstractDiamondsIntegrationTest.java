@@ -36,7 +36,7 @@ abstract class AbstractDiamondsIntegrationTest extends AbstractIntegrationTest {
     @BeforeEach
     void truncatePhaseThreeTables() {
         jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_summary_100 RESTART IDENTITY");
-        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_orders_200 RESTART IDENTITY");
+        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_stones RESTART IDENTITY");
     }
 
     protected void loadDiamondsFixture() {
@@ -20,7 +20,8 @@ class ApiContractTests {
         assertThat(openAPI.getPaths()).containsKeys(
                 "/diamonds/order-approvals",
                 "/diamonds/confirm-delivery",
-                "/diamonds/stone-decisions"
+                "/diamonds/stone-decisions",
+                "/diamonds/stones"
         );
 
         assertThat(openAPI.getComponents().getSchemas()).containsKeys(
@@ -31,7 +32,9 @@ class ApiContractTests {
                 "DiamondsStoneDecisionsRequest",
                 "DiamondsStoneDecisionItem",
                 "DiamondsActionResponse",
-                "DiamondsActionResult"
+                "DiamondsActionResult",
+                "DiamondsStonesResponse",
+                "DiamondsStone"
         );
 
         List<String> approvalsRequired = openAPI.getComponents().getSchemas()
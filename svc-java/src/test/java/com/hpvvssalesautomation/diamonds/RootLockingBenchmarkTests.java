@@ -0,0 +1,178 @@
+package com.hpvvssalesautomation.diamonds;
+
+import com.hpvvssalesautomation.domain.diamonds.DiamondsActionResponse;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsCounts;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStoneDecisionItem;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStoneDecisionsRequest;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsSummaryResolver;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsSummaryVerifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+class RootLockingBenchmarkTests extends AbstractDiamondsIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RootLockingBenchmarkTests.class);
+
+    private static final int ROOTS = 64;
+    private static final int STONES_PER_ROOT = 4;
+    private static final int THREADS = 8;
+    private static final int BATCHES_PER_THREAD = 40;
+    private static final List<String> DECISIONS = List.of("Keep", "Return", "Replace");
+
+    @Autowired
+    private DiamondsSummaryVerifier verifier;
+
+    @BeforeEach
+    void seedRoots() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master WHERE root_appt_id LIKE 'HP-STRESS-%'");
+        jdbcTemplate.update(
+                "INSERT INTO master (root_appt_id, customer_name) " +
+                        "SELECT 'HP-STRESS-' || r, 'Stress Customer ' || r FROM generate_series(0, :roots - 1) AS r",
+                new MapSqlParameterSource("roots", ROOTS)
+        );
+        jdbcTemplate.update(
+                "INSERT INTO diamonds_orders_200 (root_appt_id, stone_reference, stone_type, order_status, stone_status) " +
+                        "SELECT 'HP-STRESS-' || r, 'STRESS-' || r || '-' || s, 'Lab', 'Delivered', 'In Stock' " +
+                        "FROM generate_series(0, :roots - 1) AS r, generate_series(1, :stones) AS s",
+                new MapSqlParameterSource().addValue("roots", ROOTS).addValue("stones", STONES_PER_ROOT)
+        );
+    }
+
+    @AfterEach
+    void removeRoots() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master WHERE root_appt_id LIKE 'HP-STRESS-%'");
+    }
+
+    @Test
+    void concurrentBatchesKeepSummariesConsistent() throws Exception {
+        int batches = THREADS * BATCHES_PER_THREAD;
+        IntFunction<Runnable> roundRobin = worker -> {
+            int[] next = {0};
+            return () -> decide(List.of(root(next[0]++ % ROOTS)), DECISIONS.get(next[0] % DECISIONS.size()));
+        };
+        run(1, batches, roundRobin);
+        long serialNanos = run(1, batches, roundRobin);
+
+        // Each worker owns the roots congruent to its index, so no two batches ever share a root.
+        long disjointNanos = run(THREADS, BATCHES_PER_THREAD, worker -> {
+            int[] next = {0};
+            return () -> decide(List.of(root(worker + THREADS * (next[0]++ % (ROOTS / THREADS)))), DECISIONS.get(next[0] % DECISIONS.size()));
+        });
+
+        // Every batch touches the two hot roots plus a random one, listed in random order.
+        long contendedNanos = run(THREADS, BATCHES_PER_THREAD, worker -> {
+            Random random = new Random(worker);
+            return () -> {
+                List<String> roots = new ArrayList<>(List.of(root(0), root(1), root(2 + random.nextInt(ROOTS - 2))));
+                Collections.shuffle(roots, random);
+                decide(roots, DECISIONS.get(random.nextInt(DECISIONS.size())));
+            };
+        });
+
+        double serialRate = batches / (serialNanos / 1e9);
+        double disjointRate = batches / (disjointNanos / 1e9);
+        double contendedRate = batches / (contendedNanos / 1e9);
+        log.info(String.format(Locale.US,
+                "stone decision batches/s serial=%.0f disjoint(%d threads)=%.0f contended(%d threads)=%.0f",
+                serialRate, THREADS, disjointRate, THREADS, contendedRate));
+
+        for (int i = 0; i < ROOTS; i++) {
+            String rootApptId = root(i);
+            Map<String, Object> actual = fetchCounts(rootApptId);
+            Map<String, Object> summary = fetchSummary(rootApptId);
+            for (String column : actual.keySet()) {
+                assertThat(summary.get(column)).as("%s of %s", column, rootApptId).isEqualTo(actual.get(column));
+            }
+            String expectedLabel = DiamondsSummaryResolver.resolve(toCounts(rootApptId, actual));
+            assertThat(summary.get("center_stone_order_status")).as("label of %s", rootApptId).isEqualTo(expectedLabel);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT center_stone_order_status FROM master WHERE root_appt_id = :root_appt_id",
+                    new MapSqlParameterSource("root_appt_id", rootApptId),
+                    String.class
+            )).as("master label of %s", rootApptId).isEqualTo(expectedLabel);
+            assertThat(jdbcTemplate.queryForObject(
+                    "SELECT COUNT(DISTINCT stone_status) FROM diamonds_orders_200 WHERE root_appt_id = :root_appt_id",
+                    new MapSqlParameterSource("root_appt_id", rootApptId),
+                    Integer.class
+            )).as("stone statuses of %s", rootApptId).isEqualTo(1);
+        }
+        assertThat(verifier.verify()).isZero();
+    }
+
+    private long run(int threads, int batchesPerThread, IntFunction<Runnable> workerFactory) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                Runnable batch = workerFactory.apply(worker);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < batchesPerThread; i++) {
+                        batch.run();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return System.nanoTime() - start;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void decide(List<String> rootApptIds, String decision) {
+        List<DiamondsStoneDecisionItem> items = new ArrayList<>();
+        for (String rootApptId : rootApptIds) {
+            DiamondsStoneDecisionItem item = new DiamondsStoneDecisionItem();
+            item.setRootApptId(rootApptId);
+            item.setDecision(decision);
+            item.setDecidedBy("Stress Buyer");
+            items.add(item);
+        }
+        DiamondsStoneDecisionsRequest request = new DiamondsStoneDecisionsRequest();
+        request.setItems(items);
+        ResponseEntity<DiamondsActionResponse> response = restTemplate.postForEntity("/diamonds/stone-decisions", request, DiamondsActionResponse.class);
+        assertThat(response.getStatusCode().is2xxSuccessful()).as("decision for %s", rootApptIds).isTrue();
+    }
+
+    private static String root(int index) {
+        return "HP-STRESS-" + index;
+    }
+
+    private static DiamondsCounts toCounts(String rootApptId, Map<String, Object> counts) {
+        return new DiamondsCounts(
+                rootApptId,
+                (Integer) counts.get("total_count"),
+                (Integer) counts.get("proposing_count"),
+                (Integer) counts.get("not_approved_count"),
+                (Integer) counts.get("on_the_way_count"),
+                (Integer) counts.get("delivered_count"),
+                (Integer) counts.get("in_stock_count"),
+                (Integer) counts.get("keep_count"),
+                (Integer) counts.get("return_count"),
+                (Integer) counts.get("replace_count")
+        );
+    }
+}
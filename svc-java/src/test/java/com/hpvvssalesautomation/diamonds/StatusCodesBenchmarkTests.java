@@ -0,0 +1,100 @@
+package com.hpvvssalesautomation.diamonds;
+
+import com.hpvvssalesautomation.LatencySamples;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the counter recount over 1M stones as stored before and after status codes: LOWER(text) filters over a
+ * scratch copy of the old text columns against integer filters over diamonds_stones.
+ */
+@Tag("benchmark")
+class StatusCodesBenchmarkTests extends AbstractDiamondsIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusCodesBenchmarkTests.class);
+
+    private static final int ROOTS = 200_000;
+    private static final int ITERATIONS = 15;
+
+    private static final String TEXT_RECOUNT =
+            "SELECT COUNT(*) AS total_count, " +
+                    "COUNT(*) FILTER (WHERE lower(order_status) = 'proposing') AS proposing_count, " +
+                    "COUNT(*) FILTER (WHERE lower(order_status) = 'not approved') AS not_approved_count, " +
+                    "COUNT(*) FILTER (WHERE lower(order_status) = 'on the way') AS on_the_way_count, " +
+                    "COUNT(*) FILTER (WHERE lower(order_status) = 'delivered') AS delivered_count, " +
+                    "COUNT(*) FILTER (WHERE lower(stone_status) = 'in stock') AS in_stock_count, " +
+                    "COUNT(*) FILTER (WHERE lower(stone_status) = 'keep') AS keep_count, " +
+                    "COUNT(*) FILTER (WHERE lower(stone_status) = 'return') AS return_count, " +
+                    "COUNT(*) FILTER (WHERE lower(stone_status) = 'replace') AS replace_count " +
+                    "FROM diamonds_status_text_bench";
+
+    private static final String CODE_RECOUNT =
+            "SELECT COUNT(*) AS total_count, " +
+                    "COUNT(*) FILTER (WHERE order_status_code = 1) AS proposing_count, " +
+                    "COUNT(*) FILTER (WHERE order_status_code = 2) AS not_approved_count, " +
+                    "COUNT(*) FILTER (WHERE order_status_code = 3) AS on_the_way_count, " +
+                    "COUNT(*) FILTER (WHERE order_status_code = 4) AS delivered_count, " +
+                    "COUNT(*) FILTER (WHERE stone_status_code = 3) AS in_stock_count, " +
+                    "COUNT(*) FILTER (WHERE stone_status_code = 4) AS keep_count, " +
+                    "COUNT(*) FILTER (WHERE stone_status_code = 5) AS return_count, " +
+                    "COUNT(*) FILTER (WHERE stone_status_code = 6) AS replace_count " +
+                    "FROM diamonds_stones";
+
+    @BeforeEach
+    void seedMillionStones() {
+        jdbcTemplate.update(
+                "INSERT INTO diamonds_stones (root_appt_id, stone_reference, stone_type, order_status_code, stone_status_code) " +
+                        "SELECT 'HP-CODES-' || r, 'CODES-' || r || '-' || s, 'Lab', " +
+                        "(ARRAY[1, 3, 4, 2, 4]::SMALLINT[])[1 + (r + s) % 5], " +
+                        "(ARRAY[3, 4, 5, 6, 2]::SMALLINT[])[1 + (r * 7 + s) % 5] " +
+                        "FROM generate_series(1, :roots) AS r, generate_series(0, 4) AS s",
+                new MapSqlParameterSource("roots", ROOTS)
+        );
+        jdbcTemplate.getJdbcTemplate().execute("DROP TABLE IF EXISTS diamonds_status_text_bench");
+        jdbcTemplate.getJdbcTemplate().execute(
+                "CREATE TABLE diamonds_status_text_bench AS " +
+                        "SELECT id, root_appt_id, stone_reference, stone_type, stone_status, order_status FROM diamonds_orders_200");
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE diamonds_stones");
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE diamonds_status_text_bench");
+    }
+
+    @AfterEach
+    void dropStones() {
+        jdbcTemplate.getJdbcTemplate().execute("DROP TABLE IF EXISTS diamonds_status_text_bench");
+        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_summary_100, diamonds_stones RESTART IDENTITY");
+    }
+
+    @Test
+    void integerCodeRecountMatchesLowerTextRecount() {
+        Map<String, Object> expected = recount(TEXT_RECOUNT);
+        assertThat(recount(CODE_RECOUNT)).isEqualTo(expected);
+        assertThat(expected.get("total_count")).isEqualTo((long) ROOTS * 5);
+        recount(TEXT_RECOUNT);
+        recount(CODE_RECOUNT);
+
+        LatencySamples text = new LatencySamples("status recount lower(text)", ITERATIONS);
+        LatencySamples codes = new LatencySamples("status recount smallint codes", ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            text.time(() -> recount(TEXT_RECOUNT));
+            codes.time(() -> recount(CODE_RECOUNT));
+        }
+
+        log.info(text.summary());
+        log.info(codes.summary());
+        log.info(String.format(Locale.US, "status recount speedup p50=%.2fx", text.p50Millis() / codes.p50Millis()));
+    }
+
+    private Map<String, Object> recount(String sql) {
+        return jdbcTemplate.queryForMap(sql, new MapSqlParameterSource());
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.http.ResponseEntity;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -66,4 +67,61 @@ class StoneDecisionTests extends AbstractDiamondsIntegrationTest {
         Map<String, Object> replaceSummary = fetchSummary("HP-1004");
         assertThat((Integer) replaceSummary.get("replace_count")).isEqualTo(1);
     }
+
+    @Test
+    void repeatedRootsFoldIntoOneDecisionPerRoot() {
+        List<DiamondsStoneDecisionItem> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            DiamondsStoneDecisionItem item = new DiamondsStoneDecisionItem();
+            item.setRootApptId("HP-1002");
+            item.setDecision(i == 19 ? "Return" : "Keep");
+            if (i == 0) {
+                item.setDecidedBy("Alex Harper");
+            }
+            item.setDecidedDate("2025-02-" + String.format("%02d", i + 1));
+            items.add(item);
+        }
+
+        DiamondsStoneDecisionsRequest request = new DiamondsStoneDecisionsRequest();
+        request.setItems(items);
+        request.setApplyDefaultsToAll(false);
+
+        ResponseEntity<DiamondsActionResponse> response = restTemplate.postForEntity(
+                "/diamonds/stone-decisions",
+                request,
+                DiamondsActionResponse.class
+        );
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getBody().results()).singleElement().satisfies(result -> {
+            assertThat(result.rootApptId()).isEqualTo("HP-1002");
+            assertThat(result.affectedRows()).isEqualTo(1);
+            assertThat(result.centerStoneOrderStatus()).isEqualTo("Return Pending");
+        });
+
+        Map<String, Object> row = fetchOrderByStone("CST-002");
+        assertThat(row.get("stone_status")).isEqualTo("Return");
+        assertThat(row.get("decided_by")).isEqualTo("Alex Harper");
+        assertThat(((Date) row.get("decided_date")).toLocalDate()).isEqualTo(LocalDate.parse("2025-02-20"));
+        assertThat((Integer) fetchSummary("HP-1002").get("return_count")).isEqualTo(1);
+    }
+
+    @Test
+    void invalidItemRejectsTheWholeRequest() {
+        DiamondsStoneDecisionItem valid = new DiamondsStoneDecisionItem();
+        valid.setRootApptId("HP-1002");
+        valid.setDecision("Keep");
+
+        DiamondsStoneDecisionItem invalid = new DiamondsStoneDecisionItem();
+        invalid.setRootApptId("HP-1004");
+        invalid.setDecision("Melt");
+
+        DiamondsStoneDecisionsRequest request = new DiamondsStoneDecisionsRequest();
+        request.setItems(List.of(valid, invalid));
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/diamonds/stone-decisions", request, String.class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isFalse();
+        assertThat(fetchOrderByStone("CST-002").get("stone_status")).isEqualTo("In Stock");
+    }
 }
@@ -0,0 +1,71 @@
+package com.hpvvssalesautomation.diamonds;
+
+import com.hpvvssalesautomation.LatencySamples;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStonesResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+class StonesQueryBenchmarkTests extends AbstractDiamondsIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StonesQueryBenchmarkTests.class);
+
+    private static final int ROOTS = 200_000;
+    private static final int BUYERS = 50;
+    private static final int ITERATIONS = 200;
+
+    @BeforeEach
+    void seedMillionStones() {
+        jdbcTemplate.update(
+                "INSERT INTO diamonds_stones (root_appt_id, stone_reference, stone_type, order_status_code, stone_status_code, ordered_by, ordered_date, return_due_date) " +
+                        "SELECT 'HP-BENCH-' || r, 'BENCH-' || r || '-' || s, (ARRAY['Center', 'DV', 'Side', 'Melee', 'Lab'])[1 + s], " +
+                        "(ARRAY[1, 3, 4, 2, 4]::SMALLINT[])[1 + (r + s) % 5], " +
+                        "(ARRAY[1, 2, 3, 4, 5]::SMALLINT[])[1 + (r + s) % 5], " +
+                        "'Buyer ' || (r % :buyers), DATE '2024-01-01' + (r % 365), DATE '2024-02-01' + (r % 365) " +
+                        "FROM generate_series(1, :roots) AS r, generate_series(0, 4) AS s",
+                new MapSqlParameterSource().addValue("roots", ROOTS).addValue("buyers", BUYERS)
+        );
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE diamonds_stones");
+    }
+
+    @AfterEach
+    void dropStones() {
+        jdbcTemplate.getJdbcTemplate().execute("TRUNCATE TABLE diamonds_summary_100, diamonds_stones RESTART IDENTITY");
+    }
+
+    @Test
+    void buyerOnTheWayQueueServesPagesUnderFiftyMillis() {
+        for (int i = 0; i < 20; i++) {
+            restTemplate.getForObject(queueUrl(i % BUYERS, null), DiamondsStonesResponse.class);
+        }
+
+        LatencySamples firstPages = new LatencySamples("on the way queue first page", ITERATIONS);
+        LatencySamples laterPages = new LatencySamples("on the way queue next page", ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String firstUrl = queueUrl(i % BUYERS, null);
+            DiamondsStonesResponse first = firstPages.time(() -> restTemplate.getForObject(firstUrl, DiamondsStonesResponse.class));
+            assertThat(first.stones()).hasSize(100);
+            assertThat(first.stones()).allSatisfy(stone -> assertThat(stone.orderStatus()).isEqualTo("On the Way"));
+
+            String next = queueUrl(i % BUYERS, first.nextCursor());
+            DiamondsStonesResponse second = laterPages.time(() -> restTemplate.getForObject(next, DiamondsStonesResponse.class));
+            assertThat(second.stones().get(0).id()).isGreaterThan(first.stones().get(99).id());
+        }
+
+        log.info(firstPages.summary());
+        log.info(laterPages.summary());
+        assertThat(firstPages.p50Millis()).isLessThan(50d);
+        assertThat(laterPages.p50Millis()).isLessThan(50d);
+    }
+
+    private static String queueUrl(int buyer, String cursor) {
+        return "/diamonds/stones?orderStatus=On the Way&orderedBy=buyer " + buyer + "&limit=100" + (cursor == null ? "" : "&cursor=" + cursor);
+    }
+}
@@ -0,0 +1,92 @@
+package com.hpvvssalesautomation.diamonds;
+
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStone;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsStonesResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StonesQueryTests extends AbstractDiamondsIntegrationTest {
+
+    @BeforeEach
+    void loadData() {
+        loadDiamondsFixture();
+    }
+
+    @Test
+    void filtersCombineAndMatchCaseInsensitively() {
+        assertThat(references("/diamonds/stones?orderStatus=on_the_way&orderedBy=alex harper")).containsExactly("DV-001");
+        assertThat(references("/diamonds/stones?stoneType=CENTER")).containsExactly("CST-001", "CST-002", "CST-004");
+        assertThat(references("/diamonds/stones?orderStatus=Proposing&stoneStatus=requested&stoneType=dv")).containsExactly("DV-003");
+        assertThat(references("/diamonds/stones?returnDueFrom=2025-01-01&returnDueTo=2025-01-31")).containsExactly("CST-002");
+        assertThat(references("/diamonds/stones?orderedFrom=2025-01-01")).containsExactly("DV-001");
+        assertThat(references("/diamonds/stones?orderedFrom=2024-12-01&orderedTo=2024-12-31")).containsExactly("CST-002");
+
+        DiamondsStone delivered = restTemplate.getForObject("/diamonds/stones?orderStatus=delivered", DiamondsStonesResponse.class).stones().get(0);
+        assertThat(delivered.rootApptId()).isEqualTo("HP-1002");
+        assertThat(delivered.stoneStatus()).isEqualTo("In Stock");
+        assertThat(delivered.memoInvoiceDate()).isEqualTo(LocalDate.parse("2025-01-10"));
+        assertThat(delivered.decidedBy()).isEqualTo("Jamie Lee");
+    }
+
+    @Test
+    void cursorWalksTheQueueWithoutGapsOrRepeats() {
+        jdbcTemplate.update(
+                "INSERT INTO diamonds_orders_200 (root_appt_id, stone_reference, stone_type, order_status, stone_status, ordered_by, ordered_date) " +
+                        "SELECT 'HP-2' || LPAD(i::TEXT, 3, '0'), 'QUEUE-' || i, 'Center', " +
+                        "CASE WHEN i % 5 = 0 THEN 'Delivered' ELSE 'On the Way' END, 'On Memo', " +
+                        "CASE WHEN i % 3 = 0 THEN 'Jamie Lee' ELSE 'Alex Harper' END, DATE '2025-02-01' + i " +
+                        "FROM generate_series(1, 40) AS i",
+                new MapSqlParameterSource()
+        );
+        List<String> expected = jdbcTemplate.queryForList(
+                "SELECT stone_reference FROM diamonds_orders_200 " +
+                        "WHERE lower(order_status) = 'on the way' AND lower(ordered_by) = 'alex harper' ORDER BY id",
+                new MapSqlParameterSource(),
+                String.class
+        );
+
+        List<String> walked = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            String url = "/diamonds/stones?orderStatus=On the Way&orderedBy=Alex Harper&limit=10" + (cursor == null ? "" : "&cursor=" + cursor);
+            DiamondsStonesResponse page = restTemplate.getForObject(url, DiamondsStonesResponse.class);
+            page.stones().forEach(stone -> walked.add(stone.stoneReference()));
+            pageSizes.add(page.stones().size());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(expected).hasSize(22);
+        assertThat(walked).containsExactlyElementsOf(expected);
+        assertThat(pageSizes).containsExactly(10, 10, 2);
+    }
+
+    @Test
+    void rejectsInvalidParameters() {
+        assertThat(status("/diamonds/stones?orderStatus=shipped")).isEqualTo(400);
+        assertThat(status("/diamonds/stones?stoneStatus=lost")).isEqualTo(400);
+        assertThat(status("/diamonds/stones?limit=0")).isEqualTo(400);
+        assertThat(status("/diamonds/stones?limit=1001")).isEqualTo(400);
+        assertThat(status("/diamonds/stones?cursor=not-a-cursor")).isEqualTo(400);
+        assertThat(status("/diamonds/stones?returnDueFrom=soon")).isEqualTo(400);
+    }
+
+    private List<String> references(String url) {
+        ResponseEntity<DiamondsStonesResponse> response = restTemplate.getForEntity(url, DiamondsStonesResponse.class);
+        assertThat(response.getStatusCode().is2xxSuccessful()).as(url).isTrue();
+        assertThat(response.getBody().nextCursor()).isNull();
+        return response.getBody().stones().stream().map(DiamondsStone::stoneReference).toList();
+    }
+
+    private int status(String url) {
+        return restTemplate.getForEntity(url, String.class).getStatusCode().value();
+    }
+}
@@ -0,0 +1,109 @@
+package com.hpvvssalesautomation.diamonds;
+
+import com.hpvvssalesautomation.domain.diamonds.DiamondsActionResponse;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsOrderApprovalItem;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsOrderApprovalsRequest;
+import com.hpvvssalesautomation.domain.diamonds.DiamondsSummaryVerifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SummaryCountersTests extends AbstractDiamondsIntegrationTest {
+
+    private static final List<String> ROOTS = List.of("HP-1001", "HP-1002", "HP-1003", "HP-1004");
+    private static final List<String> COUNTERS = List.of("total_count", "proposing_count", "not_approved_count",
+            "on_the_way_count", "delivered_count", "in_stock_count", "keep_count", "return_count", "replace_count");
+
+    @Autowired
+    private DiamondsSummaryVerifier verifier;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void loadData() {
+        loadDiamondsFixture();
+    }
+
+    @Test
+    void countersFollowInsertsUpdatesAndDeletes() {
+        assertCountersMatchOrders();
+
+        ResponseEntity<DiamondsActionResponse> response = restTemplate.postForEntity(
+                "/diamonds/order-approvals",
+                approve("HP-1001", "On the Way"),
+                DiamondsActionResponse.class
+        );
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertCountersMatchOrders();
+
+        jdbcTemplate.getJdbcTemplate().update("UPDATE diamonds_orders_200 SET root_appt_id = 'HP-1004' WHERE stone_reference = 'DV-001'");
+        jdbcTemplate.getJdbcTemplate().update("UPDATE diamonds_orders_200 SET stone_status = 'KEEP' WHERE stone_reference = 'CST-002'");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM diamonds_orders_200 WHERE stone_reference = 'DV-003'");
+        assertCountersMatchOrders();
+        assertThat((Integer) fetchSummary("HP-1003").get("total_count")).isZero();
+    }
+
+    @Test
+    void unknownStatusLabelsAreRejectedWithoutNewCodes() {
+        Integer codes = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM diamonds_status_codes", Integer.class);
+
+        assertThatThrownBy(() -> jdbcTemplate.getJdbcTemplate()
+                .update("UPDATE diamonds_orders_200 SET stone_status = 'Kept' WHERE stone_reference = 'CST-002'"))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("Unsupported diamonds stone status: Kept");
+
+        assertThat(jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM diamonds_status_codes", Integer.class))
+                .isEqualTo(codes);
+        assertCountersMatchOrders();
+    }
+
+    @Test
+    void verifierRepairsDriftedCountersAndLabels() {
+        restTemplate.postForEntity("/diamonds/order-approvals", approve("HP-1001", "On the Way"), DiamondsActionResponse.class);
+        assertThat(verifier.verify()).isZero();
+
+        jdbcTemplate.getJdbcTemplate().update(
+                "UPDATE diamonds_summary_100 SET proposing_count = 1, on_the_way_count = 1, center_stone_order_status = 'Proposing' " +
+                        "WHERE root_appt_id = 'HP-1001'");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM diamonds_summary_100 WHERE root_appt_id = 'HP-1002'");
+        double driftBefore = meterRegistry.counter("diamonds.summary.drift").count();
+
+        assertThat(verifier.verify()).isEqualTo(2);
+
+        assertCountersMatchOrders();
+        assertThat(fetchSummary("HP-1001").get("center_stone_order_status")).isEqualTo("On the Way");
+        assertThat(fetchSummary("HP-1002").get("center_stone_order_status")).isEqualTo("Delivered");
+        assertThat(meterRegistry.counter("diamonds.summary.drift").count() - driftBefore).isEqualTo(2.0);
+        assertThat(verifier.verify()).isZero();
+    }
+
+    private void assertCountersMatchOrders() {
+        for (String root : ROOTS) {
+            Map<String, Object> summary = fetchSummary(root);
+            Map<String, Object> counters = COUNTERS.stream().collect(Collectors.toMap(column -> column, summary::get));
+            assertThat(counters).as("counters of %s", root).isEqualTo(fetchCounts(root));
+        }
+    }
+
+    private DiamondsOrderApprovalsRequest approve(String rootApptId, String decision) {
+        DiamondsOrderApprovalItem item = new DiamondsOrderApprovalItem();
+        item.setRootApptId(rootApptId);
+        item.setDecision(decision);
+        item.setOrderedBy("Casey Stone");
+        item.setOrderedDate("2025-02-03");
+        DiamondsOrderApprovalsRequest request = new DiamondsOrderApprovalsRequest();
+        request.setItems(List.of(item));
+        return request;
+    }
+}
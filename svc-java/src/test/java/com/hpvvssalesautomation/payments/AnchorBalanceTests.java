@@ -0,0 +1,105 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class AnchorBalanceTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+    }
+
+    @Test
+    void recordingPaymentsMaintainsAnchorBalanceAndLedgerSnapshot() {
+        String so = "SO-BAL-1";
+        restTemplate.postForObject("/payments/record", buildRequest(so, "Sales Invoice", "Check", "2024-07-01T10:00:00-07:00", new BigDecimal("1000.00"), null), PaymentRecordResult.class);
+        PaymentRecordResult card = restTemplate.postForObject("/payments/record", buildRequest(so, "Deposit Receipt", "Card", "2024-07-02T10:00:00-07:00", new BigDecimal("300.00"), new BigDecimal("10.00")), PaymentRecordResult.class);
+        PaymentRecordResult wire = restTemplate.postForObject("/payments/record", buildRequest(so, "Payment Receipt", "Wire", "2024-07-03T10:00:00-07:00", new BigDecimal("200.00"), null), PaymentRecordResult.class);
+        assertThat(card).isNotNull();
+        assertThat(wire).isNotNull();
+
+        Map<String, Object> balance = fetchBalance(so);
+        assertThat((BigDecimal) balance.get("order_total")).isEqualByComparingTo("1000.00");
+        assertThat((BigDecimal) balance.get("paid_to_date")).isEqualByComparingTo("490.00");
+        assertThat((BigDecimal) balance.get("balance")).isEqualByComparingTo("510.00");
+        assertThat(balance.get("receipt_count")).isEqualTo(2);
+        assertThat(balance.get("card_count")).isEqualTo(1);
+        assertThat(balance.get("wire_count")).isEqualTo(1);
+        assertThat(((OffsetDateTime) balance.get("first_payment_at")).toInstant())
+                .isEqualTo(OffsetDateTime.parse("2024-07-02T10:00:00-07:00").toInstant());
+
+        Map<String, Object> snapshot = fetchSnapshot(wire.docNumber());
+        assertThat((BigDecimal) snapshot.get("order_total_so")).isEqualByComparingTo("1000.00");
+        assertThat((BigDecimal) snapshot.get("paid_to_date_so")).isEqualByComparingTo("490.00");
+        assertThat((BigDecimal) snapshot.get("balance_so")).isEqualByComparingTo("510.00");
+
+        jdbcTemplate.update(
+                "UPDATE payments_ledger SET doc_status = 'VOID' WHERE doc_number = :doc",
+                new MapSqlParameterSource("doc", card.docNumber())
+        );
+        Map<String, Object> afterVoid = fetchBalance(so);
+        assertThat((BigDecimal) afterVoid.get("paid_to_date")).isEqualByComparingTo("200.00");
+        assertThat(afterVoid.get("card_count")).isEqualTo(0);
+        Map<String, Object> voided = fetchSnapshot(card.docNumber());
+        assertThat((BigDecimal) voided.get("paid_to_date_so")).isEqualByComparingTo("200.00");
+        assertThat((BigDecimal) voided.get("balance_so")).isEqualByComparingTo("800.00");
+
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        Integer remaining = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM payments_anchor_balance", Integer.class);
+        assertThat(remaining).isZero();
+    }
+
+    private Map<String, Object> fetchBalance(String anchorKey) {
+        return jdbcTemplate.queryForMap(
+                "SELECT order_total, paid_to_date, balance, first_payment_at, receipt_count, card_count, wire_count " +
+                        "FROM payments_anchor_balance WHERE anchor_key = :anchor_key",
+                new MapSqlParameterSource("anchor_key", anchorKey)
+        );
+    }
+
+    private Map<String, Object> fetchSnapshot(String docNumber) {
+        return jdbcTemplate.queryForMap(
+                "SELECT order_total_so, paid_to_date_so, balance_so FROM payments_ledger WHERE doc_number = :doc",
+                new MapSqlParameterSource("doc", docNumber)
+        );
+    }
+
+    private PaymentRecordRequest buildRequest(String so, String docType, String method, String paymentDateTime, BigDecimal amount, BigDecimal fee) {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setSoNumber(so);
+        request.setRootApptId("HP-BAL-1");
+        request.setDocType(docType);
+        request.setPaymentDateTime(paymentDateTime);
+        request.setAmountGross(amount);
+        request.setFeeAmount(fee);
+        request.setMethod(method);
+        request.setReference(docType + "-" + method);
+
+        PaymentRecordRequest.PaymentRecordRequestLine line = new PaymentRecordRequest.PaymentRecordRequestLine();
+        line.setDesc(docType);
+        line.setQty(BigDecimal.ONE);
+        line.setAmt(amount);
+        request.setLines(List.of(line));
+        return request;
+    }
+}
@@ -17,7 +17,7 @@ class ApiContractTests {
     void openApiDescribesPaymentsEndpointsAndSchemas() {
         OpenAPI openAPI = new OpenAPIV3Parser().read(SPEC_PATH.toString());
         assertThat(openAPI).as("openapi parsed").isNotNull();
-        assertThat(openAPI.getPaths()).containsKeys("/payments/record", "/payments/summary");
+        assertThat(openAPI.getPaths()).containsKeys("/payments/record", "/payments/record-batch", "/payments/summary", "/payments/summary/bulk");
 
         MediaType recordMediaType = openAPI.getPaths()
                 .get("/payments/record")
@@ -42,7 +42,9 @@ class ApiContractTests {
                 "PaymentRecordResponse",
                 "PaymentsSummaryResponse",
                 "PaymentSummaryEntry",
-                "PaymentLineItem"
+                "PaymentLineItem",
+                "PaymentsSummaryBulkRequest",
+                "PaymentsAnchorSummary"
         );
 
         assertThat(openAPI.getComponents().getSchemas()
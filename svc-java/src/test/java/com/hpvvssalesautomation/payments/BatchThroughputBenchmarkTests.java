@@ -0,0 +1,104 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.LatencySamples;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordBatchRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordBatchResponse;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class BatchThroughputBenchmarkTests extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchThroughputBenchmarkTests.class);
+
+    private static final int SETTLEMENTS = 1_000;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+    }
+
+    @Test
+    void batchEndpointRecordsWhatLoopingRecordDoes() {
+        for (int i = 0; i < 100; i++) {
+            restTemplate.postForObject("/payments/record", buildSettlement("WARM", i), PaymentRecordResult.class);
+        }
+        restTemplate.postForObject("/payments/record-batch", batchOf("WARM-BATCH", 100), PaymentRecordBatchResponse.class);
+
+        LatencySamples looped = new LatencySamples("looped /payments/record", SETTLEMENTS);
+        for (int i = 0; i < SETTLEMENTS; i++) {
+            PaymentRecordRequest request = buildSettlement("LOOP", i);
+            PaymentRecordResult result = looped.time(() -> restTemplate.postForObject("/payments/record", request, PaymentRecordResult.class));
+            assertThat(result).isNotNull();
+        }
+
+        PaymentRecordBatchRequest batch = batchOf("BATCH", SETTLEMENTS);
+        LatencySamples batched = new LatencySamples("/payments/record-batch", 1);
+        PaymentRecordBatchResponse response = batched.time(
+                () -> restTemplate.postForObject("/payments/record-batch", batch, PaymentRecordBatchResponse.class)
+        );
+
+        assertThat(response).isNotNull();
+        assertThat(response.created()).isEqualTo(SETTLEMENTS);
+        assertThat(ledgerRows("BATCH-TERM-%")).isEqualTo(ledgerRows("LOOP-TERM-%")).isEqualTo(SETTLEMENTS);
+
+        double loopedRate = SETTLEMENTS / (looped.totalMillis() / 1000d);
+        double batchedRate = SETTLEMENTS / (batched.totalMillis() / 1000d);
+        log.info(looped.summary());
+        log.info(batched.summary());
+        log.info(String.format(Locale.US, "throughput looped=%.0f/s batched=%.0f/s speedup=%.1fx",
+                loopedRate, batchedRate, batchedRate / loopedRate));
+    }
+
+    private int ledgerRows(String referencePattern) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments_ledger WHERE reference LIKE :pattern",
+                new MapSqlParameterSource("pattern", referencePattern),
+                Integer.class
+        );
+    }
+
+    private PaymentRecordBatchRequest batchOf(String prefix, int size) {
+        List<PaymentRecordRequest> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(buildSettlement(prefix, i));
+        }
+        PaymentRecordBatchRequest batch = new PaymentRecordBatchRequest();
+        batch.setItems(items);
+        return batch;
+    }
+
+    private PaymentRecordRequest buildSettlement(String prefix, int sequence) {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setSoNumber("SO-SETTLE-" + (sequence % 40));
+        request.setDocType("Payment Receipt");
+        request.setPaymentDateTime("2024-07-31T18:00:00Z");
+        request.setAmountGross(new BigDecimal("125.00"));
+        request.setFeePercent(new BigDecimal("2.75"));
+        request.setMethod("Card");
+        request.setReference(prefix + "-TERM-" + sequence);
+        return request;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.LatencySamples;
+import com.hpvvssalesautomation.StatementRecorder;
+import com.hpvvssalesautomation.domain.payments.PaymentsService;
+import com.hpvvssalesautomation.domain.payments.PaymentsSummaryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+@Import(StatementRecorder.RecordingConfiguration.class)
+class CreditNettingBenchmarkTests extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditNettingBenchmarkTests.class);
+
+    private static final int ANCHORS = 2_000;
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 2_000;
+
+    private static final Pattern LEDGER_SCAN = Pattern.compile("(?:Seq Scan|Bitmap Heap Scan|Index (?:Only )?Scan using \\S+) on (payments_ledger\\w*)");
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentsService paymentsService;
+
+    @Autowired
+    private StatementRecorder recorder;
+
+    @BeforeEach
+    void seedLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, payment_datetime, method, " +
+                        "amount_gross, subtotal, amount_net, request_hash) " +
+                        "SELECT 'BENCH-CR-' || a || '-' || d, " +
+                        "CASE d WHEN 0 THEN 'INVOICE' WHEN 1 THEN 'CREDIT' ELSE 'RECEIPT' END, 'SO', 'HP-CR-' || a, 'SO-CR-' || a, " +
+                        "CASE d WHEN 0 THEN 'Sales Invoice' WHEN 1 THEN 'Credit Memo' ELSE 'Payment Receipt' END, " +
+                        "TIMESTAMPTZ '2024-08-01T12:00:00Z' + make_interval(hours => d), CASE WHEN d % 2 = 0 THEN 'Card' ELSE 'Wire' END, " +
+                        "CASE d WHEN 0 THEN 1000 WHEN 1 THEN 100 ELSE 200 END, CASE d WHEN 0 THEN 1000 END, " +
+                        "CASE d WHEN 0 THEN 1000 WHEN 1 THEN 100 ELSE 200 END, 'bench-cr-' || a || '-' || d " +
+                        "FROM generate_series(1, :anchors) AS a, generate_series(0, 4) AS d",
+                new MapSqlParameterSource("anchors", ANCHORS)
+        );
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE payments_ledger");
+    }
+
+    @Test
+    void creditNettingAddsNoLedgerScan() {
+        List<StatementRecorder.CapturedStatement> ledgerReads = recorder.record(() -> paymentsService.summarize(null, "SO-CR-1", 0, null, false))
+                .stream()
+                .filter(statement -> statement.sql().contains("FROM payments_ledger"))
+                .toList();
+        assertThat(ledgerReads).as("ledger statements issued by summarize").hasSize(1);
+
+        // The ledger is partitioned by month, so one pass is one scan node per partition the plan keeps.
+        List<String> scannedRelations = scannedLedgerRelations(ledgerReads.get(0).explain(jdbcTemplate.getJdbcTemplate()));
+        assertThat(scannedRelations).isNotEmpty().doesNotHaveDuplicates();
+
+        for (int i = 0; i < WARMUP; i++) {
+            paymentsService.summarize(null, "SO-CR-" + (i % ANCHORS + 1), 0, null, false);
+        }
+
+        LatencySamples netted = new LatencySamples("single-pass netted summary", ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            String so = "SO-CR-" + (i % ANCHORS + 1);
+            PaymentsSummaryResponse summary = netted.time(() -> paymentsService.summarize(null, so, 0, null, false));
+            assertThat(summary.creditsTotal()).isEqualByComparingTo("100.00");
+            assertThat(summary.netLinesMinusPayments()).isEqualByComparingTo("300.00");
+        }
+
+        log.info(netted.summary());
+    }
+
+    private static List<String> scannedLedgerRelations(String plan) {
+        List<String> relations = new ArrayList<>();
+        Matcher matcher = LEDGER_SCAN.matcher(plan);
+        while (matcher.find()) {
+            relations.add(matcher.group(1));
+        }
+        return relations;
+    }
+}
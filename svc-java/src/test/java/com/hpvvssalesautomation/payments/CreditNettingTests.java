@@ -0,0 +1,106 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.DashboardKpiResponse;
+import com.hpvvssalesautomation.domain.ReportsResponse;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentsSummaryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {"FEATURE_PAYMENTS=true", "FEATURE_REPORTS=true"})
+class CreditNettingTests extends AbstractIntegrationTest {
+
+    private static final String ROOT = "HP-CR-1";
+    private static final String SO = "SO-CR-1";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, customer_name, assigned_rep, brand, so_number, sales_stage, conversion_status) " +
+                        "VALUES (:visit_date, :root_appt_id, 'Credit Customer', 'Jamie Rep', 'HPUSA', :so_number, 'Deposit', 'Won')",
+                new MapSqlParameterSource()
+                        .addValue("visit_date", LocalDate.parse("2024-08-05"))
+                        .addValue("root_appt_id", ROOT)
+                        .addValue("so_number", SO)
+        );
+        jdbcTemplate.update(
+                "INSERT INTO dashboard_stage_weights(stage, weight) VALUES ('DEPOSIT', 0.90) ON CONFLICT (stage) DO UPDATE SET weight = EXCLUDED.weight",
+                new MapSqlParameterSource()
+        );
+    }
+
+    @Test
+    void creditMemosNetIntoSummaryReportAndDashboard() {
+        record("Sales Invoice", "2024-08-05T10:00:00-07:00", "Check", new BigDecimal("1000.00"), null);
+        record("Credit Memo", "2024-08-06T10:00:00-07:00", "Check", new BigDecimal("150.00"), null);
+        PaymentRecordResult voided = record("Credit Memo", "2024-08-07T10:00:00-07:00", "Check", new BigDecimal("50.00"), null);
+        record("Payment Receipt", "2024-08-08T10:00:00-07:00", "Card", new BigDecimal("300.00"), BigDecimal.ZERO);
+        jdbcTemplate.update(
+                "UPDATE payments_ledger SET doc_status = 'VOID' WHERE doc_number = :doc",
+                new MapSqlParameterSource("doc", voided.docNumber())
+        );
+
+        PaymentsSummaryResponse summary = restTemplate.getForObject("/payments/summary?soNumber=" + SO + "&limit=0", PaymentsSummaryResponse.class);
+        assertThat(summary.invoicesLinesSubtotal()).isEqualByComparingTo("1000.00");
+        assertThat(summary.creditsTotal()).isEqualByComparingTo("150.00");
+        assertThat(summary.totalPayments()).isEqualByComparingTo("300.00");
+        assertThat(summary.netLinesMinusPayments()).isEqualByComparingTo("550.00");
+        BigDecimal netOrderTotal = summary.invoicesLinesSubtotal().subtract(summary.creditsTotal());
+
+        ReportsResponse report = restTemplate.getForObject("/reports/by-status?filters=status:Deposit", ReportsResponse.class);
+        List<Map<String, Object>> rows = report.rows();
+        assertThat(rows).hasSize(1);
+        assertThat(new BigDecimal(rows.get(0).get("Order Total").toString())).isEqualByComparingTo(netOrderTotal);
+        assertThat(new BigDecimal(rows.get(0).get("Total Pay To Date").toString())).isEqualByComparingTo(summary.totalPayments());
+
+        Map<String, Object> balance = jdbcTemplate.queryForMap(
+                "SELECT balance, credit_total, credit_count FROM payments_anchor_balance WHERE anchor_key = :anchor_key",
+                new MapSqlParameterSource("anchor_key", SO)
+        );
+        assertThat((BigDecimal) balance.get("balance")).isEqualByComparingTo(summary.netLinesMinusPayments());
+        assertThat((BigDecimal) balance.get("credit_total")).isEqualByComparingTo(summary.creditsTotal());
+        assertThat(balance.get("credit_count")).isEqualTo(1);
+
+        DashboardKpiResponse kpis = restTemplate.getForObject("/dashboard/kpis?dateFrom=2024-08-01&dateTo=2024-08-31", DashboardKpiResponse.class);
+        assertThat(kpis.weightedPipeline()).isEqualByComparingTo(netOrderTotal.multiply(new BigDecimal("0.90")));
+        assertThat(kpis.totalDeposits()).isEqualByComparingTo(summary.totalPayments());
+    }
+
+    private PaymentRecordResult record(String docType, String paymentDateTime, String method, BigDecimal amount, BigDecimal fee) {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setRootApptId(ROOT);
+        request.setSoNumber(SO);
+        request.setDocType(docType);
+        request.setPaymentDateTime(paymentDateTime);
+        request.setAmountGross(amount);
+        request.setFeeAmount(fee);
+        request.setMethod(method);
+        request.setReference(docType + "-" + paymentDateTime);
+
+        PaymentRecordRequest.PaymentRecordRequestLine line = new PaymentRecordRequest.PaymentRecordRequestLine();
+        line.setDesc(docType);
+        line.setQty(BigDecimal.ONE);
+        line.setAmt(amount);
+        request.setLines(List.of(line));
+        return restTemplate.postForObject("/payments/record", request, PaymentRecordResult.class);
+    }
+}
@@ -0,0 +1,103 @@
+package com.hpvvssalesautomation.payments;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.payments.PaymentIdempotencyCache;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class IdempotencyCacheTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentIdempotencyCache cache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        cache.invalidate(PaymentIdempotencyCache.INVALIDATE_ALL);
+    }
+
+    @Test
+    void retriesHitCacheAndDeletesInvalidateThroughNotify() throws InterruptedException {
+        PaymentRecordRequest payload = buildRequest();
+        PaymentRecordResult first = restTemplate.postForObject("/payments/record", payload, PaymentRecordResult.class);
+        assertThat(first).isNotNull();
+        assertThat(first.status()).isEqualTo(PaymentRecordStatus.CREATED);
+        assertThat(cache.get("SO", first.requestHash())).isEqualTo(first.docNumber());
+
+        double hitsBefore = hitCount();
+        PaymentRecordResult retry = restTemplate.postForObject("/payments/record", payload, PaymentRecordResult.class);
+        assertThat(retry).isNotNull();
+        assertThat(retry.status()).isEqualTo(PaymentRecordStatus.UPDATED);
+        assertThat(retry.docNumber()).isEqualTo(first.docNumber());
+        assertThat(hitCount()).isGreaterThan(hitsBefore);
+
+        Integer rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments_ledger WHERE request_hash = :hash",
+                new MapSqlParameterSource("hash", first.requestHash()),
+                Integer.class
+        );
+        assertThat(rows).isEqualTo(1);
+
+        jdbcTemplate.update(
+                "DELETE FROM payments_ledger WHERE doc_number = :doc",
+                new MapSqlParameterSource("doc", first.docNumber())
+        );
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (cache.get("SO", first.requestHash()) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(cache.get("SO", first.requestHash())).isNull();
+
+        ResponseEntity<JsonNode> metrics = restTemplate.getForEntity(
+                "/actuator/metrics/payments.idempotency.cache.requests?tag=result:hit",
+                JsonNode.class
+        );
+        assertThat(metrics.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(metrics.getBody()).isNotNull();
+        assertThat(metrics.getBody().path("measurements").get(0).path("value").asDouble()).isGreaterThan(0d);
+    }
+
+    private double hitCount() {
+        return meterRegistry.get("payments.idempotency.cache.requests").tag("result", "hit").counter().count();
+    }
+
+    private PaymentRecordRequest buildRequest() {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setSoNumber("SO-CACHE-1");
+        request.setDocType("Deposit Receipt");
+        request.setPaymentDateTime("2024-07-08T11:00:00-07:00");
+        request.setAmountGross(new BigDecimal("400.00"));
+        request.setMethod("Zelle");
+        request.setReference("CACHE-001");
+
+        PaymentRecordRequest.PaymentRecordRequestLine line = new PaymentRecordRequest.PaymentRecordRequestLine();
+        line.setDesc("Deposit");
+        line.setQty(BigDecimal.ONE);
+        line.setAmt(new BigDecimal("400.00"));
+        request.setLines(List.of(line));
+        return request;
+    }
+}
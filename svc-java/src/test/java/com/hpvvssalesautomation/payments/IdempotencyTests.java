@@ -45,6 +45,7 @@ class IdempotencyTests extends AbstractIntegrationTest {
 
         assertThat(first.getBody()).isNotNull();
         assertThat(second.getBody()).isNotNull();
+        assertThat(first.getBody().status()).isEqualTo(PaymentRecordStatus.CREATED);
         assertThat(second.getBody().status()).isEqualTo(PaymentRecordStatus.UPDATED);
         assertThat(second.getBody().docNumber()).isEqualTo(first.getBody().docNumber());
         assertThat(second.getBody().requestHash()).isEqualTo(first.getBody().requestHash());
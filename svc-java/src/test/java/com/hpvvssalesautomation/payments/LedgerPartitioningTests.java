@@ -0,0 +1,140 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordStatus;
+import com.hpvvssalesautomation.domain.payments.PaymentsLedgerPartitionMaintainer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class LedgerPartitioningTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentsLedgerPartitionMaintainer partitionMaintainer;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().queryForList(
+                "SELECT ensure_payments_ledger_partition(month_start::DATE) " +
+                        "FROM generate_series(DATE '2024-05-01', DATE '2024-09-01', INTERVAL '1 month') AS month_start"
+        );
+    }
+
+    @Test
+    void rangedDepositQueryScansOnlyMatchingMonth() {
+        List<String> plan = jdbcTemplate.getJdbcTemplate().queryForList(
+                "EXPLAIN SELECT COALESCE(SUM(amount_net), 0) FROM payments_ledger " +
+                        "WHERE doc_role = 'RECEIPT' AND amount_net > 0 " +
+                        "AND payment_datetime >= TIMESTAMPTZ '2024-07-05T00:00:00Z' AND payment_datetime < TIMESTAMPTZ '2024-07-20T00:00:00Z'",
+                String.class
+        );
+        String text = String.join("\n", plan);
+
+        assertThat(text).contains("payments_ledger_p202407");
+        assertThat(text).doesNotContain("payments_ledger_p202406", "payments_ledger_p202408", "payments_ledger_default");
+    }
+
+    @Test
+    void docNumberStaysUniqueAcrossMonths() {
+        insertLedgerRow("DOC-PART-1", "2024-06-10T12:00:00Z", "hash-june");
+
+        assertThatThrownBy(() -> insertLedgerRow("DOC-PART-1", "2024-07-10T12:00:00Z", "hash-july"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThatThrownBy(() -> insertLedgerRow("DOC-PART-2", "2024-08-10T12:00:00Z", "hash-june"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void reDatingExplicitDocNumberMovesItIntoTheNewMonth() {
+        PaymentRecordResult first = restTemplate.postForObject("/payments/record", buildRequest("2024-06-28T10:00:00-07:00"), PaymentRecordResult.class);
+        PaymentRecordResult second = restTemplate.postForObject("/payments/record", buildRequest("2024-07-02T10:00:00-07:00"), PaymentRecordResult.class);
+
+        assertThat(first.status()).isEqualTo(PaymentRecordStatus.CREATED);
+        assertThat(second.status()).isEqualTo(PaymentRecordStatus.UPDATED);
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT tableoid::regclass::TEXT FROM payments_ledger WHERE doc_number = 'DOC-PART-MOVE'",
+                new MapSqlParameterSource(),
+                String.class
+        );
+        assertThat(partitions).containsExactly("payments_ledger_p202407");
+        OffsetDateTime keyed = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT payment_datetime FROM payments_ledger_keys WHERE doc_number = 'DOC-PART-MOVE'",
+                OffsetDateTime.class
+        );
+        assertThat(keyed.toInstant()).isEqualTo(OffsetDateTime.parse("2024-07-02T10:00:00-07:00").toInstant());
+    }
+
+    @Test
+    void maintainerMovesDefaultPartitionRowsIntoTheirMonth() {
+        insertLedgerRow("DOC-PART-OLD", "2019-03-15T12:00:00Z", "hash-old");
+        String before = partitionOf("DOC-PART-OLD");
+        assertThat(before).isEqualTo("payments_ledger_default");
+
+        partitionMaintainer.maintain();
+
+        assertThat(partitionOf("DOC-PART-OLD")).isEqualTo("payments_ledger_p201903");
+        Integer future = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM pg_inherits WHERE inhparent = 'payments_ledger'::regclass " +
+                        "AND inhrelid::regclass::TEXT = 'payments_ledger_p' || to_char(NOW() AT TIME ZONE 'UTC' + INTERVAL '3 months', 'YYYYMM')",
+                Integer.class
+        );
+        assertThat(future).isEqualTo(1);
+    }
+
+    private void insertLedgerRow(String docNumber, String paymentDateTime, String requestHash) {
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, so_number, doc_type, payment_datetime, amount_gross, amount_net, request_hash) " +
+                        "VALUES (:doc_number, 'RECEIPT', 'SO', 'SO-PART-1', 'Payment Receipt', :payment_datetime, 100.00, 100.00, :request_hash)",
+                new MapSqlParameterSource()
+                        .addValue("doc_number", docNumber)
+                        .addValue("payment_datetime", OffsetDateTime.parse(paymentDateTime))
+                        .addValue("request_hash", requestHash)
+        );
+    }
+
+    private String partitionOf(String docNumber) {
+        return jdbcTemplate.queryForObject(
+                "SELECT tableoid::regclass::TEXT FROM payments_ledger WHERE doc_number = :doc_number",
+                new MapSqlParameterSource("doc_number", docNumber),
+                String.class
+        );
+    }
+
+    private PaymentRecordRequest buildRequest(String paymentDateTime) {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setSoNumber("SO-PART-2");
+        request.setRootApptId("HP-PART-2");
+        request.setDocNumber("DOC-PART-MOVE");
+        request.setDocType("Payment Receipt");
+        request.setPaymentDateTime(paymentDateTime);
+        request.setAmountGross(new BigDecimal("250.00"));
+        request.setMethod("Wire");
+        request.setReference("WIRE-PART");
+
+        PaymentRecordRequest.PaymentRecordRequestLine line = new PaymentRecordRequest.PaymentRecordRequestLine();
+        line.setDesc("Payment");
+        line.setQty(BigDecimal.ONE);
+        line.setAmt(new BigDecimal("250.00"));
+        request.setLines(List.of(line));
+        return request;
+    }
+}
@@ -0,0 +1,104 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.payments.PaymentBatchItemResult;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordBatchRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordBatchResponse;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class PaymentsBatchTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+    }
+
+    @Test
+    void batchReportsPerItemOutcomeAndMatchesSingleRecordIdempotency() {
+        PaymentRecordRequest existing = buildReceipt("BATCH-REF-1", new BigDecimal("100.00"));
+        PaymentRecordResult single = restTemplate.postForObject("/payments/record", existing, PaymentRecordResult.class);
+        assertThat(single).isNotNull();
+
+        PaymentRecordRequest invalid = buildReceipt("BATCH-REF-BAD", new BigDecimal("50.00"));
+        invalid.setMethod("Barter");
+
+        PaymentRecordRequest fresh = buildReceipt("BATCH-REF-2", new BigDecimal("75.00"));
+
+        PaymentRecordBatchRequest batch = new PaymentRecordBatchRequest();
+        batch.setItems(List.of(existing, invalid, fresh, fresh));
+
+        ResponseEntity<PaymentRecordBatchResponse> response = restTemplate.postForEntity(
+                "/payments/record-batch",
+                batch,
+                PaymentRecordBatchResponse.class
+        );
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        PaymentRecordBatchResponse body = response.getBody();
+        assertThat(body).isNotNull();
+        assertThat(body.results()).extracting(PaymentBatchItemResult::index).containsExactly(0, 1, 2, 3);
+        assertThat(body.results()).extracting(PaymentBatchItemResult::status).containsExactly(
+                PaymentRecordStatus.UPDATED,
+                PaymentRecordStatus.REJECTED,
+                PaymentRecordStatus.CREATED,
+                PaymentRecordStatus.UPDATED
+        );
+        assertThat(body.created()).isEqualTo(1);
+        assertThat(body.updated()).isEqualTo(2);
+        assertThat(body.rejected()).isEqualTo(1);
+
+        assertThat(body.results().get(0).result().docNumber()).isEqualTo(single.docNumber());
+        assertThat(body.results().get(0).result().requestHash()).isEqualTo(single.requestHash());
+        assertThat(body.results().get(1).error()).contains("method");
+        assertThat(body.results().get(2).result().docNumber()).isEqualTo(body.results().get(3).result().docNumber());
+
+        Integer rows = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM payments_ledger", Integer.class);
+        assertThat(rows).isEqualTo(2);
+    }
+
+    @Test
+    void emptyBatchIsRejected() {
+        ResponseEntity<String> response = restTemplate.postForEntity(
+                "/payments/record-batch",
+                new PaymentRecordBatchRequest(),
+                String.class
+        );
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+    }
+
+    private PaymentRecordRequest buildReceipt(String reference, BigDecimal amount) {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setSoNumber("SO-BATCH-1");
+        request.setRootApptId("HP-BATCH-1");
+        request.setDocType("Sales Receipt");
+        request.setPaymentDateTime("2024-07-06T18:45:00Z");
+        request.setAmountGross(amount);
+        request.setMethod("Card");
+        request.setReference(reference);
+
+        PaymentRecordRequest.PaymentRecordRequestLine line = new PaymentRecordRequest.PaymentRecordRequestLine();
+        line.setDesc("Receipt");
+        line.setQty(BigDecimal.ONE);
+        line.setAmt(amount);
+        request.setLines(List.of(line));
+        return request;
+    }
+}
@@ -0,0 +1,98 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.payments.PaymentsImportResult;
+import com.hpvvssalesautomation.domain.payments.PaymentsLedgerImporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class PaymentsImportBenchmarkTests extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentsImportBenchmarkTests.class);
+
+    private static final int ROWS = 1_000_000;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentsLedgerImporter importer;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+    }
+
+    @Test
+    void importsMillionRowExportInConstantMemory() throws Exception {
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        PaymentsImportResult result = importer.importCsv(new GeneratedExport(ROWS));
+
+        long peakHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        log.info(String.format(Locale.US, "payments import: rows=%d inserted=%d %d ms %.0f rows/s peakHeap=%d MB",
+                result.rowsRead(), result.inserted(), result.elapsedMillis(), result.rowsPerSecond(), peakHeap / (1024 * 1024)));
+
+        assertThat(result.rowsRead()).isEqualTo(ROWS);
+        assertThat(result.rowsRejected()).isZero();
+        assertThat(result.inserted()).isEqualTo(ROWS);
+    }
+
+    private static final class GeneratedExport extends Reader {
+
+        private final int rows;
+        private final StringBuilder pending = new StringBuilder("Anchor,SO Number,Root ID,Document Type,Payment Date,Payment Method,Ref #,Gross\n");
+        private int nextRow;
+        private int offset;
+
+        private GeneratedExport(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int off, int len) {
+            if (offset == pending.length()) {
+                if (nextRow == rows) {
+                    return -1;
+                }
+                pending.setLength(0);
+                offset = 0;
+                int row = nextRow++;
+                pending.append("SO,SO-BULK-").append(row % 50_000)
+                        .append(",HP-BULK-").append(row % 50_000)
+                        .append(row % 10 == 0 ? ",Sales Invoice," : ",Deposit Receipt,")
+                        .append("2024-").append(String.format(Locale.US, "%02d", 1 + row % 12)).append("-15T10:00:00-07:00")
+                        .append(row % 2 == 0 ? ",Card" : ",Wire")
+                        .append(",BULK-").append(row)
+                        .append(',').append(100 + row % 900).append(".00\n");
+            }
+            int count = Math.min(len, pending.length() - offset);
+            pending.getChars(offset, offset + count, buffer, off);
+            offset += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentsImportResult;
+import com.hpvvssalesautomation.domain.payments.PaymentsLedgerImporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class PaymentsImportTests extends AbstractIntegrationTest {
+
+    private static final String CSV = String.join("\n",
+            "Anchor,Root ID,SO Number,Document Type,Status,Payment Date,Payment Method,Ref #,Gross,Processing Fee,Lines,Entered By",
+            "SO,HP-IMP-1,SO-IMP-1,Sales Invoice,Issued,2024-07-01T10:00:00-07:00,Check,INV-1,1500.00,,\"[{\"\"desc\"\":\"\"Ring, 18k\"\",\"\"qty\"\":1,\"\"amt\"\":1500.00}]\",accounting",
+            "SO,HP-IMP-1,SO-IMP-1,Deposit Receipt,Issued,2024-07-02T10:00:00-07:00,Card,RCPT-1,500.00,15.00,,accounting",
+            "SO,HP-IMP-1,SO-IMP-1,Deposit Receipt,Issued,2024-07-02T10:00:00-07:00,Card,RCPT-1,500.00,15.00,,accounting",
+            "SO,HP-IMP-1,SO-IMP-1,Payment Receipt,VOID,2024-07-03T10:00:00-07:00,Wire,RCPT-2,200.00,,,accounting",
+            "SO,HP-IMP-1,SO-IMP-1,Deposit Receipt,Issued,not-a-date,Card,RCPT-3,100.00,,,accounting",
+            "SO,HP-IMP-1,SO-IMP-1,Sales Receipt,Issued,2024-07-04T10:00:00-07:00,Zelle,RCPT-API,300.00,,,accounting"
+    ) + "\n";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentsLedgerImporter importer;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+    }
+
+    @Test
+    void importerStagesWithCopyAndMergesOnRequestHash() throws Exception {
+        PaymentRecordResult recorded = restTemplate.postForObject("/payments/record", apiReceipt(), PaymentRecordResult.class);
+        assertThat(recorded).isNotNull();
+
+        PaymentsImportResult first = importer.importCsv(new StringReader(CSV));
+        assertThat(first.rowsRead()).isEqualTo(6);
+        assertThat(first.rowsStaged()).isEqualTo(5);
+        assertThat(first.rowsRejected()).isEqualTo(1);
+        assertThat(first.errors()).singleElement().asString().contains("row 5").contains("paymentDateTime");
+        assertThat(first.inserted()).isEqualTo(3);
+        assertThat(first.updated()).isEqualTo(1);
+        assertThat(first.rowsPerSecond()).isPositive();
+
+        List<Map<String, Object>> rows = jdbcTemplate.getJdbcTemplate().queryForList(
+                "SELECT doc_number, doc_type, doc_status, method, amount_net, submitted_by, lines_json::text AS lines_json " +
+                        "FROM payments_ledger WHERE so_number = 'SO-IMP-1' ORDER BY payment_datetime"
+        );
+        assertThat(rows).extracting(row -> row.get("doc_type"))
+                .containsExactly("Sales Invoice", "Deposit Receipt", "Payment Receipt", "Sales Receipt");
+        assertThat(rows.get(0).get("lines_json").toString()).contains("Ring, 18k");
+        assertThat((BigDecimal) rows.get(1).get("amount_net")).isEqualByComparingTo("485.00");
+        assertThat(rows.get(2).get("doc_status")).isEqualTo("VOID");
+        assertThat(rows.get(3).get("doc_number")).isEqualTo(recorded.docNumber());
+        assertThat(rows.get(3).get("submitted_by")).isEqualTo("payments-service");
+
+        Map<String, Object> balance = jdbcTemplate.queryForMap(
+                "SELECT order_total, paid_to_date FROM payments_anchor_balance WHERE anchor_key = :key",
+                new MapSqlParameterSource("key", "SO-IMP-1")
+        );
+        assertThat((BigDecimal) balance.get("order_total")).isEqualByComparingTo("1500.00");
+        assertThat((BigDecimal) balance.get("paid_to_date")).isEqualByComparingTo("785.00");
+
+        PaymentsImportResult replay = importer.importCsv(new StringReader(CSV));
+        assertThat(replay.inserted()).isZero();
+        assertThat(replay.updated()).isEqualTo(4);
+        Integer count = jdbcTemplate.getJdbcTemplate().queryForObject("SELECT COUNT(*) FROM payments_ledger", Integer.class);
+        assertThat(count).isEqualTo(4);
+    }
+
+    private PaymentRecordRequest apiReceipt() {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setRootApptId("HP-IMP-1");
+        request.setSoNumber("SO-IMP-1");
+        request.setDocType("Sales Receipt");
+        request.setPaymentDateTime("2024-07-04T10:00:00-07:00");
+        request.setAmountGross(new BigDecimal("300.00"));
+        request.setMethod("Zelle");
+        request.setReference("RCPT-API");
+        return request;
+    }
+}
@@ -1,13 +1,17 @@
 package com.hpvvssalesautomation.payments;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hpvvssalesautomation.AbstractIntegrationTest;
 import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
 import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentsAnchorSummary;
+import com.hpvvssalesautomation.domain.payments.PaymentsSummaryBulkRequest;
 import com.hpvvssalesautomation.domain.payments.PaymentsSummaryResponse;
 import com.hpvvssalesautomation.domain.payments.PaymentSummaryEntry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -15,6 +19,7 @@ import org.springframework.test.context.TestPropertySource;
 
 import java.math.BigDecimal;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +31,9 @@ class PaymentsSummaryTests extends AbstractIntegrationTest {
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @BeforeEach
     void cleanTable() {
         jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
@@ -112,6 +120,116 @@ class PaymentsSummaryTests extends AbstractIntegrationTest {
         assertThat(summary.netLinesMinusPayments()).isEqualByComparingTo("0.00");
     }
 
+    @Test
+    void summaryKeepsMethodsThatDifferOnlyByCaseApart() {
+        String root = "HP-SUM-CASE";
+        String so = "SO-SUM-CASE";
+        restTemplate.postForEntity("/payments/record", buildReceipt(root, so, "2024-07-01T08:00:00-07:00", "Card", new BigDecimal("100.00")), PaymentRecordResult.class);
+        PaymentRecordResult lower = restTemplate.postForEntity("/payments/record",
+                buildReceipt(root, so, "2024-07-02T08:00:00-07:00", "Card", new BigDecimal("50.00")), PaymentRecordResult.class).getBody();
+        restTemplate.postForEntity("/payments/record", buildReceipt(root, so, "2024-07-03T08:00:00-07:00", "Wire", new BigDecimal("20.00")), PaymentRecordResult.class);
+        assertThat(lower).isNotNull();
+        jdbcTemplate.update(
+                "UPDATE payments_ledger SET method = 'card' WHERE doc_number = :doc",
+                new MapSqlParameterSource("doc", lower.docNumber())
+        );
+
+        PaymentsSummaryResponse summary = restTemplate.getForObject("/payments/summary?soNumber=" + so, PaymentsSummaryResponse.class);
+
+        assertThat(summary).isNotNull();
+        assertThat(summary.byMethod()).containsExactly(
+                Map.entry("Card", new BigDecimal("97.50")),
+                Map.entry("card", new BigDecimal("47.50")),
+                Map.entry("Wire", new BigDecimal("17.50"))
+        );
+    }
+
+    @Test
+    void summaryPagesEntriesWithKeysetCursorAndSkipsLinesByDefault() {
+        String root = "HP-SUM-PAGE";
+        String so = "SO-SUM-PAGE";
+        restTemplate.postForEntity("/payments/record", buildInvoice(root, so, "2024-07-01T08:00:00-07:00", new BigDecimal("900.00")), PaymentRecordResult.class);
+        for (int day = 2; day <= 6; day++) {
+            PaymentRecordRequest receipt = buildReceipt(root, so, "2024-07-0" + day + "T08:00:00-07:00", day % 2 == 0 ? "Card" : "Wire", new BigDecimal("100.00"));
+            restTemplate.postForEntity("/payments/record", receipt, PaymentRecordResult.class);
+        }
+
+        PaymentsSummaryResponse full = restTemplate.getForObject("/payments/summary?soNumber=" + so, PaymentsSummaryResponse.class);
+        assertThat(full).isNotNull();
+        assertThat(full.entries()).hasSize(6);
+        assertThat(full.nextCursor()).isNull();
+        assertThat(full.entries()).allSatisfy(entry -> assertThat(entry.lines()).hasSize(1));
+
+        PaymentsSummaryResponse totalsOnly = restTemplate.getForObject("/payments/summary?soNumber=" + so + "&limit=0", PaymentsSummaryResponse.class);
+        assertThat(totalsOnly).isNotNull();
+        assertThat(totalsOnly.entries()).isEmpty();
+        assertThat(totalsOnly.invoicesLinesSubtotal()).isEqualByComparingTo(full.invoicesLinesSubtotal());
+        assertThat(totalsOnly.totalPayments()).isEqualByComparingTo("487.50");
+        assertThat(totalsOnly.byMethod()).isEqualTo(full.byMethod());
+        assertThat(totalsOnly.byMethod()).containsOnlyKeys("Card", "Wire");
+
+        List<String> pagedDocNumbers = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = "/payments/summary?soNumber=" + so + "&limit=4" + (cursor == null ? "" : "&cursor=" + cursor);
+            PaymentsSummaryResponse page = restTemplate.getForObject(url, PaymentsSummaryResponse.class);
+            assertThat(page).isNotNull();
+            assertThat(page.totalPayments()).isEqualByComparingTo("487.50");
+            assertThat(page.entries()).allSatisfy(entry -> assertThat(entry.lines()).isNull());
+            page.entries().forEach(entry -> pagedDocNumbers.add(entry.docNumber()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(2);
+        assertThat(pagedDocNumbers).containsExactlyElementsOf(full.entries().stream().map(PaymentSummaryEntry::docNumber).toList());
+
+        PaymentsSummaryResponse withLines = restTemplate.getForObject("/payments/summary?soNumber=" + so + "&limit=2&includeLines=true", PaymentsSummaryResponse.class);
+        assertThat(withLines).isNotNull();
+        assertThat(withLines.entries()).hasSize(2).allSatisfy(entry -> assertThat(entry.lines()).hasSize(1));
+
+        ResponseEntity<String> badCursor = restTemplate.getForEntity("/payments/summary?soNumber=" + so + "&limit=2&cursor=not-a-cursor", String.class);
+        assertThat(badCursor.getStatusCode().value()).isEqualTo(400);
+    }
+
+    @Test
+    void bulkSummaryStreamsOneLinePerAnchorMatchingSingleSummaries() throws Exception {
+        restTemplate.postForEntity("/payments/record", buildInvoice("HP-BULK-1", "SO-BULK-1", "2024-07-01T08:00:00-07:00", new BigDecimal("400.00")), PaymentRecordResult.class);
+        restTemplate.postForEntity("/payments/record", buildReceipt("HP-BULK-1", "SO-BULK-1", "2024-07-02T08:00:00-07:00", "Card", new BigDecimal("100.00")), PaymentRecordResult.class);
+        restTemplate.postForEntity("/payments/record", buildReceipt("HP-BULK-1", "SO-BULK-1", "2024-07-03T08:00:00-07:00", "Wire", new BigDecimal("50.00")), PaymentRecordResult.class);
+        restTemplate.postForEntity("/payments/record", buildInvoice("HP-BULK-2", "SO-BULK-2", "2024-07-01T08:00:00-07:00", new BigDecimal("250.00")), PaymentRecordResult.class);
+
+        PaymentsSummaryBulkRequest request = new PaymentsSummaryBulkRequest();
+        request.setRootApptIds(List.of("HP-BULK-2", "HP-BULK-1", " HP-BULK-1 ", "HP-BULK-NONE"));
+        request.setSoNumbers(List.of("SO-BULK-1"));
+        ResponseEntity<String> response = restTemplate.postForEntity("/payments/summary/bulk", request, String.class);
+
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        List<PaymentsAnchorSummary> lines = new ArrayList<>();
+        for (String line : response.getBody().split("\n")) {
+            lines.add(objectMapper.readValue(line, PaymentsAnchorSummary.class));
+        }
+        assertThat(lines).extracting(PaymentsAnchorSummary::rootApptId).containsExactly("HP-BULK-2", "HP-BULK-1", "HP-BULK-NONE", null);
+        assertThat(lines.get(3).soNumber()).isEqualTo("SO-BULK-1");
+
+        for (PaymentsAnchorSummary line : lines) {
+            String query = line.rootApptId() != null ? "rootApptId=" + line.rootApptId() : "soNumber=" + line.soNumber();
+            PaymentsSummaryResponse single = restTemplate.getForObject("/payments/summary?limit=0&" + query, PaymentsSummaryResponse.class);
+            assertThat(line.invoicesLinesSubtotal()).isEqualByComparingTo(single.invoicesLinesSubtotal());
+            assertThat(line.totalPayments()).isEqualByComparingTo(single.totalPayments());
+            assertThat(line.netLinesMinusPayments()).isEqualByComparingTo(single.netLinesMinusPayments());
+            assertThat(line.byMethod()).isEqualTo(single.byMethod());
+        }
+        assertThat(lines.get(1).totalPayments()).isEqualByComparingTo("145.00");
+        assertThat(lines.get(1).netLinesMinusPayments()).isEqualByComparingTo("255.00");
+        assertThat(lines.get(2).invoicesLinesSubtotal()).isEqualByComparingTo("0.00");
+
+        ResponseEntity<String> empty = restTemplate.postForEntity("/payments/summary/bulk", new PaymentsSummaryBulkRequest(), String.class);
+        assertThat(empty.getStatusCode().value()).isEqualTo(400);
+    }
+
     private PaymentRecordRequest buildReceipt(String root, String so, String paymentDateTime, String method, BigDecimal amount) {
         PaymentRecordRequest request = new PaymentRecordRequest();
         request.setAnchorType("SO");
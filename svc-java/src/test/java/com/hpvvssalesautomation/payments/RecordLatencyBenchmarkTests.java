@@ -0,0 +1,168 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.LatencySamples;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordRequest;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordResult;
+import com.hpvvssalesautomation.domain.payments.PaymentRecordStatus;
+import com.hpvvssalesautomation.domain.payments.PaymentsMapper;
+import com.hpvvssalesautomation.domain.payments.PaymentsService;
+import com.hpvvssalesautomation.domain.payments.PaymentsValidator;
+import com.hpvvssalesautomation.domain.payments.ValidatedPaymentRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.postgresql.util.PGobject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@TestPropertySource(properties = "FEATURE_PAYMENTS=true")
+class RecordLatencyBenchmarkTests extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(RecordLatencyBenchmarkTests.class);
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PaymentsService paymentsService;
+
+    @Autowired
+    private PaymentsValidator validator;
+
+    @Autowired
+    private PaymentsMapper mapper;
+
+    @BeforeEach
+    void cleanLedger() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+    }
+
+    @Test
+    void singleStatementRecordMatchesFourQueryPath() {
+        for (int i = 0; i < WARMUP; i++) {
+            legacyRecord(buildRequest("WARM-LEGACY-" + i));
+            paymentsService.record(buildRequest("WARM-SINGLE-" + i));
+        }
+
+        LatencySamples legacy = new LatencySamples("four-query record", ITERATIONS);
+        LatencySamples single = new LatencySamples("single-statement record", ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            PaymentRecordRequest legacyRequest = buildRequest("BENCH-LEGACY-" + (i % 50));
+            PaymentRecordRequest singleRequest = buildRequest("BENCH-SINGLE-" + (i % 50));
+            legacy.time(() -> legacyRecord(legacyRequest));
+            PaymentRecordResult result = single.time(() -> paymentsService.record(singleRequest));
+            if (i >= 50) {
+                assertThat(result.status()).isEqualTo(PaymentRecordStatus.UPDATED);
+            }
+        }
+
+        assertThat(rowsWithReference("BENCH-SINGLE-%")).isEqualTo(rowsWithReference("BENCH-LEGACY-%")).isEqualTo(50);
+        log.info(legacy.summary());
+        log.info(single.summary());
+    }
+
+    private int rowsWithReference(String pattern) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments_ledger WHERE reference LIKE :pattern",
+                new MapSqlParameterSource("pattern", pattern),
+                Integer.class
+        );
+    }
+
+    private String legacyRecord(PaymentRecordRequest request) {
+        ValidatedPaymentRecord validated = validator.validate(request);
+        String requestHash = "legacy-" + validated.reference();
+        MapSqlParameterSource lookup = new MapSqlParameterSource()
+                .addValue("anchor_type", validated.anchorType())
+                .addValue("request_hash", requestHash);
+        List<String> found = jdbcTemplate.query(
+                "SELECT doc_number FROM payments_ledger_keys WHERE anchor_type = :anchor_type AND request_hash = :request_hash LIMIT 1",
+                lookup,
+                (rs, rowNum) -> rs.getString("doc_number")
+        );
+        String docNumber = found.isEmpty() ? "LEGACY-" + validated.reference() : found.get(0);
+
+        jdbcTemplate.queryForObject(
+                "SELECT COUNT(1) FROM payments_ledger WHERE doc_number = :doc_number",
+                new MapSqlParameterSource("doc_number", docNumber),
+                Integer.class
+        );
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("doc_number", docNumber)
+                .addValue("doc_role", validated.docRole())
+                .addValue("anchor_type", validated.anchorType())
+                .addValue("root_appt_id", validated.rootApptId())
+                .addValue("so_number", validated.soNumber())
+                .addValue("doc_type", validated.docType())
+                .addValue("doc_status", validated.docStatus())
+                .addValue("payment_datetime", validated.paymentDateTime().toOffsetDateTime())
+                .addValue("method", validated.method())
+                .addValue("reference", validated.reference())
+                .addValue("amount_gross", validated.amountGross())
+                .addValue("fee_amount", validated.feeAmount())
+                .addValue("subtotal", validated.subtotal())
+                .addValue("amount_net", validated.amountNet())
+                .addValue("lines_json", jsonb(mapper.linesToJson(validated.lines())))
+                .addValue("submitted_at", OffsetDateTime.now())
+                .addValue("request_hash", requestHash);
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, doc_status, payment_datetime, method, reference, amount_gross, fee_amount, subtotal, amount_net, lines_json, submitted_by, submitted_at, request_hash) " +
+                        "VALUES (:doc_number, :doc_role, :anchor_type, :root_appt_id, :so_number, :doc_type, :doc_status, :payment_datetime, :method, :reference, :amount_gross, :fee_amount, :subtotal, :amount_net, :lines_json, 'benchmark', :submitted_at, :request_hash) " +
+                        "ON CONFLICT (doc_number, payment_datetime) DO UPDATE SET doc_role = EXCLUDED.doc_role, doc_type = EXCLUDED.doc_type, doc_status = EXCLUDED.doc_status, method = EXCLUDED.method, reference = EXCLUDED.reference, amount_gross = EXCLUDED.amount_gross, fee_amount = EXCLUDED.fee_amount, subtotal = EXCLUDED.subtotal, amount_net = EXCLUDED.amount_net, lines_json = EXCLUDED.lines_json, request_hash = EXCLUDED.request_hash, updated_at = NOW()",
+                params
+        );
+
+        return jdbcTemplate.queryForObject(
+                "SELECT doc_number FROM payments_ledger WHERE doc_number = :doc_number",
+                new MapSqlParameterSource("doc_number", docNumber),
+                String.class
+        );
+    }
+
+    private PGobject jsonb(String json) {
+        try {
+            PGobject object = new PGobject();
+            object.setType("jsonb");
+            object.setValue(json);
+            return object;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private PaymentRecordRequest buildRequest(String reference) {
+        PaymentRecordRequest request = new PaymentRecordRequest();
+        request.setAnchorType("SO");
+        request.setSoNumber("SO-BENCH-1");
+        request.setRootApptId("HP-BENCH-1");
+        request.setDocType("Sales Receipt");
+        request.setPaymentDateTime("2024-07-05T18:45:00Z");
+        request.setAmountGross(new BigDecimal("250.00"));
+        request.setFeeAmount(new BigDecimal("5.00"));
+        request.setMethod("Card");
+        request.setReference(reference);
+
+        PaymentRecordRequest.PaymentRecordRequestLine line = new PaymentRecordRequest.PaymentRecordRequestLine();
+        line.setDesc("Receipt");
+        line.setQty(BigDecimal.ONE);
+        line.setAmt(new BigDecimal("250.00"));
+        request.setLines(List.of(line));
+        return request;
+    }
+}
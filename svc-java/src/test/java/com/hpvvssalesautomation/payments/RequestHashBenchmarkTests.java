@@ -0,0 +1,76 @@
+package com.hpvvssalesautomation.payments;
+
+import com.hpvvssalesautomation.domain.payments.PaymentLine;
+import com.hpvvssalesautomation.domain.payments.PaymentRequestHasher;
+import com.hpvvssalesautomation.domain.payments.ValidatedPaymentRecord;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+class RequestHashBenchmarkTests {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestHashBenchmarkTests.class);
+
+    private static final int WARMUP = 50_000;
+    private static final int ITERATIONS = 200_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void streamingHasherAllocatesLess() {
+        ValidatedPaymentRecord record = RequestHasherTests.sampleRecord("SO-BENCH-1", "Deposit for ring", List.of(
+                new PaymentLine("Setting", BigDecimal.ONE, new BigDecimal("1200.00"), null),
+                new PaymentLine("Center stone", BigDecimal.ONE, new BigDecimal("4800.00"), null)
+        ));
+        PaymentRequestHasher hasher = new PaymentRequestHasher(RequestHasherTests.TIME_UTIL);
+
+        // The legacy path serialized lines twice per request: once for the hash and once for the insert.
+        Result legacy = measure("legacy getBytes hash", record, value -> {
+            RequestHasherTests.MAPPER.linesToJson(value.lines());
+            return RequestHasherTests.legacyHash(value);
+        });
+        Result streaming = measure("streaming hash", record,
+                value -> hasher.hash(value, RequestHasherTests.MAPPER.linesToJson(value.lines())));
+
+        log.info(legacy.toString());
+        log.info(streaming.toString());
+        // Allocated bytes per call are deterministic for a fixed record, unlike the ops/s figure, which is only logged.
+        assertThat(streaming.bytesPerOp()).isLessThan(legacy.bytesPerOp());
+    }
+
+    private Result measure(String label, ValidatedPaymentRecord record, Function<ValidatedPaymentRecord, String> hash) {
+        String sink = "";
+        for (int i = 0; i < WARMUP; i++) {
+            sink = hash.apply(record);
+        }
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink = hash.apply(record);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        assertThat(sink).hasSize(64);
+        return new Result(label, (double) allocated / ITERATIONS, ITERATIONS / (elapsed / 1_000_000_000d));
+    }
+
+    private record Result(String label, double bytesPerOp, double opsPerSecond) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %.0f B/op, %.0f ops/s", label, bytesPerOp, opsPerSecond);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hpvvssalesautomation.payments;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hpvvssalesautomation.alias.AliasRegistry;
+import com.hpvvssalesautomation.domain.payments.PaymentLine;
+import com.hpvvssalesautomation.domain.payments.PaymentRequestHasher;
+import com.hpvvssalesautomation.domain.payments.PaymentsMapper;
+import com.hpvvssalesautomation.domain.payments.ValidatedPaymentRecord;
+import com.hpvvssalesautomation.util.TimeUtil;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHasherTests {
+
+    static final TimeUtil TIME_UTIL = new TimeUtil(ZoneId.of("America/Los_Angeles"));
+    static final PaymentsMapper MAPPER = new PaymentsMapper(new AliasRegistry(), new ObjectMapper());
+
+    @Test
+    void streamingHashMatchesStringConcatenationHash() {
+        PaymentRequestHasher hasher = new PaymentRequestHasher(TIME_UTIL);
+        List<ValidatedPaymentRecord> records = List.of(
+                sampleRecord("SO-HASH-1", "Deposit for ring", List.of(new PaymentLine("Setting", BigDecimal.ONE, new BigDecimal("1200.00"), null))),
+                sampleRecord("SO-HASH-2", "Café — 💎 upgrade", List.of(
+                        new PaymentLine("Stone ✨", new BigDecimal("2"), new BigDecimal("450.50"), new BigDecimal("901.00")),
+                        new PaymentLine("x".repeat(3000), BigDecimal.ONE, BigDecimal.TEN, null)
+                )),
+                sampleRecord(null, null, null)
+        );
+
+        for (ValidatedPaymentRecord record : records) {
+            String linesJson = MAPPER.linesToJson(record.lines());
+            assertThat(hasher.hash(record, linesJson)).isEqualTo(legacyHash(record));
+            assertThat(hasher.hash(record, linesJson)).as("encoder reuse").isEqualTo(legacyHash(record));
+        }
+    }
+
+    static ValidatedPaymentRecord sampleRecord(String soNumber, String notes, List<PaymentLine> lines) {
+        return new ValidatedPaymentRecord(
+                null,
+                "RECEIPT",
+                "SO",
+                "HP-HASH-1",
+                soNumber,
+                "Deposit Receipt",
+                "ISSUED",
+                ZonedDateTime.parse("2024-07-01T10:15:30.123-07:00[America/Los_Angeles]"),
+                "Card",
+                "AUTH-12345",
+                notes,
+                new BigDecimal("1200.00"),
+                new BigDecimal("3.00000"),
+                new BigDecimal("36.00"),
+                null,
+                new BigDecimal("1164.00"),
+                lines
+        );
+    }
+
+    static String legacyHash(ValidatedPaymentRecord record) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(Objects.toString(record.anchorType(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.rootApptId(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.soNumber(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.docType(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.docStatus(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.docRole(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.method(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.reference(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.notes(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.amountGross(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.feePercent(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.feeAmount(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.subtotal(), "").getBytes(StandardCharsets.UTF_8));
+            digest.update(Objects.toString(record.amountNet(), "").getBytes(StandardCharsets.UTF_8));
+            if (record.paymentDateTime() != null) {
+                digest.update(TIME_UTIL.formatDateTime(record.paymentDateTime()).getBytes(StandardCharsets.UTF_8));
+            }
+            if (record.lines() != null) {
+                digest.update(MAPPER.linesToJson(record.lines()).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.LatencySamples;
+import com.hpvvssalesautomation.config.AppProperties.Dashboard.KpiExecution;
+import com.hpvvssalesautomation.domain.DashboardKpiResponse;
+import com.hpvvssalesautomation.domain.DashboardService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+class DashboardKpiBenchmarkTests extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardKpiBenchmarkTests.class);
+
+    private static final int ROWS = 50_000;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 200;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        MapSqlParameterSource params = new MapSqlParameterSource("rows", ROWS);
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, so_number, sales_stage, conversion_status, production_deadline, three_d_deadline) " +
+                        "SELECT DATE '2024-01-01' + (i % 365), 'HP-KPIB-' || i, 'SO-KPIB-' || i, " +
+                        "(ARRAY['Lead', 'Consult', 'Deposit', 'Production'])[1 + i % 4], 'Won', " +
+                        "DATE '2024-02-01' + (i % 300), DATE '2024-01-15' + (i % 300) FROM generate_series(1, :rows) AS i",
+                params
+        );
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, payment_datetime, " +
+                        "amount_gross, subtotal, amount_net, request_hash) " +
+                        "SELECT 'KPIB-' || i || '-' || d, CASE d WHEN 0 THEN 'INVOICE' ELSE 'RECEIPT' END, 'SO', 'HP-KPIB-' || i, 'SO-KPIB-' || i, " +
+                        "CASE d WHEN 0 THEN 'Sales Invoice' ELSE 'Payment Receipt' END, " +
+                        "TIMESTAMPTZ '2024-01-01T12:00:00Z' + make_interval(days => i % 365, hours => d), " +
+                        "CASE d WHEN 0 THEN 5000 ELSE 1000 END, CASE d WHEN 0 THEN 5000 END, CASE d WHEN 0 THEN 5000 ELSE 1000 END, 'kpib-' || i || '-' || d " +
+                        "FROM generate_series(1, :rows) AS i, generate_series(0, 2) AS d",
+                params
+        );
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE");
+    }
+
+    @Test
+    void parallelKpisMatchSequentialResults() {
+        for (int i = 0; i < WARMUP; i++) {
+            dashboardService.fetchKpis("2024-03-01", "2024-09-30", KpiExecution.SEQUENTIAL);
+            dashboardService.fetchKpis("2024-03-01", "2024-09-30", KpiExecution.PARALLEL);
+        }
+
+        LatencySamples sequential = new LatencySamples("dashboard KPIs sequential", ITERATIONS);
+        LatencySamples parallel = new LatencySamples("dashboard KPIs parallel", ITERATIONS);
+        for (int i = 0; i < ITERATIONS; i++) {
+            DashboardKpiResponse expected = sequential.time(() -> dashboardService.fetchKpis("2024-03-01", "2024-09-30", KpiExecution.SEQUENTIAL));
+            DashboardKpiResponse actual = parallel.time(() -> dashboardService.fetchKpis("2024-03-01", "2024-09-30", KpiExecution.PARALLEL));
+            assertThat(actual).isEqualTo(expected);
+        }
+
+        log.info(sequential.summary());
+        log.info(parallel.summary());
+    }
+}
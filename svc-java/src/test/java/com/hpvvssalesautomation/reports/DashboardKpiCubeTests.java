@@ -0,0 +1,116 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.DashboardKpiCube;
+import com.hpvvssalesautomation.domain.DashboardKpiResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+class DashboardKpiCubeTests extends AbstractIntegrationTest {
+
+    private static final String CELLS_SQL = "SELECT day || '|' || brand || '|' || assigned_rep || '|' || sales_stage || '|' || " +
+            "pipeline_total || '|' || deposit_total || '|' || first_deposit_count FROM dashboard_kpi_cube " +
+            "WHERE pipeline_total <> 0 OR deposit_total <> 0 OR first_deposit_count <> 0 ORDER BY 1";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DashboardKpiCube dashboardKpiCube;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        jdbcTemplate.getJdbcTemplate().update(
+                "INSERT INTO dashboard_stage_weights(stage, weight) VALUES ('DEPOSIT', 0.90), ('LEAD', 0.10) " +
+                        "ON CONFLICT (stage) DO UPDATE SET weight = EXCLUDED.weight"
+        );
+
+        insertMasterRow("HP-CUBE-1", "SO-CUBE-1", "2024-07-02", "Deposit");
+        insertMasterRow("HP-CUBE-2", "SO-CUBE-2", "2024-07-03", "Lead");
+        insertLedger("SO-CUBE-1", "HP-CUBE-1", "INVOICE", "2024-07-01T18:00:00Z", "6000.00");
+        insertLedger("SO-CUBE-1", "HP-CUBE-1", "RECEIPT", "2024-07-02T18:05:00Z", "2000.00");
+        insertLedger("SO-CUBE-2", "HP-CUBE-2", "INVOICE", "2024-07-05T16:00:00Z", "3000.00");
+    }
+
+    @Test
+    void incrementalWritesMatchAFullRebuild() {
+        jdbcTemplate.getJdbcTemplate().update("UPDATE master SET sales_stage = 'Deposit', assigned_rep = 'Kelly Rep' WHERE root_appt_id = 'HP-CUBE-2'");
+        insertLedger("SO-CUBE-2", "HP-CUBE-2", "RECEIPT", "2024-07-08T06:30:00Z", "500.00");
+        insertLedger("SO-CUBE-1", "HP-CUBE-1", "RECEIPT", "2024-07-09T18:00:00Z", "750.00");
+        jdbcTemplate.getJdbcTemplate().update(
+                "UPDATE payments_ledger SET doc_status = 'VOID' WHERE so_number = 'SO-CUBE-1' AND doc_role = 'RECEIPT' AND amount_net = 2000.00"
+        );
+        insertMasterRow("HP-CUBE-3", "SO-CUBE-3", null, "Lead");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master WHERE root_appt_id = 'HP-CUBE-3'");
+
+        List<String> incremental = cells();
+        dashboardKpiCube.rebuild();
+        assertThat(cells()).isEqualTo(incremental);
+
+        DashboardKpiResponse kpis = restTemplate.getForObject("/dashboard/kpis?dateFrom=2024-07-01&dateTo=2024-07-31", DashboardKpiResponse.class);
+        assertThat(kpis.weightedPipeline()).isEqualByComparingTo("8100.00");
+        assertThat(kpis.totalDeposits()).isEqualByComparingTo("1250.00");
+        assertThat(kpis.firstTimeDepositCount()).isEqualTo(2L);
+    }
+
+    @Test
+    void depositsAreBucketedByLocalPaymentDate() {
+        insertLedger("SO-CUBE-2", "HP-CUBE-2", "RECEIPT", "2024-08-01T03:00:00Z", "400.00");
+
+        DashboardKpiResponse july = restTemplate.getForObject("/dashboard/kpis?dateFrom=2024-07-01&dateTo=2024-07-31", DashboardKpiResponse.class);
+        assertThat(july.totalDeposits()).isEqualByComparingTo("2400.00");
+        assertThat(july.firstTimeDepositCount()).isEqualTo(2L);
+
+        DashboardKpiResponse august = restTemplate.getForObject("/dashboard/kpis?dateFrom=2024-08-01&dateTo=2024-08-31", DashboardKpiResponse.class);
+        assertThat(august.totalDeposits()).isEqualByComparingTo("0.00");
+        assertThat(august.weightedPipeline()).isEqualByComparingTo("0.00");
+    }
+
+    private List<String> cells() {
+        return jdbcTemplate.queryForList(CELLS_SQL, new MapSqlParameterSource(), String.class);
+    }
+
+    private void insertMasterRow(String rootApptId, String soNumber, String visitDate, String salesStage) {
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, assigned_rep, brand, so_number, sales_stage, conversion_status) " +
+                        "VALUES (:visit_date, :root_appt_id, 'Jamie Rep', 'HPUSA', :so_number, :sales_stage, 'Won')",
+                new MapSqlParameterSource()
+                        .addValue("visit_date", visitDate == null ? null : LocalDate.parse(visitDate))
+                        .addValue("root_appt_id", rootApptId)
+                        .addValue("so_number", soNumber)
+                        .addValue("sales_stage", salesStage)
+        );
+    }
+
+    private void insertLedger(String soNumber, String rootApptId, String docRole, String paymentDateTime, String amount) {
+        BigDecimal value = new BigDecimal(amount);
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, doc_status, " +
+                        "payment_datetime, amount_gross, subtotal, amount_net) " +
+                        "VALUES (:doc_number, :doc_role, 'SO', :root_appt_id, :so_number, :doc_type, 'ISSUED', :payment_datetime, :amount, :subtotal, :amount)",
+                new MapSqlParameterSource()
+                        .addValue("doc_number", soNumber + "-" + docRole + "-" + paymentDateTime)
+                        .addValue("doc_role", docRole)
+                        .addValue("root_appt_id", rootApptId)
+                        .addValue("so_number", soNumber)
+                        .addValue("doc_type", docRole.equals("INVOICE") ? "Sales Invoice" : "Sales Receipt")
+                        .addValue("payment_datetime", OffsetDateTime.parse(paymentDateTime))
+                        .addValue("amount", value)
+                        .addValue("subtotal", docRole.equals("INVOICE") ? value : null)
+        );
+    }
+}
@@ -0,0 +1,73 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.DashboardKpiResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {"FEATURE_REPORTS=true", "DASHBOARD_KPI_TIMEOUT=1s"})
+class DashboardKpiTimeoutTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, so_number, sales_stage, conversion_status, production_deadline) " +
+                        "VALUES (:visit_date, 'HP-KPI-1', 'SO-KPI-1', 'Deposit', 'Won', :deadline)",
+                new MapSqlParameterSource()
+                        .addValue("visit_date", LocalDate.parse("2024-07-02"))
+                        .addValue("deadline", LocalDate.parse("2024-07-05"))
+        );
+    }
+
+    @Test
+    void blockedKpiIsReportedAsPartialWhileOthersReturn() throws Exception {
+        try (Connection locker = dataSource.getConnection()) {
+            locker.setAutoCommit(false);
+            try (Statement statement = locker.createStatement()) {
+                statement.execute("LOCK TABLE dashboard_stage_weights IN ACCESS EXCLUSIVE MODE");
+            }
+
+            long started = System.nanoTime();
+            DashboardKpiResponse kpis = restTemplate.getForObject(
+                    "/dashboard/kpis?dateFrom=2024-07-01&dateTo=2024-07-31",
+                    DashboardKpiResponse.class
+            );
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            locker.rollback();
+
+            assertThat(kpis.partial()).isTrue();
+            assertThat(kpis.unavailableKpis()).containsExactly("weightedPipeline");
+            assertThat(kpis.weightedPipeline()).isNull();
+            assertThat(kpis.overdueProductionCount()).isEqualTo(1L);
+            assertThat(kpis.totalDeposits()).isEqualByComparingTo("0.00");
+            assertThat(elapsedMillis).isLessThan(5_000);
+        }
+
+        DashboardKpiResponse unblocked = restTemplate.getForObject(
+                "/dashboard/kpis?dateFrom=2024-07-01&dateTo=2024-07-31",
+                DashboardKpiResponse.class
+        );
+        assertThat(unblocked.partial()).isFalse();
+        assertThat(unblocked.unavailableKpis()).isEmpty();
+        assertThat(unblocked.weightedPipeline()).isNotNull();
+    }
+}
@@ -0,0 +1,148 @@
+package com.hpvvssalesautomation.reports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.LatencySamples;
+import com.hpvvssalesautomation.domain.ReportsBaseRefresher;
+import com.hpvvssalesautomation.domain.ReportsResponse;
+import com.hpvvssalesautomation.domain.ReportsService;
+import com.hpvvssalesautomation.util.TimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("benchmark")
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+class ReportRowBenchmarkTests extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportRowBenchmarkTests.class);
+
+    private static final int ROWS = 100_000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 10;
+
+    private static final String LEGACY_SQL = "SELECT m.visit_date, m.root_appt_id, m.customer_name, m.assigned_rep, m.assisted_rep, m.brand, " +
+            " m.so_number, m.sales_stage, m.conversion_status, m.custom_order_status, m.center_stone_order_status, " +
+            " m.next_steps, m.in_production_status, m.production_deadline, m.order_total, m.paid_to_date AS total_pay_to_date " +
+            " FROM reports_base m ORDER BY COALESCE(m.sales_stage, ''), m.visit_date DESC NULLS LAST, m.root_appt_id";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportsService reportsService;
+
+    @Autowired
+    private ReportsBaseRefresher reportsBaseRefresher;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TimeUtil timeUtil;
+
+    @BeforeEach
+    void seedMaster() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, customer_name, assigned_rep, assisted_rep, brand, so_number, sales_stage, " +
+                        "conversion_status, custom_order_status, center_stone_order_status, next_steps, in_production_status, production_deadline) " +
+                        "SELECT DATE '2024-01-01' + (i % 365), 'HP-BENCH-' || i, 'Customer ' || i, 'Rep ' || (i % 25), " +
+                        "CASE WHEN i % 3 = 0 THEN 'Helper ' || (i % 7) END, CASE WHEN i % 2 = 0 THEN 'HPUSA' ELSE 'VVS' END, 'SO-BENCH-' || i, " +
+                        "(ARRAY['Lead', 'Consult', 'Deposit', 'Production'])[1 + i % 4], 'Won', 'Planning', 'Ordered', 'Follow up', 'Casting', " +
+                        "DATE '2024-03-01' + (i % 200) FROM generate_series(1, :rows) AS i",
+                new MapSqlParameterSource("rows", ROWS)
+        );
+        reportsBaseRefresher.refresh();
+        jdbcTemplate.getJdbcTemplate().execute("ANALYZE reports_base");
+    }
+
+    @Test
+    void typedRowsAllocateLessThanLinkedHashMaps() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARMUP; i++) {
+            legacy();
+            typed();
+        }
+
+        LatencySamples legacySamples = new LatencySamples("LinkedHashMap rows + serialization (100k)", ITERATIONS);
+        LatencySamples typedSamples = new LatencySamples("ReportRow + serializer (100k)", ITERATIONS);
+        long legacyBytes = 0;
+        long typedBytes = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            assertThat(legacySamples.time(this::legacy)).isEqualTo(ROWS);
+            long middle = threads.getCurrentThreadAllocatedBytes();
+            assertThat(typedSamples.time(this::typed)).isEqualTo(ROWS);
+            long after = threads.getCurrentThreadAllocatedBytes();
+            legacyBytes += middle - before;
+            typedBytes += after - middle;
+        }
+
+        log.info(legacySamples.summary() + String.format(Locale.US, " rows/s=%.0f alloc/row=%d B",
+                ROWS / (legacySamples.p50Millis() / 1000d), legacyBytes / ITERATIONS / ROWS));
+        log.info(typedSamples.summary() + String.format(Locale.US, " rows/s=%.0f alloc/row=%d B",
+                ROWS / (typedSamples.p50Millis() / 1000d), typedBytes / ITERATIONS / ROWS));
+        assertThat(typedBytes).isLessThan(legacyBytes);
+    }
+
+    private int legacy() throws Exception {
+        List<Map<String, Object>> rows = jdbcTemplate.query(LEGACY_SQL, new MapSqlParameterSource(), (rs, rowNum) -> legacyMapRow(rs));
+        objectMapper.writeValue(OutputStream.nullOutputStream(), Map.of("rows", rows));
+        return rows.size();
+    }
+
+    private int typed() throws Exception {
+        ReportsResponse response = reportsService.byStatus("includeProductionCols:true", null, null, false);
+        objectMapper.writeValue(OutputStream.nullOutputStream(), response);
+        return response.rows().size();
+    }
+
+    // The mapping ReportsService used before ReportRow, kept here as the baseline.
+    private Map<String, Object> legacyMapRow(ResultSet rs) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        LocalDate visitDate = rs.getDate("visit_date") != null ? rs.getDate("visit_date").toLocalDate() : null;
+        row.put("Visit Date", visitDate != null ? timeUtil.formatDate(visitDate) : null);
+        row.put("Order Total", Optional.ofNullable(rs.getBigDecimal("order_total")).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP));
+        row.put("Total Pay To Date", Optional.ofNullable(rs.getBigDecimal("total_pay_to_date")).orElse(BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP));
+        row.put("RootApptID", rs.getString("root_appt_id"));
+        row.put("Customer Name", rs.getString("customer_name"));
+        row.put("Assigned Rep", rs.getString("assigned_rep"));
+        String assisted = rs.getString("assisted_rep");
+        row.put("Assisted Rep", assisted == null || assisted.isBlank() ? "" : "Assisted (" + assisted + ")");
+        row.put("Brand", rs.getString("brand"));
+        row.put("SO#", rs.getString("so_number"));
+        row.put("Sales Stage", rs.getString("sales_stage"));
+        row.put("Conversion Status", rs.getString("conversion_status"));
+        row.put("Custom Order Status", rs.getString("custom_order_status"));
+        row.put("In Production Status", rs.getString("in_production_status"));
+        LocalDate prodDeadline = rs.getDate("production_deadline") != null ? rs.getDate("production_deadline").toLocalDate() : null;
+        row.put("Production Deadline", prodDeadline != null ? timeUtil.formatDate(prodDeadline) : null);
+        row.put("Center Stone Order Status", rs.getString("center_stone_order_status"));
+        row.put("Next Steps", rs.getString("next_steps"));
+        row.put("Client Status Report URL", null);
+        return row;
+    }
+}
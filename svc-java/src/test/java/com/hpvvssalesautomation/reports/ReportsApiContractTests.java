@@ -19,12 +19,17 @@ class ReportsApiContractTests {
         assertThat(openAPI.getPaths()).containsKeys(
                 "/reports/by-status",
                 "/reports/by-rep",
+                "/reports/by-status/export",
+                "/reports/by-rep/export",
+                "/reports/summary",
                 "/dashboard/kpis"
         );
         assertThat(openAPI.getComponents().getSchemas()).containsKeys(
                 "ReportsByStatusResponse",
                 "ReportsByStatusRow",
                 "ReportsByRepResponse",
+                "ReportsFreshness",
+                "ReportsSummaryResponse",
                 "DashboardKpiResponse"
         );
     }
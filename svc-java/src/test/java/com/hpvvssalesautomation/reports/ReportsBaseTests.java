@@ -0,0 +1,86 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.ReportsBaseRefresher;
+import com.hpvvssalesautomation.domain.ReportsResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = {
+        "FEATURE_REPORTS=true",
+        "REPORTS_BASE_MAX_STALENESS=1h",
+        "REPORTS_BASE_REFRESH_INTERVAL=1h"
+})
+class ReportsBaseTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReportsBaseRefresher reportsBaseRefresher;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, customer_name, assigned_rep, brand, so_number, sales_stage, conversion_status) " +
+                        "VALUES (:visit_date, 'HP-BASE-1', 'Base Customer', 'Jamie Rep', 'HPUSA', 'SO-BASE-1', 'Deposit', 'Won')",
+                new MapSqlParameterSource("visit_date", LocalDate.parse("2024-07-10"))
+        );
+        reportsBaseRefresher.refresh();
+    }
+
+    @Test
+    void changesWithinStalenessBoundAreServedFromTheLastRefresh() {
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, payment_datetime, amount_gross, subtotal, amount_net) " +
+                        "VALUES ('DOC-BASE-1', 'INVOICE', 'SO', 'HP-BASE-1', 'SO-BASE-1', 'Sales Invoice', :payment_datetime, 4200.00, 4200.00, 4200.00)",
+                new MapSqlParameterSource("payment_datetime", OffsetDateTime.parse("2024-07-10T18:00:00Z"))
+        );
+        Integer pending = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM reports_base_pending WHERE root_appt_id = 'HP-BASE-1'",
+                Integer.class
+        );
+        assertThat(pending).isEqualTo(1);
+
+        ReportsResponse stale = restTemplate.getForObject("/reports/by-status?filters=status:Deposit", ReportsResponse.class);
+        assertThat(stale.rows()).hasSize(1);
+        assertThat(new BigDecimal(stale.rows().get(0).get("Order Total").toString())).isEqualByComparingTo("0.00");
+        assertThat(stale.freshness().refreshedAt()).isNotNull();
+        assertThat(stale.freshness().stalenessSeconds()).isNotNegative();
+
+        assertThat(reportsBaseRefresher.refresh()).isEqualTo(1);
+
+        ReportsResponse fresh = restTemplate.getForObject("/reports/by-status?filters=status:Deposit", ReportsResponse.class);
+        assertThat(new BigDecimal(fresh.rows().get(0).get("Order Total").toString())).isEqualByComparingTo("4200.00");
+        assertThat(fresh.freshness().stalenessSeconds()).isZero();
+        Integer rowsRefreshed = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT rows_refreshed FROM reports_base_meta WHERE relation = 'reports_base'",
+                Integer.class
+        );
+        assertThat(rowsRefreshed).isEqualTo(1);
+    }
+
+    @Test
+    void deletedMasterRowsLeaveTheReportBaseOnRefresh() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master WHERE root_appt_id = 'HP-BASE-1'");
+        reportsBaseRefresher.refresh();
+
+        Integer remaining = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM reports_base WHERE root_appt_id = 'HP-BASE-1'",
+                Integer.class
+        );
+        assertThat(remaining).isZero();
+    }
+}
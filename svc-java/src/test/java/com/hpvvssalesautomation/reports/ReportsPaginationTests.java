@@ -0,0 +1,96 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.ReportsResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+class ReportsPaginationTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+
+        insertMasterRow("HP-PG-1", "2024-07-10", "Deposit", "Jamie Rep");
+        insertMasterRow("HP-PG-2", "2024-07-10", "Deposit", "Jamie Rep");
+        insertMasterRow("HP-PG-3", "2024-07-01", "Deposit", "Kelly Rep");
+        insertMasterRow("HP-PG-4", null, "Deposit", null);
+        insertMasterRow("HP-PG-5", null, "Deposit", "Kelly Rep");
+        insertMasterRow("HP-PG-6", "2024-07-20", "Consult", "Jamie Rep");
+        insertMasterRow("HP-PG-7", "2024-07-15", null, "Alex Rep");
+    }
+
+    @Test
+    void pagesWalkTheFullReportInSortOrder() {
+        for (String report : List.of("by-status", "by-rep")) {
+            List<String> expected = rootIds(restTemplate.getForObject("/reports/" + report, ReportsResponse.class));
+            assertThat(expected).hasSize(7);
+
+            List<String> paged = new ArrayList<>();
+            ReportsResponse page = restTemplate.getForObject("/reports/" + report + "?limit=2&includeTotal=true", ReportsResponse.class);
+            assertThat(page.totalCount()).isEqualTo(7L);
+            paged.addAll(rootIds(page));
+            while (page.nextCursor() != null) {
+                assertThat(page.rows()).hasSize(2);
+                page = restTemplate.getForObject("/reports/" + report + "?limit=2&cursor=" + page.nextCursor(), ReportsResponse.class);
+                assertThat(page.totalCount()).isNull();
+                paged.addAll(rootIds(page));
+            }
+
+            assertThat(paged).as(report).containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void filtersApplyToPagesAndTotals() {
+        ReportsResponse first = restTemplate.getForObject("/reports/by-status?filters=status:deposit&limit=3&includeTotal=true", ReportsResponse.class);
+        assertThat(rootIds(first)).containsExactly("HP-PG-1", "HP-PG-2", "HP-PG-3");
+        assertThat(first.totalCount()).isEqualTo(5L);
+
+        ReportsResponse second = restTemplate.getForObject("/reports/by-status?filters=status:deposit&limit=3&cursor=" + first.nextCursor(), ReportsResponse.class);
+        assertThat(rootIds(second)).containsExactly("HP-PG-4", "HP-PG-5");
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    @Test
+    void invalidPagingParametersAreRejected() {
+        ResponseEntity<String> badCursor = restTemplate.getForEntity("/reports/by-status?cursor=not-a-cursor", String.class);
+        assertThat(badCursor.getStatusCode().value()).isEqualTo(400);
+
+        ResponseEntity<String> badLimit = restTemplate.getForEntity("/reports/by-rep?limit=0", String.class);
+        assertThat(badLimit.getStatusCode().value()).isEqualTo(400);
+    }
+
+    private List<String> rootIds(ReportsResponse response) {
+        return response.rows().stream().map(row -> (String) row.get("RootApptID")).toList();
+    }
+
+    private void insertMasterRow(String rootApptId, String visitDate, String salesStage, String assignedRep) {
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, customer_name, assigned_rep, brand, so_number, sales_stage) " +
+                        "VALUES (:visit_date, :root_appt_id, 'Paging Customer', :assigned_rep, 'HPUSA', :so_number, :sales_stage)",
+                new MapSqlParameterSource()
+                        .addValue("visit_date", visitDate == null ? null : LocalDate.parse(visitDate))
+                        .addValue("root_appt_id", rootApptId)
+                        .addValue("assigned_rep", assignedRep)
+                        .addValue("so_number", "SO-" + rootApptId)
+                        .addValue("sales_stage", salesStage)
+        );
+    }
+}
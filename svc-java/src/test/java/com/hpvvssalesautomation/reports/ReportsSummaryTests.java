@@ -0,0 +1,133 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.ReportsSummaryGroup;
+import com.hpvvssalesautomation.domain.ReportsSummaryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+class ReportsSummaryTests extends AbstractIntegrationTest {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+
+        insertMasterRow("HP-SUM-1", "SO-SUM-1", "HPUSA", "Deposit", "Jamie Rep");
+        insertMasterRow("HP-SUM-2", "SO-SUM-2", "HPUSA", "Consult", "Kelly Rep");
+        insertMasterRow("HP-SUM-3", "SO-SUM-3", "VVS", "Deposit", "Jamie Rep");
+        insertMasterRow("HP-SUM-4", null, "VVS", null, null);
+
+        insertLedger("SO-SUM-1", "HP-SUM-1", "INVOICE", "2024-07-01T18:00:00Z", new BigDecimal("1000.00"));
+        insertLedger("SO-SUM-1", "HP-SUM-1", "RECEIPT", "2024-07-02T18:00:00Z", new BigDecimal("400.00"));
+        insertLedger("SO-SUM-2", "HP-SUM-2", "INVOICE", "2024-07-03T18:00:00Z", new BigDecimal("2000.00"));
+        insertLedger("SO-SUM-3", "HP-SUM-3", "INVOICE", "2024-07-04T18:00:00Z", new BigDecimal("500.00"));
+        insertLedger("SO-SUM-3", "HP-SUM-3", "RECEIPT", "2024-07-05T18:00:00Z", new BigDecimal("500.00"));
+    }
+
+    @Test
+    void summaryGroupsByStageRepAndBrandWithSubtotals() {
+        ResponseEntity<ReportsSummaryResponse> response = restTemplate.getForEntity("/reports/summary", ReportsSummaryResponse.class);
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(response.getHeaders().getETag()).isNotBlank();
+        ReportsSummaryResponse summary = response.getBody();
+        assertThat(summary).isNotNull();
+
+        assertThat(summary.byStage()).containsExactly(
+                group(null, "", null, 1, "0.00", "0.00"),
+                group(null, "Consult", null, 1, "2000.00", "0.00"),
+                group(null, "Deposit", null, 2, "1500.00", "900.00")
+        );
+        assertThat(summary.byRep()).containsExactly(
+                group(null, null, "", 1, "0.00", "0.00"),
+                group(null, null, "Jamie Rep", 2, "1500.00", "900.00"),
+                group(null, null, "Kelly Rep", 1, "2000.00", "0.00")
+        );
+        assertThat(summary.byBrandStage()).containsExactly(
+                group("HPUSA", "Consult", null, 1, "2000.00", "0.00"),
+                group("HPUSA", "Deposit", null, 1, "1000.00", "400.00"),
+                group("VVS", "", null, 1, "0.00", "0.00"),
+                group("VVS", "Deposit", null, 1, "500.00", "500.00")
+        );
+        assertThat(summary.byBrand()).containsExactly(
+                group("HPUSA", null, null, 2, "3000.00", "400.00"),
+                group("VVS", null, null, 2, "500.00", "500.00")
+        );
+        assertThat(summary.total()).isEqualTo(group(null, null, null, 4, "3500.00", "900.00"));
+    }
+
+    @Test
+    void summaryAppliesFiltersBeforeGrouping() {
+        ReportsSummaryResponse filtered = restTemplate.getForObject("/reports/summary?filters=brand:vvs", ReportsSummaryResponse.class);
+        assertThat(filtered.byBrand()).containsExactly(group("VVS", null, null, 2, "500.00", "500.00"));
+        assertThat(filtered.total()).isEqualTo(group(null, null, null, 2, "500.00", "500.00"));
+
+        ReportsSummaryResponse empty = restTemplate.getForObject("/reports/summary?filters=brand:nomatch", ReportsSummaryResponse.class);
+        assertThat(empty.byStage()).isEmpty();
+        assertThat(empty.byRep()).isEmpty();
+        assertThat(empty.byBrandStage()).isEmpty();
+        assertThat(empty.byBrand()).isEmpty();
+        assertThat(empty.total()).isEqualTo(group(null, null, null, 0, "0.00", "0.00"));
+    }
+
+    @Test
+    void summaryOmitsColumnsAGroupIsNotKeyedBy() {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = restTemplate.getForObject("/reports/summary", Map.class);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> total = (Map<String, Object>) body.get("total");
+        assertThat(total).containsOnlyKeys("count", "orderTotal", "paidToDate");
+    }
+
+    private static ReportsSummaryGroup group(String brand, String stage, String rep, long count, String orderTotal, String paidToDate) {
+        return new ReportsSummaryGroup(brand, stage, rep, count, new BigDecimal(orderTotal), new BigDecimal(paidToDate));
+    }
+
+    private void insertMasterRow(String rootApptId, String soNumber, String brand, String salesStage, String assignedRep) {
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, so_number, customer_name, brand, sales_stage, assigned_rep) " +
+                        "VALUES (:visit_date, :root_appt_id, :so_number, :customer_name, :brand, :sales_stage, :assigned_rep)",
+                new MapSqlParameterSource()
+                        .addValue("visit_date", LocalDate.parse("2024-07-01"))
+                        .addValue("root_appt_id", rootApptId)
+                        .addValue("so_number", soNumber)
+                        .addValue("customer_name", "Summary " + rootApptId)
+                        .addValue("brand", brand)
+                        .addValue("sales_stage", salesStage)
+                        .addValue("assigned_rep", assignedRep)
+        );
+    }
+
+    private void insertLedger(String soNumber, String rootApptId, String docRole, String paymentDateTime, BigDecimal amount) {
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, payment_datetime, " +
+                        "amount_gross, amount_net, request_hash) " +
+                        "VALUES (:doc_number, :doc_role, 'SO', :root_appt_id, :so_number, :doc_type, :payment_datetime, :amount, :amount, :request_hash)",
+                new MapSqlParameterSource()
+                        .addValue("doc_number", soNumber + "-" + docRole + "-" + paymentDateTime)
+                        .addValue("doc_role", docRole)
+                        .addValue("root_appt_id", rootApptId)
+                        .addValue("so_number", soNumber)
+                        .addValue("doc_type", docRole.equals("INVOICE") ? "Sales Invoice" : "Sales Receipt")
+                        .addValue("payment_datetime", OffsetDateTime.parse(paymentDateTime))
+                        .addValue("amount", amount)
+                        .addValue("request_hash", paymentDateTime + docRole)
+        );
+    }
+}
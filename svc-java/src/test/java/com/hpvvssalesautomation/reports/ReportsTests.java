@@ -1,10 +1,13 @@
 package com.hpvvssalesautomation.reports;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hpvvssalesautomation.AbstractIntegrationTest;
 import com.hpvvssalesautomation.domain.ReportsResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
@@ -24,6 +27,9 @@ class ReportsTests extends AbstractIntegrationTest {
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @BeforeEach
     void setupData() {
         jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
@@ -84,6 +90,51 @@ class ReportsTests extends AbstractIntegrationTest {
         assertThat(keyOrder.subList(0, 3)).containsExactly("Visit Date", "Order Total", "Total Pay To Date");
     }
 
+    @Test
+    void exportStreamsSameColumnsAsJsonReport() throws Exception {
+        ReportsResponse json = restTemplate.getForObject("/reports/by-status?filters=includeProductionCols:true", ReportsResponse.class);
+        List<String> jsonColumns = json.rows().get(0).keySet().stream().toList();
+
+        ResponseEntity<String> csv = restTemplate.getForEntity("/reports/by-status/export?filters=includeProductionCols:true", String.class);
+        assertThat(csv.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(csv.getHeaders().getContentType().toString()).startsWith("text/csv");
+        assertThat(csv.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).contains("report-by-status.csv");
+        List<String> csvLines = csv.getBody().lines().toList();
+        assertThat(csvLines).hasSize(1 + json.rows().size());
+        assertThat(List.of(csvLines.get(0).split(","))).containsExactlyElementsOf(jsonColumns);
+        assertThat(csvLines.get(1)).startsWith("2024-07-05,3500.00,0.00,HP-502,");
+
+        ResponseEntity<String> ndjson = restTemplate.getForEntity("/reports/by-rep/export?filters=brand:hpusa&format=ndjson", String.class);
+        assertThat(ndjson.getStatusCode().is2xxSuccessful()).isTrue();
+        assertThat(ndjson.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        List<String> ndjsonLines = ndjson.getBody().lines().toList();
+        assertThat(ndjsonLines).hasSize(1);
+        Map<String, Object> exported = objectMapper.readValue(ndjsonLines.get(0), new TypeReference<>() {
+        });
+        Map<String, Object> expected = restTemplate.getForObject("/reports/by-rep?filters=brand:hpusa", ReportsResponse.class).rows().get(0);
+        assertThat(exported.keySet()).containsExactlyElementsOf(expected.keySet());
+        assertThat(exported.get("RootApptID")).isEqualTo("HP-501");
+        assertThat(new BigDecimal(exported.get("Order Total").toString())).isEqualByComparingTo("8200.00");
+    }
+
+    @Test
+    void aliasSpellingsOfAFilterShareOnePlan() {
+        ResponseEntity<ReportsResponse> canonical = restTemplate.getForEntity("/reports/by-status?filters=status:Deposit", ReportsResponse.class);
+        ResponseEntity<ReportsResponse> aliased = restTemplate.getForEntity("/reports/by-status?filters=Sales Stage:DEPOSIT", ReportsResponse.class);
+        ResponseEntity<ReportsResponse> repeated = restTemplate.getForEntity("/reports/by-status?filters=status:Deposit", ReportsResponse.class);
+
+        assertThat(aliased.getBody().rows()).isEqualTo(canonical.getBody().rows());
+        assertThat(repeated.getBody().rows()).isEqualTo(canonical.getBody().rows());
+        assertThat(canonical.getBody().rows()).extracting(row -> row.get("RootApptID")).containsExactly("HP-501");
+        assertThat(aliased.getHeaders().getETag()).isEqualTo(canonical.getHeaders().getETag());
+    }
+
+    @Test
+    void exportRejectsUnknownFormat() {
+        ResponseEntity<String> response = restTemplate.getForEntity("/reports/by-status/export?format=xlsx", String.class);
+        assertThat(response.getStatusCode().value()).isEqualTo(400);
+    }
+
     private void insertMasterRow(String visitDate,
                                  String rootApptId,
                                  String soNumber,
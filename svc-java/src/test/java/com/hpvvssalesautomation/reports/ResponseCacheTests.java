@@ -0,0 +1,90 @@
+package com.hpvvssalesautomation.reports;
+
+import com.hpvvssalesautomation.AbstractIntegrationTest;
+import com.hpvvssalesautomation.domain.DashboardKpiResponse;
+import com.hpvvssalesautomation.domain.ReportsResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "FEATURE_REPORTS=true")
+class ResponseCacheTests extends AbstractIntegrationTest {
+
+    private static final String KPIS = "/dashboard/kpis?dateFrom=2024-07-01&dateTo=2024-07-31";
+    private static final String BY_STATUS = "/reports/by-status?filters=status:Deposit";
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setupData() {
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM payments_ledger");
+        jdbcTemplate.getJdbcTemplate().update("DELETE FROM master");
+        jdbcTemplate.update(
+                "INSERT INTO master (visit_date, root_appt_id, customer_name, assigned_rep, brand, so_number, sales_stage, conversion_status) " +
+                        "VALUES (:visit_date, 'HP-ETAG-1', 'Etag Customer', 'Jamie Rep', 'HPUSA', 'SO-ETAG-1', 'Deposit', 'Won')",
+                new MapSqlParameterSource("visit_date", LocalDate.parse("2024-07-02"))
+        );
+    }
+
+    @Test
+    void unchangedDashboardIsNotModifiedUntilTheLedgerChanges() {
+        ResponseEntity<DashboardKpiResponse> first = get(KPIS, null, DashboardKpiResponse.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(etag).isNotBlank();
+        assertThat(first.getHeaders().getCacheControl()).isEqualTo("no-cache");
+
+        ResponseEntity<DashboardKpiResponse> revalidated = get(KPIS, etag, DashboardKpiResponse.class);
+        assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(revalidated.getBody()).isNull();
+
+        ResponseEntity<DashboardKpiResponse> otherRange = get("/dashboard/kpis?dateFrom=2024-07-01", etag, DashboardKpiResponse.class);
+        assertThat(otherRange.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        jdbcTemplate.update(
+                "INSERT INTO payments_ledger (doc_number, doc_role, anchor_type, root_appt_id, so_number, doc_type, payment_datetime, amount_gross, amount_net) " +
+                        "VALUES ('DOC-ETAG-1', 'RECEIPT', 'SO', 'HP-ETAG-1', 'SO-ETAG-1', 'Sales Receipt', :payment_datetime, 900.00, 900.00)",
+                new MapSqlParameterSource("payment_datetime", OffsetDateTime.parse("2024-07-03T18:00:00Z"))
+        );
+
+        ResponseEntity<DashboardKpiResponse> changed = get(KPIS, etag, DashboardKpiResponse.class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getHeaders().getETag()).isNotEqualTo(etag);
+        assertThat(changed.getBody().totalDeposits()).isEqualByComparingTo("900.00");
+    }
+
+    @Test
+    void reportsRevalidateAgainstMasterWrites() {
+        ResponseEntity<ReportsResponse> first = get(BY_STATUS, null, ReportsResponse.class);
+        String etag = first.getHeaders().getETag();
+        assertThat(first.getBody().rows()).hasSize(1);
+        assertThat(get(BY_STATUS, etag, ReportsResponse.class).getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        jdbcTemplate.getJdbcTemplate().update("UPDATE master SET sales_stage = 'Lead' WHERE root_appt_id = 'HP-ETAG-1'");
+
+        ResponseEntity<ReportsResponse> changed = get(BY_STATUS, etag, ReportsResponse.class);
+        assertThat(changed.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(changed.getBody().rows()).isEmpty();
+    }
+
+    private <T> ResponseEntity<T> get(String url, String ifNoneMatch, Class<T> type) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), type);
+    }
+}